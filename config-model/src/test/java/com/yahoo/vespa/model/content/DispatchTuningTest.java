@@ -45,6 +45,14 @@ public class DispatchTuningTest {
         assertNull(dispatch.getMinActiveDocsCoverage());
     }
 
+    @Test
+    public void requireThatLatencyAwareDispatchWork() {
+        DispatchTuning dispatch = new DispatchTuning.Builder()
+                .setDispatchPolicy("latency-aware")
+                .build();
+        assertTrue(DispatchTuning.DispatchPolicy.LATENCY_AWARE == dispatch.getDispatchPolicy());
+    }
+
     @Test
     public void requireThatDefaultsAreNull() {
         DispatchTuning dispatch = new DispatchTuning.Builder().build();
@@ -64,6 +64,12 @@ public class DocsumDefinition {
         return fields.get(fieldIndex);
     }
 
+    /** Returns the index of the field with this name, or -1 if none */
+    int getFieldIndex(String fieldName) {
+        Integer index = fieldNameToIndex.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
     /** Returns the field with this name, or null if none */
     public DocsumField getField(String fieldName) {
         Integer index = fieldNameToIndex.get(fieldName);
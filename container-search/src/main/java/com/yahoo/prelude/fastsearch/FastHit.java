@@ -10,6 +10,7 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
 import com.yahoo.data.access.Inspector;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -63,6 +64,13 @@ public class FastHit extends Hit {
     /** Removed field values, which should therefore not be returned if present in summary data */
     private Set<String> removedFields = null;
 
+    /**
+     * The names of the fields read from summary data, in the order they were first read, or null if none.
+     * Fields are iterated in this order after the fields in the field map, and before other summary fields,
+     * such that the field order is the order of first access. Fields which are set are removed from this.
+     */
+    private List<String> readFields = null;
+
     /**
      * Creates an empty and temporarily invalid summary hit
      */
@@ -234,8 +242,11 @@ public class FastHit extends Hit {
         Object value = super.getField(name);
         if (value != null) return value;
         value = getSummaryValue(name);
-        if (value != null)
-            super.setField(name, value);
+        if (value != null && ! isReadFromSummaries(name)) {
+            if (readFields == null)
+                readFields = new ArrayList<>(4);
+            readFields.add(name);
+        }
         return value;
     }
 
@@ -247,6 +258,8 @@ public class FastHit extends Hit {
                     removedFields = null;
             }
         }
+        if (readFields != null)
+            readFields.remove(name);
         Object oldValue = super.setField(name, value);
         if (oldValue != null) return oldValue;
         return getSummaryValue(name);
@@ -255,6 +268,7 @@ public class FastHit extends Hit {
     @Override
     public void forEachField(BiConsumer<String, Object> consumer) {
         super.forEachField(consumer);
+        forEachReadField(consumer);
         for (SummaryData summaryData : summaries)
             summaryData.forEachField(consumer);
     }
@@ -262,10 +276,17 @@ public class FastHit extends Hit {
     @Override
     public void forEachFieldAsRaw(RawUtf8Consumer consumer) {
         super.forEachField(consumer);
+        forEachReadField(consumer);
         for (SummaryData summaryData : summaries)
             summaryData.forEachFieldAsRaw(consumer);
     }
 
+    private void forEachReadField(BiConsumer<String, Object> consumer) {
+        if (readFields == null) return;
+        for (String name : readFields)
+            consumer.accept(name, getSummaryValue(name));
+    }
+
     @Override
     public Map<String, Object> fields() {
         Map<String, Object> fields = new HashMap<>();
@@ -302,6 +323,7 @@ public class FastHit extends Hit {
         summaries.clear();
         if (removedFields != null)
             removedFields = null;
+        readFields = null;
         super.clearFields();
     }
 
@@ -315,6 +337,8 @@ public class FastHit extends Hit {
         Object removedValue = super.removeField(name);
         if (removedValue == null)
             removedValue = getSummaryValue(name);
+        if (readFields != null)
+            readFields.remove(name);
 
         if (removedValue != null) {
             if (removedFields == null)
@@ -345,6 +369,11 @@ public class FastHit extends Hit {
         return super.hasFields();
     }
 
+    /** Returns whether this field is read from summary data and not set since */
+    private boolean isReadFromSummaries(String name) {
+        return readFields != null && readFields.contains(name);
+    }
+
     private Object getSummaryValue(String name) {
         if (removedFields != null && removedFields.contains(name))
             return null;
@@ -533,6 +562,13 @@ public class FastHit extends Hit {
         /** The index from the end of this summary in the list of summaries */
         private final int index;
 
+        /**
+         * The values of this converted from the summary data, by field index in the type,
+         * or null if no values are converted yet. Values are converted only when accessed,
+         * and kept here rather than in the field map of the hit, which is only needed when fields are set.
+         */
+        private Object[] values = null;
+
         SummaryData(FastHit hit, DocsumDefinition type, Inspector data, int index) {
             this.hit = hit;
             this.type = type;
@@ -541,13 +577,35 @@ public class FastHit extends Hit {
         }
 
         Object getField(String name) {
-            return type.convert(name, data.field(name));
+            int fieldIndex = type.getFieldIndex(name);
+            if (fieldIndex < 0) return null;
+            return getField(fieldIndex, data.field(name));
+        }
+
+        /** Returns the value of the field at the given index in the type, converting it from the given data if necessary */
+        private Object getField(int fieldIndex, Inspector value) {
+            if (values != null && values[fieldIndex] != null) return values[fieldIndex];
+            if ( ! value.valid()) return null;
+
+            Object convertedValue = type.getField(fieldIndex).convert(value);
+            if (convertedValue == null) return null;
+            if (values == null)
+                values = new Object[type.getFieldCount()];
+            values[fieldIndex] = convertedValue;
+            return convertedValue;
+        }
+
+        /** Returns the value of the given field, or null if the type of this does not contain it */
+        private Object convert(String name, Inspector value) {
+            int fieldIndex = type.getFieldIndex(name);
+            if (fieldIndex < 0) return null;
+            return getField(fieldIndex, value);
         }
 
         void forEachField(BiConsumer<String, Object> consumer) {
             data.traverse((ObjectTraverser)(name, value) -> {
                 if (!shadowed(name) && !removed(name)) {
-                    Object convertedValue = type.convert(name, value);
+                    Object convertedValue = convert(name, value);
                     if (convertedValue != null)
                         consumer.accept(name, convertedValue);
                 }
@@ -563,7 +621,7 @@ public class FastHit extends Hit {
                             byte[] utf8Value = value.asUtf8();
                             consumer.accept(name, utf8Value, 0, utf8Value.length);
                         } else {
-                            Object convertedValue = fieldType.convert(value);
+                            Object convertedValue = convert(name, value);
                             if (convertedValue != null)
                                 consumer.accept(name, convertedValue);
                         }
@@ -573,7 +631,7 @@ public class FastHit extends Hit {
         }
 
         Iterator<Map.Entry<String, Object>> fieldIterator() {
-            return new SummaryDataFieldIterator(this, type, data.fields().iterator());
+            return new SummaryDataFieldIterator(this, data.fields().iterator());
         }
 
         Iterator<String> fieldNameIterator() {
@@ -581,11 +639,12 @@ public class FastHit extends Hit {
         }
 
         /**
-         * Returns whether this field is present in the map properties
-         * or a summary added later in this hit
+         * Returns whether this field is present in the map properties, is read from the summaries
+         * (and therefore iterated before them), or is in a summary added later in this hit
          */
         private boolean shadowed(String name) {
             if (hit.hasField(name)) return true;
+            if (hit.isReadFromSummaries(name)) return true;
             for (int i = 0; i < hit.summaries.size() - index; i++) {
                 if (hit.summaries.get(i).type.fieldNames().contains(name))
                     return true;
@@ -603,7 +662,7 @@ public class FastHit extends Hit {
          */
         private static abstract class SummaryDataIterator<VALUE> implements Iterator<VALUE> {
 
-            private final SummaryData summaryData;
+            protected final SummaryData summaryData;
             private final Iterator<Map.Entry<String, Inspector>> fieldIterator;
 
             /** The next value or null if none, eagerly read because we need to skip removed and overwritten values */
@@ -646,19 +705,15 @@ public class FastHit extends Hit {
         /** Iterator over the fields in a SummaryData instance. Read only. */
         private static class SummaryDataFieldIterator extends SummaryDataIterator<Map.Entry<String, Object>> {
 
-            private final DocsumDefinition type;
-
             SummaryDataFieldIterator(SummaryData summaryData,
-                                     DocsumDefinition type,
                                      Iterator<Map.Entry<String, Inspector>> fieldIterator) {
                 super(summaryData, fieldIterator);
-                this.type = type;
                 advanceNext();
             }
 
             @Override
             protected Map.Entry<String, Object> toValue(Map.Entry<String, Inspector> field) {
-                Object convertedValue = type.convert(field.getKey(), field.getValue());
+                Object convertedValue = summaryData.convert(field.getKey(), field.getValue());
                 if (convertedValue == null) return null;
                 return new SummaryFieldEntry(field.getKey(), convertedValue);
             }
@@ -712,8 +767,11 @@ public class FastHit extends Hit {
 
         private final FastHit hit;
 
-        /** -1 means that the current iterator is the map iterator of the parent hit, not any summary data iterator */
-        private int currentSummaryDataIndex = -1;
+        /**
+         * -2 means that the current iterator is the map iterator of the parent hit, and -1 that it is the iterator
+         * over the fields read from summary data, not any summary data iterator
+         */
+        private int currentSummaryDataIndex = -2;
         private Iterator<VALUE> currentIterator;
         private VALUE previousReturned = null;
 
@@ -739,7 +797,7 @@ public class FastHit extends Hit {
             if (previousReturned == null)
                 throw new IllegalStateException();
             if ( ! ( currentIterator instanceof SummaryData.SummaryDataIterator))
-                currentIterator.remove(); // remove from the map
+                currentIterator.remove(); // remove from the map or the read fields
             if (hit.removedFields == null)
                 hit.removedFields = new HashSet<>();
             hit.removedFields.add(nameOf(previousReturned));
@@ -747,18 +805,40 @@ public class FastHit extends Hit {
         }
 
         protected abstract String nameOf(VALUE value);
+        protected abstract VALUE toValue(String name, Object value);
         protected abstract Iterator<VALUE> iteratorFor(SummaryData summary);
 
         /** Advanced to the next non-empty iterator, if any */
         private boolean nextIterator() {
             while (++currentSummaryDataIndex < hit.summaries.size()) {
-                currentIterator = iteratorFor(hit.summaries.get(currentSummaryDataIndex));
+                currentIterator = currentSummaryDataIndex < 0 ? readFieldsIterator()
+                                                               : iteratorFor(hit.summaries.get(currentSummaryDataIndex));
                 if (currentIterator.hasNext())
                     return true;
             }
             return false;
         }
 
+        private Iterator<VALUE> readFieldsIterator() {
+            if (hit.readFields == null) return Collections.emptyIterator();
+            Iterator<String> names = hit.readFields.iterator();
+            return new Iterator<VALUE>() {
+
+                @Override
+                public boolean hasNext() { return names.hasNext(); }
+
+                @Override
+                public VALUE next() {
+                    String name = names.next();
+                    return toValue(name, hit.getSummaryValue(name));
+                }
+
+                @Override
+                public void remove() { names.remove(); }
+
+            };
+        }
+
     }
 
     /** Iterator over all the field content of a FastHit */
@@ -773,6 +853,11 @@ public class FastHit extends Hit {
             return value.getKey();
         }
 
+        @Override
+        protected Map.Entry<String, Object> toValue(String name, Object value) {
+            return new AbstractMap.SimpleImmutableEntry<>(name, value);
+        }
+
         @Override
         protected Iterator<Map.Entry<String, Object>> iteratorFor(SummaryData summary) {
             return summary.fieldIterator();
@@ -792,6 +877,11 @@ public class FastHit extends Hit {
             return value;
         }
 
+        @Override
+        protected String toValue(String name, Object value) {
+            return name;
+        }
+
         @Override
         protected Iterator<String> iteratorFor(SummaryData summary) {
             return summary.fieldNameIterator();
@@ -4,6 +4,7 @@ package com.yahoo.prelude.fastsearch;
 import com.yahoo.prelude.Ping;
 import com.yahoo.prelude.Pong;
 import com.yahoo.prelude.querytransform.QueryRewrite;
+import com.yahoo.processing.response.IncomingData;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.Dispatcher;
@@ -11,14 +12,23 @@ import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.SearchInvoker;
 import com.yahoo.search.grouping.GroupingRequest;
 import com.yahoo.search.grouping.request.GroupingOperation;
+import com.yahoo.search.grouping.vespa.GroupingExecutor;
+import com.yahoo.search.query.Model;
 import com.yahoo.search.query.Ranking;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorHit;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
 import com.yahoo.search.searchchain.Execution;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 import static com.yahoo.container.util.Util.quote;
@@ -85,31 +95,173 @@ public class FastSearcher extends VespaBackEndSearcher {
     public Result doSearch2(Query query, Execution execution) {
         if (dispatcher.searchCluster().groupSize() == 1)
             forceSinglePassGrouping(query);
+        if (isStreamed(query)) {
+            Optional<Result> result = streamingSearch(query, execution);
+            if (result.isPresent()) return result.get();
+        }
         try (SearchInvoker invoker = getSearchInvoker(query)) {
-            Result result = invoker.search(query, execution);
-            injectSource(result.hits());
-
-            if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
-                // There is currently no correct choice for which
-                // summary class we want to fetch at this point. If we
-                // fetch the one selected by the user it may not
-                // contain the data we need. If we fetch the default
-                // one we end up fetching docsums twice unless the
-                // user also requested the default one.
-                fill(result, query.getPresentation().getSummary(), execution); // ARGH
-            }
-            return result;
-        } catch (TimeoutException e) {
-            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
+            return completeSearch(invoker.search(query, execution), query, execution);
         } catch (IOException e) {
-            Result result = new Result(query);
-            if (query.getTraceLevel() >= 1)
-                query.trace(getName() + " error response: " + result, false, 1);
-            result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
-            return result;
+            return errorResult(query, e);
+        }
+    }
+
+    /**
+     * Sends the query to the content nodes and returns a future which is completed with the result
+     * once responses are received, without blocking any thread while waiting.
+     * Responses are processed in the common fork/join pool. Streamed queries are searched as by doSearch2,
+     * which does not wait for the responses either.
+     */
+    @Override
+    protected CompletableFuture<Result> doSearch2Async(Query query, Execution execution) {
+        if (isStreamed(query))
+            return CompletableFuture.completedFuture(doSearch2(query, execution));
+        if (dispatcher.searchCluster().groupSize() == 1)
+            forceSinglePassGrouping(query);
+        SearchInvoker invoker = getSearchInvoker(query);
+        try {
+            return invoker.searchAsync(query, execution, ForkJoinPool.commonPool())
+                          .handle((result, exception) -> {
+                              try {
+                                  if (exception == null) return completeSearch(result, query, execution);
+                                  if (exception instanceof CompletionException) exception = exception.getCause();
+                                  if (exception instanceof IOException) return errorResult(query, (IOException)exception);
+                                  if (exception instanceof UncheckedIOException) return errorResult(query, ((UncheckedIOException)exception).getCause());
+                                  if (exception instanceof RuntimeException) throw (RuntimeException)exception;
+                                  throw new CompletionException(exception);
+                              }
+                              finally {
+                                  invoker.close();
+                              }
+                          });
+        } catch (RuntimeException e) {
+            invoker.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a result whose hits are added as sections when they become available, such that they can be
+     * rendered while waiting for the slowest content nodes: When some but not all content nodes have responded,
+     * a <i>provisional</i> section containing the best hits received so far is added, and when the search is
+     * complete, a <i>final</i> section containing the final hits, which should replace any provisional ones.
+     * Each section is filled with the summary class of the query, and the final section contains the total hit count,
+     * coverage and errors as fields.
+     * <p>
+     * The returned result has no hits: Searchers above this must wait for the sections in <code>hits().incoming()</code>.
+     * The search and the fill of the provisional section run in the streaming executor of the dispatcher, on clones of
+     * the query and execution. If it is at capacity, this returns empty, and the query should not be streamed.
+     */
+    private Optional<Result> streamingSearch(Query query, Execution execution) {
+        Query streamedQuery = query.clone();
+        Execution streamedExecution = new Execution(execution);
+        Result result = new Result(query, HitGroup.createAsync("toplevel"));
+        StreamedSections sections = new StreamedSections(result.hits().incoming());
+        try {
+            dispatcher.streamingExecutor().execute(() -> sections.addFinal(finalSection(streamedQuery, streamedExecution, sections)));
+        } catch (RejectedExecutionException e) {
+            query.trace("Not streaming hits: Too many concurrent streamed searches", 2);
+            return Optional.empty();
+        }
+        query.trace("Streaming hits as sections in hits().incoming()", 2);
+        return Optional.of(result);
+    }
+
+    private HitGroup finalSection(Query query, Execution execution, StreamedSections sections) {
+        try (SearchInvoker invoker = getSearchInvoker(query)) {
+            invoker.setProvisionalResultListener(provisional -> addProvisionalSection(provisional, execution, sections));
+            Result complete;
+            try {
+                complete = completeSearch(invoker.search(query, execution), query, execution);
+            } catch (IOException e) {
+                complete = errorResult(query, e);
+            }
+            HitGroup section = section("final", complete, execution);
+            section.setField("totalCount", complete.getTotalHitCount());
+            Coverage coverage = complete.getCoverage(false);
+            if (coverage != null) {
+                section.setField("coverage", coverage.getResultPercentage());
+                section.setField("documents", coverage.getDocs());
+                section.setField("full", coverage.getFull());
+            }
+            return section;
+        } catch (RuntimeException e) {
+            getLogger().log(Level.WARNING, "Exception in streaming search of " + query, e);
+            HitGroup section = new HitGroup("final");
+            section.addError(ErrorMessage.createUnspecifiedError("Failed searching: " + e.getMessage(), e));
+            return section;
         }
     }
 
+    /**
+     * Fills and adds the given provisional result in the streaming executor, such that the thread merging
+     * the responses is not held up by a summary request. The query used by that thread is not shared with the fill.
+     * Provisional sections are optional, so this is skipped when the executor is at capacity.
+     */
+    private void addProvisionalSection(Result provisional, Execution execution, StreamedSections sections) {
+        provisional.setQuery(provisional.getQuery().clone());
+        try {
+            dispatcher.streamingExecutor().execute(() -> {
+                try {
+                    sections.addProvisional(section("provisional", provisional, execution));
+                } catch (RuntimeException e) {
+                    getLogger().log(Level.FINE, "Exception filling the provisional section of " + provisional.getQuery(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Skip the provisional section
+        }
+    }
+
+    /** Returns the hits of the given result as a filled section with the given id */
+    private HitGroup section(String id, Result result, Execution execution) {
+        injectSource(result.hits());
+        fill(result, result.getQuery().getPresentation().getSummary(), execution);
+        HitGroup section = new HitGroup(id);
+        ErrorHit errors = result.hits().getErrorHit();
+        for (Hit hit : result.hits().asList()) {
+            if (hit != errors)
+                section.add(hit);
+        }
+        if (errors != null)
+            errors.errors().forEach(section::addError);
+        return section;
+    }
+
+    /** Returns whether the given query should be streamed. Queries with grouping and estimate queries are never streamed */
+    private boolean isStreamed(Query query) {
+        if ( ! query.properties().getBoolean(Dispatcher.dispatchStreaming, false)) return false;
+        if ( ! query.getSelect().getGrouping().isEmpty() || GroupingExecutor.hasGroupingList(query)) return false;
+        if (query.properties().getBoolean(Model.ESTIMATE)) return false;
+        return true;
+    }
+
+    private Result completeSearch(Result result, Query query, Execution execution) {
+        injectSource(result.hits());
+
+        if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
+            // There is currently no correct choice for which
+            // summary class we want to fetch at this point. If we
+            // fetch the one selected by the user it may not
+            // contain the data we need. If we fetch the default
+            // one we end up fetching docsums twice unless the
+            // user also requested the default one.
+            fill(result, query.getPresentation().getSummary(), execution); // ARGH
+        }
+        return result;
+    }
+
+    private Result errorResult(Query query, IOException e) {
+        if (e instanceof TimeoutException)
+            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
+
+        Result result = new Result(query);
+        if (query.getTraceLevel() >= 1)
+            query.trace(getName() + " error response: " + result, false, 1);
+        result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
+        return result;
+    }
+
     /**
      * Perform a partial docsum fill for a temporary result
      * representing a partition of the complete fill request.
@@ -170,4 +322,28 @@ public class FastSearcher extends VespaBackEndSearcher {
     protected boolean isLoggingFine() {
         return getLogger().isLoggable(Level.FINE);
     }
+
+    /** The sections of a streamed result, where provisional sections arriving after the final one are dropped */
+    private static class StreamedSections {
+
+        private final IncomingData<Hit> incoming;
+        private boolean complete = false;
+
+        StreamedSections(IncomingData<Hit> incoming) {
+            this.incoming = incoming;
+        }
+
+        synchronized void addProvisional(HitGroup section) {
+            if ( ! complete)
+                incoming.add(section);
+        }
+
+        synchronized void addFinal(HitGroup section) {
+            complete = true;
+            incoming.add(section);
+            incoming.markComplete();
+        }
+
+    }
+
 }
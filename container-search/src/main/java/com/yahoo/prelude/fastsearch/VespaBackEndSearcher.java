@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,6 +73,17 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
      */
     protected abstract Result doSearch2(Query query, Execution execution);
 
+    /**
+     * Searches a search cluster without blocking while waiting for the responses.
+     * This default implementation calls doSearch2 in the calling thread.
+     *
+     * @param query the query to search
+     * @param execution the query execution context
+     */
+    protected CompletableFuture<Result> doSearch2Async(Query query, Execution execution) {
+        return CompletableFuture.completedFuture(doSearch2(query, execution));
+    }
+
     protected abstract void doPartialFill(Result result, String summaryClass);
 
     /**
@@ -141,10 +153,29 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     protected void transformQuery(Query query) { }
 
     public Result search(Query query, Execution execution) {
+        Optional<Result> result = prepareSearch(query);
+        if (result.isPresent()) return result.get();
+        return completeSearch(doSearch2(query, execution), query);
+    }
+
+    /** Does what search does without blocking while waiting for the backend */
+    @Override
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        Optional<Result> result = prepareSearch(query);
+        if (result.isPresent()) return CompletableFuture.completedFuture(result.get());
+        return doSearch2Async(query, execution).thenApply(backendResult -> completeSearch(backendResult, query));
+    }
+
+    /**
+     * Rewrites the query for the backend.
+     *
+     * @return the result to return without searching the backend, or empty if the backend should be searched
+     */
+    private Optional<Result> prepareSearch(Query query) {
         // query root should not be null here
         Item root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) {
-            return new Result(query, ErrorMessage.createNullQuery(query.getHttpRequest().getUri().toString()));
+            return Optional.of(new Result(query, ErrorMessage.createNullQuery(query.getHttpRequest().getUri().toString())));
         }
 
         QueryRewrite.optimizeByRestrict(query);
@@ -153,7 +184,7 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
 
         root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) // root can become null after optimization
-            return new Result(query);
+            return Optional.of(new Result(query));
 
         resolveDocumentDatabase(query);
         transformQuery(query);
@@ -161,9 +192,12 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
 
         root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) // root can become null after resolving and transformation?
-            return new Result(query);
+            return Optional.of(new Result(query));
+
+        return Optional.empty();
+    }
 
-        Result result = doSearch2(query, execution);
+    private Result completeSearch(Result result, Query query) {
         if (isLoggingFine())
             getLogger().fine("Result NOT retrieved from cache");
 
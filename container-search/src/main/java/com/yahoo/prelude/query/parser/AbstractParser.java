@@ -43,6 +43,9 @@ public abstract class AbstractParser implements CustomParser {
     protected final ParserEnvironment environment;
     protected final TokenPosition tokens = new TokenPosition();
 
+    /** The words of the query being parsed, if it consists of plain words only and this parses such queries directly */
+    private final WordOffsets words = new WordOffsets();
+
     /**
      * An enumeration of the parser index-controlled submodes. Any combination
      * of these may be active at the same time. SubModes are activated or
@@ -135,17 +138,31 @@ public abstract class AbstractParser implements CustomParser {
                        IndexFacts.Session indexFacts, String defaultIndexName, Parsable parsable) {
         if (queryToParse == null) return null;
 
-        tokenize(queryToParse, defaultIndexName, indexFacts, parsingLanguage);
-
-        if (parsingLanguage == null && parsable != null) {
-            String detectionText = generateLanguageDetectionTextFrom(tokens, indexFacts, defaultIndexName);
-            if (detectionText.isEmpty()) // heuristic detection text extraction is fallible
-                detectionText = queryToParse;
-            parsingLanguage = parsable.getOrDetectLanguage(detectionText);
+        Item root = null;
+        if (parsesWords() && isWords(queryToParse, defaultIndexName, indexFacts, parsingLanguage)) {
+            if (parsingLanguage == null && parsable != null) {
+                String detectionText = generateLanguageDetectionTextFrom(queryToParse, indexFacts, defaultIndexName);
+                if (detectionText.isEmpty())
+                    detectionText = queryToParse;
+                parsingLanguage = parsable.getOrDetectLanguage(detectionText);
+            }
+            setState(parsingLanguage, indexFacts);
+            root = parseWords(queryToParse, words);
         }
-        setState(parsingLanguage, indexFacts);
 
-        Item root = parseItems();
+        if (root == null) {
+            tokenize(queryToParse, defaultIndexName, indexFacts, parsingLanguage);
+
+            if (parsingLanguage == null && parsable != null) {
+                String detectionText = generateLanguageDetectionTextFrom(tokens, indexFacts, defaultIndexName);
+                if (detectionText.isEmpty()) // heuristic detection text extraction is fallible
+                    detectionText = queryToParse;
+                parsingLanguage = parsable.getOrDetectLanguage(detectionText);
+            }
+            setState(parsingLanguage, indexFacts);
+
+            root = parseItems();
+        }
         if (filterToParse != null) {
             AnyParser filterParser = new AnyParser(environment);
             if (root == null) {
@@ -220,6 +237,57 @@ public abstract class AbstractParser implements CustomParser {
         return detectionText.toString();
     }
 
+    /**
+     * Returns the same language detection text as {@link #generateLanguageDetectionTextFrom(TokenPosition, IndexFacts.Session, String)}
+     * for a query of the current {@link #words}.
+     */
+    private String generateLanguageDetectionTextFrom(String query, IndexFacts.Session indexFacts, String defaultIndex) {
+        if ( ! indexFacts.getIndex(defaultIndex).hasPlainTokens()) return "";
+        StringBuilder detectionText = new StringBuilder(query.length() + 1);
+        for (int i = 0; i < words.count(); i++)
+            detectionText.append(query, words.start(i), words.end(i)).append(" ");
+        return detectionText.toString();
+    }
+
+    /**
+     * Returns whether the given query consists of plain words only which are parsed by {@link #parseWords},
+     * in which case the offsets of the words are available in {@link #words}.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean isWords(String query, String defaultIndexName, IndexFacts.Session indexFacts, Language language) {
+        if (defaultIndexName != null && indexFacts.getIndex(defaultIndexName).isExact()) return false;
+        if ( ! words.tokenize(query, environment.getLinguistics().getCharacterClasses())) return false;
+
+        SpecialTokens specialTokens = environment.getSpecialTokens();
+        if (specialTokens == null || specialTokens.size() == 0) return true;
+        boolean substringSpecialTokens = language != null && language.isCjk();
+        for (int i = 0; i < query.length(); i++) { // check where the tokenizer looks for special tokens
+            if (i > 0 && ! Character.isWhitespace(query.charAt(i)) && ! Character.isWhitespace(query.charAt(i - 1))) continue;
+            if ( ! specialTokens.mayStartBy(query.charAt(i))) continue;
+            if (specialTokens.startsAt(query, i, substringSpecialTokens)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether this parses queries consisting only of words of ASCII letters and digits separated
+     * by whitespace directly by {@link #parseWords}, without tokenizing them. This is false by default.
+     */
+    boolean parsesWords() { return false; }
+
+    /**
+     * Parses a query consisting only of words of ASCII letters and digits separated by whitespace.
+     * This must produce the same item as tokenizing the query and calling {@link #parseItems}.
+     * This returns null by default.
+     *
+     * @param query the query to parse
+     * @param words the offsets of the words of the query
+     * @return the root item of the query, or null to parse it by tokenizing it instead
+     */
+    Item parseWords(String query, WordOffsets words) {
+        return null;
+    }
+
     private boolean is(Token.Kind kind, Token tokenOrNull) {
         if (tokenOrNull == null) return false;
         return kind.equals(tokenOrNull.kind);
@@ -342,17 +410,28 @@ public abstract class AbstractParser implements CustomParser {
     // always producing a query item containing the token text and resolve it to a WordItem or
     // SegmentItem after parsing and language detection.
     protected Item segment(String indexName, Token token) {
-        String normalizedToken = normalize(token.toString());
-
         if (token.isSpecial()) {
             WordItem w = new WordItem(token.toString(), true, token.substring);
             w.setWords(false);
             w.setFromSpecialToken(true);
             return w;
         }
+        return segment(indexName, token.toString(), token.substring);
+    }
+
+    /**
+     * Segments the word at the given substring of the query
+     *
+     * @param indexName the index name which preceeded this word, or null if none
+     * @param word the word to segment
+     * @param substring the substring of the query containing the word
+     * @return the resulting item
+     */
+    Item segment(String indexName, String word, Substring substring) {
+        String normalizedToken = normalize(word);
 
         if (language == Language.UNKNOWN) {
-            return new WordItem(normalizedToken, true, token.substring);
+            return new WordItem(normalizedToken, true, substring);
         }
 
 
@@ -362,20 +441,20 @@ public abstract class AbstractParser implements CustomParser {
             return null;
         }
         if (segments.size() == 1) {
-            return new WordItem(segments.get(0), "", true, token.substring);
+            return new WordItem(segments.get(0), "", true, substring);
         }
 
         CompositeItem composite;
         if (indexFacts.getIndex(indexName).getPhraseSegmenting()) {
-            composite = new PhraseSegmentItem(token.toString(), normalizedToken, true, false, token.substring);
+            composite = new PhraseSegmentItem(word, normalizedToken, true, false, substring);
         }
         else {
-            composite = new AndSegmentItem(token.toString(), true, false);
+            composite = new AndSegmentItem(word, true, false);
         }
         int n = 0;
         WordItem previous = null;
         for (String segment : segments) {
-            WordItem w = new WordItem(segment, "", true, token.substring);
+            WordItem w = new WordItem(segment, "", true, substring);
             w.setFromSegmented(true);
             w.setSegmentIndex(n++);
             w.setStemmed(false);
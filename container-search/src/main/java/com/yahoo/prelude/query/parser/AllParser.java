@@ -2,6 +2,7 @@
 package com.yahoo.prelude.query.parser;
 
 import com.yahoo.prelude.query.AndItem;
+import com.yahoo.prelude.query.CompositeItem;
 import com.yahoo.prelude.query.IntItem;
 import com.yahoo.prelude.query.Item;
 import com.yahoo.prelude.query.NotItem;
@@ -10,6 +11,7 @@ import com.yahoo.prelude.query.OrItem;
 import com.yahoo.prelude.query.PhraseItem;
 import com.yahoo.prelude.query.QueryCanonicalizer;
 import com.yahoo.prelude.query.RankItem;
+import com.yahoo.prelude.query.Substring;
 import com.yahoo.search.query.QueryTree;
 import com.yahoo.search.query.parser.ParserEnvironment;
 
@@ -30,6 +32,35 @@ public class AllParser extends SimpleParser {
         super(environment);
     }
 
+    /** Returns true, as plain words are combined by AND. Subclasses which combine words differently must override this */
+    @Override
+    boolean parsesWords() { return true; }
+
+    @Override
+    Item parseWords(String query, WordOffsets words) {
+        Item first = null;
+        AndItem and = null;
+        boolean hasComposites = false;
+        for (int i = 0; i < words.count(); i++) {
+            int start = words.start(i);
+            int end = words.end(i);
+            Item word = segment(null, query.substring(start, end), new Substring(start, end, query));
+            if (word == null) return null;
+
+            hasComposites |= word instanceof CompositeItem;
+            if (first == null) {
+                first = word;
+            }
+            else {
+                if (and == null)
+                    and = addAnd(first, null);
+                and.addItem(word);
+            }
+        }
+        Item root = and != null ? and : first;
+        return hasComposites ? simplifyUnnecessaryComposites(root) : root;
+    }
+
     protected Item parseItems() {
         int position = tokens.getPosition();
         try {
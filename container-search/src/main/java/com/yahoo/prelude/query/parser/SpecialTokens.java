@@ -27,6 +27,9 @@ public class SpecialTokens {
 
     private int currentMaximumLength = 0;
 
+    /** Whether any special token starts by each ASCII character */
+    private final boolean[] asciiStarts = new boolean[128];
+
     /** Creates a null list of special tokens */
     public SpecialTokens() {
         this.name = "(null)";
@@ -56,6 +59,10 @@ public class SpecialTokens {
         // TODO are special tokens correctly unicode normalized in reagards to query parsing?
         final SpecialToken specialTokenToAdd = new SpecialToken(token, replace);
         currentMaximumLength = Math.max(currentMaximumLength, specialTokenToAdd.token.length());
+        if (specialTokenToAdd.token.isEmpty())
+            Arrays.fill(asciiStarts, true);
+        else if (specialTokenToAdd.token.charAt(0) < asciiStarts.length)
+            asciiStarts[specialTokenToAdd.token.charAt(0)] = true;
         specialTokens.add(specialTokenToAdd);
         Collections.sort(specialTokens);
     }
@@ -97,6 +104,30 @@ public class SpecialTokens {
         return null;
     }
 
+    /**
+     * Returns whether {@link #tokenize} would find a special token in the given string from the given position,
+     * without copying the string. Characters are compared case insensitively one by one, which is equivalent
+     * to lowercasing the string for ASCII strings.
+     */
+    boolean startsAt(String string, int start, boolean substring) {
+        for (SpecialToken special : specialTokens) {
+            int length = special.token().length();
+            if ( ! string.regionMatches(true, start, special.token(), 0, length)) continue;
+            int end = start + length;
+            if (end == string.length() || substring || tokenEndsAt(end, string))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether some special token may start by the given ASCII character.
+     * This is a cheap check which allows callers to avoid calling {@link #tokenize} in most cases.
+     */
+    boolean mayStartBy(char asciiCharacter) {
+        return asciiStarts[Character.toLowerCase(asciiCharacter)];
+    }
+
     private boolean tokenEndsAt(int position,String string) {
         return !Character.isLetterOrDigit(string.charAt(position));
     }
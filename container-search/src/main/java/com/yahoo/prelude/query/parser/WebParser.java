@@ -24,6 +24,10 @@ public class WebParser extends AllParser {
         super(environment);
     }
 
+    /** Returns false, as the word OR combines the words around it by OR */
+    @Override
+    boolean parsesWords() { return false; }
+
     protected @Override Item parseItemsBody() {
         // Algorithm: Collect positive, negative, and'ed and or'ed elements, then combine.
         AndItem and=null;
@@ -0,0 +1,81 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.query.parser;
+
+import com.yahoo.language.process.CharacterClasses;
+
+import java.util.Arrays;
+
+/**
+ * Tokenizes queries which consist only of words of ASCII letters and digits separated by whitespace,
+ * into the start and end offsets of each word, without creating any tokens or substrings.
+ * These are the most common queries, and this allows parsers to parse them without going through
+ * the general {@link Tokenizer}.
+ * <p>
+ * Words consisting of digits only are not accepted, as they are tokenized as numbers.
+ * This is reusable and not multithread safe.
+ *
+ * @author agent
+ */
+final class WordOffsets {
+
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count = 0;
+
+    /**
+     * Tokenizes the given query.
+     *
+     * @return true if the query consists only of one or more words separated by whitespace,
+     *         false if it must be tokenized by the general tokenizer
+     */
+    boolean tokenize(String query, CharacterClasses characterClasses) {
+        count = 0;
+        int start = -1;
+        boolean hasLetter = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= 128) return false;
+            if (Character.isWhitespace(c)) {
+                if (start >= 0) {
+                    if ( ! hasLetter) return false;
+                    add(start, i);
+                    start = -1;
+                }
+                continue;
+            }
+
+            boolean isLetter = characterClasses.isLetter(c);
+            if ( ! isLetter && ! characterClasses.isLatinDigit(c)) return false;
+            if (start < 0) {
+                start = i;
+                hasLetter = false;
+            }
+            hasLetter |= isLetter;
+        }
+        if (start >= 0) {
+            if ( ! hasLetter) return false;
+            add(start, query.length());
+        }
+        return count > 0;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /** Returns the number of words found by the last tokenization */
+    int count() { return count; }
+
+    /** Returns the offset of the first character of the given word in the query */
+    int start(int word) { return starts[word]; }
+
+    /** Returns the offset after the last character of the given word in the query */
+    int end(int word) { return ends[word]; }
+
+}
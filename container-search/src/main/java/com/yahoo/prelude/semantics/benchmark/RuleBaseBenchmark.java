@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import com.yahoo.search.Query;
 import com.yahoo.prelude.semantics.RuleBase;
@@ -34,6 +36,49 @@ public class RuleBaseBenchmark {
         while((line=reader.readLine())!=null){
             queries.add(line);
         }
+        long elapsed = run(ruleBase, queries, iterations);
+        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
+                "\n           fsa=" + fsaFile +
+                "\n           queries=" + queryFile +
+                "\n           iterations=" + iterations +
+                "\n           elapsed=" + elapsed + "ms\n");
+    }
+
+    /**
+     * Benchmarks a generated rule base of the given number of phrase rules, each rewriting a sequence of
+     * two or three terms to a phrase, with queries where only a few of the rules match.
+     * This measures the cost of the rules which are not matching the query, which should be independent
+     * of the size of the rule base.
+     */
+    public void benchmarkGenerated(int rules, int queryCount, int iterations) throws IOException, ParseException {
+        Random random = new Random(rules);
+        StringBuilder ruleString = new StringBuilder();
+        for (int i = 0; i < rules; i++) {
+            String phrase = generatedPhrase(i);
+            ruleString.append(phrase).append(" -> \"").append(phrase).append("\";\n");
+        }
+        RuleBase ruleBase = new RuleImporter().importString(ruleString.toString(), null);
+
+        ArrayList<String> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++)
+            queries.add(("word" + random.nextInt(rules) + " " + generatedPhrase(random.nextInt(rules)) + " unknown").replace(' ', '+'));
+        run(ruleBase, queries, 1); // warmup
+        long elapsed = run(ruleBase, queries, iterations);
+        System.out.print("BENCHMARK: rules=" + rules +
+                "\n           queries=" + queryCount +
+                "\n           iterations=" + iterations +
+                "\n           elapsed=" + elapsed + "ms" +
+                "\n           per query=" + (elapsed * 1000 / Math.max(1, queryCount * iterations)) + "us\n");
+    }
+
+    private static String generatedPhrase(int i) {
+        StringBuilder phrase = new StringBuilder("word").append(i);
+        for (int term = 1; term < 2 + i % 2; term++)
+            phrase.append(" word").append((i * 31 + term) % 1000);
+        return phrase.toString();
+    }
+
+    private long run(RuleBase ruleBase, List<String> queries, int iterations) {
         Date start = new Date();
         for (int i=0;i<iterations;i++){
             for (Iterator<String> iter = queries.iterator(); iter.hasNext(); ){
@@ -43,23 +88,22 @@ public class RuleBaseBenchmark {
             }
         }
         Date end = new Date();
-        long elapsed = end.getTime()-start.getTime();
-        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
-                "\n           fsa=" + fsaFile +
-                "\n           queries=" + queryFile +
-                "\n           iterations=" + iterations +
-                "\n           elapsed=" + elapsed + "ms\n");
+        return end.getTime()-start.getTime();
     }
 
 
     public static void main(String[] args) {
         if(args.length<3){
             System.out.println("USAGE: RuleBaseBenchmark ruleBaseFile queryFile iterations");
+            System.out.println("       RuleBaseBenchmark -generate rules queries iterations");
             System.exit(1);
         }
 
         try {
-            new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
+            if (args[0].equals("-generate") && args.length >= 4)
+                new RuleBaseBenchmark().benchmarkGenerated(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            else
+                new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
         }
         catch (Exception e) {
             System.out.println("ERROR: " + collectMessage(e));
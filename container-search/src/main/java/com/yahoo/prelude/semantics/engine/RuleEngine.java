@@ -7,6 +7,8 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.ListIterator;
 
 /**
@@ -19,10 +21,22 @@ public class RuleEngine {
 
     private RuleBase rules;
 
+    /** The index of the rules by their required terms, or null if the rules are not indexed */
+    private volatile RuleIndex index = null;
+
     public RuleEngine(RuleBase rules) {
         this.rules=rules;
     }
 
+    /**
+     * Indexes the rules of the rule base by their terms, such that only the rules which may match a query
+     * are evaluated. This must be called again if the rules are changed, or the rules will be evaluated
+     * without using the index.
+     */
+    public void indexRules() {
+        index = new RuleIndex(rules);
+    }
+
     /**
      * Evaluates a rule base over a query
      *
@@ -32,27 +46,55 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query, int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
-        boolean matchedAnything = false;
+        boolean matchedAnything;
         Evaluation evaluation = new Evaluation(query, traceLevel);
         evaluation.setStemming(rules.getStemming());
         if (traceLevel >= 2)
             evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
+        RuleIndex index = this.index;
+        if (index != null && index.size() == rules.rules().size())
+            matchedAnything = evaluateCandidates(evaluation, index);
+        else
+            matchedAnything = evaluateAll(evaluation);
+
+        if ( ! matchedAnything) return null;
+
+        String error = QueryCanonicalizer.canonicalize(query);
+        query.trace("SemanticSearcher: Rewrote query",true,1);
+        return error;
+    }
+
+    private boolean evaluateAll(Evaluation evaluation) {
+        boolean matchedAnything = false;
         for (ListIterator<ProductionRule> i = rules.ruleIterator(); i.hasNext(); ) {
             evaluation.reset();
             ProductionRule rule = i.next();
             boolean matched = matchRuleAtAllStartPoints(evaluation,rule);
             matchedAnything |= matched;
         }
+        return matchedAnything;
+    }
 
-        if ( ! matchedAnything) return null;
-
-        String error = QueryCanonicalizer.canonicalize(query);
-        query.trace("SemanticSearcher: Rewrote query",true,1);
-        return error;
+    /**
+     * Evaluates the rules which may match the terms of the query, in order. As a rule which matches
+     * may add terms to the query, the candidates are extended with the rules matching those terms.
+     */
+    private boolean evaluateCandidates(Evaluation evaluation, RuleIndex index) {
+        boolean matchedAnything = false;
+        List<ProductionRule> ruleList = rules.rules();
+        BitSet candidates = index.candidates(evaluation);
+        if (evaluation.getTraceLevel() >= 3)
+            evaluation.trace(3, "Evaluating " + candidates.cardinality() + " of " + ruleList.size() + " rules");
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            evaluation.reset();
+            boolean matched = matchRuleAtAllStartPoints(evaluation, ruleList.get(i));
+            if (matched) {
+                evaluation.reset();
+                index.addCandidates(evaluation, candidates);
+            }
+            matchedAnything |= matched;
+        }
+        return matchedAnything;
     }
 
     /** Match a rule at any starting point in the query */
@@ -0,0 +1,150 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.semantics.RuleBase;
+import com.yahoo.prelude.semantics.rule.AndCondition;
+import com.yahoo.prelude.semantics.rule.ChoiceCondition;
+import com.yahoo.prelude.semantics.rule.CompositeCondition;
+import com.yahoo.prelude.semantics.rule.Condition;
+import com.yahoo.prelude.semantics.rule.ConditionReference;
+import com.yahoo.prelude.semantics.rule.NamedCondition;
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+import com.yahoo.prelude.semantics.rule.SequenceCondition;
+import com.yahoo.prelude.semantics.rule.SuperCondition;
+import com.yahoo.prelude.semantics.rule.TermCondition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An index of the production rules of a rule base by the terms of which at least one must be present
+ * in a query for a rule to match, such that only the rules which may match a query are evaluated.
+ * Rules whose conditions do not require any particular term, e.g because they start by an ellipsis or
+ * reference an automata, are always evaluated.
+ * <p>
+ * This is immutable, and must be recreated when the rules of the rule base changes.
+ *
+ * @author agent
+ */
+class RuleIndex {
+
+    /** The number of rules indexed */
+    private final int size;
+
+    /** The rules which are candidates for all queries */
+    private final BitSet unindexed;
+
+    /** The indexes of the rules which may match each term */
+    private final Map<String, int[]> rulesByTerm;
+
+    RuleIndex(RuleBase ruleBase) {
+        List<ProductionRule> rules = ruleBase.rules();
+        this.size = rules.size();
+        this.unindexed = new BitSet(size);
+        Map<String, List<Integer>> rulesByTerm = new HashMap<>();
+        Map<NamedCondition, Optional<Set<String>>> resolved = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Optional<Set<String>> terms = requiredTerms(rules.get(i).getCondition(), ruleBase, resolved);
+            if (terms.isEmpty())
+                unindexed.set(i);
+            else
+                for (String term : terms.get())
+                    rulesByTerm.computeIfAbsent(term, __ -> new ArrayList<>()).add(i);
+        }
+
+        this.rulesByTerm = new HashMap<>(rulesByTerm.size());
+        for (Map.Entry<String, List<Integer>> entry : rulesByTerm.entrySet())
+            this.rulesByTerm.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /** Returns the number of rules indexed by this */
+    int size() { return size; }
+
+    /** Returns the number of rules which are candidates for all queries */
+    int unindexedSize() { return unindexed.cardinality(); }
+
+    /** Returns the indexes of the rules which may match the terms of the given evaluation */
+    BitSet candidates(Evaluation evaluation) {
+        BitSet candidates = (BitSet)unindexed.clone();
+        addCandidates(evaluation, candidates);
+        return candidates;
+    }
+
+    /** Adds the indexes of the rules which may match the terms of the given evaluation to the given candidates */
+    void addCandidates(Evaluation evaluation, BitSet candidates) {
+        boolean stemming = evaluation.getStemming();
+        for (FlattenedItem item : evaluation.flattenedItems()) {
+            String term = item.getItem().stringValue();
+            addCandidates(term, candidates);
+            if (stemming) { // See TermCondition
+                addCandidates(term + "s", candidates);
+                if (term.endsWith("s"))
+                    addCandidates(term.substring(0, term.length() - 1), candidates);
+            }
+        }
+    }
+
+    private void addCandidates(String term, BitSet candidates) {
+        int[] rules = rulesByTerm.get(term);
+        if (rules == null) return;
+        for (int rule : rules)
+            candidates.set(rule);
+    }
+
+    /**
+     * Returns the terms of which at least one must be present for the given condition to match,
+     * or empty if a match does not require any particular term.
+     *
+     * @param resolved the required terms of the named conditions resolved so far, where the conditions
+     *                 which are currently being resolved maps to empty, to stop on cyclic references
+     */
+    private static Optional<Set<String>> requiredTerms(Condition condition, RuleBase ruleBase,
+                                                       Map<NamedCondition, Optional<Set<String>>> resolved) {
+        if (condition == null) return Optional.empty();
+        if (condition.getNameSpace() != null) return Optional.empty(); // Not matched against query terms
+
+        if (condition instanceof TermCondition) {
+            String term = ((TermCondition)condition).getTerm();
+            return term == null ? Optional.empty() : Optional.of(Set.of(term));
+        }
+        else if (condition instanceof ChoiceCondition) { // Requires a term of any alternative
+            Set<String> terms = new HashSet<>();
+            for (Iterator<Condition> i = ((CompositeCondition)condition).conditionIterator(); i.hasNext(); ) {
+                Optional<Set<String>> alternativeTerms = requiredTerms(i.next(), ruleBase, resolved);
+                if (alternativeTerms.isEmpty()) return Optional.empty();
+                terms.addAll(alternativeTerms.get());
+            }
+            return Optional.of(terms);
+        }
+        else if (condition instanceof SequenceCondition || condition instanceof AndCondition) { // Requires all: Use the most selective
+            Optional<Set<String>> terms = Optional.empty();
+            for (Iterator<Condition> i = ((CompositeCondition)condition).conditionIterator(); i.hasNext(); ) {
+                Optional<Set<String>> subTerms = requiredTerms(i.next(), ruleBase, resolved);
+                if (subTerms.isPresent() && (terms.isEmpty() || subTerms.get().size() < terms.get().size()))
+                    terms = subTerms;
+            }
+            return terms;
+        }
+        else if (condition instanceof ConditionReference) {
+            NamedCondition referenced = ruleBase.getCondition(((ConditionReference)condition).getConditionName());
+            if (referenced == null) return Optional.empty(); // an automata reference
+            if (resolved.containsKey(referenced)) return resolved.get(referenced);
+            resolved.put(referenced, Optional.empty());
+            Optional<Set<String>> terms = requiredTerms(referenced.getCondition(), ruleBase, resolved);
+            resolved.put(referenced, terms);
+            return terms;
+        }
+        else if (condition instanceof SuperCondition) {
+            return requiredTerms(((SuperCondition)condition).getCondition(), ruleBase, resolved);
+        }
+        return Optional.empty();
+    }
+
+}
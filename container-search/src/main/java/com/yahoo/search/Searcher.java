@@ -6,6 +6,7 @@ import com.yahoo.processing.Processor;
 import com.yahoo.processing.Response;
 import com.yahoo.search.searchchain.Execution;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -127,6 +128,27 @@ public abstract class Searcher extends Processor {
      */
     public abstract Result search(Query query,Execution execution);
 
+    /**
+     * Override this to implement a searcher which does not block the calling thread while waiting for
+     * the result of some remote service or of the rest of the chain. This is invoked instead of
+     * {@link #search} when the chain is executed by {@link Execution#searchAsync}.
+     * <p>
+     * Implementations should call execution.searchAsync and return a future composed from the future it returns,
+     * rather than calling execution.search. The execution is owned by this invocation and can be used from the
+     * thread completing the future. Unexpected events may be signaled either by throwing or by
+     * returning an exceptionally completed future. Searchers overriding this must still implement search,
+     * which is used when the chain is executed synchronously, e.g below a searcher which only implements search.
+     * <p>
+     * This default implementation calls the synchronous search method in the calling thread,
+     * such that all searchers can be executed asynchronously.
+     *
+     * @param query the query
+     * @return a future which is completed with the result of making this query
+     */
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        return CompletableFuture.completedFuture(search(query, execution));
+    }
+
     /** Use the search method in Searcher processors. This forwards to it. */
     @Override
     public final Response process(com.yahoo.processing.Request request, com.yahoo.processing.execution.Execution execution) {
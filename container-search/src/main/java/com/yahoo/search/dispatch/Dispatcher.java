@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import com.yahoo.cloud.config.ClusterInfoConfig;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.container.handler.VipStatus;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
@@ -13,9 +14,11 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.SearchPath.InvalidSearchPathException;
+import com.yahoo.search.dispatch.rpc.DocsumCache;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
 import com.yahoo.search.dispatch.rpc.RpcResourcePool;
+import com.yahoo.search.dispatch.rpc.SharedSearchRequest;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
@@ -25,12 +28,22 @@ import com.yahoo.search.query.profile.types.QueryProfileType;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.time.Clock;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A dispatcher communicates with search nodes to perform queries and fill hits.
@@ -49,14 +62,34 @@ public class Dispatcher extends AbstractComponent {
     public static final String DISPATCH = "dispatch";
     private static final String INTERNAL = "internal";
     private static final String PROTOBUF = "protobuf";
+    private static final String STREAMING = "streaming";
 
     private static final String INTERNAL_METRIC = "dispatch_internal";
+    private static final String NODE_LATENCY_METRIC = "dispatch_node_latency_estimate";
+    private static final String NODE_SEARCHES_IN_FLIGHT_METRIC = "dispatch_node_searches_in_flight";
+
+    /** The min interval between each time the per node load balancing state is reported as metrics */
+    private static final long SCOREBOARD_REPORT_INTERVAL_MS = 1000;
 
     private static final int MAX_GROUP_SELECTION_ATTEMPTS = 3;
 
+    /** The max number of threads running streamed searches and filling their provisional results */
+    private static final int STREAMING_THREADS = 64;
+
+    /** The max number of streamed searches which may wait for a thread before new ones are not streamed */
+    private static final int STREAMING_QUEUE_SIZE = 256;
+
     /** If enabled, search queries will use protobuf rpc */
     public static final CompoundName dispatchProtobuf = CompoundName.fromComponents(DISPATCH, PROTOBUF);
 
+    /**
+     * If enabled, the hits of search queries are rendered in sections as content nodes respond:
+     * The result returned to the searchers above the backend has no hits, but a hit group whose
+     * {@link com.yahoo.search.result.HitGroup#incoming() incoming data} receives the sections as they become available.
+     * Searchers which need the hits must wait for <code>incoming().completed()</code> and drain it.
+     */
+    public static final CompoundName dispatchStreaming = CompoundName.fromComponents(DISPATCH, STREAMING);
+
     /** A model of the search cluster this dispatches to */
     private final SearchCluster searchCluster;
     private final ClusterMonitor clusterMonitor;
@@ -65,10 +98,16 @@ public class Dispatcher extends AbstractComponent {
 
     private final InvokerFactory invokerFactory;
 
+    private final ExecutorService streamingExecutor;
+
     private final Metric metric;
     private final Metric.Context metricContext;
+    private final Map<Node, Metric.Context> nodeMetricContexts = new HashMap<>();
+    private final AtomicLong lastScoreboardReport = new AtomicLong(0);
 
     private final int maxHitsPerNode;
+    private final boolean hedgeRequests;
+    private final double hedgeLatencyPercentile;
 
     private static final QueryProfileType argumentType;
 
@@ -97,7 +136,17 @@ public class Dispatcher extends AbstractComponent {
     }
 
     private Dispatcher(RpcResourcePool resourcePool, SearchCluster searchCluster, DispatchConfig dispatchConfig, Metric metric) {
-        this(new ClusterMonitor<>(searchCluster, true), searchCluster, dispatchConfig, new RpcInvokerFactory(resourcePool, searchCluster), metric);
+        this(new ClusterMonitor<>(searchCluster, true), searchCluster, dispatchConfig,
+             new RpcInvokerFactory(resourcePool, searchCluster, docsumCache(dispatchConfig, searchCluster, metric)), metric);
+    }
+
+    private static Optional<DocsumCache> docsumCache(DispatchConfig dispatchConfig, SearchCluster searchCluster, Metric metric) {
+        if (dispatchConfig.docsumCacheBytes() <= 0) return Optional.empty();
+        return Optional.of(new DocsumCache(dispatchConfig.docsumCacheBytes(),
+                                           (long)(dispatchConfig.docsumCacheTimeToLive() * 1000),
+                                           searchCluster::generation,
+                                           metric,
+                                           Clock.systemUTC()));
     }
 
     /* Protected for simple mocking in tests. Beware that searchCluster is shutdown on in deconstruct() */
@@ -111,12 +160,20 @@ public class Dispatcher extends AbstractComponent {
 
         this.searchCluster = searchCluster;
         this.clusterMonitor = clusterMonitor;
-        this.loadBalancer = new LoadBalancer(searchCluster,
-                                  dispatchConfig.distributionPolicy() == DispatchConfig.DistributionPolicy.ROUNDROBIN);
+        this.loadBalancer = new LoadBalancer(searchCluster, dispatchConfig.distributionPolicy());
         this.invokerFactory = invokerFactory;
+        this.streamingExecutor = createStreamingExecutor();
         this.metric = metric;
         this.metricContext = metric.createContext(null);
+        for (Group group : searchCluster.orderedGroups()) {
+            for (Node node : group.nodes())
+                nodeMetricContexts.put(node, metric.createContext(Map.of("node", node.hostname(),
+                                                                         "distributionKey", node.key(),
+                                                                         "group", group.id())));
+        }
         this.maxHitsPerNode = dispatchConfig.maxHitsPerNode();
+        this.hedgeRequests = dispatchConfig.hedgeRequests();
+        this.hedgeLatencyPercentile = dispatchConfig.hedgeLatencyPercentile();
         searchCluster.addMonitoring(clusterMonitor);
         try {
             while ( ! searchCluster.hasInformationAboutAllNodes()) {
@@ -133,15 +190,30 @@ public class Dispatcher extends AbstractComponent {
         searchCluster.pingIterationCompleted();
     }
 
+    private static ExecutorService createStreamingExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(STREAMING_THREADS, STREAMING_THREADS, 60, TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(STREAMING_QUEUE_SIZE),
+                                                             ThreadFactoryFactory.getDaemonThreadFactory("streaming-search"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /** Returns the search cluster this dispatches to */
     public SearchCluster searchCluster() {
         return searchCluster;
     }
 
+    /**
+     * Returns the bounded executor which should run streamed searches and the fills of their provisional results.
+     * This throws {@link java.util.concurrent.RejectedExecutionException} when it is at capacity.
+     */
+    public Executor streamingExecutor() { return streamingExecutor; }
+
     @Override
     public void deconstruct() {
         /* The clustermonitor must be shutdown first as it uses the invokerfactory through the searchCluster. */
         clusterMonitor.shutdown();
+        streamingExecutor.shutdown();
         invokerFactory.release();
     }
 
@@ -150,18 +222,38 @@ public class Dispatcher extends AbstractComponent {
     }
 
     public SearchInvoker getSearchInvoker(Query query, VespaBackEndSearcher searcher) {
-        SearchInvoker invoker = getSearchPathInvoker(query, searcher).orElseGet(() -> getInternalInvoker(query, searcher));
+        SharedSearchRequest sharedRequest = new SharedSearchRequest();
+        SearchInvoker invoker = getSearchPathInvoker(query, searcher, sharedRequest)
+                                        .orElseGet(() -> getInternalInvoker(query, searcher, sharedRequest));
 
         if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
             query.setHits(0);
             query.setOffset(0);
         }
         metric.add(INTERNAL_METRIC, 1, metricContext);
+        reportScoreboard();
         return invoker;
     }
 
+    /**
+     * Reports the latency estimate and number of searches in flight of each node, as used by the load balancer,
+     * if this has not been done within the report interval
+     */
+    private void reportScoreboard() {
+        long now = System.currentTimeMillis();
+        long lastReport = lastScoreboardReport.get();
+        if (now - lastReport < SCOREBOARD_REPORT_INTERVAL_MS) return;
+        if ( ! lastScoreboardReport.compareAndSet(lastReport, now)) return; // another thread is reporting
+
+        for (Map.Entry<Node, Metric.Context> entry : nodeMetricContexts.entrySet()) {
+            metric.set(NODE_LATENCY_METRIC, entry.getKey().searchLatencyEstimate(), entry.getValue());
+            metric.set(NODE_SEARCHES_IN_FLIGHT_METRIC, entry.getKey().searchesInFlight(), entry.getValue());
+        }
+    }
+
     /** Builds an invoker based on searchpath */
-    private Optional<SearchInvoker> getSearchPathInvoker(Query query, VespaBackEndSearcher searcher) {
+    private Optional<SearchInvoker> getSearchPathInvoker(Query query, VespaBackEndSearcher searcher,
+                                                         SharedSearchRequest sharedRequest) {
         String searchPath = query.getModel().getSearchPath();
         if (searchPath == null) return Optional.empty();
 
@@ -174,13 +266,14 @@ public class Dispatcher extends AbstractComponent {
                                                       OptionalInt.empty(),
                                                       nodes,
                                                       true,
-                                                      maxHitsPerNode);
+                                                      maxHitsPerNode,
+                                                      sharedRequest);
         } catch (InvalidSearchPathException e) {
             return Optional.of(new SearchErrorInvoker(ErrorMessage.createIllegalQuery(e.getMessage())));
         }
     }
 
-    private SearchInvoker getInternalInvoker(Query query, VespaBackEndSearcher searcher) {
+    private SearchInvoker getInternalInvoker(Query query, VespaBackEndSearcher searcher, SharedSearchRequest sharedRequest) {
         Optional<Node> directNode = searchCluster.localCorpusDispatchTarget();
         if (directNode.isPresent()) {
             Node node = directNode.get();
@@ -190,7 +283,8 @@ public class Dispatcher extends AbstractComponent {
                                                       OptionalInt.empty(),
                                                       Arrays.asList(node),
                                                       true,
-                                                      maxHitsPerNode)
+                                                      maxHitsPerNode,
+                                                      sharedRequest)
                                  .orElseThrow(() -> new IllegalStateException("Could not dispatch directly to " + node));
         }
 
@@ -209,12 +303,13 @@ public class Dispatcher extends AbstractComponent {
                                                                                  OptionalInt.of(group.id()),
                                                                                  group.nodes(),
                                                                                  acceptIncompleteCoverage,
-                                                                                 maxHitsPerNode);
+                                                                                 maxHitsPerNode,
+                                                                                 sharedRequest);
             if (invoker.isPresent()) {
                 query.trace(false, 2, "Dispatching to group ", group.id());
                 query.getModel().setSearchPath("/" + group.id());
                 invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
-                return invoker.get();
+                return hedged(invoker.get(), group, query, searcher, sharedRequest);
             } else {
                 loadBalancer.releaseGroup(group, false, 0);
                 if (rejected == null) {
@@ -226,4 +321,41 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    /**
+     * Returns an invoker which sends the query to another group if the given group does not answer
+     * within the configured latency percentile of its nodes, or the given invoker if hedging is not
+     * enabled or possible.
+     */
+    private SearchInvoker hedged(SearchInvoker invoker, Group group, Query query, VespaBackEndSearcher searcher,
+                                 SharedSearchRequest sharedRequest) {
+        if ( ! hedgeRequests || searchCluster.groups().size() < 2) return invoker;
+
+        OptionalLong hedgeDelay = group.searchLatencyPercentile(hedgeLatencyPercentile);
+        if (hedgeDelay.isEmpty()) return invoker;
+
+        return new HedgedSearchInvoker(invoker, hedgeDelay.getAsLong(), () -> getHedgeInvoker(group, query, searcher, sharedRequest));
+    }
+
+    private Optional<SearchInvoker> getHedgeInvoker(Group primary, Query query, VespaBackEndSearcher searcher,
+                                                    SharedSearchRequest sharedRequest) {
+        Optional<Group> groupInCluster = loadBalancer.takeGroup(Set.of(primary.id()));
+        if (groupInCluster.isEmpty()) return Optional.empty();
+
+        Group group = groupInCluster.get();
+        Optional<SearchInvoker> invoker = invokerFactory.createSearchInvoker(searcher,
+                                                                             query,
+                                                                             OptionalInt.of(group.id()),
+                                                                             group.nodes(),
+                                                                             false,
+                                                                             maxHitsPerNode,
+                                                                             sharedRequest);
+        if (invoker.isPresent()) {
+            query.trace(false, 2, "Hedging to group ", group.id());
+            invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+        } else {
+            loadBalancer.releaseGroup(group, false, 0);
+        }
+        return invoker;
+    }
+
 }
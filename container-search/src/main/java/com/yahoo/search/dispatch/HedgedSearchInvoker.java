@@ -0,0 +1,141 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * HedgedSearchInvoker sends a search query to a primary invoker, and if this has not produced a complete
+ * response within a given delay, sends the same query to a hedge invoker created on demand. The result of
+ * the invoker which is ready first is used, and the other is closed. An invoker merging the responses of
+ * multiple nodes is ready when it would stop waiting for the rest, see {@link SearchInvoker#resultReady}.
+ *
+ * The primary and hedge invokers are expected to cover the same documents, i.e to be invokers for
+ * different groups, as a node in one group does not hold the same documents as any single node in another.
+ *
+ * @author agent
+ */
+class HedgedSearchInvoker extends SearchInvoker {
+
+    private final SearchInvoker primary;
+    private final long hedgeDelay;
+    private final Supplier<Optional<SearchInvoker>> hedgeFactory;
+
+    private SearchInvoker hedge = null;
+    private boolean selected = false;
+    private Query query;
+
+    /**
+     * Creates a hedged search invoker
+     *
+     * @param primary the invoker to send the query to first
+     * @param hedgeDelay the time in milliseconds to wait for the primary before sending the query to a hedge invoker
+     * @param hedgeFactory creates the hedge invoker, or returns empty if none is available
+     */
+    HedgedSearchInvoker(SearchInvoker primary, long hedgeDelay, Supplier<Optional<SearchInvoker>> hedgeFactory) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgeFactory = hedgeFactory;
+    }
+
+    @Override
+    protected void sendSearchRequest(Query query) throws IOException {
+        this.query = query;
+        primary.resultReady().thenRun(this::responseAvailable);
+        primary.sendSearchRequest(query);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) throws IOException {
+        if ( ! awaitResultReady(Math.min(hedgeDelay, query.getTimeLeft())) && query.getTimeLeft() > 0) {
+            sendHedgedRequest();
+            if (hedge != null)
+                awaitResultReady(query.getTimeLeft());
+        }
+        SearchInvoker first = selectFirst();
+        InvokerResult result = first.getSearchResult(execution);
+        first.setFinalStatus(result.getResult().hits().getError() == null);
+        return result;
+    }
+
+    /**
+     * Does what getSearchResult does without blocking while waiting: The hedged request is sent from the given
+     * executor after the hedge delay if no result is ready by then, and when one is, or the query times out,
+     * the result is retrieved asynchronously from the invoker which is ready.
+     */
+    @Override
+    protected CompletableFuture<InvokerResult> getSearchResultAsync(Query query, Execution execution, Executor executor) {
+        long delay = Math.max(Math.min(hedgeDelay, query.getTimeLeft()), 0);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor).execute(this::hedgeIfNotReady);
+        return whenReady(resultReady(), query).thenCompose(__ -> {
+            SearchInvoker first = selectFirst();
+            return first.getSearchResultAsync(query, execution, executor).thenApply(result -> {
+                first.setFinalStatus(result.getResult().hits().getError() == null);
+                return result;
+            });
+        });
+    }
+
+    /** Sends the hedged request if no invoker is ready, or selected because the query timed out */
+    private synchronized void hedgeIfNotReady() {
+        if (selected || resultReady().isDone() || query.getTimeLeft() <= 0) return;
+        try {
+            sendHedgedRequest();
+        } catch (IOException e) {
+            query.trace("Could not send hedged request: " + e.getMessage(), 2);
+        }
+    }
+
+    /** Returns the invoker to get the result from, which is the primary unless only the hedge is ready */
+    private synchronized SearchInvoker selectFirst() {
+        selected = true;
+        if (hedge != null && hedge.resultReady().isDone() && ! primary.resultReady().isDone()) {
+            query.trace(false, 2, "Using the result of the hedged request");
+            return hedge;
+        }
+        return primary; // which also deals with partial responses and timeouts if none is ready
+    }
+
+    private void sendHedgedRequest() throws IOException {
+        Optional<SearchInvoker> hedge = hedgeFactory.get();
+        if (hedge.isEmpty()) return;
+
+        query.trace(false, 2, "No complete response after ", hedgeDelay, " ms: Sending hedged request");
+        this.hedge = hedge.get();
+        this.hedge.resultReady().thenRun(this::responseAvailable);
+        this.hedge.sendSearchRequest(query);
+    }
+
+    /** Waits at most the given time for the primary or hedge to be ready, and returns whether one is */
+    private boolean awaitResultReady(long timeout) {
+        try {
+            resultReady().get(Math.max(timeout, 0), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for search results", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure waiting for search results", e);
+        }
+    }
+
+    @Override
+    protected synchronized void release() {
+        primary.close();
+        if (hedge != null) {
+            hedge.close();
+        }
+    }
+
+}
@@ -11,16 +11,23 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -39,17 +46,43 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
     private static final Logger log = Logger.getLogger(InterleavedSearchInvoker.class.getName());
 
+    /** Nodes are not queried again for more hits with less time left than this */
+    static final long minRequeryTimeMs = 10;
+
     private final Set<SearchInvoker> invokers;
     private final SearchCluster searchCluster;
     private final LinkedBlockingQueue<SearchInvoker> availableForProcessing;
     private final Set<Integer> alreadyFailedNodes;
+    private final int expectedResponses;
+    private final AtomicInteger receivedResponses = new AtomicInteger(0);
     private Query query;
 
+    /** The number of hits to return, including the offset */
+    private int neededHits = 0;
+    /** The number of hits requested from each node, which is less than neededHits if they are estimated */
+    private int hitsPerNode = 0;
+    /** The invokers returning each list of partial hits, if hits per node are estimated */
+    private final List<SearchInvoker> partialHitSources = new ArrayList<>();
+    /** Returns a new invoker for the node with a distribution key, or empty if none, used to query nodes again */
+    private final Function<Integer, Optional<SearchInvoker>> requeryInvokerFactory;
+    /** The invokers querying nodes again which have not yet responded */
+    private final Map<SearchInvoker, Integer> requeryInvokers = new IdentityHashMap<>();
+    /** The invokers querying nodes again which have not yet responded, as seen by the threads receiving responses */
+    private final Set<SearchInvoker> pendingRequeries = ConcurrentHashMap.newKeySet();
+    /** Completed when all the nodes queried again have responded */
+    private final CompletableFuture<Void> requeriesReady = new CompletableFuture<>();
+    /** The time when nodes queried again are no longer waited for */
+    private long requeryDeadline = 0;
+
     private boolean adaptiveTimeoutCalculated = false;
     private long adaptiveTimeoutMin = 0;
     private long adaptiveTimeoutMax = 0;
     private long deadline = 0;
 
+    /** The adaptive timeouts applied when marking the result ready as responses arrive, or -1 if not calculated */
+    private long readyTimeoutMin = -1;
+    private long readyTimeoutMax = -1;
+
     private long answeredDocs = 0;
     private long answeredActiveDocs = 0;
     private long answeredSoonActiveDocs = 0;
@@ -57,15 +90,29 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private int answeredNodes = 0;
     private int answeredNodesParticipated = 0;
     private boolean timedOut = false;
+    private boolean provisionalResultProduced = false;
     private boolean degradedByMatchPhase = false;
 
     public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster, Set<Integer> alreadyFailedNodes) {
+        this(invokers, searchCluster, alreadyFailedNodes, key -> Optional.empty());
+    }
+
+    /**
+     * Creates an invoker which may query nodes again for more hits if the number of hits requested
+     * from each node is estimated, see {@link #hitsPerNode}.
+     *
+     * @param requeryInvokerFactory returns a new invoker for the node with the given distribution key, or empty if none
+     */
+    public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster, Set<Integer> alreadyFailedNodes,
+                                    Function<Integer, Optional<SearchInvoker>> requeryInvokerFactory) {
         super(Optional.empty());
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
         this.invokers.addAll(invokers);
         this.searchCluster = searchCluster;
         this.availableForProcessing = newQueue();
         this.alreadyFailedNodes = alreadyFailedNodes;
+        this.expectedResponses = this.invokers.size();
+        this.requeryInvokerFactory = requeryInvokerFactory;
     }
 
     /**
@@ -81,7 +128,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
         int originalHits = query.getHits();
         int originalOffset = query.getOffset();
-        query.setHits(query.getHits() + query.getOffset());
+        neededHits = query.getHits() + query.getOffset();
+        hitsPerNode = hitsPerNode(neededHits, invokers.size());
+        query.setHits(hitsPerNode);
         query.setOffset(0);
 
         for (SearchInvoker invoker : invokers) {
@@ -91,39 +140,109 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
         query.setHits(originalHits);
         query.setOffset(originalOffset);
+        if (expectedResponses == 0)
+            responseAvailable();
     }
 
     @Override
     protected InvokerResult getSearchResult(Execution execution) throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = Collections.emptyList();
-        long nextTimeout = query.getTimeLeft();
+        List<List<LeanHit>> partialHits = new ArrayList<>(invokers.size());
         try {
-            while (!invokers.isEmpty() && nextTimeout >= 0) {
-                SearchInvoker invoker = availableForProcessing.poll(nextTimeout, TimeUnit.MILLISECONDS);
-                if (invoker == null) {
-                    log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
-                    break;
-                } else {
-                    merged = mergeResult(result.getResult(), invoker.getSearchResult(execution), merged);
-                    ejectInvoker(invoker);
-                }
-                nextTimeout = nextTimeout();
-            }
+            mergeResponses(result.getResult(), partialHits, execution, true);
+            if (hitsPerNode < neededHits && requeryIncompleteNodes(partialHits))
+                mergeRequeryResponses(partialHits, execution);
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while waiting for search results", e);
         }
+        return completeResult(result, partialHits);
+    }
 
+    /**
+     * Does what getSearchResult does without blocking while waiting for responses: The responses are merged
+     * in the given executor when the result is ready or the query times out, and the responses of nodes queried
+     * again, if any, when they have all responded or the time for that is out. No provisional result is produced.
+     */
+    @Override
+    protected CompletableFuture<InvokerResult> getSearchResultAsync(Query query, Execution execution, Executor executor) {
+        InvokerResult result = new InvokerResult(query, query.getHits());
+        List<List<LeanHit>> partialHits = new ArrayList<>(invokers.size());
+        return whenReady(resultReady(), query)
+                .thenApplyAsync(__ -> {
+                    try {
+                        mergeResponses(result.getResult(), partialHits, execution, false);
+                        return hitsPerNode < neededHits && requeryIncompleteNodes(partialHits);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException("Interrupted while merging search results", e);
+                    }
+                }, executor)
+                .thenCompose(requeried -> requeried ? requeriesReady.copy().completeOnTimeout(null,
+                                                                                               Math.max(requeryDeadline - currentTime(), 0),
+                                                                                               TimeUnit.MILLISECONDS)
+                                                    : CompletableFuture.completedFuture(null))
+                .thenApplyAsync(__ -> {
+                    try {
+                        mergeRequeryResponses(partialHits, execution);
+                        return completeResult(result, partialHits);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException("Interrupted while merging search results", e);
+                    }
+                }, executor);
+    }
+
+    /**
+     * Merges the responses of the first round into the given result and partial hits. This waits for more responses
+     * until all are received, the result is ready, or the query times out, while the result which is ready when this
+     * is invoked is merged without waiting.
+     */
+    private void mergeResponses(Result result, List<List<LeanHit>> partialHits, Execution execution,
+                                boolean produceProvisional) throws IOException, InterruptedException {
+        long nextTimeout = resultReady().isDone() ? 0 : query.getTimeLeft();
+        while (!invokers.isEmpty()) {
+            // When timed out, responses which are already received are still merged
+            SearchInvoker invoker = availableForProcessing.poll(Math.max(nextTimeout, 0), TimeUnit.MILLISECONDS);
+            if (invoker == null) {
+                log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
+                break;
+            } else {
+                mergeResult(result, invoker, invoker.getSearchResult(execution), partialHits);
+                ejectInvoker(invoker);
+                if (produceProvisional && ! invokers.isEmpty() && ! provisionalResultProduced)
+                    produceProvisionalResult(result, partialHits);
+            }
+            nextTimeout = nextTimeout();
+            if (resultReady().isDone()) // the remaining responses are not waited for
+                nextTimeout = 0;
+        }
+    }
+
+    private InvokerResult completeResult(InvokerResult result, List<List<LeanHit>> partialHits) {
         insertNetworkErrors(result.getResult());
         result.getResult().setCoverage(createCoverage());
-        int needed = query.getOffset() + query.getHits();
-        for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
-            result.getLeanHits().add(merged.get(index));
-        }
+        mergeHits(partialHits, query.getOffset(), query.getHits(), result.getLeanHits());
         query.setOffset(0);  // Now we are all trimmed down
         return result;
     }
 
+    /** Gives the best hits among the responses received so far to the provisional result listener, if any */
+    private void produceProvisionalResult(Result result, List<List<LeanHit>> partialHits) {
+        if (provisionalResultListener().isEmpty()) return;
+
+        InvokerResult provisional = new InvokerResult(query, query.getHits());
+        mergeHits(partialHits, query.getOffset(), query.getHits(), provisional.getLeanHits());
+        provisional.getResult().setTotalHitCount(result.getTotalHitCount());
+        Coverage coverage = new Coverage(answeredDocs, answeredActiveDocs, answeredNodesParticipated, 1);
+        coverage.setNodesTried(askedNodes);
+        provisional.getResult().setCoverage(coverage);
+        provisional.complete();
+        provisionalResultProduced = true;
+        provisionalResultListener().get().accept(provisional.getResult());
+    }
+
     private void insertNetworkErrors(Result result) {
         // Network errors will be reported as errors only when all nodes fail, otherwise they are just traced
         boolean asErrors = answeredNodes == 0;
@@ -175,13 +294,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
 
         long now = currentTime();
-        int pendingQueries = askedNodes - answeredNodes;
-        double missWidth = ((100.0 - config.minSearchCoverage()) * askedNodes) / 100.0 - 1.0;
-        double slopedWait = adaptiveTimeoutMin;
-        if (pendingQueries > 1 && missWidth > 0.0) {
-            slopedWait += ((adaptiveTimeoutMax - adaptiveTimeoutMin) * (pendingQueries - 1)) / missWidth;
-        }
-        long nextAdaptive = (long) slopedWait;
+        long nextAdaptive = adaptiveWait(config, adaptiveTimeoutMin, adaptiveTimeoutMax, askedNodes, askedNodes - answeredNodes);
         if (now + nextAdaptive >= deadline) {
             return deadline - now;
         }
@@ -190,7 +303,121 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return nextAdaptive;
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current) {
+    /**
+     * Returns the time to wait for the pending responses when enough responses for the minimum coverage are received,
+     * which slopes from the max to the min adaptive timeout as fewer responses are pending.
+     */
+    private static long adaptiveWait(DispatchConfig config, long timeoutMin, long timeoutMax, int askedNodes, int pendingQueries) {
+        double missWidth = ((100.0 - config.minSearchCoverage()) * askedNodes) / 100.0 - 1.0;
+        double slopedWait = timeoutMin;
+        if (pendingQueries > 1 && missWidth > 0.0) {
+            slopedWait += ((timeoutMax - timeoutMin) * (pendingQueries - 1)) / missWidth;
+        }
+        return (long) slopedWait;
+    }
+
+    /**
+     * Returns the number of hits to request from each node: If enabled by topKProbability, this is the
+     * number of the needed hits a node will hold with that probability, otherwise all the needed hits.
+     */
+    private int hitsPerNode(int neededHits, int nodes) {
+        double topKProbability = searchCluster.dispatchConfig().topKProbability();
+        if (topKProbability >= 1.0 || nodes < 2) return neededHits;
+        return estimateHitsPerNode(neededHits, nodes, topKProbability);
+    }
+
+    /**
+     * Returns the smallest number of hits k such that a node holds no more than k of the top hits
+     * with the given probability, assuming each of the top hits is on any node with equal probability,
+     * such that the number on each node is binomially distributed.
+     */
+    static int estimateHitsPerNode(int hits, int nodes, double probability) {
+        if (hits == 0) return 0;
+        if (probability >= 1.0) return hits;
+        double logP = Math.log(1.0 / nodes);
+        double logQ = Math.log1p(-1.0 / nodes);
+        double logProbabilityOfK = hits * logQ; // the probability of having 0 of the hits
+        double cumulative = Math.exp(logProbabilityOfK);
+        for (int k = 0; k < hits; k++) {
+            if (cumulative >= probability) return Math.max(1, k);
+            logProbabilityOfK += Math.log((double)(hits - k) / (k + 1)) + logP - logQ;
+            cumulative += Math.exp(logProbabilityOfK);
+        }
+        return hits;
+    }
+
+    /**
+     * Queries nodes again for all the needed hits if they returned all the hits requested from them,
+     * and the last of those hits is within the needed hits, such that they may hold more of the needed hits.
+     * Nodes are queried by new invokers, as those of the first round are released when they respond,
+     * and only if there is time left before the deadline, which is earlier than the query timeout
+     * if an adaptive timeout is applied.
+     *
+     * @return whether any nodes were queried again, such that their responses should be merged
+     */
+    private boolean requeryIncompleteNodes(List<List<LeanHit>> partialHits) throws IOException {
+        List<LeanHit> neededSoFar = new ArrayList<>(neededHits);
+        mergeHits(partialHits, 0, neededHits, neededSoFar);
+        LeanHit lastNeeded = neededSoFar.size() < neededHits ? null : neededSoFar.get(neededHits - 1);
+
+        List<Integer> incomplete = new ArrayList<>();
+        for (int i = 0; i < partialHits.size(); i++) {
+            List<LeanHit> hits = partialHits.get(i);
+            if (hits.size() < hitsPerNode) continue; // the node returned all its hits
+            if (lastNeeded != null && hits.get(hits.size() - 1).compareTo(lastNeeded) >= 0) continue; // the rest are not needed
+            incomplete.add(i);
+        }
+        if (incomplete.isEmpty()) return false;
+
+        long timeLeft = Math.min(query.getTimeLeft(), deadline - currentTime());
+        if (timeLeft < minRequeryTimeMs) {
+            query.trace("No time left to query " + incomplete.size() + " nodes again: Hits may be missing", 2);
+            return false;
+        }
+
+        for (int index : incomplete) {
+            Optional<SearchInvoker> invoker = partialHitSources.get(index).distributionKey().flatMap(requeryInvokerFactory);
+            if (invoker.isEmpty()) continue;
+            invoker.get().setMonitor(this);
+            requeryInvokers.put(invoker.get(), index);
+        }
+        if (requeryInvokers.isEmpty()) return false;
+        pendingRequeries.addAll(requeryInvokers.keySet()); // before sending, such that none is ready before all are sent
+
+        query.trace(false, 3, "Querying ", incomplete.size(), " of ", partialHits.size(), " nodes again for ", neededHits, " hits");
+        int originalHits = query.getHits();
+        int originalOffset = query.getOffset();
+        query.setHits(neededHits);
+        query.setOffset(0);
+        for (SearchInvoker invoker : requeryInvokers.keySet())
+            invoker.sendSearchRequest(query);
+        query.setHits(originalHits);
+        query.setOffset(originalOffset);
+        requeryDeadline = currentTime() + timeLeft;
+        return true;
+    }
+
+    /**
+     * Merges the responses of the nodes queried again into the given partial hits. This waits for more responses
+     * until all are received or the time for that is out, while those received when this is invoked are merged without waiting.
+     */
+    private void mergeRequeryResponses(List<List<LeanHit>> partialHits, Execution execution) throws InterruptedException, IOException {
+        while ( ! requeryInvokers.isEmpty()) {
+            SearchInvoker invoker = availableForProcessing.poll(Math.max(requeryDeadline - currentTime(), 0), TimeUnit.MILLISECONDS);
+            if (invoker == null) {
+                query.trace("Timed out waiting for " + requeryInvokers.size() + " nodes queried again: Hits may be missing", 2);
+                return;
+            }
+            Integer index = requeryInvokers.remove(invoker);
+            if (index == null) continue; // a late response from a node which timed out
+            InvokerResult result = invoker.getSearchResult(execution);
+            invoker.release();
+            if (result.getResult().hits().getError() == null)
+                partialHits.set(index, result.getLeanHits());
+        }
+    }
+
+    private void mergeResult(Result result, SearchInvoker invoker, InvokerResult partialResult, List<List<LeanHit>> partialHits) {
         collectCoverage(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -200,42 +427,92 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 result.hits().add(hit);
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
-
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incommingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incommingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incommingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
+        if ( ! partialResult.getLeanHits().isEmpty()) {
+            partialHits.add(partialResult.getLeanHits());
+            if (hitsPerNode < neededHits)
+                partialHitSources.add(invoker);
+        }
+    }
+
+    /**
+     * Merges the given sorted hit lists into the given target list, skipping the first offset hits
+     * and adding at most the given number of hits. Duplicate hits are only added once.
+     * This is a k-way merge using a heap of the current position in each list, such that each hit
+     * which is consumed costs O(log(lists)), and no intermediate lists are created.
+     */
+    static void mergeHits(List<List<LeanHit>> partialHits, int offset, int hits, List<LeanHit> target) {
+        int size = partialHits.size();
+        if (size == 0) return;
+        if (size == 1) {
+            List<LeanHit> only = partialHits.get(0);
+            for (int index = offset; (index < only.size()) && (index < offset + hits); index++) {
+                target.add(only.get(index));
+            }
+            return;
+        }
+
+        int[] heap = new int[size]; // indexes into partialHits, ordered by their current hit
+        int[] positions = new int[size]; // the current position in each of partialHits
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            siftUp(heap, i, partialHits, positions);
+        }
+
+        int needed = offset + hits;
+        int consumed = 0;
+        LeanHit previous = null;
+        while (size > 0 && consumed < needed) {
+            int list = heap[0];
+            LeanHit hit = partialHits.get(list).get(positions[list]++);
+            if (previous == null || previous.compareTo(hit) != 0) { // Duplicates are only counted once
+                if (consumed >= offset) {
+                    target.add(hit);
+                }
+                consumed++;
+                previous = hit;
+            }
+            if (positions[list] == partialHits.get(list).size()) {
+                heap[0] = heap[--size];
             }
+            siftDown(heap, size, partialHits, positions);
         }
-        while ((indexCurrent < current.size()) && (merged.size() < needed)) {
-            merged.add(current.get(indexCurrent++));
+    }
+
+    private static void siftUp(int[] heap, int index, List<List<LeanHit>> lists, int[] positions) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compareHeads(heap[index], heap[parent], lists, positions) >= 0) return;
+            swap(heap, index, parent);
+            index = parent;
         }
-        while ((indexPartial < partial.size()) && (merged.size() < needed)) {
-            merged.add(partial.get(indexPartial++));
+    }
+
+    private static void siftDown(int[] heap, int size, List<List<LeanHit>> lists, int[] positions) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && compareHeads(heap[left], heap[smallest], lists, positions) < 0) {
+                smallest = left;
+            }
+            if (right < size && compareHeads(heap[right], heap[smallest], lists, positions) < 0) {
+                smallest = right;
+            }
+            if (smallest == index) return;
+            swap(heap, index, smallest);
+            index = smallest;
         }
-        return merged;
+    }
+
+    private static int compareHeads(int a, int b, List<List<LeanHit>> lists, int[] positions) {
+        return lists.get(a).get(positions[a]).compareTo(lists.get(b).get(positions[b]));
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
     }
 
     private void collectCoverage(Coverage source) {
@@ -298,18 +575,58 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
             invokers.forEach(SearchInvoker::close);
             invokers.clear();
         }
+        if ( ! requeryInvokers.isEmpty()) {
+            requeryInvokers.keySet().forEach(SearchInvoker::close);
+            requeryInvokers.clear();
+        }
     }
 
+    /**
+     * Queues the response for processing, and notifies the monitor of this when all responses are available.
+     * Before that, the result is marked as ready when the adaptive timeout is reached, see {@link #scheduleResultReady}.
+     */
     @Override
     public void responseAvailable(SearchInvoker from) {
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
+        if (pendingRequeries.remove(from)) {
+            if (pendingRequeries.isEmpty())
+                requeriesReady.complete(null);
+            return;
+        }
+        int received = receivedResponses.incrementAndGet();
+        if (received == expectedResponses) {
+            responseAvailable();
+        } else if (received < expectedResponses) { // not a response to querying a node again
+            scheduleResultReady(received);
+        }
     }
 
-    @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+    /**
+     * Marks the result as ready when the adaptive timeout is reached after the given number of responses
+     * are received, if these are enough for the minimum coverage. This happens no later than when
+     * {@link #getSearchResult} stops waiting for the rest, such that those waiting for the result to be ready
+     * do not wait for the whole query timeout when some nodes are down.
+     */
+    private void scheduleResultReady(int received) {
+        DispatchConfig config = searchCluster.dispatchConfig();
+        if (config.minSearchCoverage() >= 100.0 || query == null) return;
+        if (received < (int) Math.ceil(expectedResponses * config.minSearchCoverage() / 100.0)) return;
+
+        long wait;
+        synchronized (this) {
+            if (readyTimeoutMin < 0) {
+                long timeLeft = Math.max(query.getTimeLeft(), 0);
+                readyTimeoutMin = (long) (timeLeft * config.minWaitAfterCoverageFactor());
+                readyTimeoutMax = (long) (timeLeft * config.maxWaitAfterCoverageFactor());
+            }
+            wait = adaptiveWait(config, readyTimeoutMin, readyTimeoutMax, expectedResponses, expectedResponses - received);
+        }
+        if (wait <= 0)
+            resultReady().complete(null);
+        else
+            CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS).execute(() -> resultReady().complete(null));
     }
 
     // For overriding in tests
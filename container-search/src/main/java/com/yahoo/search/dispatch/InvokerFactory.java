@@ -4,6 +4,7 @@ package com.yahoo.search.dispatch;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.rpc.SharedSearchRequest;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.search.result.Coverage;
@@ -30,7 +31,8 @@ public abstract class InvokerFactory {
     protected abstract Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher,
                                                                        Query query,
                                                                        int maxHits,
-                                                                       Node node);
+                                                                       Node node,
+                                                                       SharedSearchRequest sharedRequest);
 
     public abstract FillInvoker createFillInvoker(VespaBackEndSearcher searcher, Result result);
 
@@ -43,6 +45,8 @@ public abstract class InvokerFactory {
      * @param nodes pre-selected list of content nodes
      * @param acceptIncompleteCoverage if some of the nodes are unavailable and this parameter is
      *                                 false, verify that the remaining set of nodes has sufficient coverage
+     * @param maxHits the max number of hits to request from each node
+     * @param sharedRequest the request shared by all the invokers of this dispatch of the query
      * @return Optional containing the SearchInvoker or empty if some node in the
      *         list is invalid and the remaining coverage is not sufficient
      */
@@ -51,13 +55,14 @@ public abstract class InvokerFactory {
                                                        OptionalInt groupId,
                                                        List<Node> nodes,
                                                        boolean acceptIncompleteCoverage,
-                                                       int maxHits) {
+                                                       int maxHits,
+                                                       SharedSearchRequest sharedRequest) {
         List<SearchInvoker> invokers = new ArrayList<>(nodes.size());
         Set<Integer> failed = null;
         for (Node node : nodes) {
             boolean nodeAdded = false;
             if (node.isWorking() != Boolean.FALSE) {
-                Optional<SearchInvoker> invoker = createNodeSearchInvoker(searcher, query, maxHits, node);
+                Optional<SearchInvoker> invoker = createNodeSearchInvoker(searcher, query, maxHits, node, sharedRequest);
                 if (invoker.isPresent()) {
                     invokers.add(invoker.get());
                     nodeAdded = true;
@@ -90,10 +95,21 @@ public abstract class InvokerFactory {
         if (invokers.size() == 1 && failed == null) {
             return Optional.of(invokers.get(0));
         } else {
-            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed));
+            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed,
+                                                            key -> requeryInvoker(searcher, query, nodes, key, maxHits, sharedRequest)));
         }
     }
 
+    /** Returns a new invoker for the node with the given key among the given nodes, or empty if none */
+    private Optional<SearchInvoker> requeryInvoker(VespaBackEndSearcher searcher, Query query, List<Node> nodes, int key,
+                                                   int maxHits, SharedSearchRequest sharedRequest) {
+        for (Node node : nodes) {
+            if (node.key() == key)
+                return createNodeSearchInvoker(searcher, query, maxHits, node, sharedRequest);
+        }
+        return Optional.empty();
+    }
+
     protected static SearchInvoker createCoverageErrorInvoker(List<Node> nodes, Set<Integer> failed) {
         StringBuilder down = new StringBuilder("Connection failure on nodes with distribution-keys: ");
         int count = 0;
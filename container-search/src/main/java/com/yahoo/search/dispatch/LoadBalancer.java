@@ -2,7 +2,9 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,17 +28,24 @@ public class LoadBalancer {
     private static final long MIN_LATENCY_DECAY_RATE = 42;
     private static final double INITIAL_QUERY_TIME = 0.001;
     private static final double MIN_QUERY_TIME = 0.001;
+    private static final double MIN_NODE_LATENCY_MS = 1.0;
 
     private final List<GroupStatus> scoreboard;
     private final GroupScheduler scheduler;
 
     public LoadBalancer(SearchCluster searchCluster, boolean roundRobin) {
+        this(searchCluster, roundRobin ? DispatchConfig.DistributionPolicy.ROUNDROBIN : DispatchConfig.DistributionPolicy.ADAPTIVE);
+    }
+
+    public LoadBalancer(SearchCluster searchCluster, DispatchConfig.DistributionPolicy.Enum policy) {
         this.scoreboard = new ArrayList<>(searchCluster.groups().size());
         for (Group group : searchCluster.orderedGroups()) {
             scoreboard.add(new GroupStatus(group));
         }
-        if (roundRobin || scoreboard.size() == 1) {
+        if (policy == DispatchConfig.DistributionPolicy.ROUNDROBIN || scoreboard.size() == 1) {
             this.scheduler = new RoundRobinScheduler(scoreboard);
+        } else if (policy == DispatchConfig.DistributionPolicy.LATENCY_AWARE) {
+            this.scheduler = new LatencyAwareScheduler(new Random(), scoreboard);
         } else {
             this.scheduler = new AdaptiveScheduler(new Random(), scoreboard);
         }
@@ -95,6 +104,8 @@ public class LoadBalancer {
 
         void allocate() {
             allocations++;
+            for (Node node : group.nodes())
+                node.startSearch();
         }
 
         void release(boolean success, double searchTime) {
@@ -103,6 +114,8 @@ public class LoadBalancer {
                 log.warning("Double free of query target group detected");
                 allocations = 0;
             }
+            for (Node node : group.nodes())
+                node.endSearch();
             if (success) {
                 searchTime = Math.max(searchTime, MIN_QUERY_TIME);
                 double decayRate = Math.min(queries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
@@ -123,6 +136,21 @@ public class LoadBalancer {
             return group.id();
         }
 
+        /**
+         * Returns the expected latency of a query to this group in milliseconds: The highest expected latency
+         * of a node in the group which is not known to be down, where the expected latency of a node is its
+         * latency estimate multiplied by the number of searches it will be processing.
+         */
+        double expectedSearchLatency() {
+            double max = 0;
+            for (Node node : group.nodes()) {
+                if (node.isWorking() == Boolean.FALSE) continue;
+                double latency = Math.max(node.searchLatencyEstimate(), MIN_NODE_LATENCY_MS) * (node.searchesInFlight() + 1);
+                max = Math.max(max, latency);
+            }
+            return max;
+        }
+
         void setQueryStatistics(long queries, double averageSearchTime) {
             this.queries = queries;
             this.averageSearchTime = averageSearchTime;
@@ -251,4 +279,54 @@ public class LoadBalancer {
             return selectGroup(needle, false, rejectedGroups);
         }
     }
+    /**
+     * Selects groups using the power of two choices: Two groups are drawn at random and the one with the
+     * lowest expected latency is chosen. Since the expected latency of a group is that of its slowest node,
+     * a degraded node only penalizes its own group to the extent it is slower than the nodes in other groups,
+     * and since the choice is between two random groups, load does not herd to the group which is currently best.
+     */
+    static class LatencyAwareScheduler implements GroupScheduler {
+        private final Random random;
+        private final List<GroupStatus> scoreboard;
+
+        public LatencyAwareScheduler(Random random, List<GroupStatus> scoreboard) {
+            this.random = random;
+            this.scoreboard = scoreboard;
+        }
+
+        @Override
+        public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
+            Optional<GroupStatus> gs = selectGroup(true, rejectedGroups);
+            if (gs.isPresent()) {
+                return gs;
+            }
+            // fallback - any coverage better than none
+            return selectGroup(false, rejectedGroups);
+        }
+
+        private Optional<GroupStatus> selectGroup(boolean requireCoverage, Set<Integer> rejected) {
+            List<GroupStatus> candidates = new ArrayList<>(scoreboard.size());
+            for (GroupStatus gs : scoreboard) {
+                if (rejected == null || !rejected.contains(gs.group.id())) {
+                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
+                        candidates.add(gs);
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            if (candidates.size() == 1) {
+                return Optional.of(candidates.get(0));
+            }
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            GroupStatus a = candidates.get(first);
+            GroupStatus b = candidates.get(second);
+            return Optional.of(b.expectedSearchLatency() < a.expectedSearchLatency() ? b : a);
+        }
+    }
 }
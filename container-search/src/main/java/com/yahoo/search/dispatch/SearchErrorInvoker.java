@@ -22,7 +22,6 @@ public class SearchErrorInvoker extends SearchInvoker {
     private final ErrorMessage message;
     private Query query;
     private final Coverage coverage;
-    private ResponseMonitor<SearchInvoker> monitor;
 
     public SearchErrorInvoker(ErrorMessage message, Coverage coverage) {
         super(Optional.empty());
@@ -37,9 +36,7 @@ public class SearchErrorInvoker extends SearchInvoker {
     @Override
     protected void sendSearchRequest(Query query) throws IOException {
         this.query = query;
-        if(monitor != null) {
-            monitor.responseAvailable(this);
-        }
+        responseAvailable();
     }
 
     @Override
@@ -55,9 +52,4 @@ public class SearchErrorInvoker extends SearchInvoker {
     protected void release() {
         // nothing to do
     }
-
-    @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        this.monitor = monitor;
-    }
 }
@@ -9,7 +9,12 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.searchchain.Execution;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * SearchInvoker encapsulates an allocated connection for running a single search query.
@@ -21,6 +26,8 @@ public abstract class SearchInvoker extends CloseableInvoker {
 
     private final Optional<Node> node;
     private ResponseMonitor<SearchInvoker> monitor;
+    private Consumer<Result> provisionalResultListener = null;
+    private final CompletableFuture<Void> resultReady = new CompletableFuture<>();
 
     protected SearchInvoker(Optional<Node> node) {
         this.node = node;
@@ -39,6 +46,63 @@ public abstract class SearchInvoker extends CloseableInvoker {
         return result.getResult();
     }
 
+    /**
+     * Retrieve the hits for the given {@link Query} without blocking while waiting for responses:
+     * The request is sent in the calling thread, and the returned future is completed when the result is ready,
+     * see {@link #resultReady}, or the query times out. As the last response is usually received by a network thread,
+     * the responses are processed by the given executor.
+     */
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution, Executor executor) {
+        try {
+            sendSearchRequest(query);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return getSearchResultAsync(query, execution, executor).thenApply(result -> {
+            setFinalStatus(result.getResult().hits().getError() == null);
+            result.complete();
+            return result.getResult();
+        });
+    }
+
+    /**
+     * Returns the result of the search request sent without blocking while waiting for it. This default implementation
+     * calls {@link #getSearchResult} in the given executor when the result is ready, or the query times out.
+     * Invokers which would otherwise block in getSearchResult must override this.
+     */
+    protected CompletableFuture<InvokerResult> getSearchResultAsync(Query query, Execution execution, Executor executor) {
+        return whenReady(resultReady(), query).thenApplyAsync(__ -> getSearchResultUnchecked(execution), executor);
+    }
+
+    /** Returns a future completed when the given one is, or when the given query times out */
+    protected static CompletableFuture<Void> whenReady(CompletableFuture<Void> ready, Query query) {
+        return ready.copy().completeOnTimeout(null, Math.max(query.getTimeLeft(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    /** Calls getSearchResult, where IOExceptions are rethrown as unchecked, for use in futures */
+    protected InvokerResult getSearchResultUnchecked(Execution execution) {
+        try {
+            return getSearchResult(execution);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sets a listener which is given a provisional result when some but not all of the responses of a search
+     * are received. The hits of a provisional result are the best hits among the responses received so far,
+     * which may not be among the final hits. Only invokers merging the responses of multiple nodes which are
+     * not hedged produce a provisional result, at most once per search, in the thread calling
+     * {@link #search}.
+     */
+    public void setProvisionalResultListener(Consumer<Result> listener) {
+        this.provisionalResultListener = listener;
+    }
+
+    protected Optional<Consumer<Result>> provisionalResultListener() {
+        return Optional.ofNullable(provisionalResultListener);
+    }
+
     protected abstract void sendSearchRequest(Query query) throws IOException;
 
     protected abstract InvokerResult getSearchResult(Execution execution) throws IOException;
@@ -47,7 +111,19 @@ public abstract class SearchInvoker extends CloseableInvoker {
         this.monitor = monitor;
     }
 
+    /**
+     * Returns a future which is completed when the result of the search request sent by this can be had
+     * from {@link #getSearchResult} without waiting for more responses: When all responses are received,
+     * or when the rest will not be waited for as the coverage of those received is sufficient.
+     * It is never completed because the query times out, so callers must bound their wait by that.
+     * The returned future must not be completed by callers.
+     */
+    protected CompletableFuture<Void> resultReady() {
+        return resultReady;
+    }
+
     protected void responseAvailable() {
+        resultReady.complete(null);
         if (monitor != null) {
             monitor.responseAvailable(this);
         }
@@ -89,6 +89,18 @@ interface Client {
         void request(String rpcMethod, CompressionType compression, int uncompressedLength, byte[] compressedPayload,
                 ResponseReceiver responseReceiver, double timeoutSeconds);
 
+        /** Returns the number of requests sent over this connection which are not yet responded to */
+        default int requestsInFlight() { return 0; }
+
+        /** Returns the size in bytes of the requests sent over this connection which are not yet responded to */
+        default long bytesInFlight() { return 0; }
+
+        /**
+         * Returns the total time in nanoseconds the requests sent over this connection which are not yet responded to
+         * have waited for their responses, at the given value of System.nanoTime()
+         */
+        default long nanosInFlight(long nanoTime) { return 0; }
+
         /** Closes this connection */
         void close();
 
@@ -0,0 +1,204 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.prelude.fastsearch.DocumentDatabase;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.result.Hit;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * A least recently used cache of decoded document summaries, shared by the fill invokers of a dispatcher.
+ * Summaries are keyed on global id, document type and summary class, and are only valid in the
+ * generation of working nodes they were fetched in, and until they expire. As content nodes do not report
+ * when documents change, the time to live is the bound on how stale a cached summary may be.
+ * Only summaries which do not depend on the query can be cached, see {@link #isCacheable}.
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+public class DocsumCache {
+
+    static final String HITS_METRIC = "docsum_cache_hits";
+    static final String MISSES_METRIC = "docsum_cache_misses";
+    static final String BYTES_METRIC = "docsum_cache_bytes";
+
+    private final long maxBytes;
+    private final long timeToLiveMs;
+    private final LongSupplier generation;
+    private final Clock clock;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * Creates a docsum cache
+     *
+     * @param maxBytes the max total size of the summaries in this, as measured by the bytes received for them
+     * @param timeToLiveMs the time in milliseconds after which summaries expire
+     * @param generation supplies the current generation of working nodes. Summaries from other generations are discarded
+     * @param metric the metric to emit hits, misses and size to
+     * @param clock the clock used to expire summaries
+     */
+    public DocsumCache(long maxBytes, long timeToLiveMs, LongSupplier generation, Metric metric, Clock clock) {
+        this.maxBytes = maxBytes;
+        this.timeToLiveMs = timeToLiveMs;
+        this.generation = generation;
+        this.metric = metric;
+        this.metricContext = metric.createContext(null);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns whether summaries fetched for this query may be cached and used for other queries:
+     * This is the case when summaries are not generated using the query (dynamic summaries,
+     * summary features or location), and no caching is requested.
+     */
+    public static boolean isCacheable(Query query, boolean summaryNeedsQuery) {
+        if (summaryNeedsQuery) return false;
+        if (query.getRanking().getQueryCache()) return false; // summaries may depend on the query cached in the backend
+        if (query.getRanking().getLocation() != null) return false;
+        if (query.getNoCache()) return false;
+        return true;
+    }
+
+    /**
+     * Fills the given hits from this cache
+     *
+     * @return the hits which were not found in this cache
+     */
+    List<FastHit> fill(List<FastHit> hits, String summaryClass, DocumentDatabase documentDb) {
+        List<FastHit> misses = new ArrayList<>(hits.size());
+        long currentGeneration = generation.getAsLong();
+        long now = clock.millis();
+        synchronized (this) {
+            for (FastHit hit : hits) {
+                if (hit.getRawGlobalId() == null) {
+                    misses.add(hit);
+                    continue;
+                }
+                Key key = new Key(hit.getRawGlobalId(), summaryClass, documentDb.getName());
+                Entry entry = entries.get(key);
+                if (entry != null && (entry.generation != currentGeneration || entry.expiry < now)) {
+                    remove(key, entry);
+                    entry = null;
+                }
+                if (entry == null) {
+                    misses.add(hit);
+                    continue;
+                }
+                hit.setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
+                hit.addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), new SlimeAdapter(entry.summary.get()));
+                hit.setFilled(summaryClass);
+            }
+        }
+        metric.add(HITS_METRIC, hits.size() - misses.size(), metricContext);
+        metric.add(MISSES_METRIC, misses.size(), metricContext);
+        return misses;
+    }
+
+    /**
+     * Adds a summary received for the given hit to this
+     *
+     * @param receivedBytes the number of bytes received for this summary, used as its size.
+     *                      When summaries are received together, this is their average serialized size.
+     */
+    void put(FastHit hit, String summaryClass, DocumentDatabase documentDb, Inspector summary, int receivedBytes) {
+        if (hit.getRawGlobalId() == null) return;
+        int size = receivedBytes + hit.getRawGlobalId().length;
+        if (size > maxBytes) return;
+
+        Slime copy = new Slime();
+        SlimeUtils.copyObject(summary, copy.setObject());
+        Key key = new Key(hit.getRawGlobalId(), summaryClass, documentDb.getName());
+        Entry entry = new Entry(copy, size, generation.getAsLong(), clock.millis() + timeToLiveMs);
+        long currentBytes;
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null)
+                bytes -= previous.size;
+            bytes += size;
+            for (Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); bytes > maxBytes && i.hasNext(); ) {
+                bytes -= i.next().getValue().size;
+                i.remove();
+            }
+            currentBytes = bytes;
+        }
+        metric.set(BYTES_METRIC, currentBytes, metricContext);
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.size;
+    }
+
+    /** Returns the total size of the summaries currently in this */
+    synchronized long bytes() { return bytes; }
+
+    /** Returns the number of summaries currently in this */
+    synchronized int size() { return entries.size(); }
+
+    private static final class Key {
+
+        private final byte[] globalId;
+        private final String summaryClass;
+        private final String documentType;
+        private final int hashCode;
+
+        Key(byte[] globalId, String summaryClass, String documentType) {
+            this.globalId = globalId;
+            this.summaryClass = summaryClass;
+            this.documentType = documentType;
+            this.hashCode = 31 * (31 * Arrays.hashCode(globalId) + String.valueOf(summaryClass).hashCode()) +
+                            documentType.hashCode();
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return this.hashCode == other.hashCode &&
+                   Arrays.equals(this.globalId, other.globalId) &&
+                   Objects.equals(this.summaryClass, other.summaryClass) &&
+                   this.documentType.equals(other.documentType);
+        }
+
+    }
+
+    private static final class Entry {
+
+        final Slime summary;
+        final int size;
+        final long generation;
+        final long expiry;
+
+        Entry(Slime summary, int size, long generation, long expiry) {
+            this.summary = summary;
+            this.size = size;
+            this.generation = generation;
+            this.expiry = expiry;
+        }
+
+    }
+
+}
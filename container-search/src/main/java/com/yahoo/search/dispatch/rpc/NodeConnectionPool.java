@@ -0,0 +1,183 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.search.dispatch.rpc.Client.NodeConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The connections to a single content node. Each request is sent over the connection whose requests in flight
+ * have together waited the shortest time for their responses, such that a slow response, e.g a large document
+ * summary reply, delays as few other requests as possible.
+ * <p>
+ * The pool grows by one connection when even the least loaded connection is busy, up to a max size.
+ * When the pool has not been busy for a while, it shrinks by one connection beyond the min size at a time:
+ * The connection is no longer selected, and is closed when it has no requests in flight.
+ * <p>
+ * This is multithread safe. Selecting a connection does not lock, only resizing the pool does.
+ *
+ * @author agent
+ */
+class NodeConnectionPool {
+
+    /** The total time in nanoseconds the requests in flight on a connection must have waited before it is busy */
+    static final long busyNanos = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /** The time in nanoseconds between each time the pool may shrink, if it has not been busy in that time */
+    static final long idleNanos = TimeUnit.SECONDS.toNanos(10);
+
+    private final int minSize;
+    private final int maxSize;
+
+    /** Creates new connections to the node, when the pool grows */
+    private final Supplier<NodeConnection> connectionFactory;
+
+    /** Returns the current time in nanoseconds */
+    private final LongSupplier nanoClock;
+
+    /**
+     * The connections which are selected from. The first minSize connections are never closed before this is released.
+     * This list is never modified, but replaced when the pool is resized.
+     */
+    private volatile List<NodeConnection> connections;
+
+    /** The connections which are removed from this and closed when they have no requests in flight. Guarded by this */
+    private final List<NodeConnection> closing = new ArrayList<>();
+
+    /** The last time the least loaded connection was busy */
+    private volatile long lastBusy;
+
+    /** The last time the pool was resized or checked for shrinking */
+    private final AtomicLong lastMaintained;
+
+    /** Creates a pool of a fixed set of connections */
+    NodeConnectionPool(List<NodeConnection> connections) {
+        this.minSize = connections.size();
+        this.maxSize = connections.size();
+        this.connectionFactory = null;
+        this.nanoClock = System::nanoTime;
+        this.connections = List.copyOf(connections);
+        this.lastBusy = nanoClock.getAsLong();
+        this.lastMaintained = new AtomicLong(lastBusy);
+    }
+
+    /** Creates a pool which creates its connections using the given factory */
+    NodeConnectionPool(int minSize, int maxSize, Supplier<NodeConnection> connectionFactory) {
+        this(minSize, maxSize, connectionFactory, System::nanoTime);
+    }
+
+    NodeConnectionPool(int minSize, int maxSize, Supplier<NodeConnection> connectionFactory, LongSupplier nanoClock) {
+        if (minSize < 1) throw new IllegalArgumentException("A connection pool must have at least one connection");
+        this.minSize = minSize;
+        this.maxSize = Math.max(minSize, maxSize);
+        this.connectionFactory = connectionFactory;
+        this.nanoClock = nanoClock;
+        List<NodeConnection> connections = new ArrayList<>(minSize);
+        for (int i = 0; i < minSize; i++)
+            connections.add(connectionFactory.get());
+        this.connections = List.copyOf(connections);
+        this.lastBusy = nanoClock.getAsLong();
+        this.lastMaintained = new AtomicLong(lastBusy);
+    }
+
+    /** Returns the least loaded connection of this, adding a new connection if it is busy */
+    NodeConnection nextConnection() {
+        long now = nanoClock.getAsLong();
+        List<NodeConnection> current = connections;
+        NodeConnection selected = leastLoaded(current, now);
+        if (selected.nanosInFlight(now) >= busyNanos) {
+            lastBusy = now;
+            if (current.size() < maxSize)
+                return grow(current, selected, now);
+        }
+        else if (now - lastMaintained.get() >= idleNanos) {
+            maintain(now);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the connection whose requests in flight have waited the shortest total time, and then the one
+     * with the fewest requests in flight, breaking ties randomly
+     */
+    private static NodeConnection leastLoaded(List<NodeConnection> connections, long now) {
+        int start = ThreadLocalRandom.current().nextInt(connections.size());
+        NodeConnection leastLoaded = null;
+        long leastNanos = 0;
+        for (int i = 0; i < connections.size(); i++) {
+            NodeConnection candidate = connections.get((start + i) % connections.size());
+            long nanos = candidate.nanosInFlight(now);
+            if (leastLoaded == null || nanos < leastNanos
+                || (nanos == leastNanos && candidate.requestsInFlight() < leastLoaded.requestsInFlight())) {
+                leastLoaded = candidate;
+                leastNanos = nanos;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /** Adds a connection to this and returns it, unless the given connections have been replaced concurrently */
+    private synchronized NodeConnection grow(List<NodeConnection> current, NodeConnection selected, long now) {
+        if (current != connections) return selected;
+        NodeConnection added = connectionFactory.get();
+        List<NodeConnection> grown = new ArrayList<>(current);
+        grown.add(added);
+        connections = List.copyOf(grown);
+        lastMaintained.set(now);
+        return added;
+    }
+
+    /**
+     * Closes the connections removed from this which have no requests in flight, and removes the last connection
+     * beyond the min size if the pool has not been busy since it was last maintained
+     */
+    private void maintain(long now) {
+        long last = lastMaintained.get();
+        if ( ! lastMaintained.compareAndSet(last, now)) return; // another thread is doing it
+        synchronized (this) {
+            closing.removeIf(connection -> {
+                if (connection.requestsInFlight() > 0) return false;
+                connection.close();
+                return true;
+            });
+
+            List<NodeConnection> current = connections;
+            if (current.size() <= minSize || now - lastBusy < idleNanos) return;
+            closing.add(current.get(current.size() - 1));
+            connections = List.copyOf(current.subList(0, current.size() - 1));
+        }
+    }
+
+    /** Returns the current number of connections in this which are selected from */
+    int size() { return connections.size(); }
+
+    /** Returns the highest number of requests in flight on a single connection of this */
+    int maxRequestsInFlight() {
+        int max = 0;
+        for (NodeConnection connection : connections)
+            max = Math.max(max, connection.requestsInFlight());
+        return max;
+    }
+
+    /** Returns the total size in bytes of the requests in flight on the connections of this */
+    long bytesInFlight() {
+        long bytes = 0;
+        for (NodeConnection connection : connections)
+            bytes += connection.bytesInFlight();
+        return bytes;
+    }
+
+    /** Closes all the connections of this */
+    synchronized void release() {
+        connections.forEach(NodeConnection::close);
+        closing.forEach(NodeConnection::close);
+        closing.clear();
+    }
+
+}
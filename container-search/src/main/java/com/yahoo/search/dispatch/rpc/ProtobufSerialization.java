@@ -5,6 +5,7 @@ import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.StringProperty;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.TensorProperty;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.yahoo.data.access.simple.Value;
 import com.yahoo.data.access.slime.SlimeAdapter;
@@ -29,8 +30,11 @@ import com.yahoo.searchlib.aggregation.Grouping;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.vespa.objects.BufferSerializer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -42,6 +46,42 @@ public class ProtobufSerialization {
         return convertFromQuery(query, hits, serverId).toByteArray();
     }
 
+    /**
+     * Returns the search request of the given query without a timeout.
+     * A timeout is added by {@link #serializeSearchRequest(byte[], int)}.
+     */
+    static byte[] serializeSearchRequestWithoutTimeout(Query query, int hits, String serverId) {
+        return convertFromQuery(query, hits, serverId).toBuilder().clearTimeout().build().toByteArray();
+    }
+
+    /**
+     * Returns the given search request without a timeout with the given timeout field added.
+     * The timeout field is written before the other fields, which is valid as protobuf fields may be in any order,
+     * such that the request contains a single timeout without serializing the rest again.
+     */
+    static byte[] serializeSearchRequest(byte[] requestWithoutTimeout, int timeout) {
+        int timeoutSize = CodedOutputStream.computeInt32Size(SearchProtocol.SearchRequest.TIMEOUT_FIELD_NUMBER, timeout);
+        byte[] request = new byte[timeoutSize + requestWithoutTimeout.length];
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(request);
+            output.writeInt32(SearchProtocol.SearchRequest.TIMEOUT_FIELD_NUMBER, timeout);
+            output.writeRawBytes(requestWithoutTimeout);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize search request", e);
+        }
+        return request;
+    }
+
+    /**
+     * Returns the serialized form of the search request content nodes would receive for the given query,
+     * without timeout, tracing and session information. Queries with equal keys will return the same hits.
+     */
+    public static byte[] serializeSearchRequestKey(Query query) {
+        return convertFromQuery(query, query.getHits(), null).toBuilder().clearTimeout().clearTraceLevel().build().toByteArray();
+    }
+
+    /** Converts the given query to a search request. If serverId is null no session key will be set. */
     private static SearchProtocol.SearchRequest convertFromQuery(Query query, int hits, String serverId) {
         var builder = SearchProtocol.SearchRequest.newBuilder().setHits(hits).setOffset(query.getOffset())
                 .setTimeout((int) query.getTimeLeft());
@@ -52,7 +92,7 @@ public class ProtobufSerialization {
         }
         builder.setQueryTreeBlob(serializeQueryTree(query.getModel().getQueryTree()));
 
-        if (query.getGroupingSessionCache() || query.getRanking().getQueryCache()) {
+        if (serverId != null && (query.getGroupingSessionCache() || query.getRanking().getQueryCache())) {
             // TODO verify that the session key is included whenever rank properties would have been
             builder.setSessionKey(query.getSessionId(serverId).toString());
         }
@@ -157,11 +197,33 @@ public class ProtobufSerialization {
     }
 
     static byte[] serializeDocsumRequest(SearchProtocol.DocsumRequest.Builder builder, List<FastHit> documents) {
-        builder.clearGlobalIds();
+        return serializeDocsumRequest(serializeDocsumRequest(builder), documents);
+    }
+
+    /**
+     * Returns the given docsum request without global ids, such that the query data it may contain
+     * is serialized once for all the nodes it is sent to.
+     */
+    static byte[] serializeDocsumRequest(SearchProtocol.DocsumRequest.Builder builder) {
+        return builder.clearGlobalIds().build().toByteArray();
+    }
+
+    /**
+     * Returns the given serialized docsum request with the global ids of the given documents added.
+     * Repeated fields of protobuf messages appended to each other are concatenated.
+     */
+    static byte[] serializeDocsumRequest(byte[] requestWithoutGlobalIds, List<FastHit> documents) {
+        var globalIds = SearchProtocol.DocsumRequest.newBuilder();
         for (var hit : documents) {
-            builder.addGlobalIds(ByteString.copyFrom(hit.getRawGlobalId()));
+            globalIds.addGlobalIds(ByteString.copyFrom(hit.getRawGlobalId()));
         }
-        return builder.build().toByteArray();
+        return concatenate(requestWithoutGlobalIds, globalIds.build().toByteArray());
+    }
+
+    static byte[] concatenate(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
     }
 
     private static void mergeQueryDataToDocsumRequest(Query query, SearchProtocol.DocsumRequest.Builder builder) {
@@ -46,6 +46,16 @@ class RpcClient implements Client {
         // All access to this must be synchronized
         private Target target = null;
 
+        /** The System.nanoTime() of the creation of this, which send times are relative to */
+        private final long epochNanos = System.nanoTime();
+
+        // The requests in flight over this. All access to these must be synchronized on inFlight
+        private final Object inFlight = new Object();
+        private int requestsInFlight = 0;
+        private long bytesInFlight = 0;
+        /** The sum of the send times of the requests in flight */
+        private long sentNanosInFlight = 0;
+
         public RpcNodeConnection(String hostname, int port, Supervisor supervisor) {
             this.supervisor = supervisor;
             this.hostname = hostname;
@@ -62,7 +72,8 @@ class RpcClient implements Client {
             request.parameters().add(new DataValue(compressedSlime));
 
             request.setContext(hits);
-            invokeAsync(request, timeoutSeconds, new RpcDocsumResponseWaiter(this, responseReceiver));
+            SentRequest sent = new SentRequest(compressedSlime.length, System.nanoTime() - epochNanos);
+            invokeAsync(request, sent, timeoutSeconds, new RpcDocsumResponseWaiter(this, sent, responseReceiver));
         }
 
         @Override
@@ -73,16 +84,58 @@ class RpcClient implements Client {
             request.parameters().add(new Int32Value(uncompressedLength));
             request.parameters().add(new DataValue(compressedPayload));
 
-            invokeAsync(request, timeoutSeconds, new RpcProtobufResponseWaiter(this, responseReceiver));
+            SentRequest sent = new SentRequest(compressedPayload.length, System.nanoTime() - epochNanos);
+            invokeAsync(request, sent, timeoutSeconds, new RpcProtobufResponseWaiter(this, sent, responseReceiver));
+        }
+
+        private void invokeAsync(Request req, SentRequest sent, double timeout, RequestWaiter waiter) {
+            synchronized (inFlight) {
+                requestsInFlight++;
+                bytesInFlight += sent.bytes;
+                sentNanosInFlight += sent.nanoTime;
+            }
+            try {
+                // TODO: Consider replacing this by a watcher on the target
+                synchronized(this) { // ensure we have exactly 1 valid connection across threads
+                    if (target == null || ! target.isValid())
+                        target = supervisor.connect(new Spec(hostname, port));
+                }
+                target.invokeAsync(req, timeout, waiter);
+            }
+            catch (RuntimeException e) {
+                responded(sent);
+                throw e;
+            }
+        }
+
+        /** Called when the given request sent over this is responded to */
+        private void responded(SentRequest sent) {
+            synchronized (inFlight) {
+                requestsInFlight--;
+                bytesInFlight -= sent.bytes;
+                sentNanosInFlight -= sent.nanoTime;
+            }
         }
 
-        private void invokeAsync(Request req, double timeout, RequestWaiter waiter) {
-            // TODO: Consider replacing this by a watcher on the target
-            synchronized(this) { // ensure we have exactly 1 valid connection across threads
-                if (target == null || ! target.isValid())
-                    target = supervisor.connect(new Spec(hostname, port));
+        @Override
+        public int requestsInFlight() {
+            synchronized (inFlight) {
+                return requestsInFlight;
+            }
+        }
+
+        @Override
+        public long bytesInFlight() {
+            synchronized (inFlight) {
+                return bytesInFlight;
+            }
+        }
+
+        @Override
+        public long nanosInFlight(long nanoTime) {
+            synchronized (inFlight) {
+                return Math.max(0, requestsInFlight * (nanoTime - epochNanos) - sentNanosInFlight);
             }
-            target.invokeAsync(req, timeout, waiter);
         }
 
         @Override
@@ -99,21 +152,39 @@ class RpcClient implements Client {
 
     }
 
+    /** The size and send time, relative to its connection, of a request */
+    private static class SentRequest {
+
+        final int bytes;
+        final long nanoTime;
+
+        SentRequest(int bytes, long nanoTime) {
+            this.bytes = bytes;
+            this.nanoTime = nanoTime;
+        }
+
+    }
+
     private static class RpcDocsumResponseWaiter implements RequestWaiter {
 
         /** The node to which we made the request we are waiting for - for error messages only */
         private final RpcNodeConnection node;
 
+        /** The request we are waiting for */
+        private final SentRequest request;
+
         /** The handler to which the response is forwarded */
         private final RpcFillInvoker.GetDocsumsResponseReceiver handler;
 
-        public RpcDocsumResponseWaiter(RpcNodeConnection node, RpcFillInvoker.GetDocsumsResponseReceiver handler) {
+        public RpcDocsumResponseWaiter(RpcNodeConnection node, SentRequest request, RpcFillInvoker.GetDocsumsResponseReceiver handler) {
             this.node = node;
+            this.request = request;
             this.handler = handler;
         }
 
         @Override
         public void handleRequestDone(Request requestWithResponse) {
+            node.responded(request);
             if (requestWithResponse.isError()) {
                 handler.receive(ResponseOrError.fromError("Error response from " + node + ": " + requestWithResponse.errorMessage()));
                 return;
@@ -142,16 +213,21 @@ class RpcClient implements Client {
         /** The node to which we made the request we are waiting for - for error messages only */
         private final RpcNodeConnection node;
 
+        /** The request we are waiting for */
+        private final SentRequest request;
+
         /** The handler to which the response is forwarded */
         private final ResponseReceiver handler;
 
-        public RpcProtobufResponseWaiter(RpcNodeConnection node, ResponseReceiver handler) {
+        public RpcProtobufResponseWaiter(RpcNodeConnection node, SentRequest request, ResponseReceiver handler) {
             this.node = node;
+            this.request = request;
             this.handler = handler;
         }
 
         @Override
         public void handleRequestDone(Request requestWithResponse) {
+            node.responded(request);
             if (requestWithResponse.isError()) {
                 handler.receive(ResponseOrError.fromError("Error response from " + node + ": " + requestWithResponse.errorMessage()));
                 return;
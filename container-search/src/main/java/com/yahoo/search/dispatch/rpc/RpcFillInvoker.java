@@ -23,6 +23,7 @@ import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -43,16 +44,27 @@ public class RpcFillInvoker extends FillInvoker {
 
     private final DocumentDatabase documentDb;
     private final RpcResourcePool resourcePool;
+    private final DocsumCache docsumCache;
     private GetDocsumsResponseReceiver responseReceiver;
 
     RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb) {
+        this(resourcePool, documentDb, null);
+    }
+
+    /**
+     * Creates a fill invoker
+     *
+     * @param docsumCache the cache to fill hits from and add received summaries to, or null to not use a cache
+     */
+    RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, DocsumCache docsumCache) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
+        this.docsumCache = docsumCache;
     }
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
+        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result, summaryClass);
         Query query = result.getQuery();
 
         CompressionType compression = CompressionType
@@ -63,7 +75,7 @@ public class RpcFillInvoker extends FillInvoker {
             query.trace("RpcSlime: Not resending query during document summary fetching", 3);
         }
 
-        responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(), result);
+        responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(), result, docsumCache);
         for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
             sendGetDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), summaryClass, compression, result, responseReceiver);
         }
@@ -85,17 +97,21 @@ public class RpcFillInvoker extends FillInvoker {
         // nothing to release
     }
 
-    /** Return a map of hits by their search node (partition) id */
-    private static ListMap<Integer, FastHit> hitsByNode(Result result) {
-        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+    /** Return a map of the hits which must be fetched by their search node (partition) id */
+    private ListMap<Integer, FastHit> hitsByNode(Result result, String summaryClass) {
+        List<FastHit> hits = new ArrayList<>();
         for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext();) {
             Hit h = i.next();
             if (!(h instanceof FastHit))
                 continue;
-            FastHit hit = (FastHit) h;
+            hits.add((FastHit) h);
+        }
+        if (docsumCache != null)
+            hits = docsumCache.fill(hits, summaryClass, documentDb);
 
+        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+        for (FastHit hit : hits)
             hitsByNode.put(hit.getDistributionKey(), hit);
-        }
         return hitsByNode;
     }
 
@@ -152,6 +168,7 @@ public class RpcFillInvoker extends FillInvoker {
         private final BlockingQueue<Client.ResponseOrError<GetDocsumsResponse>> responses;
         private final Compressor compressor;
         private final Result result;
+        private final DocsumCache docsumCache;
 
         /** Whether we have already logged/notified about an error - to avoid spamming */
         private boolean hasReportedError = false;
@@ -159,11 +176,12 @@ public class RpcFillInvoker extends FillInvoker {
         /** The number of responses we should receive (and process) before this is complete */
         private int outstandingResponses;
 
-        GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result) {
+        GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result, DocsumCache docsumCache) {
             this.compressor = compressor;
             responses = new LinkedBlockingQueue<>(requestCount);
             outstandingResponses = requestCount;
             this.result = result;
+            this.docsumCache = docsumCache;
         }
 
         /** Called by a thread belonging to the client when a valid response becomes available */
@@ -243,12 +261,16 @@ public class RpcFillInvoker extends FillInvoker {
             if ( ! summaries.valid())
                 return 0; // No summaries; Perhaps we requested a non-existing summary class
             int skippedHits = 0;
+            int bytesPerSummary = slimeBytes.length / Math.max(1, hits.size());
             for (int i = 0; i < hits.size(); i++) {
                 Inspector summary = summaries.entry(i).field("docsum");
                 if (summary.valid()) {
                     hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
                     hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
                     hits.get(i).setFilled(summaryClass);
+                    if (docsumCache != null)
+                        docsumCache.put(hits.get(i), summaryClass, documentDb, root.field("docsums").entry(i).field("docsum"),
+                                        bytesPerSummary);
                 } else {
                     skippedHits++;
                 }
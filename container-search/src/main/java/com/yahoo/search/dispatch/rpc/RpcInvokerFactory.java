@@ -24,18 +24,25 @@ public class RpcInvokerFactory extends InvokerFactory {
     private final static CompoundName dispatchSummaries = new CompoundName("dispatch.summaries");
 
     private final RpcResourcePool rpcResourcePool;
+    private final Optional<DocsumCache> docsumCache;
 
     public RpcInvokerFactory(RpcResourcePool rpcResourcePool, SearchCluster searchCluster) {
+        this(rpcResourcePool, searchCluster, Optional.empty());
+    }
+
+    public RpcInvokerFactory(RpcResourcePool rpcResourcePool, SearchCluster searchCluster, Optional<DocsumCache> docsumCache) {
         super(searchCluster);
         this.rpcResourcePool = rpcResourcePool;
+        this.docsumCache = docsumCache;
     }
 
     @Override
     protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher,
                                                               Query query,
                                                               int maxHits,
-                                                              Node node) {
-        return Optional.of(new RpcSearchInvoker(searcher, node, rpcResourcePool, maxHits));
+                                                              Node node,
+                                                              SharedSearchRequest sharedRequest) {
+        return Optional.of(new RpcSearchInvoker(searcher, node, rpcResourcePool, maxHits, sharedRequest));
     }
 
     @Override
@@ -45,15 +52,16 @@ public class RpcInvokerFactory extends InvokerFactory {
         boolean summaryNeedsQuery = searcher.summaryNeedsQuery(query);
         boolean useProtoBuf = query.properties().getBoolean(Dispatcher.dispatchProtobuf, true);
         boolean useDispatchDotSummaries = query.properties().getBoolean(dispatchSummaries, false);
+        DocsumCache cache = docsumCache.filter(__ -> DocsumCache.isCacheable(query, summaryNeedsQuery)).orElse(null);
 
         return  ((useDispatchDotSummaries || !useProtoBuf) && ! summaryNeedsQuery)
-                ? new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query))
-                : new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery);
+                ? new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), cache)
+                : new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery, cache);
     }
 
     // for testing
     public FillInvoker createFillInvoker(DocumentDatabase documentDb) {
-        return new RpcFillInvoker(rpcResourcePool, documentDb);
+        return new RpcFillInvoker(rpcResourcePool, documentDb, docsumCache.orElse(null));
     }
 
 }
@@ -22,6 +22,7 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private final RpcResourcePool resourcePool;
     private final boolean summaryNeedsQuery;
     private final String serverId;
+    private final DocsumCache docsumCache;
 
     private BlockingQueue<Pair<Client.ResponseOrError<ProtobufResponse>, List<FastHit>>> responses;
 
@@ -56,15 +58,26 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private int outstandingResponses;
 
     RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery) {
+        this(resourcePool, documentDb, serverId, summaryNeedsQuery, null);
+    }
+
+    /**
+     * Creates a fill invoker
+     *
+     * @param docsumCache the cache to fill hits from and add received summaries to, or null to not use a cache
+     */
+    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery,
+                           DocsumCache docsumCache) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
         this.serverId = serverId;
         this.summaryNeedsQuery = summaryNeedsQuery;
+        this.docsumCache = docsumCache;
     }
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
+        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result, summaryClass);
 
         result.getQuery().trace(false, 5, "Sending ", hitsByNode.size(), " summary fetch requests with jrt/protobuf");
 
@@ -72,8 +85,9 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         responses = new LinkedBlockingQueue<>(outstandingResponses);
 
         var builder = ProtobufSerialization.createDocsumRequestBuilder(result.getQuery(), serverId, summaryClass, summaryNeedsQuery);
+        var request = ProtobufSerialization.serializeDocsumRequest(builder);
         for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
-            var payload = ProtobufSerialization.serializeDocsumRequest(builder, nodeHits.getValue());
+            var payload = ProtobufSerialization.serializeDocsumRequest(request, nodeHits.getValue());
             sendDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), payload, result);
         }
     }
@@ -99,17 +113,21 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         responses.add(new Pair<>(response, hitsContext));
     }
 
-    /** Return a map of hits by their search node (partition) id */
-    private static ListMap<Integer, FastHit> hitsByNode(Result result) {
-        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+    /** Return a map of the hits which must be fetched by their search node (partition) id */
+    private ListMap<Integer, FastHit> hitsByNode(Result result, String summaryClass) {
+        List<FastHit> hits = new ArrayList<>();
         for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext();) {
             Hit h = i.next();
             if (!(h instanceof FastHit))
                 continue;
-            FastHit hit = (FastHit) h;
+            hits.add((FastHit) h);
+        }
+        if (docsumCache != null)
+            hits = docsumCache.fill(hits, summaryClass, documentDb);
 
+        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+        for (FastHit hit : hits)
             hitsByNode.put(hit.getDistributionKey(), hit);
-        }
         return hitsByNode;
     }
 
@@ -199,12 +217,16 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 return 0; // No summaries; Perhaps we requested a non-existing summary class
             }
             int skippedHits = 0;
+            int bytesPerSummary = protobuf.getSlimeSummaries().size() / Math.max(1, hits.size());
             for (int i = 0; i < hits.size(); i++) {
                 Inspector summary = summaries.entry(i).field("docsum");
                 if (summary.valid()) {
                     hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
                     hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
                     hits.get(i).setFilled(summaryClass);
+                    if (docsumCache != null)
+                        docsumCache.put(hits.get(i), summaryClass, documentDb, root.field("docsums").entry(i).field("docsum"),
+                                        bytesPerSummary);
                 } else {
                     skippedHits++;
                 }
@@ -8,17 +8,16 @@ import com.yahoo.component.ComponentId;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.compress.Compressor.Compression;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.rpc.Client.NodeConnection;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * RpcResourcePool constructs {@link FillInvoker} objects that communicate with content nodes over RPC. It also contains
@@ -30,34 +29,56 @@ public class RpcResourcePool extends AbstractComponent {
     /** The compression method which will be used with rpc dispatch. "lz4" (default) and "none" is supported. */
     public final static CompoundName dispatchCompression = new CompoundName("dispatch.compression");
 
+    private static final String NODE_CONNECTIONS_METRIC = "dispatch_node_connections";
+    private static final String NODE_CONNECTION_REQUESTS_IN_FLIGHT_METRIC = "dispatch_node_connection_requests_in_flight";
+    private static final String NODE_CONNECTION_BYTES_IN_FLIGHT_METRIC = "dispatch_node_connection_bytes_in_flight";
+    private static final long CONNECTIONS_REPORT_INTERVAL_MS = 1000;
+
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 5, 0.95, 32);
-    private final Random random = new Random();
 
     /** Connections to the search nodes this talks to, indexed by node id ("partid") */
     private final ImmutableMap<Integer, NodeConnectionPool> nodeConnectionPools;
 
+    /** The metric to report the connection pools to, or null to not report them */
+    private final Metric metric;
+
+    /** The metric context of each node, indexed by node id */
+    private final ImmutableMap<Integer, Metric.Context> nodeMetricContexts;
+
+    private final AtomicLong lastConnectionsReport = new AtomicLong(0);
+
     RpcResourcePool(Map<Integer, NodeConnection> nodeConnections) {
         var builder = new ImmutableMap.Builder<Integer, NodeConnectionPool>();
         nodeConnections.forEach((key, connection) -> builder.put(key, new NodeConnectionPool(Collections.singletonList(connection))));
         this.nodeConnectionPools = builder.build();
+        this.metric = null;
+        this.nodeMetricContexts = ImmutableMap.of();
     }
 
-    @Inject
     public RpcResourcePool(DispatchConfig dispatchConfig) {
+        this(dispatchConfig, null);
+    }
+
+    @Inject
+    public RpcResourcePool(DispatchConfig dispatchConfig, Metric metric) {
         super();
         var client = new RpcClient(dispatchConfig.numJrtTransportThreads());
 
         // Create rpc node connection pools indexed by the node distribution key
         var builder = new ImmutableMap.Builder<Integer, NodeConnectionPool>();
-        var numConnections = dispatchConfig.numJrtConnectionsPerNode();
+        var metricContexts = new ImmutableMap.Builder<Integer, Metric.Context>();
         for (var node : dispatchConfig.node()) {
-            var connections = new ArrayList<NodeConnection>(numConnections);
-            for (int i = 0; i < numConnections; i++) {
-                connections.add(client.createConnection(node.host(), node.port()));
-            }
-            builder.put(node.key(), new NodeConnectionPool(connections));
+            builder.put(node.key(), new NodeConnectionPool(dispatchConfig.numJrtConnectionsPerNode(),
+                                                           dispatchConfig.maxJrtConnectionsPerNode(),
+                                                           () -> client.createConnection(node.host(), node.port())));
+            if (metric != null)
+                metricContexts.put(node.key(), metric.createContext(Map.of("node", node.host(),
+                                                                           "distributionKey", node.key(),
+                                                                           "group", node.group())));
         }
         this.nodeConnectionPools = builder.build();
+        this.metric = metric;
+        this.nodeMetricContexts = metricContexts.build();
     }
 
     public Compressor compressor() {
@@ -74,31 +95,34 @@ public class RpcResourcePool extends AbstractComponent {
         if (pool == null) {
             return null;
         } else {
+            reportConnections();
             return pool.nextConnection();
         }
     }
 
+    /**
+     * Reports the number of connections to each node, the most requests in flight on a single connection to it,
+     * and the bytes in flight to it, if this has not been done within the report interval
+     */
+    private void reportConnections() {
+        if (metric == null) return;
+        long now = System.currentTimeMillis();
+        long lastReport = lastConnectionsReport.get();
+        if (now - lastReport < CONNECTIONS_REPORT_INTERVAL_MS) return;
+        if ( ! lastConnectionsReport.compareAndSet(lastReport, now)) return; // another thread is reporting
+
+        for (Map.Entry<Integer, Metric.Context> entry : nodeMetricContexts.entrySet()) {
+            NodeConnectionPool pool = nodeConnectionPools.get(entry.getKey());
+            metric.set(NODE_CONNECTIONS_METRIC, pool.size(), entry.getValue());
+            metric.set(NODE_CONNECTION_REQUESTS_IN_FLIGHT_METRIC, pool.maxRequestsInFlight(), entry.getValue());
+            metric.set(NODE_CONNECTION_BYTES_IN_FLIGHT_METRIC, pool.bytesInFlight(), entry.getValue());
+        }
+    }
+
     @Override
     public void deconstruct() {
         super.deconstruct();
         nodeConnectionPools.values().forEach(NodeConnectionPool::release);
     }
 
-    private class NodeConnectionPool {
-        private final List<Client.NodeConnection> connections;
-
-        NodeConnectionPool(List<NodeConnection> connections) {
-            this.connections = connections;
-        }
-
-        Client.NodeConnection nextConnection() {
-            int slot = random.nextInt(connections.size());
-            return connections.get(slot);
-        }
-
-        void release() {
-            connections.forEach(Client.NodeConnection::close);
-        }
-    }
-
 }
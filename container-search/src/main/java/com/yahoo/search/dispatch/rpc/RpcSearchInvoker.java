@@ -2,7 +2,6 @@
 package com.yahoo.search.dispatch.rpc;
 
 import com.yahoo.compress.CompressionType;
-import com.yahoo.compress.Compressor;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.InvokerResult;
@@ -17,6 +16,7 @@ import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link SearchInvoker} implementation using RPC
@@ -32,21 +32,34 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     private final RpcResourcePool resourcePool;
     private final BlockingQueue<Client.ResponseOrError<ProtobufResponse>> responses;
     private final int maxHits;
+    private final SharedSearchRequest sharedRequest;
 
     private Query query;
 
+    /** The time the request was sent */
+    private long sendTime;
+    /** Whether the latency of the request is recorded, or known not to be available */
+    private final AtomicBoolean latencyRecorded = new AtomicBoolean(false);
+
     RpcSearchInvoker(VespaBackEndSearcher searcher, Node node, RpcResourcePool resourcePool, int maxHits) {
+        this(searcher, node, resourcePool, maxHits, new SharedSearchRequest());
+    }
+
+    RpcSearchInvoker(VespaBackEndSearcher searcher, Node node, RpcResourcePool resourcePool, int maxHits,
+                     SharedSearchRequest sharedRequest) {
         super(Optional.of(node));
         this.searcher = searcher;
         this.node = node;
         this.resourcePool = resourcePool;
         this.responses = new LinkedBlockingQueue<>(1);
         this.maxHits = maxHits;
+        this.sharedRequest = sharedRequest;
     }
 
     @Override
     protected void sendSearchRequest(Query query) {
         this.query = query;
+        this.sendTime = currentTime();
 
         Client.NodeConnection nodeConnection = resourcePool.getConnection(node.key());
         if (nodeConnection == null) {
@@ -56,10 +69,10 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
         }
         query.trace(false, 5, "Sending search request with jrt/protobuf to node with dist key ", node.key());
 
-        var payload = ProtobufSerialization.serializeSearchRequest(query, Math.min(query.getHits(), maxHits), searcher.getServerId());
+        var payload = sharedRequest.payload(query, Math.min(query.getHits(), maxHits), searcher.getServerId(), resourcePool);
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
-        Compressor.Compression compressionResult = resourcePool.compress(query, payload);
-        nodeConnection.request(RPC_METHOD, compressionResult.type(), payload.length, compressionResult.data(), this, timeoutSeconds);
+        nodeConnection.request(RPC_METHOD, payload.compression().type(), payload.uncompressedSize(), payload.compression().data(),
+                               this, timeoutSeconds);
     }
 
     @Override
@@ -75,6 +88,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
             // handled as timeout
         }
         if (response == null) {
+            recordTimeout();
             return errorResult(query, ErrorMessage.createTimeout("Timeout while waiting for " + getName()));
         }
         if (response.error().isPresent()) {
@@ -94,14 +108,27 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
 
     @Override
     protected void release() {
-        // nothing to release
+        recordTimeout(); // if no response has arrived, this is abandoned
     }
 
     public void receive(Client.ResponseOrError<ProtobufResponse> response) {
+        if (latencyRecorded.compareAndSet(false, true) && response.response().isPresent())
+            node.recordSearchLatency(currentTime() - sendTime);
         responses.add(response);
         responseAvailable();
     }
 
+    /** Records the time elapsed as a lower bound of the latency of the node, unless a response has arrived */
+    private void recordTimeout() {
+        if (latencyRecorded.compareAndSet(false, true))
+            node.recordSearchTimeout(currentTime() - sendTime);
+    }
+
+    // For overriding in tests
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
     private String getName() {
         return searcher.getName();
     }
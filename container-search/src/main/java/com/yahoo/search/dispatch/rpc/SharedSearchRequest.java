@@ -0,0 +1,61 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.compress.Compressor;
+import com.yahoo.search.Query;
+
+/**
+ * A search request which is serialized once per dispatch of a query, and shared by the invokers sending it
+ * to each content node, including the nodes of other groups the query is hedged to.
+ * <p>
+ * The timeout is serialized separately, such that a request sent later is given the time left without
+ * serializing the rest again. The compressed request is reused only while the timeout it contains equals
+ * the time left, and otherwise encoded again with the time left. The rest of the request is serialized
+ * again if it is sent for another number of hits, as when nodes are queried again for more hits.
+ * <p>
+ * A new instance must be created for each dispatch, as the query may be changed between dispatches.
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+public class SharedSearchRequest {
+
+    private int hits = -1;
+    private byte[] requestWithoutTimeout = null;
+    private Payload payload = null;
+
+    /** Returns the compressed request to send for the given hits and the time left of the given query */
+    synchronized Payload payload(Query query, int hits, String serverId, RpcResourcePool resourcePool) {
+        if (requestWithoutTimeout == null || this.hits != hits) {
+            this.hits = hits;
+            this.requestWithoutTimeout = ProtobufSerialization.serializeSearchRequestWithoutTimeout(query, hits, serverId);
+            this.payload = null;
+        }
+        int timeout = (int)query.getTimeLeft();
+        if (payload == null || payload.timeout != timeout) {
+            byte[] request = ProtobufSerialization.serializeSearchRequest(requestWithoutTimeout, timeout);
+            payload = new Payload(timeout, request.length, resourcePool.compress(query, request));
+        }
+        return payload;
+    }
+
+    /** A compressed search request */
+    static class Payload {
+
+        private final int timeout;
+        private final int uncompressedSize;
+        private final Compressor.Compression compression;
+
+        Payload(int timeout, int uncompressedSize, Compressor.Compression compression) {
+            this.timeout = timeout;
+            this.uncompressedSize = uncompressedSize;
+            this.compression = compression;
+        }
+
+        int uncompressedSize() { return uncompressedSize; }
+
+        Compressor.Compression compression() { return compression; }
+
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.search.dispatch.searchcluster;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -77,6 +78,20 @@ public class Group {
         return this.activeDocuments.get();
     }
 
+    /**
+     * Returns the highest of the given search latency percentile of each node in this group,
+     * or empty if it is not known for some node
+     */
+    public OptionalLong searchLatencyPercentile(double percentile) {
+        long max = 0;
+        for (Node node : nodes) {
+            OptionalLong latency = node.searchLatencyPercentile(percentile);
+            if (latency.isEmpty()) return OptionalLong.empty();
+            max = Math.max(max, latency.getAsLong());
+        }
+        return OptionalLong.of(max);
+    }
+
     public boolean isFullCoverageStatusChanged(boolean hasFullCoverageNow) {
         boolean previousState = hasFullCoverage.getAndSet(hasFullCoverageNow);
         return previousState != hasFullCoverageNow;
@@ -0,0 +1,89 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.searchcluster;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * A histogram of recent latencies which is maintained incrementally, such that percentiles can be
+ * computed without copying or sorting samples.
+ * <p>
+ * Latencies below 16 ms are counted exactly, while larger latencies are counted in buckets whose width
+ * is 1/8 of their lower bound. The recent samples are counted in two halves, where the older half is
+ * discarded each time the newer becomes full, such that this covers between one and two halves of samples.
+ * <p>
+ * This is not multithread safe.
+ *
+ * @author agent
+ */
+class LatencyHistogram {
+
+    private static final int subBucketBits = 3;
+    private static final int subBuckets = 1 << subBucketBits;
+    /** Latencies below this are counted exactly */
+    private static final int exactLimit = 2 * subBuckets;
+    private static final int exactLimitBits = subBucketBits + 1;
+    /** Latencies at or above 2^maxBits milliseconds are counted in the last bucket */
+    private static final int maxBits = 24;
+    private static final int buckets = exactLimit + (maxBits - exactLimitBits) * subBuckets;
+
+    private final int samplesPerHalf;
+
+    private int[] newer = new int[buckets];
+    private int newerCount = 0;
+    private int[] older = new int[buckets];
+    private int olderCount = 0;
+
+    /** Creates a histogram covering at least the given number of the most recent samples */
+    LatencyHistogram(int samplesPerHalf) {
+        this.samplesPerHalf = samplesPerHalf;
+    }
+
+    void add(long latencyMs) {
+        if (newerCount == samplesPerHalf) {
+            int[] discarded = older;
+            older = newer;
+            olderCount = newerCount;
+            Arrays.fill(discarded, 0);
+            newer = discarded;
+            newerCount = 0;
+        }
+        newer[bucketOf(latencyMs)]++;
+        newerCount++;
+    }
+
+    /** Returns the number of samples currently covered by this */
+    int size() { return newerCount + olderCount; }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile of the samples covered by this,
+     * or empty if there are none
+     */
+    OptionalLong percentile(double percentile) {
+        int size = size();
+        if (size == 0) return OptionalLong.empty();
+        long rank = Math.max(1, (long)Math.ceil(size * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+        long count = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            count += newer[bucket] + older[bucket];
+            if (count >= rank) return OptionalLong.of(upperBoundOf(bucket));
+        }
+        return OptionalLong.of(upperBoundOf(buckets - 1)); // not reached
+    }
+
+    static int bucketOf(long latencyMs) {
+        if (latencyMs < exactLimit) return (int)Math.max(latencyMs, 0);
+        int bits = 64 - Long.numberOfLeadingZeros(latencyMs);
+        if (bits > maxBits) return buckets - 1;
+        int subBucket = (int)(latencyMs >>> (bits - 1 - subBucketBits)) & (subBuckets - 1);
+        return exactLimit + (bits - 1 - exactLimitBits) * subBuckets + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < exactLimit) return bucket;
+        int shift = (bucket - exactLimit) / subBuckets + exactLimitBits - subBucketBits;
+        int subBucket = (bucket - exactLimit) % subBuckets;
+        return ((long)(subBuckets + subBucket + 1) << shift) - 1;
+    }
+
+}
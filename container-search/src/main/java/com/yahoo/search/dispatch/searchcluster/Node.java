@@ -2,7 +2,9 @@
 package com.yahoo.search.dispatch.searchcluster;
 
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -13,6 +15,11 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class Node {
 
+    /** The number of recent search latencies used to compute percentiles, which will be between this and half of it */
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_LATENCY_SAMPLES = 32;
+    private static final int LATENCY_DECAY_RATE = 64;
+
     private final int key;
     private int pathIndex;
     private final String hostname;
@@ -24,6 +31,13 @@ public class Node {
     private final AtomicLong pingSequence = new AtomicLong(0);
     private final AtomicLong lastPong = new AtomicLong(0);
 
+    /** The most recently observed search latencies of this node, in milliseconds */
+    private final LatencyHistogram searchLatencies = new LatencyHistogram(LATENCY_SAMPLES / 2);
+    private long searchLatencyEstimateCount = 0;
+    private double searchLatencyEstimate = 0;
+
+    private final AtomicInteger searchesInFlight = new AtomicInteger(0);
+
     public Node(int key, String hostname, int group) {
         this.key = key;
         this.hostname = hostname;
@@ -79,6 +93,59 @@ public class Node {
         return activeDocuments.get();
     }
 
+    /** Records the time this node used to answer a search request, measured when the response arrived */
+    public void recordSearchLatency(long latencyMs) {
+        synchronized (searchLatencies) {
+            searchLatencies.add(latencyMs);
+            double decayRate = Math.min(searchLatencyEstimateCount + 1, LATENCY_DECAY_RATE);
+            searchLatencyEstimate = (latencyMs + (decayRate - 1) * searchLatencyEstimate) / decayRate;
+            searchLatencyEstimateCount++;
+        }
+    }
+
+    /**
+     * Records that this node did not answer a search request within the given time.
+     * The latency is then only known to be at least this, but it is recorded as this latency, as leaving out
+     * requests which time out would make the latency estimates of this too low exactly when this node is slow.
+     */
+    public void recordSearchTimeout(long elapsedMs) {
+        recordSearchLatency(elapsedMs);
+    }
+
+    /**
+     * Returns an exponentially decaying average of the search latencies of this node in milliseconds,
+     * or 0 if no latencies are observed yet
+     */
+    public double searchLatencyEstimate() {
+        synchronized (searchLatencies) {
+            return searchLatencyEstimate;
+        }
+    }
+
+    /** Registers that a search request is sent to this node. This must be followed by a call to {@link #endSearch} */
+    public void startSearch() { searchesInFlight.incrementAndGet(); }
+
+    /** Registers that a search request to this node has completed or been abandoned */
+    public void endSearch() {
+        if (searchesInFlight.decrementAndGet() < 0)
+            searchesInFlight.set(0);
+    }
+
+    /** Returns the number of search requests currently in flight to this node */
+    public int searchesInFlight() { return searchesInFlight.get(); }
+
+    /**
+     * Returns the given percentile of the recently observed search latencies of this node,
+     * or empty if too few latencies have been observed to tell.
+     * Latencies of 16 ms and more are approximated by up to 1/8 of the latency.
+     */
+    public OptionalLong searchLatencyPercentile(double percentile) {
+        synchronized (searchLatencies) {
+            if (searchLatencies.size() < MIN_LATENCY_SAMPLES) return OptionalLong.empty();
+            return searchLatencies.percentile(percentile);
+        }
+    }
+
     @Override
     public int hashCode() { return Objects.hash(hostname, key, pathIndex, group); }
 
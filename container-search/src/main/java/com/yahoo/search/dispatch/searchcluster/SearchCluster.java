@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -39,6 +40,8 @@ public class SearchCluster implements NodeManager<Node> {
     private final VipStatus vipStatus;
     private final PingFactory pingFactory;
     private long nextLogTime = 0;
+    private final AtomicLong generation = new AtomicLong(0);
+    private long lastWorkingNodesState = 0;
 
     /**
      * A search node on this local machine having the entire corpus, which we therefore
@@ -329,6 +332,31 @@ public class SearchCluster implements NodeManager<Node> {
         } else {
             pingIterationCompletedMultipleGroups();
         }
+        updateGeneration();
+    }
+
+    /**
+     * Returns the generation of the working nodes of this cluster. This is incremented whenever a ping iteration
+     * shows that the set of working nodes has changed.
+     * <p>
+     * Content nodes do not report a content generation, so this does not change when documents are fed
+     * or updated: Users of this which cache content must bound staleness in some other way.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    private synchronized void updateGeneration() {
+        long workingNodesState = 1;
+        for (Group group : orderedGroups) {
+            for (Node node : group.nodes()) {
+                workingNodesState = 31 * workingNodesState + (node.isWorking() == Boolean.TRUE ? node.key() + 1 : 0);
+            }
+        }
+        if (workingNodesState != lastWorkingNodesState) {
+            lastWorkingNodesState = workingNodesState;
+            generation.incrementAndGet();
+        }
     }
 
     private boolean isGroupCoverageSufficient(int workingNodes, int nodesInGroup, long activeDocuments, long averageDocumentsInOtherGroups) {
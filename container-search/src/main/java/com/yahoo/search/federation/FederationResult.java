@@ -25,7 +25,8 @@ class FederationResult {
     
     /** 
      * The remaining targets to wait for. 
-     * Other targets are either complete, or should only be included if they are available when we complete
+     * Other targets are either complete, or should only be included if they are available when we complete.
+     * Optional targets which are given their own timeout in this query are waited for until that timeout.
      */
     private List<TargetResult> targetsToWaitFor;
     
@@ -33,7 +34,9 @@ class FederationResult {
         this.targetResults = targetResults;
 
         if (targetResults.stream().anyMatch(TargetResult::isMandatory))
-            targetsToWaitFor = targetResults.stream().filter(TargetResult::isMandatory).collect(Collectors.toList());
+            targetsToWaitFor = targetResults.stream()
+                                            .filter(result -> result.isMandatory() || result.hasQueryTimeout())
+                                            .collect(Collectors.toList());
         else
             targetsToWaitFor = new ArrayList<>(targetResults);
     }
@@ -73,19 +76,28 @@ class FederationResult {
         final FederationSearcher.Target target;
         private final FutureResult futureResult;
 
+        /** The timeout of this target set for this query, or -1 to use the timeout of the target */
+        private final int queryTimeout;
+
         /** 
          * Single threaded access to result already returned from futureResult, if any.
          * To avoid unnecessary synchronization with the producer thread.
          */
         private Optional<Result> availableResult = Optional.empty();
 
-        private TargetResult(FederationSearcher.Target target, FutureResult futureResult) {
+        private TargetResult(FederationSearcher.Target target, FutureResult futureResult, int queryTimeout) {
             this.target = target;
             this.futureResult = futureResult;
+            this.queryTimeout = queryTimeout;
         }
 
         private boolean isMandatory() { return ! target.federationOptions().getOptional(); }
 
+        private boolean hasQueryTimeout() { return queryTimeout >= 0; }
+
+        /** Returns the time in milliseconds this target has spent producing its result, so far if not completed */
+        long elapsedTime() { return futureResult.getElapsedTime(); }
+
         /**
          * Returns the result of this by blocking until timeout if necessary. 
          * 
@@ -109,6 +121,7 @@ class FederationResult {
         }
 
         private int timeout(long queryTimeout) {
+            if (hasQueryTimeout()) return this.queryTimeout;
             return (int)target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(queryTimeout);
         }
         
@@ -124,7 +137,15 @@ class FederationResult {
         private final ImmutableList.Builder<TargetResult> results = new ImmutableList.Builder();
         
         public void add(FederationSearcher.Target target, FutureResult futureResult) {
-            results.add(new TargetResult(target, futureResult));
+            add(target, futureResult, -1);
+        }
+
+        /**
+         * Adds a target which is given the given timeout in this query, instead of the timeout of the target.
+         * The target is waited for until this timeout also if it is optional.
+         */
+        public void add(FederationSearcher.Target target, FutureResult futureResult, int queryTimeout) {
+            results.add(new TargetResult(target, futureResult, queryTimeout));
         }
         
         public FederationResult build() {
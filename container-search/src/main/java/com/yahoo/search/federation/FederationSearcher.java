@@ -51,6 +51,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -78,6 +79,22 @@ public class FederationSearcher extends ForkingSearcher {
     /** The name of the query property containing the source name added to the query to each source by this */
     public final static CompoundName SOURCENAME = new CompoundName("sourceName");
     public final static CompoundName PROVIDERNAME = new CompoundName("providerName");
+
+    /**
+     * Set to true to wait for optional targets for as long as they have recently needed to respond,
+     * rather than by their configured timeout. Optional targets which have not returned by then are ignored,
+     * such that the result is returned as soon as the mandatory targets have returned.
+     */
+    public final static CompoundName ADAPTIVE = new CompoundName("federation.adaptive");
+
+    /** The percentile of the recent latencies of an optional target to wait for in adaptive federation */
+    private static final double adaptiveLatencyPercentile = 95.0;
+
+    /**
+     * The factor to multiply the latency percentile of a target by to get its timeout in adaptive federation.
+     * This allows the timeout to grow to the latency of targets which becomes slower.
+     */
+    private static final double adaptiveTimeoutFactor = 1.2;
     /** Logging field name constants */
     public static final String LOG_COUNT_PREFIX = "count_";
 
@@ -91,6 +108,8 @@ public class FederationSearcher extends ForkingSearcher {
 
     private final Clock clock = Clock.systemUTC();
 
+    private final TargetLatencies targetLatencies = new TargetLatencies();
+
     private static final List<CompoundName> queryAndHits = ImmutableList.of(Query.OFFSET, Query.HITS);
 
     @Inject
@@ -209,8 +228,11 @@ public class FederationSearcher extends ForkingSearcher {
     }
 
     private void search(Query query, Execution execution, Collection<Target> targets, Result mergedResults) {
-        FederationResult results = search(query, execution, targets);
+        boolean adaptive = query.properties().getBoolean(ADAPTIVE, false);
+        FederationResult results = search(query, execution, targets, adaptive);
         results.waitForAll((int)query.getTimeLeft(), clock);
+        if (adaptive)
+            recordLatencies(results);
 
         HitOrderer s = null;
         for (FederationResult.TargetResult targetResult : results.all()) {
@@ -236,15 +258,47 @@ public class FederationSearcher extends ForkingSearcher {
         return Optional.of(result);
     }
 
-    private FederationResult search(Query query, Execution execution, Collection<Target> targets) {
+    private FederationResult search(Query query, Execution execution, Collection<Target> targets, boolean adaptive) {
         FederationResult.Builder result = new FederationResult.Builder();
-        for (Target target : targets)
-            result.add(target, searchAsynchronously(query, execution, Window.from(targets, query), target));
+        for (Target target : targets) {
+            int timeout = adaptive ? adaptiveTimeout(query, target) : -1;
+            result.add(target, searchAsynchronously(query, execution, Window.from(targets, query), target, timeout), timeout);
+        }
         return result.build();
     }
 
-    private FutureResult searchAsynchronously(Query query, Execution execution, Window window, Target target) {
-        long timeout = target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(query.getTimeLeft());
+    /**
+     * Returns the timeout of the given target in adaptive federation, or -1 to use the timeout of the target.
+     * Optional targets are given a timeout from their recent latencies, within the time left of the query.
+     */
+    private int adaptiveTimeout(Query query, Target target) {
+        if ( ! target.federationOptions().getOptional()) return -1;
+
+        OptionalLong latency = targetLatencies.percentile(target.getId(), adaptiveLatencyPercentile);
+        if (latency.isEmpty()) return -1;
+
+        long timeout = Math.min(target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(query.getTimeLeft()),
+                                query.getTimeLeft());
+        return (int)Math.max(1, Math.min(timeout, (long)Math.ceil(latency.getAsLong() * adaptiveTimeoutFactor)));
+    }
+
+    /**
+     * Records the latencies of the optional targets of the given result, which are the ones given adaptive timeouts.
+     * For targets which have not returned, the time spent waiting for them is recorded as a lower bound.
+     */
+    private void recordLatencies(FederationResult results) {
+        for (FederationResult.TargetResult targetResult : results.all()) {
+            if ( ! targetResult.target.federationOptions().getOptional()) continue;
+            if (targetResult.successfullyCompleted())
+                targetLatencies.record(targetResult.target.getId(), targetResult.elapsedTime());
+            else
+                targetLatencies.recordLowerBound(targetResult.target.getId(), targetResult.elapsedTime());
+        }
+    }
+
+    private FutureResult searchAsynchronously(Query query, Execution execution, Window window, Target target, int queryTimeout) {
+        long timeout = queryTimeout >= 0 ? queryTimeout
+                                         : target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(query.getTimeLeft());
         if (timeout <= 0)
             return new FutureResult(() -> new Result(query, ErrorMessage.createTimeout("Timed out before federation")), execution, query);
         Query clonedQuery = cloneFederationQuery(query, window, timeout, target);
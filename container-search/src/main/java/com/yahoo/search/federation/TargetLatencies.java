@@ -0,0 +1,85 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.federation;
+
+import com.yahoo.component.ComponentId;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The most recently observed latencies of each federation target, used to set the deadline of
+ * optional targets in adaptive federation. Targets which did not complete within their deadline
+ * are recorded with the time spent waiting for them as a lower bound of their latency.
+ * This is multithread safe.
+ *
+ * @author agent
+ */
+class TargetLatencies {
+
+    /** The number of latencies to keep per target */
+    static final int samples = 200;
+
+    /** The least number of latencies which must be observed of a target before percentiles are returned */
+    static final int minSamples = 20;
+
+    private final Map<ComponentId, Latencies> latencies = new ConcurrentHashMap<>();
+
+    /** Registers an observed latency of the given target */
+    void record(ComponentId target, long latencyMs) {
+        latencies.computeIfAbsent(target, __ -> new Latencies()).record(latencyMs, false);
+    }
+
+    /** Registers that the given target did not complete within the given time */
+    void recordLowerBound(ComponentId target, long latencyMs) {
+        latencies.computeIfAbsent(target, __ -> new Latencies()).record(latencyMs, true);
+    }
+
+    /**
+     * Returns the given percentile of the recently observed latencies of the given target in milliseconds,
+     * or empty if too few latencies have been observed to tell. As the actual latency of a lower bound is unknown,
+     * lower bounds are ordered after all observed latencies, and the percentile is empty if it falls on one.
+     */
+    OptionalLong percentile(ComponentId target, double percentile) {
+        Latencies targetLatencies = latencies.get(target);
+        if (targetLatencies == null) return OptionalLong.empty();
+        return targetLatencies.percentile(percentile);
+    }
+
+    private static class Latencies {
+
+        /** The observed latencies, used as a ring buffer */
+        private final long[] latencies = new long[samples];
+        /** Whether the latency at the same position is a lower bound */
+        private final boolean[] lowerBounds = new boolean[samples];
+        private int next = 0;
+        private int count = 0;
+
+        synchronized void record(long latencyMs, boolean lowerBound) {
+            latencies[next] = latencyMs;
+            lowerBounds[next] = lowerBound;
+            next = (next + 1) % samples;
+            if (count < samples)
+                count++;
+        }
+
+        OptionalLong percentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                if (count < minSamples) return OptionalLong.empty();
+                sorted = Arrays.copyOf(latencies, count);
+                for (int i = 0; i < count; i++)
+                    if (lowerBounds[i])
+                        sorted[i] = Long.MAX_VALUE;
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(sorted.length * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0) - 1;
+            long latency = sorted[Math.max(index, 0)];
+            if (latency == Long.MAX_VALUE) return OptionalLong.empty();
+            return OptionalLong.of(latency);
+        }
+
+    }
+
+}
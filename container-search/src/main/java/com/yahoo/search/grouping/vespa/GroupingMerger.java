@@ -0,0 +1,148 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.searchlib.aggregation.Grouping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges partial groupings, e.g from each content node, into one.
+ * <p>
+ * Groupings are merged pairwise in a balanced tree rather than one by one into the first,
+ * such that each group list is merged log(n) times rather than n times. Since the children of
+ * groups are kept sorted by id, each pairwise merge is linear in the size of the two groupings.
+ * Large merges are run in parallel on the common fork/join pool.
+ * <p>
+ * The result is the same as merging each grouping in order into the first:
+ * The first grouping is the one merged into and returned, such that its context is kept.
+ * This does not invoke {@link Grouping#postMerge}.
+ *
+ * @author agent
+ */
+public class GroupingMerger {
+
+    /** The min number of groupings to merge before subtrees are merged in parallel */
+    static final int parallelMergeThreshold = 8;
+
+    private GroupingMerger() {}
+
+    /**
+     * Merges the given groupings into the first one
+     *
+     * @param groupings the groupings to merge, all having the same id. This must not be empty
+     * @return the first grouping, containing the result of the merge
+     */
+    public static Grouping merge(List<Grouping> groupings) {
+        if (groupings.isEmpty()) throw new IllegalArgumentException("No groupings to merge");
+        if (groupings.size() < parallelMergeThreshold)
+            return merge(groupings, 0, groupings.size());
+        return ForkJoinPool.commonPool().invoke(new MergeTask(groupings, 0, groupings.size()));
+    }
+
+    /** Merges the given range of groupings sequentially, and returns the first grouping of the range */
+    private static Grouping merge(List<Grouping> groupings, int from, int to) {
+        if (to - from == 1) return groupings.get(from);
+        int middle = (from + to) >>> 1;
+        Grouping left = merge(groupings, from, middle);
+        left.merge(merge(groupings, middle, to));
+        return left;
+    }
+
+    @SuppressWarnings("serial")
+    private static class MergeTask extends RecursiveTask<Grouping> {
+
+        private final List<Grouping> groupings;
+        private final int from, to;
+
+        MergeTask(List<Grouping> groupings, int from, int to) {
+            this.groupings = groupings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Grouping compute() {
+            if (to - from < parallelMergeThreshold) return merge(groupings, from, to);
+
+            int middle = (from + to) >>> 1;
+            MergeTask left = new MergeTask(groupings, from, middle);
+            left.fork();
+            Grouping right = new MergeTask(groupings, middle, to).compute();
+            Grouping merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+
+    }
+
+    /**
+     * Merges groupings with the same id as they are added, such that only the groupings which
+     * are not yet merged are kept in memory, rather than all of them.
+     * <p>
+     * Added groupings are merged by tasks on the common fork/join pool. Merged groupings are kept by level,
+     * where level k holds the result of merging 2^k added groupings, and an added grouping is merged with
+     * the grouping of each level which is full, like when adding one to a binary number. This gives the same
+     * balanced tree of merges as {@link GroupingMerger#merge}, while at most log(n) merged groupings are kept.
+     * <p>
+     * This is multithread safe.
+     */
+    public static class Incremental {
+
+        /** Groupings which are added but not yet merged, in the order they were added */
+        private final Queue<Grouping> added = new ConcurrentLinkedQueue<>();
+
+        /** The merged groupings by level, where each entry is null or the result of merging 2^level groupings */
+        private final List<Grouping> levels = new ArrayList<>();
+
+        /** Adds a grouping to be merged. This returns without waiting for the merge. */
+        public void add(Grouping grouping) {
+            added.add(grouping);
+            ForkJoinPool.commonPool().execute(this::mergeAdded);
+        }
+
+        /**
+         * Returns the result of merging all the groupings added so far, which is the first grouping added,
+         * or null if none are added
+         */
+        public synchronized Grouping result() {
+            mergeAdded();
+            Grouping result = null;
+            for (int level = levels.size() - 1; level >= 0; level--) { // higher levels hold groupings added earlier
+                Grouping grouping = levels.get(level);
+                if (grouping == null) continue;
+                if (result == null)
+                    result = grouping;
+                else
+                    result.merge(grouping);
+            }
+            levels.clear();
+            if (result != null)
+                levels.add(result);
+            return result;
+        }
+
+        private synchronized void mergeAdded() {
+            Grouping grouping;
+            while (null != (grouping = added.poll())) {
+                int level = 0;
+                for (; level < levels.size() && levels.get(level) != null; level++) {
+                    Grouping earlier = levels.get(level);
+                    earlier.merge(grouping);
+                    grouping = earlier;
+                    levels.set(level, null);
+                }
+                if (level == levels.size())
+                    levels.add(grouping);
+                else
+                    levels.set(level, grouping);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.inject.Inject;
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.metrics.simple.Bucket;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.Point;
+import com.yahoo.metrics.simple.UntypedMetric;
+import com.yahoo.metrics.simple.Value;
+import com.yahoo.search.statistics.SearcherProfiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Exposes the latest snapshot of the searcher profiles recorded by {@link SearcherProfiler} as JSON:
+ * The distribution of the time spent in each searcher itself and downstream of it, and of the bytes
+ * it allocated if this is measured, by search chain and searcher.
+ * The percentiles of these distributions are exported with the other container metrics.
+ * <p>
+ * This is not set up by default, but can be bound in services.xml, e.g to http://*&#47;search/v1/profile
+ *
+ * @author agent
+ */
+public class SearcherProfileHandler extends ThreadedHttpRequestHandler {
+
+    private static final List<String> metrics = List.of(SearcherProfiler.selfLatencyMetric,
+                                                        SearcherProfiler.downstreamLatencyMetric,
+                                                        SearcherProfiler.allocatedBytesMetric);
+
+    private final MetricReceiver metricReceiver;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Inject
+    public SearcherProfileHandler(Executor executor, Metric metric, MetricReceiver metricReceiver) {
+        super(executor, metric);
+        this.metricReceiver = metricReceiver;
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request) {
+        Bucket snapshot = metricReceiver.getSnapshot();
+        Map<String, Map<String, Map<String, UntypedMetric>>> profiles = snapshot == null ? Map.of() : profiles(snapshot);
+
+        return new HttpResponse(200) {
+
+            @Override
+            public String getContentType() { return "application/json"; }
+
+            @Override
+            public void render(OutputStream outputStream) throws IOException {
+                JsonGenerator generator = jsonFactory.createGenerator(outputStream);
+                generator.writeStartObject();
+                if (snapshot != null) {
+                    generator.writeNumberField("from", snapshot.getFromMillis());
+                    generator.writeNumberField("to", snapshot.getToMillis());
+                }
+                generator.writeArrayFieldStart("chains");
+                for (Map.Entry<String, Map<String, Map<String, UntypedMetric>>> chain : profiles.entrySet()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("chain", chain.getKey());
+                    generator.writeArrayFieldStart("searchers");
+                    for (Map.Entry<String, Map<String, UntypedMetric>> searcher : chain.getValue().entrySet()) {
+                        generator.writeStartObject();
+                        generator.writeStringField("searcher", searcher.getKey());
+                        for (Map.Entry<String, UntypedMetric> metric : searcher.getValue().entrySet())
+                            renderMetric(metric.getKey(), metric.getValue(), generator);
+                        generator.writeEndObject();
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.close();
+            }
+
+        };
+    }
+
+    /** Returns the profile metrics of the given snapshot by chain, searcher and metric name */
+    private static Map<String, Map<String, Map<String, UntypedMetric>>> profiles(Bucket snapshot) {
+        Map<String, Map<String, Map<String, UntypedMetric>>> profiles = new TreeMap<>();
+        for (String metric : metrics) {
+            for (Map.Entry<Point, UntypedMetric> value : snapshot.getValuesForMetric(metric)) {
+                String chain = dimension("chain", value.getKey());
+                String searcher = dimension("searcher", value.getKey());
+                if (chain == null || searcher == null) continue;
+                profiles.computeIfAbsent(chain, __ -> new TreeMap<>())
+                        .computeIfAbsent(searcher, __ -> new LinkedHashMap<>())
+                        .put(metric, value.getValue());
+            }
+        }
+        return profiles;
+    }
+
+    private static String dimension(String name, Point point) {
+        List<String> dimensions = point.dimensions();
+        List<Value> location = point.location();
+        for (int i = 0; i < dimensions.size(); i++)
+            if (dimensions.get(i).equals(name))
+                return location.get(i).stringValue();
+        return null;
+    }
+
+    private static void renderMetric(String name, UntypedMetric metric, JsonGenerator generator) throws IOException {
+        generator.writeObjectFieldStart(name);
+        generator.writeNumberField("count", metric.getCount());
+        if (metric.getCount() > 0) {
+            generator.writeNumberField("min", metric.getMin());
+            generator.writeNumberField("mean", metric.getSum() / metric.getCount());
+            generator.writeNumberField("max", metric.getMax());
+        }
+        generator.writeEndObject();
+    }
+
+}
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An immutable binding of a set of dimensions to values.
@@ -75,6 +76,11 @@ public class Binding implements Comparable<Binding> {
         this.hashCode = bindingHash;
     }
 
+    /** Adds the dimensions which have values in this to the given set */
+    void addDimensionsTo(Set<String> dimensions) {
+        dimensions.addAll(Arrays.asList(this.dimensions));
+    }
+
     /** Returns true only if this binding is null (contains no values for its dimensions (if any) */
     public boolean isNull() { return dimensions.length == 0; }
 
@@ -9,8 +9,10 @@ import com.yahoo.search.query.profile.QueryProfileProperties;
 import com.yahoo.search.query.profile.SubstituteString;
 import com.yahoo.search.query.profile.types.QueryProfileType;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -32,6 +34,9 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** The values of this */
     private final DimensionalMap<CompoundName, ValueWithSource> entries;
 
+    /** The entries of this indexed by each prefix of their name, such that listing values by prefix is a lookup */
+    private final Map<CompoundName, List<Map.Entry<CompoundName, DimensionalValue<ValueWithSource>>>> entriesByPrefix;
+
     /** Keys which have a type in this */
     private final DimensionalMap<CompoundName, QueryProfileType> types;
 
@@ -57,6 +62,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
             type.freeze();
         this.type = type;
         this.entries = entries;
+        this.entriesByPrefix = indexByPrefix(entries);
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
@@ -133,9 +139,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
      */
     public Map<String, Object> listValues(CompoundName prefix, Map<String, String> context, Properties substitution) {
         Map<String, Object> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
-            if ( ! entry.getKey().hasPrefix(prefix)) continue;
-
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entriesWithPrefix(prefix)) {
             ValueWithSource valueWithSource = entry.getValue().get(context);
             if (valueWithSource == null) continue;
 
@@ -153,9 +157,8 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
                                                               Map<String, String> context,
                                                               Properties substitution) {
         Map<String, ValueWithSource> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entriesWithPrefix(prefix)) {
             if ( entry.getKey().size() <= prefix.size()) continue;
-            if ( ! entry.getKey().hasPrefix(prefix)) continue;
 
             ValueWithSource valueWithSource = entry.getValue().get(context);
             if (valueWithSource == null) continue;
@@ -182,6 +185,20 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return substitute(value.value(), context, substitution);
     }
 
+    private List<Map.Entry<CompoundName, DimensionalValue<ValueWithSource>>> entriesWithPrefix(CompoundName prefix) {
+        return entriesByPrefix.getOrDefault(prefix, List.of());
+    }
+
+    private static Map<CompoundName, List<Map.Entry<CompoundName, DimensionalValue<ValueWithSource>>>> indexByPrefix(
+            DimensionalMap<CompoundName, ValueWithSource> entries) {
+        Map<CompoundName, List<Map.Entry<CompoundName, DimensionalValue<ValueWithSource>>>> index = new HashMap<>();
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+            for (int i = 0; i <= entry.getKey().size(); i++)
+                index.computeIfAbsent(entry.getKey().first(i), __ -> new ArrayList<>()).add(entry);
+        }
+        return index;
+    }
+
     private Object substitute(Object value, Map<String, String> context, Properties substitution) {
         if (value == null) return value;
         if (substitution == null) return value;
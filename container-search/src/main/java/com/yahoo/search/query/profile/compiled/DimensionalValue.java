@@ -6,12 +6,15 @@ import com.yahoo.search.query.profile.DimensionBinding;
 import com.yahoo.search.query.profile.SubstituteString;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains the values a given key in a DimensionalMap may take for different dimensional contexts.
@@ -20,11 +23,28 @@ import java.util.Set;
  */
 public class DimensionalValue<VALUE> {
 
+    /** The min number of variants for which resolved variants are remembered */
+    private static final int minVariantsToMemoize = 8;
+
+    /** The max number of contexts to remember resolved variants for */
+    private static final int maxMemoSize = 256;
+
     private final List<Value<VALUE>> values;
 
+    /** The dimensions used by the variants of this, in the order used in memo keys, or null if not memoizing */
+    private final String[] memoDimensions;
+
+    /**
+     * The variant resolved for contexts, keyed by the values of memoDimensions in those contexts,
+     * or null if not memoizing. A variant with a null value is stored when no variant matched.
+     */
+    private final Map<List<String>, Value<VALUE>> memo;
+
     /** Create a set of variants which is a single value regardless of dimensions */
     public DimensionalValue(Value<VALUE> value) {
         this.values = Collections.singletonList(value);
+        this.memoDimensions = null;
+        this.memo = null;
     }
 
     public DimensionalValue(List<Value<VALUE>> valueVariants) {
@@ -35,17 +55,57 @@ public class DimensionalValue<VALUE> {
             this.values = new ArrayList<>(valueVariants);
             Collections.sort(this.values);
         }
+
+        if (values.size() >= minVariantsToMemoize) {
+            Set<String> dimensions = new LinkedHashSet<>();
+            for (Value<VALUE> value : values)
+                value.binding().addDimensionsTo(dimensions);
+            this.memoDimensions = dimensions.toArray(new String[0]);
+            this.memo = new ConcurrentHashMap<>();
+        }
+        else {
+            this.memoDimensions = null;
+            this.memo = null;
+        }
     }
 
     /** Returns the value matching this context, or null if none */
     public VALUE get(Map<String, String> context) {
         if (context == null)
             context = Collections.emptyMap();
+        if (memo != null)
+            return getMemoized(context);
+        return resolve(context).value();
+    }
+
+    /**
+     * Returns the value matching this context, using the variant resolved for an earlier context
+     * having the same values for all the dimensions used by the variants of this, if any
+     */
+    private VALUE getMemoized(Map<String, String> context) {
+        String[] key = new String[memoDimensions.length];
+        for (int i = 0; i < memoDimensions.length; i++)
+            key[i] = context.get(memoDimensions[i]);
+        List<String> memoKey = Arrays.asList(key);
+
+        Value<VALUE> resolved = memo.get(memoKey);
+        if (resolved == null) {
+            resolved = resolve(context);
+            if (memo.size() >= maxMemoSize) // dimension values may be unbounded; forget all rather than track usage
+                memo.clear();
+            memo.put(memoKey, resolved);
+        }
+        return resolved.value();
+    }
+
+    /** Returns the first matching variant, or a variant with a null value if none */
+    @SuppressWarnings("unchecked")
+    private Value<VALUE> resolve(Map<String, String> context) {
         for (Value<VALUE> value : values) {
             if (value.matches(context))
-                return value.value();
+                return value;
         }
-        return null;
+        return (Value<VALUE>)Value.noMatch;
     }
 
     public boolean isEmpty() { return values.isEmpty(); }
@@ -93,6 +153,9 @@ public class DimensionalValue<VALUE> {
     /** A value for a particular binding */
     private static class Value<VALUE> implements Comparable<Value> {
 
+        /** Used to represent that no variant matches a context */
+        private static final Value<Object> noMatch = new Value<>(null, Binding.nullBinding);
+
         private VALUE value = null;
 
         /** The minimal binding this holds for */
@@ -12,7 +12,6 @@ import com.yahoo.data.JsonProducer;
 import com.yahoo.data.access.Inspectable;
 import com.yahoo.data.access.Inspector;
 import com.yahoo.data.access.Type;
-import com.yahoo.data.access.simple.JsonRender;
 import com.yahoo.data.access.simple.Value;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
@@ -529,6 +528,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
 
         private final JsonGenerator generator;
         private final boolean debugRendering;
+        private final Utf8JsonEncoder utf8Encoder = new Utf8JsonEncoder();
 
         private MutableBoolean hasFieldsField;
 
@@ -623,19 +623,12 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
 
         private void renderInspector(Inspector data) throws IOException {
             Inspector asMap = wrapAsMap(data);
-            if (asMap != null) {
-                StringBuilder intermediate = new StringBuilder();
-                JsonRender.render(asMap, intermediate, true);
-                generator.writeRawValue(intermediate.toString());
-            } else {
-                renderInspectorDirect(data);
-            }
+            renderInspectorDirect(asMap != null ? asMap : data);
         }
 
+        /** Renders the data as UTF-8 directly, without decoding strings in it */
         private void renderInspectorDirect(Inspector data) throws IOException {
-            StringBuilder intermediate = new StringBuilder();
-            JsonRender.render(data, intermediate, true);
-            generator.writeRawValue(intermediate.toString());
+            utf8Encoder.encode(data, generator);
         }
 
         protected void renderFieldContents(Object field) throws IOException {
@@ -0,0 +1,302 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.yahoo.data.access.ArrayTraverser;
+import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.ObjectTraverser;
+import com.yahoo.text.Utf8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes data to a JSON generator, where strings are escaped directly from the UTF-8 representation
+ * of the data (which is how they are stored in document summaries) into a reused buffer and written
+ * as raw UTF-8, without decoding them to Java strings.
+ * The output is the same as that of {@link com.yahoo.data.access.simple.JsonRender}, except that
+ * non-ASCII characters are written as UTF-8 rather than escaped. Invalid UTF-8 sequences are replaced
+ * by U+FFFD, as they are when the data is decoded to Java strings.
+ * <p>
+ * Only generators writing to byte streams can write raw UTF-8. With other generators, such as those writing to a
+ * {@link java.io.Writer}, the escaped strings are decoded and written as raw string values, giving the same output.
+ * <p>
+ * Instances hold a buffer which is reused between values and are not multithread safe.
+ *
+ * @author agent
+ */
+class Utf8JsonEncoder implements ArrayTraverser, ObjectTraverser {
+
+    private static final byte[] hex = Utf8.toBytes("0123456789ABCDEF");
+    private static final byte[] replacementCharacter = Utf8.toBytes("\uFFFD");
+
+    private final EncodedName encodedName = new EncodedName();
+
+    private byte[] buffer = new byte[1024];
+    private int position = 0;
+    private JsonGenerator generator;
+    private boolean rawUtf8;
+
+    /** Writes the given value as JSON to the given generator */
+    void encode(Inspector value, JsonGenerator generator) throws IOException {
+        this.generator = generator;
+        this.rawUtf8 = generator instanceof UTF8JsonGenerator;
+        try {
+            encodeValue(value);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            this.generator = null;
+        }
+    }
+
+    private void encodeValue(Inspector value) throws IOException {
+        switch (value.type()) {
+            case EMPTY:  generator.writeNull(); return;
+            case BOOL:   generator.writeBoolean(value.asBool()); return;
+            case LONG:   generator.writeNumber(value.asLong()); return;
+            case DOUBLE: encodeDouble(value.asDouble()); return;
+            case STRING: encodeString(value.asUtf8()); return;
+            case DATA:   encodeData(value.asData()); return;
+            case ARRAY:  encodeArray(value); return;
+            case OBJECT: encodeObject(value); return;
+        }
+        throw new IllegalStateException("Unexpected type " + value.type());
+    }
+
+    private void encodeDouble(double value) throws IOException {
+        if (Double.isFinite(value))
+            generator.writeNumber(value);
+        else
+            generator.writeNull();
+    }
+
+    private void encodeString(byte[] utf8) throws IOException {
+        escape(utf8);
+        writeBuffer();
+    }
+
+    private void encodeData(byte[] data) throws IOException {
+        position = 0;
+        ensureCapacity(data.length * 2 + 2);
+        buffer[position++] = '0';
+        buffer[position++] = 'x';
+        for (byte b : data) {
+            buffer[position++] = hex[(b >> 4) & 0xf];
+            buffer[position++] = hex[b & 0xf];
+        }
+        writeBuffer();
+    }
+
+    /** Writes the escaped string in the buffer as a string value */
+    private void writeBuffer() throws IOException {
+        if (rawUtf8)
+            generator.writeRawUTF8String(buffer, 0, position);
+        else // unsupported by this generator
+            generator.writeRawValue("\"" + Utf8.toString(buffer, 0, position) + "\"");
+    }
+
+    private void encodeArray(Inspector value) throws IOException {
+        generator.writeStartArray();
+        value.traverse((ArrayTraverser)this);
+        generator.writeEndArray();
+    }
+
+    private void encodeObject(Inspector value) throws IOException {
+        generator.writeStartObject();
+        value.traverse((ObjectTraverser)this);
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void entry(int index, Inspector value) {
+        try {
+            encodeValue(value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void field(String name, Inspector value) {
+        try {
+            escape(Utf8.toBytes(name));
+            encodedName.name = name;
+            generator.writeFieldName(encodedName);
+            encodeValue(value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Writes the given UTF-8 bytes escaped for a JSON string, without quotes, to the start of the buffer */
+    private void escape(byte[] utf8) {
+        position = 0;
+        ensureCapacity(utf8.length * 6);
+        for (int i = 0; i < utf8.length; ) {
+            byte c = utf8[i];
+            if (c < 0) { // the start of a multibyte UTF-8 sequence, which is copied if valid
+                int length = validSequenceLength(utf8, i);
+                if (length > 0) {
+                    System.arraycopy(utf8, i, buffer, position, length);
+                    position += length;
+                    i += length;
+                } else {
+                    System.arraycopy(replacementCharacter, 0, buffer, position, replacementCharacter.length);
+                    position += replacementCharacter.length;
+                    i++;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"':  buffer[position++] = '\\'; buffer[position++] = '"'; break;
+                case '\\': buffer[position++] = '\\'; buffer[position++] = '\\'; break;
+                case '\b': buffer[position++] = '\\'; buffer[position++] = 'b'; break;
+                case '\f': buffer[position++] = '\\'; buffer[position++] = 'f'; break;
+                case '\n': buffer[position++] = '\\'; buffer[position++] = 'n'; break;
+                case '\r': buffer[position++] = '\\'; buffer[position++] = 'r'; break;
+                case '\t': buffer[position++] = '\\'; buffer[position++] = 't'; break;
+                default:
+                    if (c > 0x1f && c < 127) {
+                        buffer[position++] = c;
+                    } else { // requires escaping according to RFC 4627
+                        buffer[position++] = '\\'; buffer[position++] = 'u';
+                        buffer[position++] = '0'; buffer[position++] = '0';
+                        buffer[position++] = hex[(c >> 4) & 0xf]; buffer[position++] = hex[c & 0xf];
+                    }
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Returns the length of the well-formed UTF-8 sequence starting at the given index, or 0 if it is invalid:
+     * Truncated, overlong, a surrogate or above U+10FFFF.
+     */
+    static int validSequenceLength(byte[] utf8, int index) {
+        int lead = utf8[index] & 0xff;
+        int length;
+        int secondMin = 0x80, secondMax = 0xbf;
+        if (lead >= 0xc2 && lead <= 0xdf) {
+            length = 2;
+        } else if (lead >= 0xe0 && lead <= 0xef) {
+            length = 3;
+            if (lead == 0xe0) secondMin = 0xa0; // overlong
+            if (lead == 0xed) secondMax = 0x9f; // surrogate
+        } else if (lead >= 0xf0 && lead <= 0xf4) {
+            length = 4;
+            if (lead == 0xf0) secondMin = 0x90; // overlong
+            if (lead == 0xf4) secondMax = 0x8f; // above U+10FFFF
+        } else {
+            return 0;
+        }
+        if (index + length > utf8.length) return 0;
+        int second = utf8[index + 1] & 0xff;
+        if (second < secondMin || second > secondMax) return 0;
+        for (int i = index + 2; i < index + length; i++) {
+            if ((utf8[i] & 0xc0) != 0x80) return 0;
+        }
+        return length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional <= buffer.length) return;
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+    }
+
+    /**
+     * The field name currently escaped in the buffer, which the generator copies into its own buffer.
+     * Only the methods used by the generator to write field names copy from the buffer.
+     */
+    private final class EncodedName implements SerializableString {
+
+        private String name;
+
+        @Override
+        public String getValue() { return name; }
+
+        @Override
+        public int charLength() { return name.length(); }
+
+        @Override
+        public char[] asQuotedChars() { return Utf8.toString(buffer, 0, position).toCharArray(); }
+
+        @Override
+        public byte[] asUnquotedUTF8() { return Utf8.toBytes(name); }
+
+        @Override
+        public byte[] asQuotedUTF8() { return Arrays.copyOf(buffer, position); }
+
+        @Override
+        public int appendQuotedUTF8(byte[] target, int offset) {
+            if (offset + position > target.length) return -1;
+            System.arraycopy(buffer, 0, target, offset, position);
+            return position;
+        }
+
+        @Override
+        public int appendQuoted(char[] target, int offset) {
+            char[] quoted = asQuotedChars();
+            if (offset + quoted.length > target.length) return -1;
+            System.arraycopy(quoted, 0, target, offset, quoted.length);
+            return quoted.length;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] target, int offset) {
+            byte[] unquoted = asUnquotedUTF8();
+            if (offset + unquoted.length > target.length) return -1;
+            System.arraycopy(unquoted, 0, target, offset, unquoted.length);
+            return unquoted.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] target, int offset) {
+            if (offset + name.length() > target.length) return -1;
+            name.getChars(0, name.length(), target, offset);
+            return name.length();
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            out.write(buffer, 0, position);
+            return position;
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            byte[] unquoted = asUnquotedUTF8();
+            out.write(unquoted);
+            return unquoted.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer target) {
+            if (target.remaining() < position) return -1;
+            target.put(buffer, 0, position);
+            return position;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer target) {
+            byte[] unquoted = asUnquotedUTF8();
+            if (target.remaining() < unquoted.length) return -1;
+            target.put(unquoted);
+            return unquoted.length;
+        }
+
+        @Override
+        public String toString() { return name; }
+
+    }
+
+}
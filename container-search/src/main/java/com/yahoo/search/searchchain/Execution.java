@@ -15,8 +15,10 @@ import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.cluster.PingableSearcher;
 import com.yahoo.search.rendering.RendererRegistry;
+import com.yahoo.search.statistics.SearcherProfiler;
 import com.yahoo.search.statistics.TimeTracker;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -81,6 +83,9 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         /** The current linguistics */
         private Linguistics linguistics = null;
 
+        /** The profiler recording the time spent in each searcher, or null to not profile */
+        private SearcherProfiler profiler = null;
+
         /** Always set if this context belongs to an execution, never set if it does not. */
         private final Execution owner;
 
@@ -178,6 +183,9 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             if (linguistics == null) {
                 linguistics = sourceContext.linguistics;
             }
+            if (profiler == null) {
+                profiler = sourceContext.profiler;
+            }
         }
 
         /**
@@ -193,6 +201,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             detailedDiagnostics = other.detailedDiagnostics;
             breakdown = other.breakdown;
             linguistics = other.linguistics;
+            profiler = other.profiler;
         }
 
         public boolean equals(Context other) {
@@ -204,7 +213,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
                     && other.searchChainRegistry == searchChainRegistry
                     && other.detailedDiagnostics == detailedDiagnostics
                     && other.breakdown == breakdown
-                    && other.linguistics == linguistics;
+                    && other.linguistics == linguistics
+                    && other.profiler == profiler;
         }
 
         @Override
@@ -212,7 +222,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             return java.util.Objects.hash(indexFacts,
                                           rendererRegistry, tokenRegistry, searchChainRegistry,
                                           detailedDiagnostics, breakdown,
-                                          linguistics);
+                                          linguistics, profiler);
         }
 
         @Override
@@ -361,6 +371,21 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             this.linguistics = linguistics;
         }
 
+        /** Returns the profiler recording the time spent in each searcher, or null if searchers are not profiled */
+        public SearcherProfiler getProfiler() {
+            return profiler;
+        }
+
+        /**
+         * Sets the profiler recording the time spent in each searcher. This takes effect for executions
+         * which have not yet started searching.
+         *
+         * @param profiler the profiler to use, or null to not profile searchers
+         */
+        public void setProfiler(SearcherProfiler profiler) {
+            this.profiler = profiler;
+        }
+
         /** Creates a child trace if this has an owner, or a root trace otherwise */
         private Trace createChildTrace() {
             return owner!=null ? owner.trace().createChild() : Trace.createRoot(0);
@@ -382,6 +407,15 @@ public class Execution extends com.yahoo.processing.execution.Execution {
     /** Time spent in each state of filling, searching or pinging. */
     private final TimeTracker timer;
 
+    /** The profile of the searchers invoked by this, or null if not created yet or if this is not profiled */
+    private SearcherProfiler.ChainProfile profile = null;
+
+    /** The profile of the execution whose context this is created from, or null if none or not profiled */
+    private final SearcherProfiler.ChainProfile parentProfile;
+
+    /** The index of the searcher in the parent execution which created this, if there is a parent profile */
+    private final int parentIndex;
+
     /** A searcher's view of state external to the search chain. */
     // Note that the context plays the same role as the Environment of the super.Execution
     // (although complicated by the need for stack-like behavior on changes).
@@ -476,6 +510,14 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         contextCache = new Context[searchChain.components().size()];
         entryIndex=searcherIndex;
         timer = new TimeTracker(searchChain, searcherIndex);
+        parentProfile = context.owner != null ? context.owner.profile : null;
+        parentIndex = context.owner != null ? context.owner.nextIndex() - 1 : -1;
+    }
+
+    /** Creates an execution of the rest of the chain of the given execution, which adds to the given profile */
+    private Execution(Execution execution, int searcherIndex, SearcherProfiler.ChainProfile profile) {
+        this(execution.chain(), execution.context, searcherIndex);
+        this.profile = profile;
     }
 
     /** Does return search(((Query)request) */
@@ -492,7 +534,78 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         query.getModel().setExecution(this);
         trace().setTraceLevel(query.getTraceLevel());
 
-        return (Result)super.process(query);
+        SearcherProfiler.ChainProfile profile = profile();
+        if (profile == null) return (Result)super.process(query);
+
+        int searcherIndex = nextIndex();
+        profile.invoking(searcherIndex);
+        try {
+            return (Result)super.process(query);
+        }
+        finally {
+            profile.returning(searcherIndex);
+        }
+    }
+
+    /**
+     * Calls searchAsync on the next searcher in this chain, without blocking while waiting for the result.
+     * If there is no next, a future completed with an empty result is returned.
+     * <p>
+     * The next searcher is invoked in the calling thread with a new execution of the rest of this chain,
+     * such that this execution is not accessed by the next searcher after this returns. Exceptions thrown by
+     * the next searcher are returned as an exceptionally completed future.
+     * <p>
+     * Processors which are not searchers have no asynchronous variant, so if the next is such a processor,
+     * it and the rest of this chain are executed synchronously by {@link #search} before this returns.
+     */
+    public CompletableFuture<Result> searchAsync(Query query) {
+        Processor next = next();
+        if (next != null && ! (next instanceof Searcher)) {
+            try {
+                return CompletableFuture.completedFuture(search(query));
+            }
+            catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        timer.sampleSearch(nextIndex(), context.getDetailedDiagnostics());
+        query.getModel().setExecution(this);
+        trace().setTraceLevel(query.getTraceLevel());
+        if (next == null)
+            return CompletableFuture.completedFuture((Result)defaultResponse(query));
+
+        Searcher searcher = (Searcher)next;
+        int searcherIndex = nextIndex();
+        SearcherProfiler.ChainProfile profile = profile();
+        if (profile != null)
+            profile.invoking(searcherIndex);
+        CompletableFuture<Result> result;
+        try {
+            onInvoking(query, searcher);
+            result = searcher.searchAsync(query, new Execution(this, searcherIndex + 1, profile));
+            if (result == null)
+                throw new NullPointerException(searcher + " returned null, not a future result");
+        }
+        catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((response, exception) -> {
+            onReturning(query, searcher, response);
+            if (profile != null)
+                profile.returning(searcherIndex);
+        });
+    }
+
+    /** Returns the profile of this execution, or null if it is not profiled */
+    private SearcherProfiler.ChainProfile profile() {
+        if (profile == null && context.getProfiler() != null) {
+            if (parentProfile != null)
+                profile = parentProfile.fork(parentIndex, chain(), entryIndex);
+            else
+                profile = context.getProfiler().profile(chain(), entryIndex);
+        }
+        return profile;
     }
 
     @Override
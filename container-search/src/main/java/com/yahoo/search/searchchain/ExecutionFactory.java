@@ -1,6 +1,7 @@
 // Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.searchchain;
 
+import com.google.inject.Inject;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.component.chain.ChainsConfigurer;
@@ -18,6 +19,7 @@ import com.yahoo.processing.rendering.Renderer;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.config.IndexInfoConfig;
 import com.yahoo.search.rendering.RendererRegistry;
+import com.yahoo.search.statistics.SearcherProfiler;
 import com.yahoo.vespa.configdefinition.SpecialtokensConfig;
 
 /**
@@ -34,7 +36,9 @@ public class ExecutionFactory extends AbstractComponent {
     private final SpecialTokenRegistry specialTokens;
     private final Linguistics linguistics;
     private final RendererRegistry rendererRegistry;
+    private final SearcherProfiler profiler;
 
+    /** Creates an execution factory which does not profile searchers */
     public ExecutionFactory(ChainsConfig chainsConfig,
                             IndexInfoConfig indexInfo,
                             QrSearchersConfig clusters,
@@ -42,11 +46,28 @@ public class ExecutionFactory extends AbstractComponent {
                             SpecialtokensConfig specialTokens,
                             Linguistics linguistics,
                             ComponentRegistry<Renderer> renderers) {
+        this(chainsConfig, indexInfo, clusters, searchers, specialTokens, linguistics, renderers, new ComponentRegistry<>());
+    }
+
+    /**
+     * Creates an execution factory which profiles the searchers of the executions it creates
+     * if a searcher profiler component is set up
+     */
+    @Inject
+    public ExecutionFactory(ChainsConfig chainsConfig,
+                            IndexInfoConfig indexInfo,
+                            QrSearchersConfig clusters,
+                            ComponentRegistry<Searcher> searchers,
+                            SpecialtokensConfig specialTokens,
+                            Linguistics linguistics,
+                            ComponentRegistry<Renderer> renderers,
+                            ComponentRegistry<SearcherProfiler> profilers) {
         this.searchChainRegistry = createSearchChainRegistry(searchers, chainsConfig);
         this.indexFacts = new IndexFacts(new IndexModel(indexInfo, clusters)).freeze();
         this.specialTokens = new SpecialTokenRegistry(specialTokens);
         this.linguistics = linguistics;
         this.rendererRegistry = new RendererRegistry(renderers.allComponents());
+        this.profiler = profilers.allComponents().stream().findFirst().orElse(null);
     }
 
     private SearchChainRegistry createSearchChainRegistry(ComponentRegistry<Searcher> searchers, ChainsConfig chainsConfig) {
@@ -62,8 +83,7 @@ public class ExecutionFactory extends AbstractComponent {
      * An execution instance should be used once to execute a (tree of) search chains.
      */
     public Execution newExecution(Chain<? extends Searcher> searchChain) {
-        return new Execution(searchChain,
-                             new Execution.Context(searchChainRegistry, indexFacts, specialTokens, rendererRegistry, linguistics));
+        return new Execution(searchChain, newContext());
     }
 
     /**
@@ -71,8 +91,13 @@ public class ExecutionFactory extends AbstractComponent {
      * An execution instance should be used once to execute a (tree of) search chains.
      */
     public Execution newExecution(String searchChainId) {
-        return new Execution(searchChainRegistry().getChain(searchChainId),
-                             new Execution.Context(searchChainRegistry, indexFacts, specialTokens, rendererRegistry, linguistics));
+        return new Execution(searchChainRegistry().getChain(searchChainId), newContext());
+    }
+
+    private Execution.Context newContext() {
+        Execution.Context context = new Execution.Context(searchChainRegistry, indexFacts, specialTokens, rendererRegistry, linguistics);
+        context.setProfiler(profiler);
+        return context;
     }
 
     /** Returns the search chain registry used by this */
@@ -81,6 +106,9 @@ public class ExecutionFactory extends AbstractComponent {
     /** Returns the renderers known to this */
     public RendererRegistry rendererRegistry() { return rendererRegistry; }
 
+    /** Returns the profiler of the searchers of executions created by this, or null if searchers are not profiled */
+    public SearcherProfiler profiler() { return profiler; }
+
     @Override
     public void deconstruct() {
         rendererRegistry.deconstruct();
@@ -27,6 +27,10 @@ public class FutureResult extends FutureTask<Result> {
     /** Only used for generating messages */
     private final Execution execution;
 
+    /** The time in nanoseconds when this was created, and when it completed, or -1 if it is not completed */
+    private final long startTime = System.nanoTime();
+    private volatile long completionTime = -1;
+
     private final static Logger log = Logger.getLogger(FutureResult.class.getName());
 
     public FutureResult(Callable<Result> callable, Execution execution, Query query) {
@@ -35,6 +39,22 @@ public class FutureResult extends FutureTask<Result> {
         this.execution = execution;
     }
 
+    @Override
+    protected void done() {
+        completionTime = System.nanoTime();
+    }
+
+    /**
+     * Returns the time in milliseconds from this was created until it completed,
+     * or until now if it is not completed yet
+     */
+    public long getElapsedTime() {
+        long endTime = completionTime;
+        if (endTime < 0)
+            endTime = System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
+    }
+
     /** 
      * Returns a Result containing the hits returned from this source, or an error otherwise.
      * This will block for however long it takes to get the result: Using this is a bad idea.
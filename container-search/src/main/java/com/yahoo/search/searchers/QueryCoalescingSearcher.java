@@ -0,0 +1,207 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchers;
+
+import com.google.inject.Inject;
+import com.yahoo.component.chain.dependencies.After;
+import com.yahoo.metrics.simple.Counter;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.query.QueryCanonicalizer;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.config.QueryCoalescingConfig;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorHit;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces identical queries which are in flight at the same time, such that only one of them
+ * is sent to the content nodes, and the others receive a copy of its result.
+ * <p>
+ * Queries are identical when they would send the same search request to content nodes, excluding timeout
+ * and trace level, and select the same content to search. Unlike a result cache this requires no storage
+ * and never returns stale results, so it also applies to queries which should not be cached.
+ * <p>
+ * The unfilled hits of the result are shared, such that summaries are fetched for each query.
+ * Queries with grouping, sorting or rank features, and results containing other hits than document hits,
+ * are not shared. A query waits for an identical query at most for <i>maxWait</i> and <i>maxWaitTimeFraction</i>
+ * of the time it has left, after which it is sent to the content nodes itself.
+ * <p>
+ * This searcher should be added to the search chains of content clusters.
+ * <p>
+ * Metrics: This emits the counters <i>coalesced_queries</i>, counting queries which received the
+ * result of another query, and <i>coalescing_wait_timeouts</i>, counting queries which gave up waiting.
+ *
+ * @author agent
+ */
+@After(QueryCanonicalizer.queryCanonicalization)
+public class QueryCoalescingSearcher extends Searcher {
+
+    private final long maxWaitMs;
+    private final double maxWaitTimeFraction;
+
+    private final ConcurrentHashMap<ResultCache.Key, InFlightQuery> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter coalescedCounter;
+    private final Counter waitTimeoutCounter;
+
+    @Inject
+    public QueryCoalescingSearcher(QueryCoalescingConfig config, MetricReceiver metric) {
+        this.maxWaitMs = (long)(config.maxWait() * 1000);
+        this.maxWaitTimeFraction = config.maxWaitTimeFraction();
+        this.coalescedCounter = metric.declareCounter("coalesced_queries");
+        this.waitTimeoutCounter = metric.declareCounter("coalescing_wait_timeouts");
+    }
+
+    @Override
+    public Result search(Query query, Execution execution) {
+        if ( ! ResultCacheSearcher.hasShareableHits(query)) return execution.search(query);
+
+        ResultCache.Key key = new ResultCache.Key(ResultCacheSearcher.keyOf(query));
+        InFlightQuery created = new InFlightQuery();
+        InFlightQuery current = inFlight.compute(key, (k, existing) -> existing == null ? created : existing.addFollower());
+        if (current == created)
+            return lead(key, current, query, execution);
+        else
+            return follow(current, query, execution);
+    }
+
+    private Result lead(ResultCache.Key key, InFlightQuery inFlightQuery, Query query, Execution execution) {
+        Result result = null;
+        try {
+            result = execution.search(query);
+            return result;
+        }
+        finally {
+            inFlight.remove(key, inFlightQuery); // No more followers can be added after this
+            inFlightQuery.complete(result);
+        }
+    }
+
+    private Result follow(InFlightQuery inFlightQuery, Query query, Execution execution) {
+        try {
+            long waitMs = Math.min(maxWaitMs, (long)(Math.max(query.getTimeLeft(), 0) * maxWaitTimeFraction));
+            Optional<SharedResult> shared = inFlightQuery.result().get(waitMs, TimeUnit.MILLISECONDS);
+            if (shared.isPresent()) {
+                coalescedCounter.add(1);
+                query.trace("Returning the result of an identical query in flight", false, 3);
+                return shared.get().toResult(query);
+            }
+        }
+        catch (TimeoutException e) {
+            waitTimeoutCounter.add(1);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure in query coalescing", e);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for an identical query", e);
+        }
+        return execution.search(query);
+    }
+
+    /** A query in flight which other queries are waiting for */
+    private static class InFlightQuery {
+
+        private final AtomicInteger followers = new AtomicInteger(0);
+        private final CompletableFuture<Optional<SharedResult>> result = new CompletableFuture<>();
+
+        InFlightQuery addFollower() {
+            followers.incrementAndGet();
+            return this;
+        }
+
+        /**
+         * Completes this with the given result, which must be called before the result is returned
+         * and modified by the searchers of the query.
+         *
+         * @param result the result of this query, or null if it failed
+         */
+        void complete(Result result) {
+            if (followers.get() == 0)
+                this.result.complete(Optional.empty());
+            else
+                this.result.complete(SharedResult.from(result));
+        }
+
+        CompletableFuture<Optional<SharedResult>> result() { return result; }
+
+    }
+
+    /** An immutable copy of a result which can be shared between queries */
+    private static class SharedResult {
+
+        private final long totalHitCount;
+        private final Coverage coverage;
+        private final List<FastHit> hits;
+        private final List<ErrorMessage> errors;
+
+        private SharedResult(long totalHitCount, Coverage coverage, List<FastHit> hits, List<ErrorMessage> errors) {
+            this.totalHitCount = totalHitCount;
+            this.coverage = coverage;
+            this.hits = hits;
+            this.errors = errors;
+        }
+
+        /** Returns this as a new result of the given query */
+        Result toResult(Query query) {
+            Result result = new Result(query);
+            result.setTotalHitCount(totalHitCount);
+            result.setCoverage(copy(coverage));
+            for (ErrorMessage error : errors)
+                result.hits().addError(error);
+            for (FastHit hit : hits)
+                result.hits().add(copy(hit, query));
+            return result;
+        }
+
+        /** Returns the given result as a shared result, or empty if it cannot be shared */
+        static Optional<SharedResult> from(Result result) {
+            if (result == null) return Optional.empty();
+            if ( ! result.hits().incoming().isComplete()) return Optional.empty(); // hits are still being added
+
+            List<FastHit> hits = new ArrayList<>(result.hits().size());
+            List<ErrorMessage> errors = new ArrayList<>();
+            for (Hit hit : result.hits().asList()) {
+                if (hit instanceof ErrorHit)
+                    errors.addAll(((ErrorHit)hit).errors());
+                else if (hit instanceof FastHit && (hit.getFilled() == null || hit.getFilled().isEmpty()))
+                    hits.add(copy((FastHit)hit, null));
+                else
+                    return Optional.empty();
+            }
+            return Optional.of(new SharedResult(result.getTotalHitCount(), copy(result.getCoverage(false)), hits, errors));
+        }
+
+        private static FastHit copy(FastHit hit, Query query) {
+            FastHit copy = new FastHit(hit.getRawGlobalId(), hit.getRelevance(), hit.getPartId(), hit.getDistributionKey());
+            copy.setSource(hit.getSource());
+            copy.setQuery(query);
+            if (hit.getFilled() != null)
+                copy.setFillable();
+            return copy;
+        }
+
+        private static Coverage copy(Coverage coverage) {
+            if (coverage == null) return null;
+            Coverage copy = new Coverage(0, 0, 0, 0);
+            copy.merge(coverage);
+            return copy;
+        }
+
+    }
+
+}
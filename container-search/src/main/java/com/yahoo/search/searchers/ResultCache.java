@@ -0,0 +1,152 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchers;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A least recently used cache of serialized results, bounded by the total size of the cached data.
+ * Entries expire after a fixed time, and when the content generation they were created in is no longer current.
+ * If admission control is used, an entry is only added on the second put of the same key within
+ * the admission window. This class is multithread safe.
+ *
+ * @author agent
+ */
+class ResultCache {
+
+    private final long maxBytes;
+    private final long timeToLiveMs;
+    private final Clock clock;
+    private final Doorkeeper doorkeeper;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * Creates a result cache
+     *
+     * @param maxBytes the max total size of the data in this
+     * @param timeToLiveMs the time in milliseconds after which entries expire
+     * @param admissionWindow the number of distinct keys to remember for admission control, or 0 to admit all entries
+     * @param clock the clock used to expire entries
+     */
+    ResultCache(long maxBytes, long timeToLiveMs, int admissionWindow, Clock clock) {
+        this.maxBytes = maxBytes;
+        this.timeToLiveMs = timeToLiveMs;
+        this.doorkeeper = admissionWindow > 0 ? new Doorkeeper(admissionWindow) : null;
+        this.clock = clock;
+    }
+
+    /** Returns the data cached for this key in the given generation, or empty if none */
+    synchronized Optional<byte[]> get(Key key, long generation) {
+        Entry entry = entries.get(key);
+        if (entry == null) return Optional.empty();
+
+        if (entry.generation != generation || entry.expiry < clock.millis()) {
+            remove(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.data);
+    }
+
+    /** Caches the given data for this key, if it is admitted */
+    synchronized void put(Key key, byte[] data, long generation) {
+        if (data.length > maxBytes) return;
+        if (doorkeeper != null && ! doorkeeper.admit(key.hashCode())) return;
+
+        Entry previous = entries.put(key, new Entry(data, generation, clock.millis() + timeToLiveMs));
+        if (previous != null)
+            bytes -= previous.data.length;
+        bytes += data.length;
+        for (Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); bytes > maxBytes && i.hasNext(); ) {
+            bytes -= i.next().getValue().data.length;
+            i.remove();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.data.length;
+    }
+
+    /** Returns the total size of the data currently in this */
+    synchronized long bytes() { return bytes; }
+
+    /** Returns the number of entries currently in this */
+    synchronized int size() { return entries.size(); }
+
+    /** A cache key: An immutable byte array */
+    static final class Key {
+
+        private final byte[] data;
+        private final int hashCode;
+
+        Key(byte[] data) {
+            this.data = data;
+            this.hashCode = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return this.hashCode == other.hashCode && Arrays.equals(this.data, other.data);
+        }
+
+    }
+
+    private static final class Entry {
+
+        final byte[] data;
+        final long generation;
+        final long expiry;
+
+        Entry(byte[] data, long generation, long expiry) {
+            this.data = data;
+            this.generation = generation;
+            this.expiry = expiry;
+        }
+
+    }
+
+    /**
+     * Remembers the hashes of keys seen once in a bit set, and admits keys seen before.
+     * The bit set is cleared when a number of keys equal to the window size has been added.
+     */
+    private static final class Doorkeeper {
+
+        private final BitSet seen;
+        private final int bits;
+        private final int window;
+        private int added = 0;
+
+        Doorkeeper(int window) {
+            this.window = window;
+            this.bits = window * 8; // keeps the false positive rate low
+            this.seen = new BitSet(bits);
+        }
+
+        boolean admit(int hash) {
+            int index = Math.floorMod(hash * 0x9E3779B9, bits);
+            if (seen.get(index)) return true;
+
+            seen.set(index);
+            if (++added >= window) {
+                seen.clear();
+                added = 0;
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,206 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchers;
+
+import com.google.inject.Inject;
+import com.yahoo.component.chain.dependencies.After;
+import com.yahoo.component.provider.ComponentRegistry;
+import com.yahoo.metrics.simple.Counter;
+import com.yahoo.metrics.simple.Gauge;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.query.QueryCanonicalizer;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.config.ResultCacheConfig;
+import com.yahoo.search.dispatch.Dispatcher;
+import com.yahoo.search.dispatch.rpc.ProtobufSerialization;
+import com.yahoo.search.grouping.vespa.GroupingExecutor;
+import com.yahoo.search.query.Ranking;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches results in this container, to avoid sending repeated queries to content nodes.
+ * <p>
+ * This stores the hits of results before they are filled, in a compact serialized form,
+ * such that summaries are still fetched for each query. Results are discarded whenever the set of
+ * working nodes in some search cluster changes.
+ * <p>
+ * Content nodes do not report a content generation, so the cache cannot tell when documents are fed,
+ * removed or updated in place. Instead, results are cached for at most the configured time to live,
+ * which is therefore the bound on how stale the hits returned from the cache may be.
+ * <p>
+ * Only results of queries without grouping and sorting, which are complete, without errors, and
+ * consist only of concrete hits are cached. A query can bypass the cache by setting <i>nocache</i>.
+ * The cache key is the search request sent to content nodes, excluding timeout and trace level,
+ * plus the model properties which select the content to search.
+ * <p>
+ * This searcher should be added to the search chains of content clusters.
+ * <p>
+ * Metrics: This emits the counters <i>result_cache_hits</i> and <i>result_cache_misses</i>, and
+ * the gauge <i>result_cache_bytes</i>.
+ *
+ * @author agent
+ */
+@After(QueryCanonicalizer.queryCanonicalization)
+public class ResultCacheSearcher extends Searcher {
+
+    private final ResultCache cache;
+    private final LongSupplier generation;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Gauge bytesGauge;
+
+    @Inject
+    public ResultCacheSearcher(ResultCacheConfig config, ComponentRegistry<Dispatcher> dispatchers, MetricReceiver metric) {
+        this(config, () -> generationOf(dispatchers), metric, Clock.systemUTC());
+    }
+
+    /** For testing - allows injection of the generation of the working nodes and a clock */
+    public ResultCacheSearcher(ResultCacheConfig config, LongSupplier generation, MetricReceiver metric, Clock clock) {
+        this.cache = new ResultCache(config.maxBytes(),
+                                     (long)(config.timeToLive() * 1000),
+                                     config.admitOnlyRepeatedQueries() ? config.admissionWindow() : 0,
+                                     clock);
+        this.generation = generation;
+        this.hitCounter = metric.declareCounter("result_cache_hits");
+        this.missCounter = metric.declareCounter("result_cache_misses");
+        this.bytesGauge = metric.declareGauge("result_cache_bytes");
+    }
+
+    @Override
+    public Result search(Query query, Execution execution) {
+        if ( ! isCacheable(query)) return execution.search(query);
+
+        ResultCache.Key key = new ResultCache.Key(keyOf(query));
+        long currentGeneration = generation.getAsLong();
+        Optional<byte[]> cached = cache.get(key, currentGeneration);
+        if (cached.isPresent()) {
+            hitCounter.add(1);
+            query.trace("Returning cached result", false, 3);
+            return decode(cached.get(), query);
+        }
+
+        missCounter.add(1);
+        Result result = execution.search(query);
+        encode(result).ifPresent(data -> cache.put(key, data, currentGeneration));
+        bytesGauge.sample(cache.bytes());
+        return result;
+    }
+
+    private boolean isCacheable(Query query) {
+        if (query.getNoCache()) return false;
+        return hasShareableHits(query);
+    }
+
+    /**
+     * Returns whether the hits of this query can be returned for other queries having the same key:
+     * This is the case when there is no grouping, sorting or rank features.
+     */
+    static boolean hasShareableHits(Query query) {
+        if ( ! query.getSelect().getGrouping().isEmpty() || GroupingExecutor.hasGroupingList(query)) return false;
+        if (query.getRanking().getSorting() != null) return false;
+        if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) return false;
+        return true;
+    }
+
+    /** Returns a key which is equal for queries which will return the same hits from content nodes */
+    static byte[] keyOf(Query query) {
+        byte[] request = ProtobufSerialization.serializeSearchRequestKey(query);
+        byte[] model = (query.getModel().getRestrict() + "|" + query.getModel().getSources() + "|" +
+                        query.getModel().getSearchPath() + "|" + query.getModel().getDocumentDb())
+                               .getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(request.length + model.length).put(request).put(model).array();
+    }
+
+    /** Returns the given result in serialized form, or empty if it should not be cached */
+    private static Optional<byte[]> encode(Result result) {
+        if ( ! result.hits().incoming().isComplete()) return Optional.empty(); // hits are still being added
+        if (result.hits().getErrorHit() != null) return Optional.empty();
+        Coverage coverage = result.getCoverage(false);
+        if (coverage != null && ( ! coverage.getFull() || coverage.isDegraded())) return Optional.empty();
+
+        String source = null;
+        int size = 8 + 1 + 4 + 4;
+        for (Hit hit : result.hits().asUnorderedHits()) {
+            if ( ! (hit instanceof FastHit)) return Optional.empty();
+            if (source == null) source = hit.getSource();
+            if (source == null || ! source.equals(hit.getSource())) return Optional.empty();
+            size += 4 + ((FastHit)hit).getRawGlobalId().length + 8 + 4 + 4;
+        }
+        byte[] sourceBytes = source == null ? new byte[0] : source.getBytes(StandardCharsets.UTF_8);
+        size += sourceBytes.length;
+        if (coverage != null)
+            size += 8 + 8 + 8 + 4 + 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(result.getTotalHitCount());
+        buffer.put((byte)(coverage != null ? 1 : 0));
+        if (coverage != null) {
+            buffer.putLong(coverage.getDocs());
+            buffer.putLong(coverage.getActive());
+            buffer.putLong(coverage.getSoonActive());
+            buffer.putInt(coverage.getNodes());
+            buffer.putInt(coverage.getNodesTried());
+        }
+        buffer.putInt(sourceBytes.length);
+        buffer.put(sourceBytes);
+        buffer.putInt(result.hits().size());
+        for (Hit hit : result.hits().asList()) {
+            FastHit fastHit = (FastHit)hit;
+            buffer.putInt(fastHit.getRawGlobalId().length);
+            buffer.put(fastHit.getRawGlobalId());
+            buffer.putDouble(fastHit.getRelevance().getScore());
+            buffer.putInt(fastHit.getPartId());
+            buffer.putInt(fastHit.getDistributionKey());
+        }
+        return Optional.of(buffer.array());
+    }
+
+    private static Result decode(byte[] data, Query query) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        Result result = new Result(query);
+        result.setTotalHitCount(buffer.getLong());
+        if (buffer.get() == 1) {
+            long docs = buffer.getLong();
+            long active = buffer.getLong();
+            long soonActive = buffer.getLong();
+            int nodes = buffer.getInt();
+            int nodesTried = buffer.getInt();
+            result.setCoverage(new Coverage(docs, active, nodes, 1).setSoonActive(soonActive).setNodesTried(nodesTried));
+        }
+        byte[] sourceBytes = new byte[buffer.getInt()];
+        buffer.get(sourceBytes);
+        String source = new String(sourceBytes, StandardCharsets.UTF_8);
+
+        int hitCount = buffer.getInt();
+        for (int i = 0; i < hitCount; i++) {
+            byte[] gid = new byte[buffer.getInt()];
+            buffer.get(gid);
+            FastHit hit = new FastHit(gid, buffer.getDouble(), buffer.getInt(), buffer.getInt());
+            hit.setSource(source);
+            hit.setQuery(query);
+            hit.setFillable();
+            hit.setCached(true);
+            result.hits().add(hit);
+        }
+        return result;
+    }
+
+    private static long generationOf(ComponentRegistry<Dispatcher> dispatchers) {
+        long generation = 0;
+        for (Dispatcher dispatcher : dispatchers.allComponents())
+            generation += dispatcher.searchCluster().generation();
+        return generation;
+    }
+
+}
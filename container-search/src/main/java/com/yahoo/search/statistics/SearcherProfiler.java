@@ -0,0 +1,232 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.statistics;
+
+import com.google.inject.Inject;
+import com.yahoo.component.AbstractComponent;
+import com.yahoo.component.ComponentId;
+import com.yahoo.component.chain.Chain;
+import com.yahoo.metrics.simple.Gauge;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.MetricSettings;
+import com.yahoo.metrics.simple.Point;
+import com.yahoo.processing.Processor;
+import com.yahoo.search.config.SearcherProfilerConfig;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records histograms of the time spent in each searcher of each search chain, split into the time spent
+ * in the searcher itself and the time spent in the searchers following it in the chain, and optionally the
+ * number of bytes allocated by the searcher itself. These are sampled as simple metrics histograms
+ * with the dimensions "chain" and "searcher".
+ * <p>
+ * Searchers are profiled by the executions of the container when this component is set up in services.xml.
+ * Whether allocations are measured is set by {@link SearcherProfilerConfig}.
+ * <p>
+ * Executions forked by a searcher, such as the executions of federation targets, are profiled by
+ * {@link ChainProfile#fork forked profiles}, whose total time is downstream of the forking searcher.
+ * <p>
+ * This is multithread safe, and so are the {@link ChainProfile} instances created by this, as forked
+ * executions may return in other threads.
+ *
+ * @author agent
+ */
+public class SearcherProfiler extends AbstractComponent {
+
+    /** The name of the metric of the time spent in a searcher itself, in milliseconds */
+    public static final String selfLatencyMetric = "searcher_self_latency";
+
+    /** The name of the metric of the time spent in the searchers following a searcher, in milliseconds */
+    public static final String downstreamLatencyMetric = "searcher_downstream_latency";
+
+    /** The name of the metric of the bytes allocated by the thread executing a searcher itself */
+    public static final String allocatedBytesMetric = "searcher_allocated_bytes";
+
+    private static final double nanosPerMilli = 1_000_000.0;
+
+    private final Gauge selfLatency;
+    private final Gauge downstreamLatency;
+    private final Gauge allocatedBytes;
+
+    /**
+     * Returns the bytes allocated by the thread with a given id, or null if allocations are not measured.
+     * This is looked up reflectively as the JVM specific thread bean interface is not visible to bundles.
+     */
+    private final MethodHandle threadAllocatedBytes;
+
+    /** The metric dimensions of each searcher in each chain, by chain and searcher id */
+    private final Map<ComponentId, Map<ComponentId, Point>> points = new ConcurrentHashMap<>();
+
+    @Inject
+    public SearcherProfiler(SearcherProfilerConfig config, MetricReceiver metrics) {
+        this(metrics, config.measureAllocations());
+    }
+
+    /**
+     * Creates a profiler
+     *
+     * @param metrics the receiver of the profile metrics
+     * @param measureAllocations whether to measure the bytes allocated by each searcher, if this is supported by the JVM.
+     *                           This adds some cost to each searcher invocation.
+     */
+    public SearcherProfiler(MetricReceiver metrics, boolean measureAllocations) {
+        this.selfLatency = histogram(metrics, selfLatencyMetric);
+        this.downstreamLatency = histogram(metrics, downstreamLatencyMetric);
+        this.allocatedBytes = histogram(metrics, allocatedBytesMetric);
+        this.threadAllocatedBytes = measureAllocations ? threadAllocatedBytes() : null;
+    }
+
+    private static Gauge histogram(MetricReceiver metrics, String name) {
+        return metrics.declareGauge(name, Optional.empty(), new MetricSettings.Builder().histogram(true).build());
+    }
+
+    private static MethodHandle threadAllocatedBytes() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            Class<?> allocationBean = Class.forName("com.sun.management.ThreadMXBean", false, ClassLoader.getSystemClassLoader());
+            if ( ! allocationBean.isInstance(bean)) return null;
+            if ( ! (Boolean)allocationBean.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) return null;
+            if ( ! (Boolean)allocationBean.getMethod("isThreadAllocatedMemoryEnabled").invoke(bean)) return null;
+            return MethodHandles.publicLookup()
+                                .findVirtual(allocationBean, "getThreadAllocatedBytes", MethodType.methodType(long.class, long.class))
+                                .bindTo(bean);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Returns whether this measures the bytes allocated by each searcher */
+    public boolean measuresAllocations() { return threadAllocatedBytes != null; }
+
+    /** Returns a new profile of an execution of the given chain, starting at the given index */
+    public ChainProfile profile(Chain<? extends Processor> chain, int entryIndex) {
+        return new ChainProfile(chain, entryIndex, null, -1);
+    }
+
+    private Point point(Chain<? extends Processor> chain, Processor searcher) {
+        Map<ComponentId, Point> chainPoints = points.computeIfAbsent(chain.getId(), __ -> new ConcurrentHashMap<>());
+        Point point = chainPoints.get(searcher.getId());
+        if (point == null) {
+            point = selfLatency.builder().set("chain", chain.getId().stringValue())
+                                         .set("searcher", searcher.getId().stringValue())
+                                         .build();
+            chainPoints.put(searcher.getId(), point);
+        }
+        return point;
+    }
+
+    private long allocatedBytes() {
+        try {
+            return (long)threadAllocatedBytes.invokeExact(Thread.currentThread().getId());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not get the bytes allocated by this thread", e);
+        }
+    }
+
+    /** The measurements of a single execution of a chain. */
+    public class ChainProfile {
+
+        private final Chain<? extends Processor> chain;
+        private final List<? extends Processor> searchers;
+        private final int entryIndex;
+
+        /** The time each searcher was last invoked, in nanoseconds */
+        private final long[] invoked;
+
+        /** The time spent downstream of the current invocation of each searcher, in nanoseconds */
+        private final long[] downstreamTime;
+
+        /** The bytes allocated by this thread when each searcher was last invoked, if allocations are measured */
+        private final long[] allocatedAtInvocation;
+
+        /** The bytes allocated downstream of the current invocation of each searcher, if allocations are measured */
+        private final long[] downstreamAllocated;
+
+        /** The id of the thread which last invoked each searcher, if allocations are measured */
+        private final long[] invokingThread;
+
+        /** The profile of the execution this is forked from, or null if this is not forked */
+        private final ChainProfile parent;
+
+        /** The index of the searcher forking this in the parent profile */
+        private final int parentIndex;
+
+        private ChainProfile(Chain<? extends Processor> chain, int entryIndex, ChainProfile parent, int parentIndex) {
+            this.chain = chain;
+            this.searchers = chain.components();
+            this.entryIndex = entryIndex;
+            this.parent = parent;
+            this.parentIndex = parentIndex;
+            this.invoked = new long[searchers.size()];
+            this.downstreamTime = new long[searchers.size()];
+            this.allocatedAtInvocation = threadAllocatedBytes != null ? new long[searchers.size()] : null;
+            this.downstreamAllocated = threadAllocatedBytes != null ? new long[searchers.size()] : null;
+            this.invokingThread = threadAllocatedBytes != null ? new long[searchers.size()] : null;
+        }
+
+        /**
+         * Returns a new profile of an execution of the given chain, starting at the given index, which is forked
+         * by the searcher at the given index in this, such that its total time is downstream of that searcher
+         */
+        public ChainProfile fork(int index, Chain<? extends Processor> chain, int entryIndex) {
+            if (index < 0 || index >= searchers.size()) return new ChainProfile(chain, entryIndex, null, -1);
+            return new ChainProfile(chain, entryIndex, this, index);
+        }
+
+        /** Registers that the searcher at the given index in the chain is invoked */
+        public synchronized void invoking(int index) {
+            if (index >= searchers.size()) return;
+            downstreamTime[index] = 0;
+            if (allocatedAtInvocation != null) {
+                downstreamAllocated[index] = 0;
+                allocatedAtInvocation[index] = allocatedBytes();
+                invokingThread[index] = Thread.currentThread().getId();
+            }
+            invoked[index] = System.nanoTime();
+        }
+
+        /** Registers that the searcher at the given index in the chain, which was invoked, returns */
+        public void returning(int index) {
+            if (index >= searchers.size()) return;
+            long totalTime;
+            long totalAllocated = -1;
+            synchronized (this) {
+                totalTime = System.nanoTime() - invoked[index];
+                // Forked executions may run in parallel, so their sum is capped by the time of the searcher forking them
+                long downstream = Math.min(downstreamTime[index], totalTime);
+                Point point = point(chain, searchers.get(index));
+                selfLatency.sample((totalTime - downstream) / nanosPerMilli, point);
+                downstreamLatency.sample(downstream / nanosPerMilli, point);
+                if (index > entryIndex)
+                    downstreamTime[index - 1] += totalTime;
+
+                // Allocations are per thread, so they are not known for an asynchronous search returning in another thread
+                if (allocatedAtInvocation != null && invokingThread[index] == Thread.currentThread().getId()) {
+                    totalAllocated = allocatedBytes() - allocatedAtInvocation[index];
+                    allocatedBytes.sample(totalAllocated - downstreamAllocated[index], point);
+                    if (index > entryIndex)
+                        downstreamAllocated[index - 1] += totalAllocated;
+                }
+            }
+            if (index == entryIndex && parent != null)
+                parent.addDownstream(parentIndex, totalTime, totalAllocated);
+        }
+
+        /** Adds the time and allocations, or -1 if not known, of a forked execution to the searcher at the given index */
+        private synchronized void addDownstream(int index, long time, long allocated) {
+            downstreamTime[index] += time;
+            if (allocated >= 0 && allocatedAtInvocation != null && invokingThread[index] == Thread.currentThread().getId())
+                downstreamAllocated[index] += allocated;
+        }
+
+    }
+
+}
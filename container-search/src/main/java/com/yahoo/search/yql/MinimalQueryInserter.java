@@ -42,6 +42,9 @@ public class MinimalQueryInserter extends Searcher {
     private static final CompoundName MAX_OFFSET = new CompoundName("maxOffset");
     private static Logger log = Logger.getLogger(MinimalQueryInserter.class.getName());
 
+    /** Parsed YQL programs, such that repeated statements with parameters given as properties are parsed only once */
+    private final ProgramCache programCache = new ProgramCache(1000);
+
     @Inject
     public MinimalQueryInserter(Linguistics linguistics) {
         // Warmup is needed to avoid a large 400ms init cost during first execution of yql code.
@@ -55,7 +58,7 @@ public class MinimalQueryInserter extends Searcher {
     }
     private static boolean warmup(Linguistics linguistics) {
         Query query = new Query("search/?yql=select%20*%20from%20sources%20where%20title%20contains%20'xyz';");
-        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics));
+        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics), null);
         if (result != null) {
             log.warning("Warmup code trigger an error. Error = " + result.toString());
             return false;
@@ -67,10 +70,11 @@ public class MinimalQueryInserter extends Searcher {
         return true;
     }
 
-    private static Result insertQuery(Query query, ParserEnvironment env) {
+    private static Result insertQuery(Query query, ParserEnvironment env, ProgramCache programCache) {
         YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
         parser.setQueryParser(false);
         parser.setUserQuery(query);
+        parser.setProgramCache(programCache);
         QueryTree newTree;
         try {
             Parsable parsable = Parsable.fromQueryModel(query.getModel()).setQuery(query.properties().getString(YQL));
@@ -120,7 +124,7 @@ public class MinimalQueryInserter extends Searcher {
     public Result search(Query query, Execution execution) {
         if (query.properties().get(YQL) == null) return execution.search(query);
 
-        Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()));
+        Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()), programCache);
         return (result == null) ? execution.search(query) : result;
     }
 
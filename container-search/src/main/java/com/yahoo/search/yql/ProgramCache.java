@@ -0,0 +1,74 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A least recently used cache of parsed YQL programs, keyed by program text.
+ * This allows YQL statements which are repeated with different parameters, given as
+ * <code>@name</code> references to query properties, to be parsed only once.
+ * The parsed programs are not modified after parsing, so they can be shared between queries.
+ * <p>
+ * Lookups do not lock, as each query makes one: Programs are kept in a concurrent map and
+ * stamped with the time of their last use, and the least recently used program is found
+ * by a scan when a program is added to a full cache, which is cheap compared to parsing it.
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+class ProgramCache {
+
+    /** Programs longer than this are not cached, as they are unlikely to be repeated */
+    private static final int maxProgramLength = 10000;
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Entry> programs = new ConcurrentHashMap<>();
+
+    ProgramCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /** Returns the parsed program of the given text, or null if it is not in this */
+    OperatorNode<StatementOperator> get(String program) {
+        Entry entry = programs.get(program);
+        if (entry == null) return null;
+        entry.lastUsed = System.nanoTime();
+        return entry.program;
+    }
+
+    void put(String program, OperatorNode<StatementOperator> parsedProgram) {
+        if (program.length() > maxProgramLength) return;
+        programs.put(program, new Entry(parsedProgram));
+        if (programs.size() > maxSize)
+            evict();
+    }
+
+    int size() { return programs.size(); }
+
+    private synchronized void evict() {
+        while (programs.size() > maxSize) {
+            Map.Entry<String, Entry> leastRecentlyUsed = null;
+            for (Map.Entry<String, Entry> candidate : programs.entrySet()) {
+                if (leastRecentlyUsed == null || candidate.getValue().lastUsed - leastRecentlyUsed.getValue().lastUsed < 0)
+                    leastRecentlyUsed = candidate;
+            }
+            if (leastRecentlyUsed == null) return;
+            programs.remove(leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue());
+        }
+    }
+
+    private static class Entry {
+
+        final OperatorNode<StatementOperator> program;
+
+        /** The value of System.nanoTime() when this was last used */
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(OperatorNode<StatementOperator> program) {
+            this.program = program;
+        }
+
+    }
+
+}
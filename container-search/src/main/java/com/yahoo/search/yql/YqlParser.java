@@ -200,6 +200,7 @@ public class YqlParser implements Parser {
     private Set<String> docTypes;
     private Sorting sorting;
     private boolean queryParser = true;
+    private ProgramCache programCache = null;
     private final Deque<OperatorNode<?>> annotationStack = new ArrayDeque<>();
     private final ParserEnvironment environment;
 
@@ -729,11 +730,16 @@ public class YqlParser implements Parser {
     }
 
     private OperatorNode<?> parseYqlProgram() {
-        OperatorNode<?> ast;
-        try {
-            ast = new ProgramParser().parse("query", currentlyParsing.getQuery());
-        } catch (Exception e) {
-            throw new IllegalArgumentException(e);
+        OperatorNode<?> ast = programCache != null ? programCache.get(currentlyParsing.getQuery()) : null;
+        if (ast == null) {
+            try {
+                OperatorNode<StatementOperator> program = new ProgramParser().parse("query", currentlyParsing.getQuery());
+                if (programCache != null)
+                    programCache.put(currentlyParsing.getQuery(), program);
+                ast = program;
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
         }
         assertHasOperator(ast, StatementOperator.PROGRAM);
         Preconditions.checkArgument(ast.getArguments().length == 1,
@@ -953,39 +959,64 @@ public class YqlParser implements Parser {
     private String fetchConditionIndex(OperatorNode<ExpressionOperator> ast) {
         OperatorNode<ExpressionOperator> lhs = ast.getArgument(0);
         OperatorNode<ExpressionOperator> rhs = ast.getArgument(1);
-        if (lhs.getOperator() == ExpressionOperator.LITERAL || lhs.getOperator() == ExpressionOperator.NEGATE) {
+        if (isConditionValue(lhs)) {
             return getIndex(rhs);
         }
-        if (rhs.getOperator() == ExpressionOperator.LITERAL || rhs.getOperator() == ExpressionOperator.NEGATE) {
+        if (isConditionValue(rhs)) {
             return getIndex(lhs);
         }
         throw new IllegalArgumentException("Expected LITERAL and READ_FIELD/PROPREF, got " + lhs.getOperator() +
                                            " and " + rhs.getOperator() + ".");
     }
 
-    private static String getNumberAsString(OperatorNode<ExpressionOperator> ast) {
+    private static boolean isConditionValue(OperatorNode<ExpressionOperator> ast) {
+        return ast.getOperator() == ExpressionOperator.LITERAL ||
+               ast.getOperator() == ExpressionOperator.NEGATE ||
+               ast.getOperator() == ExpressionOperator.VARREF;
+    }
+
+    private String getNumberAsString(OperatorNode<ExpressionOperator> ast) {
         String negative = "";
         OperatorNode<ExpressionOperator> currentAst = ast;
         if (currentAst.getOperator() == ExpressionOperator.NEGATE) {
             negative = "-";
             currentAst = currentAst.getArgument(0);
         }
+        if (currentAst.getOperator() == ExpressionOperator.VARREF)
+            return negative + getParameterValue(currentAst.getArgument(0, String.class));
         assertHasOperator(currentAst, ExpressionOperator.LITERAL);
         return negative + currentAst.getArgument(0).toString();
     }
 
-    private static String fetchConditionWord(OperatorNode<ExpressionOperator> ast) {
+    /** Returns the value of a number or boolean parameter given as a query property */
+    private String getParameterValue(String name) {
+        Preconditions.checkState(userQuery != null, "properties must be available when trying to fetch parameter values");
+        String value = userQuery.properties().getString(name);
+        if (value == null)
+            throw new IllegalArgumentException("No value is given for parameter @" + name);
+        if (value.equals("true") || value.equals("false")) return value;
+        try {
+            Double.parseDouble(value);
+            return value;
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number or boolean as the value of parameter @" + name +
+                                               " but got '" + value + "'");
+        }
+    }
+
+    private String fetchConditionWord(OperatorNode<ExpressionOperator> ast) {
         OperatorNode<ExpressionOperator> lhs = ast.getArgument(0);
         OperatorNode<ExpressionOperator> rhs = ast.getArgument(1);
-        if (lhs.getOperator() == ExpressionOperator.LITERAL || lhs.getOperator() == ExpressionOperator.NEGATE) {
+        if (isConditionValue(lhs)) {
             assertFieldName(rhs);
             return getNumberAsString(lhs);
         }
-        if (rhs.getOperator() == ExpressionOperator.LITERAL || rhs.getOperator() == ExpressionOperator.NEGATE) {
+        if (isConditionValue(rhs)) {
             assertFieldName(lhs);
             return getNumberAsString(rhs);
         }
-        throw new IllegalArgumentException("Expected LITERAL/NEGATE and READ_FIELD/PROPREF, got "
+        throw new IllegalArgumentException("Expected LITERAL/NEGATE/VARREF and READ_FIELD/PROPREF, got "
                         + lhs.getOperator() + " and " + rhs.getOperator() + ".");
     }
 
@@ -1483,6 +1514,9 @@ public class YqlParser implements Parser {
     @Beta
     public void setUserQuery(Query userQuery) { this.userQuery = userQuery; }
 
+    /** Sets a cache of parsed programs to use, or null (default) to parse all programs */
+    void setProgramCache(ProgramCache programCache) { this.programCache = programCache; }
+
     @Beta
     public Set<String> getYqlSummaryFields() { return yqlSummaryFields; }
 
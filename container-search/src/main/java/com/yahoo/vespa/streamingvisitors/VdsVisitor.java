@@ -25,6 +25,7 @@ import com.yahoo.prelude.fastsearch.TimeoutException;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.grouping.vespa.GroupingExecutor;
+import com.yahoo.search.grouping.vespa.GroupingMerger;
 import com.yahoo.search.query.Model;
 import com.yahoo.search.query.Ranking;
 import com.yahoo.searchlib.aggregation.Grouping;
@@ -35,8 +36,6 @@ import com.yahoo.vespa.objects.BufferSerializer;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,7 +69,8 @@ class VdsVisitor extends VisitorDataHandler implements Visitor {
     private int totalHitCount = 0;
 
     private final Map<String, DocumentSummary.Summary> summaryMap = new HashMap<>();
-    private final Map<Integer, Grouping> groupingMap = new ConcurrentHashMap<>();
+    /** The groupings received, by grouping id. These are merged as they are received */
+    private final Map<Integer, GroupingMerger.Incremental> groupingMap = new ConcurrentHashMap<>();
     private Query query = null;
     private VisitorSessionFactory visitorSessionFactory;
     private final int traceLevelOverride;
@@ -428,14 +428,7 @@ class VdsVisitor extends VisitorDataHandler implements Visitor {
                 throw new IllegalArgumentException("Failed deserializing grouping. There are still data left. Position = " + buf.position() + ", limit = " + buf.getBuf().limit());
             }
 
-            synchronized (groupingMap) {
-                if (groupingMap.containsKey(key)) {
-                    Grouping grouping = groupingMap.get(key);
-                    grouping.merge(newGrouping);
-                } else {
-                    groupingMap.put(key, newGrouping);
-                }
-            }
+            groupingMap.computeIfAbsent(key, k -> new GroupingMerger.Incremental()).add(newGrouping);
         }
     }
 
@@ -474,12 +467,13 @@ class VdsVisitor extends VisitorDataHandler implements Visitor {
 
     @Override
     final public List<Grouping> getGroupings() {
-        Collection<Grouping> groupings = groupingMap.values();
-        for (Grouping g : groupings) {
-            g.postMerge();
+        List<Grouping> groupings = new ArrayList<>();
+        for (GroupingMerger.Incremental merger : groupingMap.values()) {
+            Grouping grouping = merger.result();
+            grouping.postMerge();
+            groupings.add(grouping);
         }
-        Grouping[] array = groupings.toArray(new Grouping[groupings.size()]);
-        return Arrays.asList(array);
+        return groupings;
     }
 
 }
@@ -33,6 +33,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -126,6 +127,22 @@ public class SlimeSummaryTestCase {
         assertEquals(tensor2, featureData.getTensor("tensor2_feature"));
     }
 
+    @Test
+    public void testReadingFieldsDoesNotPopulateTheFieldMap() {
+        DocsumDefinitionSet docsum = createDocsumDefinitionSet(summary_cf);
+        FastHit hit = new FastHit();
+        assertNull(docsum.lazyDecode("default", fullSummary(null, null), hit));
+        assertEquals("string_value", hit.getField("string_field"));
+        Object data = hit.getField("data_field");
+        assertSame("Converted values are kept", data, hit.getField("data_field"));
+        assertFalse(hit.hasFields());
+
+        hit.setField("string_field", "new value");
+        assertTrue(hit.hasFields());
+        assertEquals("new value", hit.getField("string_field"));
+        assertSame(data, hit.getField("data_field"));
+    }
+
     @Test
     public void testFieldAccessAPI() {
         DocsumDefinitionSet partialDocsum1 = createDocsumDefinitionSet(partial_summary1_cf);
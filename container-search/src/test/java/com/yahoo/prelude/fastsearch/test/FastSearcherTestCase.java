@@ -22,12 +22,15 @@ import com.yahoo.search.grouping.request.EachOperation;
 import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
 import com.yahoo.search.searchchain.Execution;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -82,6 +85,43 @@ public class FastSearcherTestCase {
         return new Execution(chainedAsSearchChain(searcher), context);
     }
 
+    @Test
+    public void testStreamingSearch() throws Exception {
+        FastSearcher fastSearcher = new FastSearcher("container.0",
+                                                     MockDispatcher.create(Collections.singletonList(new Node(0, "host0", 0))),
+                                                     new SummaryParameters(null),
+                                                     new ClusterParams("testhittype"),
+                                                     documentdbInfoConfig);
+        Result syncResult = doSearch(fastSearcher, new Query("?query=foo&timeout=5s"), 0, 10);
+
+        Query query = new Query("?query=foo&timeout=5s&dispatch.streaming=true");
+        query.setHits(10);
+        Result result = createExecution(fastSearcher).search(query);
+        List<Hit> sections = result.hits().incoming().completed().get(10, TimeUnit.SECONDS).incoming().drain();
+        assertEquals("No provisional section from a single node", 1, sections.size());
+        HitGroup section = (HitGroup)sections.get(0);
+        assertEquals("final", section.getId().toString());
+        assertEquals(syncResult.getTotalHitCount(), section.getField("totalCount"));
+        assertEquals(syncResult.hits().size(), section.size());
+        assertEquals(String.valueOf(syncResult.hits().getError()), String.valueOf(section.getError()));
+    }
+
+    @Test
+    public void testAsyncSearch() throws Exception {
+        FastSearcher fastSearcher = new FastSearcher("container.0",
+                                                     MockDispatcher.create(Collections.singletonList(new Node(0, "host0", 0))),
+                                                     new SummaryParameters(null),
+                                                     new ClusterParams("testhittype"),
+                                                     documentdbInfoConfig);
+        Result syncResult = doSearch(fastSearcher, new Query("?query=foo&timeout=5s"), 0, 10);
+
+        Query query = new Query("?query=foo&timeout=5s");
+        query.setHits(10);
+        Result asyncResult = createExecution(fastSearcher).searchAsync(query).get(10, TimeUnit.SECONDS);
+        assertEquals(syncResult.hits().size(), asyncResult.hits().size());
+        assertEquals(String.valueOf(syncResult.hits().getError()), String.valueOf(asyncResult.hits().getError()));
+    }
+
     @Test
     public void testSinglePassGroupingIsForcedWithSingleNodeGroups() {
         FastSearcher fastSearcher = new FastSearcher("container.0",
@@ -0,0 +1,102 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.query.parser;
+
+import com.yahoo.language.Linguistics;
+import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.prelude.IndexFacts;
+import com.yahoo.prelude.query.AndItem;
+import com.yahoo.prelude.query.Item;
+import com.yahoo.prelude.query.WordItem;
+import com.yahoo.prelude.query.parser.test.ParsingTester;
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that queries of plain words, which are parsed without tokenization,
+ * are parsed to the same items as by the general parsing.
+ *
+ * @author agent
+ */
+public class WordsParsingTestCase {
+
+    private static final List<String> queries = List.of("foo",
+                                                        "Foo Bar",
+                                                        "  foo   bar\tbaz ",
+                                                        "foo2 bar3 a1b2",
+                                                        "first second third",
+                                                        "bcd fg",
+                                                        "abcdefg hij",
+                                                        "foo 123",
+                                                        "123",
+                                                        "foo's bar",
+                                                        "title:foo bar",
+                                                        "\"foo bar\"",
+                                                        "foo -bar",
+                                                        "+foo bar",
+                                                        "foo c++ bar",
+                                                        "foo Letters bar",
+                                                        "lettersonly",
+                                                        "  letters",
+                                                        "foo lettersonly2",
+                                                        "foo bar lettersonly2",
+                                                        "foo .net",
+                                                        "blåbær syltetøy",
+                                                        "foo_bar",
+                                                        "foo OR bar",
+                                                        "",
+                                                        "   ");
+
+    @Test
+    public void testWordsAreParsedAsByTheGeneralParser() {
+        for (String query : queries) {
+            assertSameParse(query, new SimpleLinguistics());
+            assertSameParse(query, TestLinguistics.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testWordsParsing() {
+        Item root = parse("Foo bar", new AllParser(environment(new SimpleLinguistics())));
+        assertTrue(root instanceof AndItem);
+        assertEquals("AND Foo bar", root.toString());
+        assertEquals("Foo", ((WordItem)((AndItem)root).getItem(0)).getOrigin().getValue());
+        assertEquals("bar", ((WordItem)((AndItem)root).getItem(1)).getOrigin().getValue());
+    }
+
+    @Test
+    public void testSubclassesCombiningWordsDifferentlyDoNotParseWords() {
+        assertEquals("OR foo bar", parse("foo OR bar", new WebParser(environment(new SimpleLinguistics()))).toString());
+    }
+
+    private void assertSameParse(String query, Linguistics linguistics) {
+        Item fast = parse(query, new AllParser(environment(linguistics)));
+        Item general = parse(query, new AllParser(environment(linguistics)) {
+            @Override
+            boolean parsesWords() { return false; }
+        });
+        assertEquals("Parse of '" + query + "'", general, fast);
+        assertEquals("Parse of '" + query + "'", general.toString(), fast.toString());
+    }
+
+    private Item parse(String query, AllParser parser) {
+        return parser.parse(new Parsable().setQuery(query)).getRoot();
+    }
+
+    private ParserEnvironment environment(Linguistics linguistics) {
+        IndexFacts indexFacts = ParsingTester.createIndexFacts();
+        indexFacts.freeze();
+        SpecialTokens specialTokens = ParsingTester.createSpecialTokens();
+        specialTokens.addSpecialToken("letters", "replaced");
+        specialTokens.freeze();
+        return new ParserEnvironment().setIndexFacts(indexFacts)
+                                      .setLinguistics(linguistics)
+                                      .setSpecialTokens(specialTokens);
+    }
+
+}
@@ -0,0 +1,57 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.query.parser.test;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.prelude.IndexFacts;
+import com.yahoo.prelude.query.parser.AllParser;
+import com.yahoo.prelude.query.parser.WebParser;
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
+
+/**
+ * Compares parsing queries of plain words directly with parsing them by tokenizing them.
+ *
+ * @author agent
+ */
+public class WordsParsingMicroBenchmark {
+
+    private static final String query = "the quick brown fox jumps over the lazy dog";
+
+    private final ParserEnvironment environment;
+
+    public WordsParsingMicroBenchmark() {
+        IndexFacts indexFacts = ParsingTester.createIndexFacts();
+        indexFacts.freeze();
+        environment = new ParserEnvironment().setIndexFacts(indexFacts)
+                                             .setLinguistics(new SimpleLinguistics())
+                                             .setSpecialTokens(ParsingTester.createSpecialTokens());
+    }
+
+    public void run() {
+        System.out.println("Running ...");
+        run("Parsing words directly", new AllParser(environment));
+        run("Parsing by tokenizing", new WebParser(environment)); // parses plain words like AllParser, by tokenizing
+    }
+
+    private void run(String name, AllParser parser) {
+        for (int i = 0; i < 100 * 1000; i++)
+            parse(parser);
+        long startTime = System.currentTimeMillis();
+        int repetitions = 1000 * 1000;
+        for (int i = 0; i < repetitions; i++)
+            parse(parser);
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println(name + ": Total time: " + totalTime + " ms\nTime per parse: " +
+                           1000*1000*totalTime/(float)repetitions + " ns");
+    }
+
+    private void parse(AllParser parser) {
+        parser.parse(new Parsable().setQuery(query).setLanguage(Language.ENGLISH));
+    }
+
+    public static void main(String[] args) {
+        new WordsParsingMicroBenchmark().run();
+    }
+
+}
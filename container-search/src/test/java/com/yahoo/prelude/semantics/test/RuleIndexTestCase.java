@@ -0,0 +1,49 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.test;
+
+import com.yahoo.prelude.semantics.RuleBase;
+import com.yahoo.prelude.semantics.RuleImporter;
+import com.yahoo.search.Query;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests evaluating only the rules which may match the terms of the query
+ *
+ * @author agent
+ */
+public class RuleIndexTestCase extends RuleBaseAbstractTestCase {
+
+    public RuleIndexTestCase() {
+        super("index.sr");
+    }
+
+    @Test
+    public void testRulesAreEvaluatedInOrder() {
+        assertSemantics("product:television", "tv");
+        assertSemantics("product:television", "television");
+        assertSemantics("tv", "nokia phone");
+        assertSemantics("AND apple tablet", "apple tablet");
+    }
+
+    @Test
+    public void testRulesWithoutRequiredTermsAreEvaluated() {
+        assertSemantics("AND product:television deal discount:true", "tv deal");
+    }
+
+    @Test
+    public void testOnlyCandidateRulesAreEvaluated() throws Exception {
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            rules.append("word").append(i).append(" other").append(i).append(" -> \"word").append(i).append(" other").append(i).append("\";\n");
+        RuleBase ruleBase = new RuleImporter().importString(rules.toString(), null);
+
+        Query query = new Query("?query=word17%20other17%20word42&tracelevel=1");
+        ruleBase.analyze(query, 3);
+        assertEquals("AND \"word17 other17\" word42", query.getModel().getQueryTree().getRoot().toString());
+        assertTrue(query.getContext(false).getTrace().toString().contains("Evaluating 2 of 10000 rules"));
+    }
+
+}
@@ -1,16 +1,21 @@
 // Copyright 2019 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.jdisc.http.HttpRequest.Method;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.prelude.fastsearch.test.MockMetric;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.cluster.ClusterMonitor;
+import com.yahoo.search.dispatch.rpc.SharedSearchRequest;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.Pinger;
 import com.yahoo.search.dispatch.searchcluster.PongHandler;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.types.QueryProfileType;
 import org.junit.Test;
 
 import java.util.List;
@@ -20,6 +25,7 @@ import java.util.OptionalInt;
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -59,6 +65,23 @@ public class DispatcherTest {
         disp.deconstruct();
     }
 
+    @Test
+    public void requireThatQueriesWithStrictQueryProfileTypesCanBeDispatched() {
+        QueryProfileType strictType = new QueryProfileType("strict");
+        strictType.setStrict(true);
+        QueryProfile strict = new QueryProfile("profile");
+        strict.setType(strictType);
+        Query query = new Query(HttpRequest.createTestRequest("", Method.GET), strict.compile(null));
+
+        SearchCluster cl = new MockSearchCluster("1", 2, 1);
+        MockInvokerFactory invokerFactory = new MockInvokerFactory(cl, (n, a) -> true, (n, a) -> true);
+        Dispatcher disp = new Dispatcher(new ClusterMonitor(cl, false), cl, createDispatchConfig(), invokerFactory, new MockMetric());
+        disp.getSearchInvoker(query, null);
+        disp.getSearchInvoker(query, null);
+        invokerFactory.verifyAllEventsProcessed();
+        disp.deconstruct();
+    }
+
     @Test
     public void requireThatInvokerConstructionIsRetriedAndLastAcceptsAnyCoverage() {
         SearchCluster cl = new MockSearchCluster("1", 2, 1);
@@ -112,10 +135,12 @@ public class DispatcherTest {
                                                            OptionalInt groupId,
                                                            List<Node> nodes,
                                                            boolean acceptIncompleteCoverage,
-                                                           int maxHitsPerNode) {
+                                                           int maxHitsPerNode,
+                                                           SharedSearchRequest sharedRequest) {
             if (step >= events.length) {
                 throw new RuntimeException("Was not expecting more calls to getSearchInvoker");
             }
+            assertNotNull(sharedRequest);
             boolean nonEmpty = events[step].returnInvoker(nodes, acceptIncompleteCoverage);
             step++;
             if (nonEmpty) {
@@ -133,7 +158,8 @@ public class DispatcherTest {
         protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher,
                                                                   Query query,
                                                                   int maxHitsPerNode,
-                                                                  Node node) {
+                                                                  Node node,
+                                                                  SharedSearchRequest sharedRequest) {
             fail("Unexpected call to createNodeSearchInvoker");
             return null;
         }
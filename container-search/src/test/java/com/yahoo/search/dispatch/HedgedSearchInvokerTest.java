@@ -0,0 +1,201 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.Coverage;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class HedgedSearchInvokerTest {
+
+    @Test
+    public void requireThatNoHedgedRequestIsSentWhenThePrimaryAnswersInTime() throws IOException {
+        RespondingInvoker primary = new RespondingInvoker(0, 100, true);
+        RespondingInvoker hedge = new RespondingInvoker(1, 200, true);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 1000, () -> Optional.of(hedge));
+
+        Result result = invoker.search(new Query(), null);
+        invoker.close();
+
+        assertEquals(100, result.getCoverage(true).getDocs());
+        assertTrue(primary.sent);
+        assertFalse(hedge.sent);
+        assertTrue(primary.closed);
+    }
+
+    @Test
+    public void requireThatTheHedgedResultIsUsedWhenThePrimaryIsSlow() throws IOException {
+        RespondingInvoker primary = new RespondingInvoker(0, 100, false);
+        RespondingInvoker hedge = new RespondingInvoker(1, 200, true);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 0, () -> Optional.of(hedge));
+
+        Result result = invoker.search(new Query(), null);
+        invoker.close();
+
+        assertEquals(200, result.getCoverage(true).getDocs());
+        assertTrue(hedge.sent);
+        assertTrue(primary.closed);
+        assertTrue(hedge.closed);
+    }
+
+    @Test
+    public void requireThatThePrimaryIsUsedWhenNoHedgeIsAvailable() throws IOException {
+        RespondingInvoker primary = new RespondingInvoker(0, 100, false);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 0, Optional::empty);
+
+        Query query = new Query();
+        query.setTimeout(50);
+        Result result = invoker.search(query, null);
+
+        assertEquals(100, result.getCoverage(true).getDocs());
+    }
+
+    @Test
+    public void requireThatPartialCoverageDoesNotWaitForTheQueryTimeoutWhenANodeIsDownInEachGroup() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", MockSearchCluster.createDispatchConfig(50.0), 2, 2);
+        RespondingInvoker primaryUp = new RespondingInvoker(0, 100, 1000);
+        RespondingInvoker primaryDown = new RespondingInvoker(1, 100, false);
+        RespondingInvoker hedgeUp = new RespondingInvoker(2, 200, true);
+        RespondingInvoker hedgeDown = new RespondingInvoker(3, 200, false);
+        SearchInvoker primary = new InterleavedSearchInvoker(List.of(primaryUp, primaryDown), cluster, null);
+        SearchInvoker hedge = new InterleavedSearchInvoker(List.of(hedgeUp, hedgeDown), cluster, null);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 50, () -> Optional.of(hedge));
+
+        Query query = new Query();
+        query.setTimeout(20000);
+        long start = System.currentTimeMillis();
+        Result result = invoker.search(query, null);
+        invoker.close();
+
+        assertTrue("Returns when the hedge has the minimum coverage, not at the query timeout",
+                   System.currentTimeMillis() - start < 10000);
+        assertTrue(hedgeDown.sent);
+        assertEquals(200, result.getCoverage(true).getDocs());
+        assertEquals(1, result.getCoverage(true).getNodes());
+        assertEquals(2, result.getCoverage(true).getNodesTried());
+    }
+
+    @Test
+    public void requireThatAsyncSearchDoesNotBlockWhileWaitingForTheHedgeDelay() throws Exception {
+        RespondingInvoker primary = new RespondingInvoker(0, 100, false);
+        RespondingInvoker hedge = new RespondingInvoker(1, 200, true);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 100, () -> Optional.of(hedge));
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = task -> { tasks.incrementAndGet(); task.run(); };
+
+        Query query = new Query();
+        query.setTimeout(20000);
+        long start = System.currentTimeMillis();
+        CompletableFuture<Result> future = invoker.searchAsync(query, null, executor);
+        assertTrue("Returns before the hedge delay", System.currentTimeMillis() - start < 100);
+        assertFalse(future.isDone());
+        assertFalse(hedge.sent);
+        assertEquals("Nothing is run in the executor until the hedge delay has passed", 0, tasks.get());
+
+        Result result = future.get(10, TimeUnit.SECONDS);
+        invoker.close();
+
+        assertEquals(200, result.getCoverage(true).getDocs());
+        assertTrue(hedge.sent);
+        assertTrue(primary.closed);
+        assertTrue(hedge.closed);
+    }
+
+    @Test
+    public void requireThatHedgeDelayIsTheHighestLatencyPercentileOfTheNodesInTheGroup() {
+        Node node0 = new Node(0, "host0", 0);
+        Node node1 = new Node(1, "host1", 0);
+        Group group = new Group(0, List.of(node0, node1));
+
+        for (int i = 1; i <= 100; i++)
+            node0.recordSearchLatency(i);
+        assertFalse("Unknown for some node", group.searchLatencyPercentile(95).isPresent());
+
+        for (int i = 1; i <= 100; i++)
+            node1.recordSearchLatency(i * 2);
+        assertEquals(95, node0.searchLatencyPercentile(95).getAsLong());
+        assertEquals("190 within the precision of the histogram", 191, node1.searchLatencyPercentile(95).getAsLong());
+        assertEquals(191, group.searchLatencyPercentile(95).getAsLong());
+    }
+
+    @Test
+    public void requireThatTimeoutsAreIncludedInTheLatencyPercentiles() {
+        Node node = new Node(0, "host0", 0);
+        for (int i = 0; i < 90; i++)
+            node.recordSearchLatency(10);
+        for (int i = 0; i < 10; i++)
+            node.recordSearchTimeout(500);
+        assertEquals(10, node.searchLatencyPercentile(90).getAsLong());
+        assertEquals(511, node.searchLatencyPercentile(95).getAsLong());
+    }
+
+    @Test
+    public void requireThatLatencyPercentilesAreOfTheRecentLatencies() {
+        Node node = new Node(0, "host0", 0);
+        for (int i = 0; i < 128; i++)
+            node.recordSearchLatency(100);
+        for (int i = 0; i < 64; i++)
+            node.recordSearchLatency(10);
+        assertEquals(103, node.searchLatencyPercentile(95).getAsLong());
+        for (int i = 0; i < 64; i++)
+            node.recordSearchLatency(10);
+        assertEquals(10, node.searchLatencyPercentile(95).getAsLong());
+    }
+
+    private static class RespondingInvoker extends MockInvoker {
+
+        private final boolean respond;
+        private final long responseDelay;
+        boolean sent = false;
+        boolean closed = false;
+
+        RespondingInvoker(int key, int docs, boolean respond) {
+            super(key, new Coverage(docs, docs, 1));
+            this.respond = respond;
+            this.responseDelay = 0;
+        }
+
+        /** Creates an invoker which responds the given number of milliseconds after the request is sent */
+        RespondingInvoker(int key, int docs, long responseDelay) {
+            super(key, new Coverage(docs, docs, 1));
+            this.respond = true;
+            this.responseDelay = responseDelay;
+        }
+
+        @Override
+        protected void sendSearchRequest(Query query) throws IOException {
+            super.sendSearchRequest(query);
+            sent = true;
+            if ( ! respond) return;
+            if (responseDelay > 0)
+                CompletableFuture.delayedExecutor(responseDelay, TimeUnit.MILLISECONDS).execute(this::responseAvailable);
+            else
+                responseAvailable();
+        }
+
+        @Override
+        protected void release() {
+            closed = true;
+        }
+
+    }
+
+}
@@ -13,7 +13,9 @@ import com.yahoo.search.result.DefaultErrorHit;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
+import com.yahoo.search.searchchain.Execution;
 import com.yahoo.test.ManualClock;
+import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -25,8 +27,11 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import static com.yahoo.container.handler.Coverage.DEGRADED_BY_MATCH_PHASE;
@@ -224,6 +229,22 @@ public class InterleavedSearchInvokerTest {
         assertEquals(12, result.getQuery().getHits());
     }
 
+    @Test
+    public void requireThatAProvisionalResultIsProducedWhenSomeResponsesAreReceived() throws IOException {
+        InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(A5, B5);
+        List<Result> provisionalResults = new ArrayList<>();
+        invoker.setProvisionalResultListener(provisionalResults::add);
+        query.setHits(3);
+        Result result = invoker.search(query, null);
+
+        assertEquals(1, provisionalResults.size());
+        Result provisional = provisionalResults.get(0);
+        assertEquals(List.of(11.0, 8.5, 7.5),
+                     provisional.hits().asList().stream().map(hit -> hit.getRelevance().getScore()).collect(Collectors.toList()));
+        assertEquals(List.of(11.0, 9.0, 8.5),
+                     result.hits().asList().stream().map(hit -> hit.getRelevance().getScore()).collect(Collectors.toList()));
+    }
+
     @Test
     public void requireThatMergeOfConcreteHitsObeyOffset() throws IOException {
         InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(A5, B5);
@@ -270,6 +291,200 @@ public class InterleavedSearchInvokerTest {
         assertEquals(3, result.getQuery().getHits());
     }
 
+    @Test
+    public void requireThatMergeOfManyPartialResultsIsOrderedAndWithoutDuplicates() {
+        List<List<LeanHit>> partialHits = new ArrayList<>();
+        partialHits.add(createLeanHits(0, 9.0, 6.0, 3.0));
+        partialHits.add(createLeanHits(1, 8.0, 5.0, 2.0));
+        partialHits.add(createLeanHits(2, 7.0, 4.0, 1.0));
+        partialHits.add(createLeanHits(0, 9.0, 6.0)); // Duplicates of hits in the first list
+
+        List<LeanHit> merged = new ArrayList<>();
+        InterleavedSearchInvoker.mergeHits(partialHits, 2, 5, merged);
+        assertEquals(5, merged.size());
+        assertEquals(List.of(7.0, 6.0, 5.0, 4.0, 3.0),
+                     merged.stream().map(LeanHit::getRelevance).collect(Collectors.toList()));
+
+        merged.clear();
+        InterleavedSearchInvoker.mergeHits(partialHits, 7, 5, merged);
+        assertEquals(List.of(2.0, 1.0),
+                     merged.stream().map(LeanHit::getRelevance).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void requireThatHitsPerNodeAreEstimatedFromTheBinomialDistribution() {
+        assertEquals(0, InterleavedSearchInvoker.estimateHitsPerNode(0, 64, 0.999));
+        assertEquals(1, InterleavedSearchInvoker.estimateHitsPerNode(1, 64, 0.999));
+        assertEquals(1, InterleavedSearchInvoker.estimateHitsPerNode(4, 4, 0.5));
+        int hitsPerNode = InterleavedSearchInvoker.estimateHitsPerNode(400, 64, 0.999);
+        assertTrue("Between the mean and the mean plus 5 standard deviations: " + hitsPerNode,
+                   hitsPerNode > 400 / 64 && hitsPerNode < 400 / 64 + 5 * Math.sqrt(400 / 64.0));
+        assertTrue(InterleavedSearchInvoker.estimateHitsPerNode(400, 64, 0.9999) > hitsPerNode);
+        assertEquals(1000, InterleavedSearchInvoker.estimateHitsPerNode(1000, 2, 1.0));
+        assertTrue(InterleavedSearchInvoker.estimateHitsPerNode(100000, 64, 0.999) < 100000 / 64 * 2);
+    }
+
+    @Test
+    public void requireThatNodesWhichMayHoldMoreOfTheNeededHitsAreQueriedAgain() throws IOException {
+        DispatchConfig config = new DispatchConfig(new DispatchConfig.Builder(createDispatchConfig()).topKProbability(0.5));
+        SearchCluster cluster = new MockSearchCluster("!", config, 1, 4);
+        List<CountingInvoker> nodes = List.of(new CountingInvoker(0, List.of(100.0, 99.0, 98.0, 97.0, 96.0)),
+                                              new CountingInvoker(1, List.of(10.0, 1.0)),
+                                              new CountingInvoker(2, List.of(9.5, 0.5)),
+                                              new CountingInvoker(3, List.of(9.0, 0.1)));
+        invokers.addAll(nodes);
+        List<CountingInvoker> requeried = new ArrayList<>();
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet(),
+                                                                        key -> {
+                                                                            CountingInvoker node = nodes.get(key).copy();
+                                                                            requeried.add(node);
+                                                                            return Optional.of(node);
+                                                                        });
+        query.setHits(3);
+        query.setOffset(1);
+
+        Result result = invoker.search(query, null);
+
+        assertEquals(List.of(1, 4), nodes.get(0).requestedHits);
+        assertEquals(List.of(1, 4), nodes.get(1).requestedHits);
+        assertEquals(List.of(1, 4), nodes.get(2).requestedHits);
+        assertEquals("Holds the last of the needed hits", List.of(1), nodes.get(3).requestedHits);
+        assertEquals("Queried again by new invokers", 3, requeried.size());
+        assertTrue(requeried.stream().allMatch(node -> node.requestedHits == node.original.requestedHits));
+        assertEquals(3, result.hits().size());
+        assertEquals(99.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        assertEquals(97.0, result.hits().get(2).getRelevance().getScore(), DELTA);
+    }
+
+    @Test
+    public void requireThatAsyncSearchDoesNotWaitForNodesQueriedAgain() throws Exception {
+        DispatchConfig config = new DispatchConfig(new DispatchConfig.Builder(createDispatchConfig()).topKProbability(0.5));
+        SearchCluster cluster = new MockSearchCluster("!", config, 1, 4);
+        List<CountingInvoker> nodes = List.of(new CountingInvoker(0, List.of(100.0, 99.0, 98.0, 97.0, 96.0)),
+                                              new CountingInvoker(1, List.of(10.0, 1.0)),
+                                              new CountingInvoker(2, List.of(9.5, 0.5)),
+                                              new CountingInvoker(3, List.of(9.0, 0.1)));
+        invokers.addAll(nodes);
+        List<CountingInvoker> requeried = new ArrayList<>();
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet(),
+                                                                        key -> {
+                                                                            CountingInvoker node = nodes.get(key).copy();
+                                                                            node.respond = false;
+                                                                            requeried.add(node);
+                                                                            return Optional.of(node);
+                                                                        });
+        query.setHits(3);
+        query.setOffset(1);
+
+        CompletableFuture<Result> future = invoker.searchAsync(query, null, Runnable::run);
+        assertEquals(3, requeried.size());
+        assertFalse("Returned while waiting for the nodes queried again", future.isDone());
+        requeried.forEach(SearchInvoker::responseAvailable);
+        assertTrue(future.isDone());
+
+        Result result = future.get();
+        assertEquals(3, result.hits().size());
+        assertEquals(99.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        assertEquals(97.0, result.hits().get(2).getRelevance().getScore(), DELTA);
+    }
+
+    @Test
+    public void requireThatAsyncSearchIsCompletedWhenTheAdaptiveTimeoutIsReached() throws Exception {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(50.0), 1, 2);
+        invokers.add(new MockInvoker(0, createCoverage(50155, 50155, 50155, 1, 1, 0)));
+        invokers.add(new MockInvoker(1, createCoverage(49845, 49845, 49845, 1, 1, 0)));
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet());
+        Query query = new Query("?timeout=20s");
+
+        CompletableFuture<Result> future = invoker.searchAsync(query, null, Runnable::run);
+        assertFalse(future.isDone());
+        invokers.get(0).responseAvailable(); // enough for the minimum coverage, and the min wait after that is 0
+        Result result = future.get(10, TimeUnit.SECONDS);
+
+        Coverage coverage = result.getCoverage(true);
+        assertThat(coverage.getDocs(), is(50155L));
+        assertThat(coverage.getNodes(), is(1));
+        assertThat(coverage.isDegradedByAdapativeTimeout(), is(true));
+    }
+
+    @Test
+    public void requireThatNodesAreNotQueriedAgainWithoutTimeLeft() throws IOException {
+        DispatchConfig config = new DispatchConfig(new DispatchConfig.Builder(createDispatchConfig()).topKProbability(0.5));
+        SearchCluster cluster = new MockSearchCluster("!", config, 1, 4);
+        AtomicLong clock = new AtomicLong(0);
+        Query query = new Query("?timeout=5s");
+        List<CountingInvoker> nodes = new ArrayList<>();
+        for (int key = 0; key < 4; key++) {
+            nodes.add(new CountingInvoker(key, List.of(100.0 - key, 99.0 - key, 98.0 - key)) {
+                @Override
+                protected InvokerResult getSearchResult(Execution execution) throws IOException {
+                    clock.set(5000 - InterleavedSearchInvoker.minRequeryTimeMs / 2); // just before the deadline
+                    return super.getSearchResult(execution);
+                }
+            });
+        }
+        invokers.addAll(nodes);
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet(),
+                                                                        key -> Optional.of(nodes.get(key).copy())) {
+            @Override
+            protected long currentTime() { return clock.get(); }
+        };
+        query.setHits(4);
+
+        Result result = invoker.search(query, null);
+
+        for (CountingInvoker node : nodes)
+            assertEquals(List.of(1), node.requestedHits);
+        assertEquals(4, result.hits().size());
+    }
+
+    @Test
+    public void requireThatAsyncSearchIsCompletedWhenAllResponsesAreAvailable() throws Exception {
+        SearchCluster cluster = new MockSearchCluster("!", 1, 2);
+        invokers.add(createInvoker(A5, 0));
+        invokers.add(createInvoker(B5, 1));
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet());
+        query.setHits(3);
+
+        CompletableFuture<Result> future = invoker.searchAsync(query, null, Runnable::run);
+        assertFalse(future.isDone());
+        invokers.get(0).responseAvailable();
+        assertFalse(future.isDone());
+        invokers.get(1).responseAvailable();
+        assertTrue(future.isDone());
+
+        Result result = future.get();
+        assertEquals(3, result.hits().size());
+        assertEquals(11.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        assertEquals(8.5, result.hits().get(2).getRelevance().getScore(), DELTA);
+    }
+
+    @Test
+    public void requireThatAsyncSearchMergesTheResponsesReceivedBeforeTimeout() throws Exception {
+        SearchCluster cluster = new MockSearchCluster("!", 1, 2);
+        invokers.add(new MockInvoker(0, createCoverage(50155, 50155, 50155, 1, 1, 0)));
+        invokers.add(new MockInvoker(1, createCoverage(49845, 49845, 49845, 1, 1, 0)));
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet());
+        Query query = new Query("?timeout=200ms");
+
+        CompletableFuture<Result> future = invoker.searchAsync(query, null, Runnable::run);
+        invokers.get(0).responseAvailable();
+        Result result = future.get(10, TimeUnit.SECONDS);
+
+        Coverage coverage = result.getCoverage(true);
+        assertThat(coverage.getDocs(), is(50155L));
+        assertThat(coverage.getNodes(), is(1));
+        assertThat(coverage.getFull(), is(false));
+        assertThat(coverage.isDegradedByTimeout(), is(true));
+    }
+
+    private static List<LeanHit> createLeanHits(int partId, double ... scores) {
+        List<LeanHit> hits = new ArrayList<>();
+        for (double score : scores)
+            hits.add(new LeanHit(new GlobalId(IdString.createIdString("id:test:test::" + score)).getRawId(), partId, partId, score));
+        return hits;
+    }
+
     private static InterleavedSearchInvoker createInterLeavedTestInvoker(List<Double> a, List<Double> b) {
         SearchCluster cluster = new MockSearchCluster("!", 1, 2);
         List<SearchInvoker> invokers = new ArrayList<>();
@@ -392,6 +607,52 @@ public class InterleavedSearchInvokerTest {
         }
     }
 
+    /** Returns at most the requested number of hits, and records the hits requested */
+    private static class CountingInvoker extends MockInvoker {
+
+        final int key;
+        final List<Double> scores;
+        final List<Integer> requestedHits;
+        final CountingInvoker original;
+        boolean respond = true;
+
+        CountingInvoker(int key, List<Double> scores) {
+            this(key, scores, new ArrayList<>(), null);
+        }
+
+        private CountingInvoker(int key, List<Double> scores, List<Integer> requestedHits, CountingInvoker original) {
+            super(key);
+            this.key = key;
+            this.scores = scores;
+            this.requestedHits = requestedHits;
+            this.original = original;
+            setHits(createHits(scores, key, key));
+        }
+
+        /** Returns a new invoker of the same node, which records requested hits in the list of this */
+        CountingInvoker copy() {
+            return new CountingInvoker(key, scores, requestedHits, this);
+        }
+
+        @Override
+        protected void sendSearchRequest(Query query) throws IOException {
+            super.sendSearchRequest(query);
+            requestedHits.add(query.getHits());
+            if (respond)
+                responseAvailable();
+        }
+
+        @Override
+        protected InvokerResult getSearchResult(Execution execution) throws IOException {
+            InvokerResult result = super.getSearchResult(execution);
+            int hits = requestedHits.get(requestedHits.size() - 1);
+            while (result.getLeanHits().size() > hits)
+                result.getLeanHits().remove(result.getLeanHits().size() - 1);
+            return result;
+        }
+
+    }
+
     public class TestQuery extends Query {
         private long start = clock.millis();
 
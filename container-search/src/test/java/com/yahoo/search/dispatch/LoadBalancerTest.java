@@ -3,6 +3,7 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.LoadBalancer.AdaptiveScheduler;
 import com.yahoo.search.dispatch.LoadBalancer.GroupStatus;
+import com.yahoo.search.dispatch.LoadBalancer.LatencyAwareScheduler;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
@@ -14,6 +15,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.closeTo;
@@ -156,6 +158,69 @@ public class LoadBalancerTest {
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
     }
 
+    @Test
+    public void requireThatLatencyAwareSchedulerAvoidsGroupsWithSlowNodes() {
+        Node fast1 = new Node(0, "fast1", 0);
+        Node fast2 = new Node(1, "fast2", 0);
+        Node fast3 = new Node(0, "fast3", 1);
+        Node slow = new Node(1, "slow", 1);
+        fast1.recordSearchLatency(10);
+        fast2.recordSearchLatency(10);
+        fast3.recordSearchLatency(10);
+        slow.recordSearchLatency(100);
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        scoreboard.add(new GroupStatus(new Group(0, List.of(fast1, fast2))));
+        scoreboard.add(new GroupStatus(new Group(1, List.of(fast3, slow))));
+        LatencyAwareScheduler sched = new LatencyAwareScheduler(new Random(1), scoreboard);
+
+        for (int i = 0; i < 9; i++) {
+            GroupStatus gs = sched.takeNextGroup(null).get();
+            assertThat(gs.groupId(), equalTo(0));
+            gs.allocate();
+        }
+        assertThat(fast1.searchesInFlight(), equalTo(9));
+        assertThat("Group 0 is now more loaded than the slow node", sched.takeNextGroup(null).get().groupId(), equalTo(1));
+
+        for (int i = 0; i < 9; i++)
+            scoreboard.get(0).release(true, 0.01);
+        assertThat(fast1.searchesInFlight(), equalTo(0));
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+        assertThat(sched.takeNextGroup(Set.of(0)).get().groupId(), equalTo(1));
+    }
+
+    @Test
+    public void requireThatLatencyAwareSchedulerAvoidsGroupsWithNodesTimingOut() {
+        Node node0 = new Node(0, "node0", 0);
+        Node node1 = new Node(0, "node1", 1);
+        node0.recordSearchLatency(10);
+        node1.recordSearchLatency(10);
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        scoreboard.add(new GroupStatus(new Group(0, List.of(node0))));
+        scoreboard.add(new GroupStatus(new Group(1, List.of(node1))));
+        LatencyAwareScheduler sched = new LatencyAwareScheduler(new Random(1), scoreboard);
+
+        node0.recordSearchTimeout(1000);
+        for (int i = 0; i < 10; i++)
+            assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+    }
+
+    @Test
+    public void requireCorrectNodeLatencyEstimateDecay() {
+        final double SMALL = 0.00001;
+
+        Node node = new Node(0, "test-node", 0);
+        assertThat(node.searchLatencyEstimate(), equalTo(0.0));
+        node.recordSearchLatency(10);
+        assertThat(node.searchLatencyEstimate(), equalTo(10.0));
+        node.recordSearchLatency(20);
+        assertThat(node.searchLatencyEstimate(), closeTo(15.0, SMALL));
+        for (int i = 0; i < 1000; i++)
+            node.recordSearchLatency(100);
+        assertThat(node.searchLatencyEstimate(), closeTo(100.0, SMALL));
+        node.recordSearchLatency(36);
+        assertThat(node.searchLatencyEstimate(), closeTo(99.0, SMALL));
+    }
+
     private static void updateSearchTime(GroupStatus gs, double time) {
         gs.allocate();
         gs.release(true, time);
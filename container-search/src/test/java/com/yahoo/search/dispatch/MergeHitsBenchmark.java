@@ -0,0 +1,107 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shows the cost of merging the hits from content nodes in {@link InterleavedSearchInvoker}
+ * as a function of the number of nodes, compared to merging each partial result pairwise
+ * into the hits merged so far.
+ *
+ * @author agent
+ */
+public class MergeHitsBenchmark {
+
+    private static final int hits = 400;
+
+    public void run() {
+        for (int nodes : new int[] { 1, 2, 8, 16, 32, 64, 100 }) {
+            List<List<LeanHit>> partialHits = createPartialHits(nodes, hits);
+            int iterations = 2000000 / nodes / 10;
+
+            // Warm-up
+            for (int i = 0; i < iterations; i++) {
+                mergeKWay(partialHits);
+                mergePairwise(partialHits);
+            }
+
+            long startTime = System.nanoTime();
+            int count = 0;
+            for (int i = 0; i < iterations; i++)
+                count += mergeKWay(partialHits);
+            long kWayTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                count += mergePairwise(partialHits);
+            long pairwiseTime = System.nanoTime() - startTime;
+
+            out(nodes + " nodes: k-way merge " + (kWayTime / iterations / 1000.0) + " us, " +
+                "pairwise merge " + (pairwiseTime / iterations / 1000.0) + " us (merged " + count + " hits)");
+        }
+    }
+
+    private int mergeKWay(List<List<LeanHit>> partialHits) {
+        List<LeanHit> merged = new ArrayList<>(hits);
+        InterleavedSearchInvoker.mergeHits(partialHits, 0, hits, merged);
+        return merged.size();
+    }
+
+    /** The merge done by InterleavedSearchInvoker previously */
+    private int mergePairwise(List<List<LeanHit>> partialHits) {
+        List<LeanHit> current = new ArrayList<>();
+        for (List<LeanHit> partial : partialHits) {
+            if (current.isEmpty()) {
+                current = partial;
+                continue;
+            }
+            List<LeanHit> merged = new ArrayList<>(hits);
+            int indexCurrent = 0;
+            int indexPartial = 0;
+            while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < hits) {
+                int cmpRes = current.get(indexCurrent).compareTo(partial.get(indexPartial));
+                if (cmpRes < 0) {
+                    merged.add(current.get(indexCurrent++));
+                } else if (cmpRes > 0) {
+                    merged.add(partial.get(indexPartial++));
+                } else {
+                    merged.add(current.get(indexCurrent++));
+                    indexPartial++;
+                }
+            }
+            while ((indexCurrent < current.size()) && (merged.size() < hits))
+                merged.add(current.get(indexCurrent++));
+            while ((indexPartial < partial.size()) && (merged.size() < hits))
+                merged.add(partial.get(indexPartial++));
+            current = merged;
+        }
+        return current.size();
+    }
+
+    private static List<List<LeanHit>> createPartialHits(int nodes, int hitsPerNode) {
+        Random random = new Random(nodes);
+        List<List<LeanHit>> partialHits = new ArrayList<>(nodes);
+        for (int node = 0; node < nodes; node++) {
+            List<LeanHit> partial = new ArrayList<>(hitsPerNode);
+            for (int i = 0; i < hitsPerNode; i++) {
+                byte[] gid = ByteBuffer.allocate(12).putInt(node).putLong(random.nextLong()).array();
+                partial.add(new LeanHit(gid, node, node, random.nextDouble()));
+            }
+            partial.sort(null);
+            partialHits.add(partial);
+        }
+        return partialHits;
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) {
+        new MergeHitsBenchmark().run();
+    }
+
+}
@@ -6,16 +6,21 @@ import com.yahoo.prelude.fastsearch.DocsumDefinitionSet;
 import com.yahoo.prelude.fastsearch.DocsumField;
 import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.fastsearch.test.MockMetric;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.test.ManualClock;
 
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -183,6 +188,50 @@ public class FillTestCase {
         assertEquals("Could not fill hits from unknown node 1", result.hits().getError().getDetailedMessage());
     }
 
+    @Test
+    public void testFillingFromCache() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        nodes.put(1, client.createConnection("host1", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(nodes);
+        ManualClock clock = new ManualClock();
+        AtomicLong generation = new AtomicLong(0);
+        DocsumCache cache = new DocsumCache(10000, 60000, generation::get, new MockMetric(), clock);
+        RpcInvokerFactory factory = new RpcInvokerFactory(rpcResourcePool, null, Optional.of(cache));
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+        client.setDocsumReponse("host1", 1, "summaryClass1", map("field1", "s.1.1", "field2", 1));
+
+        Result result1 = new Result(new Query());
+        result1.hits().add(createHit(0, 0));
+        factory.createFillInvoker(db()).fill(result1, "summaryClass1");
+        assertEquals("s.0.0", result1.hits().get("hit:0").getField("field1").toString());
+        assertEquals(1, cache.size());
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "changed", "field2", 0));
+        Result result2 = new Result(new Query());
+        result2.hits().add(createHit(0, 0));
+        result2.hits().add(createHit(1, 1));
+        factory.createFillInvoker(db()).fill(result2, "summaryClass1");
+        assertEquals("From cache", "s.0.0", result2.hits().get("hit:0").getField("field1").toString());
+        assertEquals(0L, result2.hits().get("hit:0").getField("field2"));
+        assertEquals("s.1.1", result2.hits().get("hit:1").getField("field1").toString());
+        assertEquals(2, cache.size());
+
+        generation.incrementAndGet();
+        Result result3 = new Result(new Query());
+        result3.hits().add(createHit(0, 0));
+        factory.createFillInvoker(db()).fill(result3, "summaryClass1");
+        assertEquals("Working nodes changed", "changed", result3.hits().get("hit:0").getField("field1").toString());
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "changed again", "field2", 0));
+        clock.advance(Duration.ofSeconds(61));
+        Result result4 = new Result(new Query());
+        result4.hits().add(createHit(0, 0));
+        factory.createFillInvoker(db()).fill(result4, "summaryClass1");
+        assertEquals("Expired", "changed again", result4.hits().get("hit:0").getField("field1").toString());
+    }
+
     private DocumentDatabase db() {
         List<DocsumField> fields = new ArrayList<>();
         fields.add(DocsumField.create("field1", "string"));
@@ -0,0 +1,144 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.dispatch.rpc.Client.NodeConnection;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class NodeConnectionPoolTest {
+
+    private final List<MockConnection> created = new ArrayList<>();
+    private final AtomicLong nanoTime = new AtomicLong(0);
+
+    @Test
+    public void testLeastLoadedConnectionIsSelected() {
+        NodeConnectionPool pool = new NodeConnectionPool(3, 3, this::createConnection, nanoTime::get);
+        created.get(0).nanosInFlight = 100;
+        created.get(1).nanosInFlight = 10;
+        created.get(2).nanosInFlight = 1000;
+        for (int i = 0; i < 10; i++)
+            assertSame(created.get(1), pool.nextConnection());
+
+        created.get(1).nanosInFlight = 100;
+        created.get(0).requestsInFlight = 2;
+        created.get(1).requestsInFlight = 1;
+        assertSame("Fewest requests in flight breaks ties", created.get(1), pool.nextConnection());
+
+        created.get(0).nanosInFlight = 0;
+        created.get(0).requestsInFlight = 5;
+        assertSame("Many fresh requests are preferred to a slow one", created.get(0), pool.nextConnection());
+
+        created.get(0).bytesInFlight = 100;
+        created.get(1).bytesInFlight = 1000;
+        created.get(2).bytesInFlight = 10;
+        assertEquals(5, pool.maxRequestsInFlight());
+        assertEquals(1110, pool.bytesInFlight());
+    }
+
+    @Test
+    public void testPoolGrowsWhenBusyAndShrinksWhenNotBusy() {
+        NodeConnectionPool pool = new NodeConnectionPool(2, 4, this::createConnection, nanoTime::get);
+        assertEquals(2, pool.size());
+
+        created.get(0).nanosInFlight = NodeConnectionPool.busyNanos;
+        created.get(1).nanosInFlight = NodeConnectionPool.busyNanos - 1;
+        assertSame(created.get(1), pool.nextConnection());
+        assertEquals("Not grown while a connection is not busy", 2, pool.size());
+
+        created.forEach(connection -> connection.requestsInFlight = 100);
+        pool.nextConnection();
+        assertEquals("Not grown by many requests which have not waited long", 2, pool.size());
+
+        created.forEach(connection -> connection.nanosInFlight = NodeConnectionPool.busyNanos);
+        NodeConnection added = pool.nextConnection();
+        assertEquals(3, pool.size());
+        assertSame(created.get(2), added);
+
+        created.get(2).nanosInFlight = NodeConnectionPool.busyNanos;
+        pool.nextConnection();
+        pool.nextConnection();
+        assertEquals("Not grown beyond the max size", 4, pool.size());
+
+        created.forEach(connection -> connection.nanosInFlight = 0);
+        created.get(3).requestsInFlight = 1;
+        nanoTime.addAndGet(NodeConnectionPool.idleNanos - 1);
+        pool.nextConnection();
+        assertEquals("Not shrunk right after being busy", 4, pool.size());
+
+        nanoTime.addAndGet(1);
+        pool.nextConnection();
+        assertEquals("Shrunk by one connection while still used", 3, pool.size());
+        for (int i = 0; i < 100; i++)
+            assertNotSame(created.get(3), pool.nextConnection());
+        assertFalse("Not closed with requests in flight", created.get(3).closed);
+
+        created.forEach(connection -> connection.requestsInFlight = 0);
+        nanoTime.addAndGet(NodeConnectionPool.idleNanos);
+        pool.nextConnection();
+        assertTrue(created.get(3).closed);
+        assertEquals(2, pool.size());
+
+        nanoTime.addAndGet(NodeConnectionPool.idleNanos);
+        pool.nextConnection();
+        assertEquals("Not shrunk below the min size", 2, pool.size());
+        assertTrue(created.get(2).closed);
+        assertFalse(created.get(0).closed);
+        assertFalse(created.get(1).closed);
+
+        pool.release();
+        assertTrue(created.get(0).closed);
+        assertTrue(created.get(1).closed);
+    }
+
+    private NodeConnection createConnection() {
+        MockConnection connection = new MockConnection();
+        created.add(connection);
+        return connection;
+    }
+
+    private static class MockConnection implements NodeConnection {
+
+        int requestsInFlight = 0;
+        long bytesInFlight = 0;
+        long nanosInFlight = 0;
+        boolean closed = false;
+
+        @Override
+        public void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength, byte[] compressedSlime,
+                               RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+        }
+
+        @Override
+        public void request(String rpcMethod, CompressionType compression, int uncompressedLength, byte[] compressedPayload,
+                            Client.ResponseReceiver responseReceiver, double timeoutSeconds) {
+        }
+
+        @Override
+        public int requestsInFlight() { return requestsInFlight; }
+
+        @Override
+        public long bytesInFlight() { return bytesInFlight; }
+
+        @Override
+        public long nanosInFlight(long nanoTime) { return nanosInFlight; }
+
+        @Override
+        public void close() { closed = true; }
+
+    }
+
+}
@@ -40,6 +40,38 @@ public class ProtobufSerializationTest {
         assertThat(bytes.length, equalTo(41));
     }
 
+    @Test
+    public void testDocsumRequestSerializedOnceIsEqualToSerializingForEachNode() throws IOException {
+        Query q = new Query("search/?query=test&hits=10&offset=3&ranking.features.query(foo)=0.5");
+        var builder = ProtobufSerialization.createDocsumRequestBuilder(q, "server", "summary", true);
+        var hits = List.of(hit("id:ns:type::a"), hit("id:ns:type::b"));
+        var expected = SearchProtocol.DocsumRequest.parseFrom(ProtobufSerialization.serializeDocsumRequest(builder, hits));
+
+        var request = ProtobufSerialization.serializeDocsumRequest(builder);
+        assertEquals(expected, SearchProtocol.DocsumRequest.parseFrom(ProtobufSerialization.serializeDocsumRequest(request, hits)));
+        assertEquals(2, expected.getGlobalIdsCount());
+    }
+
+    @Test
+    public void testSearchRequestWithAddedTimeoutIsEqualToSerializingWithTimeout() throws IOException {
+        Query q = new Query("search/?query=test&hits=10&offset=3&ranking.features.query(foo)=0.5");
+        var expected = SearchProtocol.SearchRequest.parseFrom(ProtobufSerialization.serializeSearchRequest(q, 10, "server"));
+
+        var requestWithoutTimeout = ProtobufSerialization.serializeSearchRequestWithoutTimeout(q, 10, "server");
+        var request = ProtobufSerialization.serializeSearchRequest(requestWithoutTimeout, expected.getTimeout());
+        assertEquals(expected, SearchProtocol.SearchRequest.parseFrom(request));
+        for (int timeout : new int[] { 0, 1, 127, 128, 300000, Integer.MAX_VALUE }) {
+            var withTimeout = ProtobufSerialization.serializeSearchRequest(requestWithoutTimeout, timeout);
+            assertEquals(expected.toBuilder().setTimeout(timeout).build(), SearchProtocol.SearchRequest.parseFrom(withTimeout));
+        }
+    }
+
+    private static FastHit hit(String id) {
+        var hit = new FastHit();
+        hit.setGlobalId(new GlobalId(IdString.createIdString(id)).getRawId());
+        return hit;
+    }
+
     SearchProtocol.SearchReply createSearchReply(int numHits, boolean useSorting) {
         SearchProtocol.SearchReply.Builder reply = SearchProtocol.SearchReply.newBuilder();
         reply.setTotalHitCount(7);
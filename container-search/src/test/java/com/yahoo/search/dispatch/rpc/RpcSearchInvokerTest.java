@@ -15,11 +15,15 @@ import com.yahoo.search.searchchain.Execution;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -67,8 +71,85 @@ public class RpcSearchInvokerTest {
         assertEquals(maxHits, request.getHits());
     }
 
+    @Test
+    public void testSearchRequestIsSerializedOnceForAllNodes() throws IOException {
+        var payloads = new ArrayList<byte[]>();
+        var compressionTypeHolder = new AtomicReference<CompressionType>();
+        var lengthHolder = new AtomicInteger();
+        var mockClient = parameterCollectorClient(compressionTypeHolder, new AtomicReference<>(), lengthHolder, payloads);
+        var mockPool = new RpcResourcePool(ImmutableMap.of(7, mockClient.createConnection("foo", 123),
+                                                           8, mockClient.createConnection("foo", 124)));
+        var searcher = mockSearcher();
+        var timeLeft = new AtomicLong(10000);
+        Query q = new Query("search/?query=test&hits=10&offset=3") {
+            @Override
+            public long getTimeLeft() { return timeLeft.get(); }
+        };
+
+        var request = new SharedSearchRequest();
+        new RpcSearchInvoker(searcher, new Node(7, "seven", 1), mockPool, 1000, request).sendSearchRequest(q);
+        new RpcSearchInvoker(searcher, new Node(8, "eight", 1), mockPool, 1000, request).sendSearchRequest(q);
+        assertSame(payloads.get(0), payloads.get(1));
+
+        timeLeft.set(9999);
+        new RpcSearchInvoker(searcher, new Node(7, "seven", 1), mockPool, 1000, request).sendSearchRequest(q);
+        assertNotSame("A request sent later gets the time left", payloads.get(0), payloads.get(2));
+        var bytes = mockPool.compressor().decompress(payloads.get(2), compressionTypeHolder.get(), lengthHolder.get());
+        assertEquals(9999, SearchProtocol.SearchRequest.parseFrom(bytes).getTimeout());
+
+        new RpcSearchInvoker(searcher, new Node(7, "seven", 1), mockPool, 5, request).sendSearchRequest(q);
+        assertNotSame("A request for other hits is serialized again", payloads.get(2), payloads.get(3));
+        bytes = mockPool.compressor().decompress(payloads.get(3), compressionTypeHolder.get(), lengthHolder.get());
+        assertEquals(5, SearchProtocol.SearchRequest.parseFrom(bytes).getHits());
+
+        new RpcSearchInvoker(searcher, new Node(7, "seven", 1), mockPool, 5, new SharedSearchRequest()).sendSearchRequest(q);
+        assertNotSame("A new dispatch is serialized again", payloads.get(3), payloads.get(4));
+    }
+
+    @Test
+    public void testLatencyIsRecordedWhenTheResponseArrives() {
+        var mockClient = parameterCollectorClient(new AtomicReference<>(), new AtomicReference<>(), new AtomicInteger());
+        var mockPool = new RpcResourcePool(ImmutableMap.of(7, mockClient.createConnection("foo", 123)));
+        var node = new Node(7, "seven", 1);
+        var clock = new AtomicLong(1000);
+        var invoker = new RpcSearchInvoker(mockSearcher(), node, mockPool, 1000) {
+            @Override
+            protected long currentTime() { return clock.get(); }
+        };
+
+        invoker.sendSearchRequest(new Query("search/?query=test"));
+        clock.addAndGet(20);
+        invoker.receive(Client.ResponseOrError.fromResponse(new Client.ProtobufResponse((byte)0, 0, new byte[0])));
+        clock.addAndGet(100); // processing the response later does not change the latency
+        invoker.close();
+        assertEquals(20.0, node.searchLatencyEstimate(), 0.000001);
+    }
+
+    @Test
+    public void testTimeoutIsRecordedAsLatencyWhenNoResponseArrives() {
+        var mockClient = parameterCollectorClient(new AtomicReference<>(), new AtomicReference<>(), new AtomicInteger());
+        var mockPool = new RpcResourcePool(ImmutableMap.of(7, mockClient.createConnection("foo", 123)));
+        var node = new Node(7, "seven", 1);
+        var clock = new AtomicLong(1000);
+        var invoker = new RpcSearchInvoker(mockSearcher(), node, mockPool, 1000) {
+            @Override
+            protected long currentTime() { return clock.get(); }
+        };
+
+        invoker.sendSearchRequest(new Query("search/?query=test"));
+        clock.addAndGet(300);
+        invoker.close();
+        invoker.receive(Client.ResponseOrError.fromResponse(new Client.ProtobufResponse((byte)0, 0, new byte[0])));
+        assertEquals("A late response is ignored", 300.0, node.searchLatencyEstimate(), 0.000001);
+    }
+
+    private Client parameterCollectorClient(AtomicReference<CompressionType> compressionTypeHolder, AtomicReference<byte[]> payloadHolder,
+                                            AtomicInteger lengthHolder) {
+        return parameterCollectorClient(compressionTypeHolder, payloadHolder, lengthHolder, new ArrayList<>());
+    }
+
     private Client parameterCollectorClient(AtomicReference<CompressionType> compressionTypeHolder, AtomicReference<byte[]> payloadHolder,
-            AtomicInteger lengthHolder) {
+            AtomicInteger lengthHolder, List<byte[]> payloads) {
         return new Client() {
             @Override
             public NodeConnection createConnection(String hostname, int port) {
@@ -84,6 +165,7 @@ public class RpcSearchInvokerTest {
                             ResponseReceiver responseReceiver, double timeoutSeconds) {
                         compressionTypeHolder.set(compression);
                         payloadHolder.set(compressedPayload);
+                        payloads.add(compressedPayload);
                         lengthHolder.set(uncompressedLength);
                     }
 
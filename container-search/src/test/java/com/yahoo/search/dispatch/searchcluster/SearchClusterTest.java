@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -161,6 +162,22 @@ public class SearchClusterTest {
         }
     }
 
+    @Test
+    public void requireThatGenerationChangesOnlyWhenWorkingNodesChange() {
+        try (State test = new State("cluster.1", 2, "a", "b")) {
+            test.waitOneFullPingRound();
+            long generation = test.searchCluster.generation();
+
+            test.numDocsPerNode.get(0).set(5);
+            test.waitOneFullPingRound();
+            assertEquals("Changed documents", generation, test.searchCluster.generation());
+
+            test.numDocsPerNode.get(1).set(-1);
+            test.waitOneFullPingRound();
+            assertNotEquals("Node down", generation, test.searchCluster.generation());
+        }
+    }
+
     @Test
     public void requireThatZeroDocsAreFine() {
         try (State test = new State("cluster.1", 2, "a", "b")) {
@@ -29,6 +29,7 @@ public class FederationResultTest {
     private static final FederationSearcher.Target organic = new MockTarget("organic", 500);
     private static final FederationSearcher.Target dsp1 = new MockTarget("dsp1", 240);
     private static final FederationSearcher.Target dsp2 = new MockTarget("dsp2", 200);
+    private static final FederationSearcher.Target optional = new MockTarget("optional", 500, true);
 
     private final ManualClock clock = new ManualClock();
 
@@ -44,14 +45,34 @@ public class FederationResultTest {
         assertTimeout(ImmutableSet.of("organic"),      520, 260, 260);
     }
 
+    @Test
+    public void testOptionalTargetsAreWaitedForUntilTheirQueryTimeout() {
+        assertOptionalTimeout(ImmutableSet.of("optional"), -1,  100, 150);
+        assertOptionalTimeout(ImmutableSet.of(),           -1,  200, 150);
+        assertOptionalTimeout(ImmutableSet.of(),           160, 100, 150);
+        assertOptionalTimeout(ImmutableSet.of("optional"), 140, 100, 150);
+        assertOptionalTimeout(ImmutableSet.of("organic"),  160, 600, 150);
+    }
+
+    private void assertOptionalTimeout(Set<String> expectedTimeoutNames, int optionalTimeout, int ... responseTimes) {
+        FederationResult.Builder builder = new FederationResult.Builder();
+        builder.add(organic,  resultAfter(responseTimes[0]));
+        builder.add(optional, resultAfter(responseTimes[1]), optionalTimeout);
+        assertTimeout(expectedTimeoutNames, builder.build());
+    }
+
     private void assertTimeout(Set<String> expectedTimeoutNames, int ... responseTimes) {
         FederationResult.Builder builder = new FederationResult.Builder();
         builder.add(organic, resultAfter(responseTimes[0]));
         builder.add(dsp1,    resultAfter(responseTimes[1]));
         builder.add(dsp2,    resultAfter(responseTimes[2]));
         FederationResult federationResult = builder.build();
-        federationResult.waitForAll(50, clock);
         assertEquals(3, federationResult.all().size());
+        assertTimeout(expectedTimeoutNames, federationResult);
+    }
+
+    private void assertTimeout(Set<String> expectedTimeoutNames, FederationResult federationResult) {
+        federationResult.waitForAll(50, clock);
         for (FederationResult.TargetResult targetResult : federationResult.all()) {
             Result result = targetResult.getOrTimeoutError();
             if (expectedTimeoutNames.contains(targetResult.target.getId().toString()))
@@ -115,10 +136,16 @@ public class FederationResultTest {
 
         private final Chain<Searcher> chain;
         private final int timeout;
+        private final boolean optional;
         
         MockTarget(String id, int timeout) {
+            this(id, timeout, false);
+        }
+
+        MockTarget(String id, int timeout, boolean optional) {
             this.chain = new Chain<>(id);
             this.timeout = timeout;
+            this.optional = optional;
         }
 
         @Override
@@ -132,7 +159,7 @@ public class FederationResultTest {
 
         @Override
         public FederationOptions federationOptions() {
-            return new FederationOptions(false, timeout, true);
+            return new FederationOptions(optional, timeout, true);
         }
 
     }
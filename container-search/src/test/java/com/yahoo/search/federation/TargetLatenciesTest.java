@@ -0,0 +1,53 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.federation;
+
+import com.yahoo.component.ComponentId;
+import org.junit.Test;
+
+import java.util.OptionalLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class TargetLatenciesTest {
+
+    @Test
+    public void testLatencyPercentiles() {
+        ComponentId target = ComponentId.fromString("target");
+        ComponentId other = ComponentId.fromString("other");
+        TargetLatencies latencies = new TargetLatencies();
+        assertEquals(OptionalLong.empty(), latencies.percentile(target, 95));
+
+        for (int i = 1; i < TargetLatencies.minSamples; i++)
+            latencies.record(target, i);
+        assertEquals(OptionalLong.empty(), latencies.percentile(target, 95));
+
+        latencies.record(target, 100);
+        assertEquals(OptionalLong.of(19), latencies.percentile(target, 95));
+        assertEquals(OptionalLong.of(100), latencies.percentile(target, 100));
+        assertEquals(OptionalLong.empty(), latencies.percentile(other, 95));
+
+        for (int i = 0; i < TargetLatencies.samples; i++)
+            latencies.record(target, 1000);
+        assertEquals("Older latencies are forgotten", OptionalLong.of(1000), latencies.percentile(target, 0));
+    }
+
+    @Test
+    public void testLowerBoundsAreOrderedAfterObservedLatencies() {
+        ComponentId target = ComponentId.fromString("target");
+        TargetLatencies latencies = new TargetLatencies();
+        for (int i = 1; i <= 95; i++)
+            latencies.record(target, 100 + i);
+        for (int i = 0; i < 5; i++)
+            latencies.recordLowerBound(target, 50);
+        assertEquals("Lower bounds below observed latencies do not lower the percentile",
+                     OptionalLong.of(195), latencies.percentile(target, 95));
+
+        latencies.recordLowerBound(target, 50);
+        assertEquals("Unknown when the percentile falls on a lower bound",
+                     OptionalLong.empty(), latencies.percentile(target, 95));
+    }
+
+}
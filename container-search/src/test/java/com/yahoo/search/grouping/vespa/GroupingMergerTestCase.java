@@ -0,0 +1,100 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.searchlib.aggregation.CountAggregationResult;
+import com.yahoo.searchlib.aggregation.Group;
+import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.searchlib.expression.StringResultNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ */
+public class GroupingMergerTestCase {
+
+    @Test
+    public void testMergingIsEquivalentToSequentialMerging() {
+        for (int partialCount : new int[] { 1, 2, 3, GroupingMerger.parallelMergeThreshold - 1, 64, 101 }) {
+            List<Grouping> partials = createPartials(partialCount);
+            Grouping merged = GroupingMerger.merge(partials);
+            assertSame("The first grouping is merged into", partials.get(0), merged);
+
+            List<Grouping> expectedPartials = createPartials(partialCount);
+            Grouping expected = expectedPartials.get(0);
+            for (Grouping partial : expectedPartials.subList(1, expectedPartials.size()))
+                expected.merge(partial);
+            assertEquals("Merging " + partialCount + " partial groupings", expected, merged);
+        }
+    }
+
+    @Test
+    public void testIncrementalMergingIsEquivalentToSequentialMerging() {
+        for (int partialCount : new int[] { 1, 2, 3, 7, 64, 101 }) {
+            List<Grouping> partials = createPartials(partialCount);
+            GroupingMerger.Incremental merger = new GroupingMerger.Incremental();
+            for (Grouping partial : partials)
+                merger.add(partial);
+            Grouping merged = merger.result();
+            assertSame("The first grouping is merged into", partials.get(0), merged);
+            assertSame("The result is kept", merged, merger.result());
+
+            List<Grouping> expectedPartials = createPartials(partialCount);
+            Grouping expected = expectedPartials.get(0);
+            for (Grouping partial : expectedPartials.subList(1, expectedPartials.size()))
+                expected.merge(partial);
+            assertEquals("Merging " + partialCount + " partial groupings", expected, merged);
+        }
+        assertNull(new GroupingMerger.Incremental().result());
+    }
+
+    @Test
+    public void testCountsAreSummed() {
+        Grouping merged = GroupingMerger.merge(createPartials(64));
+        long total = 0;
+        for (Group child : merged.getRoot().getChildren()) {
+            for (Group grandChild : child.getChildren())
+                total += count(grandChild);
+        }
+        long expected = 0;
+        for (Grouping partial : createPartials(64)) {
+            for (Group child : partial.getRoot().getChildren()) {
+                for (Group grandChild : child.getChildren())
+                    expected += count(grandChild);
+            }
+        }
+        assertEquals(expected, total);
+    }
+
+    private static long count(Group group) {
+        return ((CountAggregationResult)group.getAggregationResults().get(0)).getCount();
+    }
+
+    /** Returns partial groupings of two levels where each partial has a different subset of the groups, sorted by id */
+    private static List<Grouping> createPartials(int count) {
+        List<Grouping> partials = new ArrayList<>();
+        for (int partial = 0; partial < count; partial++) {
+            Group root = new Group();
+            for (int i = 0; i < 50; i++) {
+                if ((i + partial) % 3 == 0) continue;
+                Group child = new Group().setId(new StringResultNode(String.format("group%02d", i)))
+                                         .addAggregationResult(new CountAggregationResult(i + partial));
+                for (int j = 0; j < 10; j++) {
+                    if ((i + j + partial) % 4 == 0) continue;
+                    child.addChild(new Group().setId(new StringResultNode("sub" + j))
+                                              .addAggregationResult(new CountAggregationResult(j + 1)));
+                }
+                root.addChild(child);
+            }
+            partials.add(new Grouping(0).setRoot(root));
+        }
+        return partials;
+    }
+
+}
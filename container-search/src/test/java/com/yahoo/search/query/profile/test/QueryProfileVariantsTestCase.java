@@ -74,6 +74,40 @@ public class QueryProfileVariantsTestCase {
         assertGet("a.2.*.*","a", new String[] {"x2","y?","z?"}, profile, cprofile);
     }
 
+    @Test
+    public void testManyVariantsAndContexts() {
+        QueryProfile profile = new QueryProfile("a");
+        profile.setDimensions(new String[] {"x","y"});
+        profile.set("a", "default", null);
+        profile.set("b.c", "b.c.default", null);
+        for (int i = 0; i < 20; i++) {
+            profile.set("a", "x" + i, new String[] {"x" + i, null}, null);
+            profile.set("a", "x" + i + ".y" + i, new String[] {"x" + i, "y" + i}, null);
+            profile.set("b.c", "b.c.x" + i, new String[] {"x" + i, null}, null);
+        }
+        CompiledQueryProfile cprofile = profile.compile(null);
+
+        // Resolve in more contexts than are remembered, twice, to check that remembered variants are correct
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 300; i++) {
+                String x = "x" + (i % 25);
+                String y = "y" + (i / 25);
+                String expected = (i % 25) >= 20 ? "default" : ((i % 25) == (i / 25) ? x + "." + y : x);
+                assertGet(expected, "a", new String[] {x, y}, profile, cprofile);
+            }
+        }
+        assertGet("default", "a", new String[] {}, profile, cprofile);
+
+        Map<String, Object> values = cprofile.listValues("b", toMap(profile, new String[] {"x3", "y1"}));
+        assertEquals(1, values.size());
+        assertEquals("b.c.x3", values.get("c"));
+        assertEquals(2, cprofile.listValues("", toMap(profile, new String[] {"x3", "y3"})).size());
+        assertEquals("x3.y3", cprofile.listValues("", toMap(profile, new String[] {"x3", "y3"})).get("a"));
+        assertTrue(cprofile.listValues("c", toMap(profile, new String[] {"x3", "y3"})).isEmpty());
+        assertTrue(cprofile.listValues("b.c.d", toMap(profile, new String[] {"x3", "y3"})).isEmpty());
+        assertEquals("b.c.x3", cprofile.listValues("b.c", toMap(profile, new String[] {"x3", "y3"})).get(""));
+    }
+
     @Test
     public void testVariantInReferencedAndParentWithOtherMatchingVariant() {
         QueryProfileRegistry registry = new QueryProfileRegistry();
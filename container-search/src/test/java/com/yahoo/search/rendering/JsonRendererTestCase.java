@@ -1,6 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.rendering;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -64,6 +66,7 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
@@ -1232,6 +1235,95 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testStructuredDataIsRenderedAsUtf8() throws IOException, InterruptedException, ExecutionException {
+        String expected = "{"
+                + "    \"root\": {"
+                + "        \"children\": ["
+                + "            {"
+                + "                \"fields\": {"
+                + "                    \"structured\": {"
+                + "                        \"bl\u00e5b\u00e6r\": \"r\u00f8d \\\"gr\u00f8d\\\"\\n\\u0001\\\\\","
+                + "                        \"numbers\": [ 1, 2.5, null ],"
+                + "                        \"data\": \"0x0AFF\","
+                + "                        \"nested\": { \"empty\": null, \"flag\": true }"
+                + "                    }"
+                + "                },"
+                + "                \"id\": \"structured\","
+                + "                \"relevance\": 1.0"
+                + "            }"
+                + "        ],"
+                + "        \"fields\": {"
+                + "            \"totalCount\": 0"
+                + "        },"
+                + "        \"id\": \"toplevel\","
+                + "        \"relevance\": 1.0"
+                + "    }"
+                + "}";
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("bl\u00e5b\u00e6r", "r\u00f8d \"gr\u00f8d\"\n\u0001\\");
+        Cursor numbers = root.setArray("numbers");
+        numbers.addLong(1);
+        numbers.addDouble(2.5);
+        numbers.addDouble(Double.NaN);
+        root.setData("data", new byte[] { 0x0a, (byte)0xff });
+        Cursor nested = root.setObject("nested");
+        nested.setNix("empty");
+        nested.setBool("flag", true);
+
+        Result r = newEmptyResult();
+        Hit h = new Hit("structured");
+        h.setField("structured", new StructuredData(new SlimeAdapter(slime.get())));
+        r.hits().add(h);
+        String summary = render(r);
+        assertEqualJson(expected, summary);
+        assertTrue("Non-ASCII is not escaped", summary.contains("\"bl\u00e5b\u00e6r\":"));
+    }
+
+    @Test
+    public void testInvalidUtf8InStructuredDataIsReplacedAndDelIsEscaped() throws IOException, InterruptedException, ExecutionException {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("del\u007f", "a\u007fb");
+        Cursor strings = root.setArray("strings");
+        strings.addString(new byte[] { 'a', (byte)0xff, 'b' }); // invalid lead byte
+        strings.addString(new byte[] { 'a', (byte)0xc3 }); // truncated
+        strings.addString(new byte[] { (byte)0xc0, (byte)0xaf }); // overlong
+        strings.addString(new byte[] { (byte)0xed, (byte)0xa0, (byte)0x80 }); // surrogate
+        strings.addString(new byte[] { (byte)0xf0, (byte)0x9f, (byte)0x98, (byte)0x80 }); // valid 4 byte sequence
+
+        Result r = newEmptyResult();
+        Hit h = new Hit("structured");
+        h.setField("structured", new StructuredData(new SlimeAdapter(slime.get())));
+        r.hits().add(h);
+        String summary = render(r);
+        assertTrue(summary, summary.contains("{\"del\\u007F\":\"a\\u007Fb\",\"strings\":[" +
+                                             "\"a\ufffdb\",\"a\ufffd\",\"\ufffd\ufffd\",\"\ufffd\ufffd\ufffd\",\"\ud83d\ude00\"]}"));
+    }
+
+    @Test
+    public void testStructuredDataWithWriterBasedGenerator() throws IOException {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("bl\u00e5b\u00e6r", "r\u00f8d \"gr\u00f8d\"\n\u007f");
+        root.setArray("strings").addString(new byte[] { 'a', (byte)0xff, 'b' });
+        root.setData("data", new byte[] { 0x0a, (byte)0xff });
+        Utf8JsonEncoder encoder = new Utf8JsonEncoder();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(bytes)) {
+            encoder.encode(new SlimeAdapter(slime.get()), generator);
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            encoder.encode(new SlimeAdapter(slime.get()), generator);
+        }
+        assertEquals("{\"bl\u00e5b\u00e6r\":\"r\u00f8d \\\"gr\u00f8d\\\"\\n\\u007F\",\"strings\":[\"a\ufffdb\"],\"data\":\"0x0AFF\"}",
+                     writer.toString());
+        assertEquals(writer.toString(), Utf8.toString(bytes.toByteArray()));
+    }
+
     @Test
     public void testThatTheJsonValidatorCanCatchErrors() {
         String json = "{"
@@ -6,12 +6,17 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Before;
 import com.yahoo.prelude.IndexFacts;
+import com.yahoo.processing.Processor;
+import com.yahoo.processing.Request;
+import com.yahoo.processing.Response;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
@@ -20,11 +25,13 @@ import com.yahoo.search.searchchain.Execution;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests basic search chain execution functionality
@@ -172,6 +179,65 @@ public class ExecutionTestCase {
         assertTrue((Boolean) result.hits().get("a").getField("filled"));
     }
 
+    @Test
+    public void testAsyncExecution() throws Exception {
+        PendingSourceSearcher source = new PendingSourceSearcher();
+        Chain<Searcher> chain = new Chain<>(new AsyncTestSearcher("searcher1"), new AsyncTestSearcher("searcher2"), source);
+
+        CompletableFuture<Result> future = new Execution(chain, Execution.Context.createContextStub()).searchAsync(new Query("test"));
+        assertFalse("Searching does not wait for the source", future.isDone());
+        source.complete();
+        Result result = future.get();
+        assertEquals(3, result.getConcreteHitCount());
+        assertNotNull(result.hits().get("source"));
+        assertNotNull(result.hits().get("searcher1-1"));
+        assertNotNull(result.hits().get("searcher2-1"));
+    }
+
+    @Test
+    public void testAsyncExecutionOfSynchronousSearchers() throws Exception {
+        Chain<Searcher> chain = new Chain<>(new AsyncTestSearcher("searcher1"), new TestSearcher("searcher2"), new TestSearcher("searcher3"));
+
+        CompletableFuture<Result> future = new Execution(chain, Execution.Context.createContextStub()).searchAsync(new Query("test"));
+        assertTrue(future.isDone());
+        Result result = future.get();
+        assertEquals(3, result.getConcreteHitCount());
+        assertNotNull(result.hits().get("searcher1-1"));
+        assertNotNull(result.hits().get("searcher2-1"));
+        assertNotNull(result.hits().get("searcher3-1"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testAsyncExecutionOfPlainProcessors() throws Exception {
+        Chain<Searcher> chain = (Chain)new Chain<Processor>(new AsyncTestSearcher("searcher1"),
+                                                            new HitAddingProcessor(),
+                                                            new TestSearcher("searcher3"));
+
+        CompletableFuture<Result> future = new Execution(chain, Execution.Context.createContextStub()).searchAsync(new Query("test"));
+        assertTrue(future.isDone());
+        Result result = future.get();
+        assertEquals(3, result.getConcreteHitCount());
+        assertNotNull(result.hits().get("searcher1-1"));
+        assertNotNull(result.hits().get("processor"));
+        assertNotNull(result.hits().get("searcher3-1"));
+    }
+
+    @Test
+    public void testAsyncExecutionFailure() {
+        Chain<Searcher> chain = new Chain<>(new AsyncTestSearcher("searcher1"), new FailingSearcher());
+
+        CompletableFuture<Result> future = new Execution(chain, Execution.Context.createContextStub()).searchAsync(new Query("test"));
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            fail("Expected exception");
+        }
+        catch (CompletionException e) {
+            assertEquals("Failing", e.getCause().getMessage());
+        }
+    }
+
     private static class FillableResultSearcher extends Searcher {
 
         @Override
@@ -239,6 +305,71 @@ public class ExecutionTestCase {
 
     }
 
+    public static class AsyncTestSearcher extends TestSearcher {
+
+        private int counter = 1;
+
+        private AsyncTestSearcher(String id) {
+            super(id);
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return execution.searchAsync(query).thenApply(result -> {
+                result.hits().add(new Hit(getId().stringValue() + "-" + (counter++)));
+                return result;
+            });
+        }
+
+    }
+
+    /** Returns a result only when completed */
+    private static class PendingSourceSearcher extends Searcher {
+
+        private Query query;
+        private CompletableFuture<Result> result;
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            this.query = query;
+            this.result = new CompletableFuture<>();
+            return result;
+        }
+
+        void complete() {
+            Result result = new Result(query);
+            result.hits().add(new Hit("source"));
+            this.result.complete(result);
+        }
+
+    }
+
+    /** A processor which is not a searcher */
+    private static class HitAddingProcessor extends Processor {
+
+        @Override
+        public Response process(Request request, com.yahoo.processing.execution.Execution execution) {
+            Result result = (Result)execution.process(request);
+            result.hits().add(new Hit("processor"));
+            return result;
+        }
+
+    }
+
+    private static class FailingSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            throw new IllegalStateException("Failing");
+        }
+
+    }
+
     public static class ForwardingSearcher extends Searcher {
 
         @Override
@@ -0,0 +1,193 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchers.test;
+
+import com.yahoo.component.chain.Chain;
+import com.yahoo.document.GlobalId;
+import com.yahoo.document.idstring.IdString;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.config.QueryCoalescingConfig;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchers.QueryCoalescingSearcher;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class QueryCoalescingSearcherTestCase {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIdenticalQueriesInFlightAreCoalesced() throws Exception {
+        BlockingBackendSearcher backend = new BlockingBackendSearcher();
+        Chain<Searcher> chain = createChain(new QueryCoalescingConfig.Builder().maxWait(60), backend);
+
+        Future<Result> first = executor.submit(() -> execute(chain, new Query("?query=test&hits=3")));
+        backend.started.await();
+
+        List<Query> followerQueries = new ArrayList<>();
+        List<Future<Result>> followers = new ArrayList<>();
+        List<Thread> followerThreads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Query query = new Query("?query=test&hits=3&timeout=" + (10 + i) + "s");
+            followerQueries.add(query);
+            followers.add(executor.submit(() -> {
+                synchronized (followerThreads) { followerThreads.add(Thread.currentThread()); }
+                return execute(chain, query);
+            }));
+        }
+        awaitWaiting(followerThreads, 3);
+        backend.release.countDown();
+
+        Result leaderResult = first.get();
+        assertEquals(1, backend.queries.get());
+        for (int i = 0; i < followers.size(); i++) {
+            Result result = followers.get(i).get();
+            assertSame(followerQueries.get(i), result.getQuery());
+            assertEquals(leaderResult.getTotalHitCount(), result.getTotalHitCount());
+            assertEquals(leaderResult.getCoverage(false).getDocs(), result.getCoverage(false).getDocs());
+            assertEquals(leaderResult.hits().size(), result.hits().size());
+            for (int j = 0; j < result.hits().size(); j++) {
+                FastHit expected = (FastHit)leaderResult.hits().get(j);
+                FastHit actual = (FastHit)result.hits().get(j);
+                assertNotSame(expected, actual);
+                assertSame(followerQueries.get(i), actual.getQuery());
+                assertEquals(expected.getGlobalId(), actual.getGlobalId());
+                assertEquals(expected.getRelevance(), actual.getRelevance());
+                assertEquals(expected.getDistributionKey(), actual.getDistributionKey());
+                assertEquals(expected.getSource(), actual.getSource());
+            }
+        }
+    }
+
+    @Test
+    public void testDifferentQueriesAreNotCoalesced() throws Exception {
+        BlockingBackendSearcher backend = new BlockingBackendSearcher();
+        Chain<Searcher> chain = createChain(new QueryCoalescingConfig.Builder().maxWait(60), backend);
+
+        Future<Result> first = executor.submit(() -> execute(chain, new Query("?query=test&hits=3")));
+        backend.started.await();
+
+        execute(chain, new Query("?query=test&hits=4"));
+        execute(chain, new Query("?query=test&hits=3&sorting=-foo"));
+        assertEquals(3, backend.queries.get());
+
+        backend.release.countDown();
+        first.get();
+        execute(chain, new Query("?query=test&hits=3"));
+        assertEquals("Not in flight", 4, backend.queries.get());
+    }
+
+    @Test
+    public void testWaitingIsBounded() throws Exception {
+        BlockingBackendSearcher backend = new BlockingBackendSearcher();
+        Chain<Searcher> chain = createChain(new QueryCoalescingConfig.Builder().maxWait(0.01), backend);
+
+        Future<Result> first = executor.submit(() -> execute(chain, new Query("?query=test&hits=3")));
+        backend.started.await();
+
+        Result result = execute(chain, new Query("?query=test&hits=3"));
+        assertEquals(3, result.hits().size());
+        assertEquals("Searched on its own after waiting", 2, backend.queries.get());
+
+        backend.release.countDown();
+        first.get();
+    }
+
+    @Test
+    public void testWaitingIsBoundedByAFractionOfTheTimeout() throws Exception {
+        BlockingBackendSearcher backend = new BlockingBackendSearcher();
+        Chain<Searcher> chain = createChain(new QueryCoalescingConfig.Builder().maxWait(60).maxWaitTimeFraction(0.5), backend);
+
+        Future<Result> first = executor.submit(() -> execute(chain, new Query("?query=test&hits=3")));
+        backend.started.await();
+
+        Query query = new Query("?query=test&hits=3&timeout=2s");
+        Result result = execute(chain, query);
+        assertEquals(3, result.hits().size());
+        assertNull(result.hits().getError());
+        assertEquals("Searched on its own after waiting", 2, backend.queries.get());
+        assertTrue("Time is left after waiting", query.getTimeLeft() > 0);
+
+        backend.release.countDown();
+        first.get();
+    }
+
+    private Chain<Searcher> createChain(QueryCoalescingConfig.Builder config, BlockingBackendSearcher backend) {
+        return new Chain<>(new QueryCoalescingSearcher(new QueryCoalescingConfig(config), new MetricReceiver.MockReceiver()),
+                           backend);
+    }
+
+    private static Result execute(Chain<Searcher> chain, Query query) {
+        return new Execution(chain, Execution.Context.createContextStub()).search(query);
+    }
+
+    private static void awaitWaiting(List<Thread> threads, int count) throws InterruptedException {
+        while (true) {
+            synchronized (threads) {
+                if (threads.size() == count && threads.stream().allMatch(t -> t.getState() == Thread.State.TIMED_WAITING))
+                    return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /** Blocks the first query until released */
+    private static class BlockingBackendSearcher extends Searcher {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger queries = new AtomicInteger();
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            if (queries.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            Result result = new Result(query);
+            for (int i = 0; i < query.getHits(); i++) {
+                FastHit hit = new FastHit(new GlobalId(IdString.createIdString("id:test:test::" + i)).getRawId(),
+                                          1.0 / (i + 1), 0, i % 3);
+                hit.setSource("test");
+                hit.setFillable();
+                result.hits().add(hit);
+            }
+            result.setTotalHitCount(1000);
+            result.setCoverage(new Coverage(1000, 1000, 3, 1));
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchers.test;
+
+import com.yahoo.component.chain.Chain;
+import com.yahoo.document.GlobalId;
+import com.yahoo.document.idstring.IdString;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.config.ResultCacheConfig;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchers.ResultCacheSearcher;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ResultCacheSearcherTestCase {
+
+    private final ManualClock clock = new ManualClock();
+    private final AtomicLong generation = new AtomicLong(0);
+    private final MetricReceiver.MockReceiver metric = new MetricReceiver.MockReceiver();
+
+    @Test
+    public void testCaching() {
+        BackendSearcher backend = new BackendSearcher();
+        Chain<Searcher> chain = createChain(new ResultCacheConfig.Builder().admitOnlyRepeatedQueries(false), backend);
+
+        Result first = execute(chain, "?query=test&hits=3");
+        assertEquals(1, backend.queries);
+        Result second = execute(chain, "?query=test&hits=3");
+        assertEquals("Served from the cache", 1, backend.queries);
+        assertEquals(first.getTotalHitCount(), second.getTotalHitCount());
+        assertEquals(first.hits().size(), second.hits().size());
+        for (int i = 0; i < first.hits().size(); i++) {
+            FastHit expected = (FastHit)first.hits().get(i);
+            FastHit actual = (FastHit)second.hits().get(i);
+            assertEquals(expected.getGlobalId(), actual.getGlobalId());
+            assertEquals(expected.getRelevance(), actual.getRelevance());
+            assertEquals(expected.getDistributionKey(), actual.getDistributionKey());
+            assertEquals(expected.getSource(), actual.getSource());
+            assertTrue(actual.isCached());
+        }
+        assertEquals(first.getCoverage(false).getDocs(), second.getCoverage(false).getDocs());
+
+        execute(chain, "?query=test&hits=4");
+        assertEquals("Different hits", 2, backend.queries);
+        execute(chain, "?query=test&hits=3&ranking=other");
+        assertEquals("Different rank profile", 3, backend.queries);
+        execute(chain, "?query=test&hits=3&nocache");
+        assertEquals("Not cacheable", 4, backend.queries);
+        execute(chain, "?query=test&hits=3&sorting=-foo");
+        assertEquals("Not cacheable", 5, backend.queries);
+        execute(chain, "?query=test&hits=3&timeout=5000");
+        assertEquals("Timeout is not part of the key", 5, backend.queries);
+    }
+
+    @Test
+    public void testInvalidation() {
+        BackendSearcher backend = new BackendSearcher();
+        Chain<Searcher> chain = createChain(new ResultCacheConfig.Builder().admitOnlyRepeatedQueries(false)
+                                                                           .timeToLive(10),
+                                            backend);
+
+        execute(chain, "?query=test");
+        execute(chain, "?query=test");
+        assertEquals(1, backend.queries);
+
+        generation.incrementAndGet();
+        execute(chain, "?query=test");
+        assertEquals("Working nodes changed", 2, backend.queries);
+        execute(chain, "?query=test");
+        assertEquals(2, backend.queries);
+
+        clock.advance(Duration.ofSeconds(11));
+        execute(chain, "?query=test");
+        assertEquals("Expired", 3, backend.queries);
+    }
+
+    @Test
+    public void testAdmissionAndSizeBound() {
+        BackendSearcher backend = new BackendSearcher();
+        Chain<Searcher> chain = createChain(new ResultCacheConfig.Builder().maxBytes(1000), backend);
+
+        execute(chain, "?query=test");
+        execute(chain, "?query=test");
+        assertEquals("Not admitted on the first query", 2, backend.queries);
+        execute(chain, "?query=test");
+        assertEquals(2, backend.queries);
+
+        execute(chain, "?query=test&hits=100");
+        execute(chain, "?query=test&hits=100");
+        execute(chain, "?query=test&hits=100");
+        assertEquals("Too large to cache", 5, backend.queries);
+    }
+
+    @Test
+    public void testIncompleteResultsAreNotCached() {
+        BackendSearcher backend = new BackendSearcher();
+        Chain<Searcher> chain = createChain(new ResultCacheConfig.Builder().admitOnlyRepeatedQueries(false), backend);
+
+        execute(chain, "?query=test&error");
+        execute(chain, "?query=test&error");
+        assertEquals(2, backend.queries);
+
+        execute(chain, "?query=test&degraded");
+        execute(chain, "?query=test&degraded");
+        assertEquals(4, backend.queries);
+    }
+
+    private Chain<Searcher> createChain(ResultCacheConfig.Builder config, BackendSearcher backend) {
+        return new Chain<>(new ResultCacheSearcher(new ResultCacheConfig(config), generation::get, metric, clock),
+                           backend);
+    }
+
+    private Result execute(Chain<Searcher> chain, String request) {
+        return new Execution(chain, Execution.Context.createContextStub()).search(new Query(request));
+    }
+
+    private static class BackendSearcher extends Searcher {
+
+        int queries = 0;
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            queries++;
+            Result result = new Result(query);
+            if (query.properties().getBoolean("error")) {
+                result.hits().addError(ErrorMessage.createTimeout("Timed out"));
+                return result;
+            }
+            for (int i = 0; i < query.getHits(); i++) {
+                FastHit hit = new FastHit(new GlobalId(IdString.createIdString("id:test:test::" + i)).getRawId(),
+                                          1.0 / (i + 1), 0, i % 3);
+                hit.setSource("test");
+                result.hits().add(hit);
+            }
+            result.setTotalHitCount(1000);
+            Coverage coverage = new Coverage(1000, query.properties().getBoolean("degraded") ? 2000 : 1000, 3, 1);
+            result.setCoverage(coverage);
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.statistics;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.component.chain.Chain;
+import com.yahoo.metrics.simple.Bucket;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.Point;
+import com.yahoo.metrics.simple.UntypedMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.searchchain.Execution;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class SearcherProfilerTestCase {
+
+    @Test
+    public void testProfilingSearchers() {
+        MetricReceiver.MockReceiver metrics = new MetricReceiver.MockReceiver();
+        Chain<Searcher> chain = new Chain<>(new ComponentId("profiled"),
+                                            new PassingSearcher("first"),
+                                            new PassingSearcher("second"),
+                                            new SleepingSearcher("last", 10));
+        for (int i = 0; i < 3; i++)
+            search(chain, new SearcherProfiler(metrics, false));
+
+        Bucket snapshot = metrics.getSnapshot();
+        for (String searcher : List.of("first", "second", "last")) {
+            assertEquals(3, metric(SearcherProfiler.selfLatencyMetric, searcher, snapshot).getCount());
+            assertEquals(3, metric(SearcherProfiler.downstreamLatencyMetric, searcher, snapshot).getCount());
+            assertNull("Allocations are not measured by default", metric(SearcherProfiler.allocatedBytesMetric, searcher, snapshot));
+        }
+        assertTrue(metric(SearcherProfiler.selfLatencyMetric, "last", snapshot).getMin() >= 10);
+        assertEquals(0, metric(SearcherProfiler.downstreamLatencyMetric, "last", snapshot).getMax(), 0);
+        assertTrue(metric(SearcherProfiler.downstreamLatencyMetric, "second", snapshot).getMin() >= 10);
+        assertTrue(metric(SearcherProfiler.downstreamLatencyMetric, "first", snapshot).getMin() >=
+                   metric(SearcherProfiler.downstreamLatencyMetric, "second", snapshot).getMin());
+    }
+
+    @Test
+    public void testProfilingAsyncSearchers() throws Exception {
+        MetricReceiver.MockReceiver metrics = new MetricReceiver.MockReceiver();
+        Chain<Searcher> chain = new Chain<>(new ComponentId("profiled"),
+                                            new AsyncPassingSearcher("first"),
+                                            new AsyncPassingSearcher("second"),
+                                            new DelayingSearcher("last", 10));
+        Execution.Context context = Execution.Context.createContextStub();
+        context.setProfiler(new SearcherProfiler(metrics, true));
+        new Execution(chain, context).searchAsync(new Query()).get(10, TimeUnit.SECONDS);
+
+        Bucket snapshot = metrics.getSnapshot();
+        for (String searcher : List.of("first", "second", "last")) {
+            assertEquals(1, metric(SearcherProfiler.selfLatencyMetric, searcher, snapshot).getCount());
+            assertEquals(1, metric(SearcherProfiler.downstreamLatencyMetric, searcher, snapshot).getCount());
+        }
+        assertTrue(metric(SearcherProfiler.selfLatencyMetric, "last", snapshot).getMin() >= 10);
+        assertTrue("The time of the rest of the chain is downstream, also when it completes in another thread",
+                   metric(SearcherProfiler.downstreamLatencyMetric, "first", snapshot).getMin() >= 10);
+        assertTrue(metric(SearcherProfiler.downstreamLatencyMetric, "second", snapshot).getMin() >= 10);
+    }
+
+    @Test
+    public void testProfilingForkedExecutions() {
+        MetricReceiver.MockReceiver metrics = new MetricReceiver.MockReceiver();
+        Chain<Searcher> forked = new Chain<>(new ComponentId("forked"),
+                                             new PassingSearcher("forkedFirst"),
+                                             new SleepingSearcher("forkedLast", 10));
+        Chain<Searcher> chain = new Chain<>(new ComponentId("profiled"),
+                                            new PassingSearcher("first"),
+                                            new ForkingSearcher("forking", forked));
+        search(chain, new SearcherProfiler(metrics, false));
+
+        Bucket snapshot = metrics.getSnapshot();
+        assertTrue(metric(SearcherProfiler.downstreamLatencyMetric, "forkedFirst", snapshot).getMin() >= 10);
+        assertTrue("The time of the forked execution is downstream of the searcher forking it",
+                   metric(SearcherProfiler.downstreamLatencyMetric, "forking", snapshot).getMin() >= 10);
+        assertTrue(metric(SearcherProfiler.selfLatencyMetric, "forking", snapshot).getMax() < 10);
+        assertTrue(metric(SearcherProfiler.downstreamLatencyMetric, "first", snapshot).getMin() >= 10);
+    }
+
+    @Test
+    public void testProfilingAllocations() {
+        MetricReceiver.MockReceiver metrics = new MetricReceiver.MockReceiver();
+        SearcherProfiler profiler = new SearcherProfiler(metrics, true);
+        if ( ! profiler.measuresAllocations()) return; // Not supported by this JVM
+
+        Chain<Searcher> chain = new Chain<>(new ComponentId("profiled"),
+                                            new PassingSearcher("first"),
+                                            new AllocatingSearcher("last", 1024 * 1024));
+        search(chain, profiler);
+
+        Bucket snapshot = metrics.getSnapshot();
+        assertEquals(1, metric(SearcherProfiler.allocatedBytesMetric, "first", snapshot).getCount());
+        assertTrue(metric(SearcherProfiler.allocatedBytesMetric, "first", snapshot).getMax() < 1024 * 1024);
+        assertTrue(metric(SearcherProfiler.allocatedBytesMetric, "last", snapshot).getMin() >= 1024 * 1024);
+    }
+
+    private void search(Chain<Searcher> chain, SearcherProfiler profiler) {
+        Execution.Context context = Execution.Context.createContextStub();
+        context.setProfiler(profiler);
+        new Execution(chain, context).search(new Query());
+    }
+
+    private UntypedMetric metric(String name, String searcher, Bucket snapshot) {
+        for (Map.Entry<Point, UntypedMetric> entry : snapshot.getValuesForMetric(name)) {
+            if (entry.getKey().location().get(entry.getKey().dimensions().indexOf("searcher")).stringValue().equals(searcher))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    private static class PassingSearcher extends Searcher {
+
+        PassingSearcher(String id) {
+            super(new ComponentId(id));
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return execution.search(query);
+        }
+
+    }
+
+    private static class AsyncPassingSearcher extends PassingSearcher {
+
+        AsyncPassingSearcher(String id) {
+            super(id);
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return execution.searchAsync(query);
+        }
+
+    }
+
+    /** Completes the result in another thread after a delay, without blocking the calling thread */
+    private static class DelayingSearcher extends Searcher {
+
+        private final long delayMs;
+
+        DelayingSearcher(String id, long delayMs) {
+            super(new ComponentId(id));
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return CompletableFuture.supplyAsync(() -> new Result(query),
+                                                 CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+        }
+
+    }
+
+    /** Searches the given chain in a new execution, in addition to the rest of this chain */
+    private static class ForkingSearcher extends Searcher {
+
+        private final Chain<Searcher> chain;
+
+        ForkingSearcher(String id, Chain<Searcher> chain) {
+            super(new ComponentId(id));
+            this.chain = chain;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            new Execution(chain, execution.context()).search(query.clone());
+            return execution.search(query);
+        }
+
+    }
+
+    private static class SleepingSearcher extends Searcher {
+
+        private final long sleepMs;
+
+        SleepingSearcher(String id, long sleepMs) {
+            super(new ComponentId(id));
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            try {
+                Thread.sleep(sleepMs);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return execution.search(query);
+        }
+
+    }
+
+    private static class AllocatingSearcher extends Searcher {
+
+        private final int bytes;
+        byte[] allocated;
+
+        AllocatingSearcher(String id, int bytes) {
+            super(new ComponentId(id));
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            allocated = new byte[bytes];
+            return execution.search(query);
+        }
+
+    }
+
+}
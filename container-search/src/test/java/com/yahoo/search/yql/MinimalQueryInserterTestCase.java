@@ -5,10 +5,13 @@ import com.google.common.base.Charsets;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.language.Language;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.prelude.query.Item;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.grouping.GroupingRequest;
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
 import com.yahoo.search.query.Sorting.AttributeSorter;
 import com.yahoo.search.query.Sorting.FieldOrder;
 import com.yahoo.search.query.Sorting.LowerCaseSorter;
@@ -28,6 +31,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -341,6 +345,54 @@ public class MinimalQueryInserterTestCase {
                      query.yqlRepresentation());
     }
 
+    @Test
+    public void testParameters() {
+        String yql = encode("select * from sources * where title contains @term and year > @year;");
+
+        Query query = new Query("search/?yql=" + yql + "&term=madonna&year=1980");
+        execution.search(query);
+        assertEquals("AND title:madonna year:>1980", query.getModel().getQueryTree().toString());
+
+        query = new Query("search/?yql=" + yql + "&term=prince&year=-3.5");
+        execution.search(query);
+        assertEquals("AND title:prince year:>-3.5", query.getModel().getQueryTree().toString());
+
+        query = new Query("search/?yql=" + yql + "&term=prince&year=" + encode("1980;]"));
+        Result result = execution.search(query);
+        assertEquals(1, result.hits().getErrorHit().errors().size());
+        assertEquals("Expected a number or boolean as the value of parameter @year but got '1980;]'",
+                     result.hits().getErrorHit().errorIterator().next().getCause().getMessage());
+
+        query = new Query("search/?yql=" + yql + "&term=prince");
+        result = execution.search(query);
+        assertEquals("No value is given for parameter @year",
+                     result.hits().getErrorHit().errorIterator().next().getCause().getMessage());
+    }
+
+    @Test
+    public void testProgramCache() {
+        ProgramCache cache = new ProgramCache(2);
+        String yql = "select * from sources * where title contains @term;";
+        assertEquals("title:madonna", parse(yql, "madonna", cache).toString());
+        assertEquals(1, cache.size());
+        assertEquals("title:prince", parse(yql, "prince", cache).toString());
+        assertEquals(1, cache.size());
+
+        parse("select * from sources * where foo contains @term;", "prince", cache);
+        parse("select * from sources * where bar contains @term;", "prince", cache);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(yql));
+    }
+
+    private Item parse(String yql, String term, ProgramCache cache) {
+        Query query = new Query("search/?term=" + term);
+        YqlParser parser = new YqlParser(new ParserEnvironment());
+        parser.setQueryParser(false);
+        parser.setUserQuery(query);
+        parser.setProgramCache(cache);
+        return parser.parse(new Parsable().setQuery(yql)).getRoot();
+    }
+
     @Test
     public void verifyThatWarmupIsSane() {
         assertTrue(MinimalQueryInserter.warmup());
@@ -0,0 +1,214 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * An evaluator which evaluates a scalar function over batches of arguments, returning a double per row.
+ * Arguments which vary between the rows of a batch are bound to columns of doubles, while arguments
+ * which are the same for all rows may be bound to a single value.
+ * <p>
+ * Unlike {@link FunctionEvaluator} this can be reused to evaluate any number of batches, by binding new
+ * values and evaluating again, and evaluation reuses a single context for all rows.
+ * This is not multithread safe.
+ *
+ * @author agent
+ */
+// This wraps all access to the context and the ranking expression to avoid incorrect usage
+public class BatchEvaluator {
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext context;
+
+    /** The compiled version of the function, or null if it is not scalar */
+    private final CompiledExpression compiled;
+
+    /** The columns of argument values which vary by row, by argument name */
+    private final Map<String, double[]> columns = new LinkedHashMap<>();
+
+    BatchEvaluator(ExpressionFunction function, LazyArrayContext context, CompiledExpression compiled) {
+        if (function.returnType().isPresent() && function.returnType().get().rank() > 0)
+            throw new IllegalArgumentException("Batch evaluation requires a function returning a scalar, but " +
+                                               function + " returns " + function.returnType().get());
+        this.function = function;
+        this.context = context;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Binds the given scalar argument to a column of values, one per row in the batches evaluated.
+     * The values are not copied, and must not be changed until evaluation.
+     *
+     * @param name the argument to bind
+     * @param values the values of this argument in each row
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, double[] values) {
+        requireArgument(name, TensorType.empty);
+        columns.put(name, values);
+        return this;
+    }
+
+    /**
+     * Binds the given argument to the given value for all rows.
+     *
+     * @param name the argument to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, Tensor value) {
+        requireArgument(name, value.type());
+        columns.remove(name);
+        context.put(name, new TensorValue(value));
+        return this;
+    }
+
+    /**
+     * Binds the given argument to the given value for all rows.
+     *
+     * @param name the argument to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, double value) {
+        return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Binds the given argument to the given value for all rows.
+     * String values are not yet supported in tensors.
+     *
+     * @param name the argument to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, String value) {
+        StringValue stringValue = new StringValue(value);
+        requireArgument(name, stringValue.type());
+        columns.remove(name);
+        context.put(name, stringValue);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for arguments which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchEvaluator setMissingValue(Tensor value) {
+        context.setMissingValue(value);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for arguments which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchEvaluator setMissingValue(double value) {
+        return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Evaluates the function once for each row of the bound columns.
+     *
+     * @return the value of the function for each row
+     * @throws IllegalStateException if no arguments are bound to columns, or the columns have different sizes
+     */
+    public double[] evaluate() {
+        return evaluate(new double[rows()]);
+    }
+
+    /**
+     * Evaluates the function once for each row of the bound columns, writing the results to the given array.
+     *
+     * @param results the array to write the value of the function for each row to, which must be at least
+     *                as large as the number of rows
+     * @return the given results array
+     * @throws IllegalStateException if no arguments are bound to columns, or the columns have different sizes
+     */
+    public double[] evaluate(double[] results) {
+        int rows = rows();
+        if (results.length < rows)
+            throw new IllegalArgumentException("The result array has size " + results.length + ", but there are " +
+                                               rows + " rows");
+
+        int[] indexes = new int[columns.size()];
+        double[][] values = new double[columns.size()][];
+        int column = 0;
+        for (Map.Entry<String, double[]> entry : columns.entrySet()) {
+            indexes[column] = context.getIndex(entry.getKey());
+            values[column++] = entry.getValue();
+        }
+
+        if (rows == 0) return results;
+
+        putRow(0, indexes, values);
+        validateArguments();
+        // Columns are always scalars, so whether the compiled function can be used does not change between rows
+        boolean useCompiled = compiled != null && context.hasScalarArguments();
+        for (int row = 0; row < rows; row++) {
+            putRow(row, indexes, values);
+            context.clearComputedValues();
+            results[row] = useCompiled ? compiled.evaluate(context) : function.getBody().evaluate(context).asDouble();
+        }
+        return results;
+    }
+
+    private void putRow(int row, int[] indexes, double[][] values) {
+        for (int i = 0; i < indexes.length; i++)
+            context.put(indexes[i], values[i][row]);
+    }
+
+    /** Returns the number of rows in the bound columns */
+    private int rows() {
+        if (columns.isEmpty())
+            throw new IllegalStateException("No arguments are bound to columns of values in " + function);
+        int rows = -1;
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            if (rows < 0)
+                rows = column.getValue().length;
+            else if (column.getValue().length != rows)
+                throw new IllegalStateException("All columns must have the same size, but '" + column.getKey() +
+                                                "' has " + column.getValue().length + " values, while other columns have " + rows);
+        }
+        return rows;
+    }
+
+    private void requireArgument(String name, TensorType type) {
+        TensorType requiredType = function.argumentTypes().get(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
+                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
+                                                                                  .collect(Collectors.joining(", ")));
+        if ( ! type.isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + type);
+    }
+
+    private void validateArguments() {
+        for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+            if (context.isMissing(argument.getKey()))
+                throw new IllegalStateException("Missing argument '" + argument.getKey() +
+                                                "': Must be bound to a value of type " + argument.getValue());
+            if (! context.get(argument.getKey()).type().isAssignableTo(argument.getValue()))
+                throw new IllegalStateException("Argument '" + argument.getKey() +
+                                                "' must be bound to a value of type " + argument.getValue());
+        }
+    }
+
+    /** Returns the function evaluated by this */
+    public ExpressionFunction function() { return function; }
+
+}
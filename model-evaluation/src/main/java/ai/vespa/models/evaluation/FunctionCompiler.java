@@ -0,0 +1,112 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionCompiler;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the functions of a model which are scalar - containing only scalar operations on scalar arguments,
+ * constants and functions - such that they can be evaluated on primitive doubles.
+ * Referenced functions are inlined in the compiled function where possible.
+ * <p>
+ * This is not multithread safe.
+ *
+ * @author agent
+ */
+class FunctionCompiler {
+
+    /** The max number of function references to inline into a single compiled function */
+    private static final int maxInlinedReferences = 1000;
+
+    private final Map<FunctionReference, ExpressionFunction> referencedFunctions;
+
+    /** The constants of the model, by their reference in expressions */
+    private final Map<String, Constant> constants;
+
+    private final ExpressionCompiler expressionCompiler = new ExpressionCompiler();
+
+    /** The number of references inlined into the function currently being compiled */
+    private int inlinedReferences;
+
+    FunctionCompiler(Map<FunctionReference, ExpressionFunction> referencedFunctions, List<Constant> constants) {
+        this.referencedFunctions = referencedFunctions;
+        this.constants = constants.stream().collect(Collectors.toMap(c -> "constant(" + c.name() + ")", c -> c));
+    }
+
+    /**
+     * Returns the given function compiled for the given context, or empty if it is not scalar.
+     * As the types of arguments are not known until they are bound, the compiled function
+     * must only be used when all arguments are bound to scalars.
+     */
+    Optional<CompiledExpression> compile(ExpressionFunction function, ContextIndex context) {
+        inlinedReferences = 0;
+        ExpressionNode body = inline(function.getBody().getRoot(), false);
+        if (body == null) return Optional.empty();
+        return expressionCompiler.compile(body, context);
+    }
+
+    /**
+     * Returns the given node where references to functions are replaced by their bodies,
+     * or null if it refers to constants or functions which are not scalar.
+     *
+     * @param isInlined whether this node is part of an inlined function body
+     */
+    private ExpressionNode inline(ExpressionNode node, boolean isInlined) {
+        if (node instanceof GBDTNode || node instanceof GBDTForestNode) // optimized for the context of the function
+            return isInlined ? null : node;
+
+        if (node instanceof ReferenceNode)
+            return inline((ReferenceNode)node);
+
+        if (node instanceof CompositeNode) {
+            CompositeNode composite = (CompositeNode)node;
+            List<ExpressionNode> children = new ArrayList<>();
+            boolean changed = false;
+            for (ExpressionNode child : composite.children()) {
+                ExpressionNode inlinedChild = inline(child, isInlined);
+                if (inlinedChild == null) return null;
+                children.add(inlinedChild);
+                changed |= inlinedChild != child;
+            }
+            return changed ? composite.setChildren(children) : composite;
+        }
+        return node;
+    }
+
+    private ExpressionNode inline(ReferenceNode node) {
+        if (node.getName().equals("constant") && node.getArguments().size() == 1) {
+            Constant constant = constants.get(node.toString());
+            return constant != null && constant.value().type().rank() == 0 ? node : null;
+        }
+        if (node.getName().equals("rankingExpression") && node.getArguments().size() == 1) {
+            Optional<FunctionReference> reference = FunctionReference.fromSerial(node.toString());
+            if ( ! reference.isPresent()) return null;
+            ExpressionFunction function = referencedFunctions.get(reference.get());
+            if (function == null) return null;
+
+            if (inlinedReferences < maxInlinedReferences) {
+                inlinedReferences++;
+                ExpressionNode body = inline(function.getBody().getRoot(), true);
+                if (body != null) return new EmbracedNode(body);
+            }
+            // Otherwise, refer to the lazily computed value of the function if it is scalar
+            return function.returnType().isPresent() && function.returnType().get().rank() == 0 ? node : null;
+        }
+        return node; // an argument
+    }
+
+}
@@ -2,6 +2,7 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.tensor.Tensor;
@@ -20,11 +21,16 @@ public class FunctionEvaluator {
 
     private final ExpressionFunction function;
     private final LazyArrayContext context;
+
+    /** The compiled version of the function, or null if it is not scalar */
+    private final CompiledExpression compiled;
+
     private boolean evaluated = false;
 
-    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context, CompiledExpression compiled) {
         this.function = function;
         this.context = context;
+        this.compiled = compiled;
     }
 
     /**
@@ -110,6 +116,8 @@ public class FunctionEvaluator {
 
         }
         evaluated = true;
+        if (compiled != null && context.hasScalarArguments())
+            return Tensor.Builder.of(TensorType.empty).cell(compiled.evaluate(context)).build();
         return function.getBody().evaluate(context).asTensor();
     }
 
@@ -118,4 +126,7 @@ public class FunctionEvaluator {
 
     public LazyArrayContext context() { return context; }
 
+    /** Returns whether this has a compiled version of its function, used when all arguments are bound to scalars */
+    boolean isCompiled() { return compiled != null; }
+
 }
@@ -8,6 +8,7 @@ import com.yahoo.searchlib.rankingexpression.Reference;
 import com.yahoo.searchlib.rankingexpression.evaluation.Context;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
@@ -124,6 +125,20 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return index;
     }
 
+    /** Returns whether all arguments are bound to (or default to) scalars */
+    boolean hasScalarArguments() {
+        for (String argument : arguments()) {
+            Value value = get(argument);
+            if ( ! value.hasDouble() || value instanceof StringValue) return false;
+        }
+        return true;
+    }
+
+    /** Discards the values computed by functions, such that this can be used for evaluating with new arguments */
+    void clearComputedValues() {
+        indexedBindings.clearComputedValues();
+    }
+
     boolean isMissing(String name) {
         return indexedBindings.indexOf(name) == null;
     }
@@ -258,6 +273,12 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             values[index] = value;
         }
 
+        void clearComputedValues() {
+            for (Value value : values)
+                if (value instanceof LazyValue)
+                    ((LazyValue)value).clearComputedValue();
+        }
+
         Set<String> names() { return nameToIndex.keySet(); }
         Set<String> arguments() { return arguments; }
         Integer indexOf(String name) { return nameToIndex.get(name); }
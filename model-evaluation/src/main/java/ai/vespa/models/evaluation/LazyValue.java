@@ -147,6 +147,11 @@ class LazyValue extends Value {
         return computedValue().hashCode();
     }
 
+    /** Discards the value computed by this, such that it is computed again when next requested */
+    void clearComputedValue() {
+        computedValue = null;
+    }
+
     LazyValue copyFor(Context context) {
         return new LazyValue(this.function, context, model);
     }
@@ -5,6 +5,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
@@ -43,6 +44,9 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Compiled versions of the free functions which are scalar, indexed by function name */
+    private final ImmutableMap<String, CompiledExpression> compiledFunctions;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -100,6 +104,14 @@ public class Model {
             functionsBuilder.put(function.getKey(), optimizedFunction);
         }
         this.referencedFunctions = functionsBuilder.build();
+
+        // Compile scalar functions
+        FunctionCompiler compiler = new FunctionCompiler(this.referencedFunctions, constants);
+        ImmutableMap.Builder<String, CompiledExpression> compiledBuilder = new ImmutableMap.Builder<>();
+        for (ExpressionFunction function : this.functions)
+            compiler.compile(function, contextPrototypes.get(function.getName()))
+                    .ifPresent(compiled -> compiledBuilder.put(function.getName(), compiled));
+        this.compiledFunctions = compiledBuilder.build();
     }
 
     /** Returns an optimized version of the given function */
@@ -173,22 +185,48 @@ public class Model {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        ExpressionFunction function = functionOf(names);
+        return new FunctionEvaluator(function,
+                                     requireContextProprotype(function.getName()).copy(),
+                                     compiledFunctions.get(function.getName()));
+    }
+
+    /**
+     * Returns an evaluator which can be used to evaluate the given scalar function over batches of arguments
+     * in a single thread.
+     *
+     * Usage:
+     * <code>double[] results = model.batchEvaluatorOf("myFunction").bind("foo", fooValues).bind("bar", barValues).evaluate()</code>
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, not uniquely identified by the names given,
+     *         or does not return a scalar
+     */
+    public BatchEvaluator batchEvaluatorOf(String ... names) {
+        ExpressionFunction function = functionOf(names);
+        return new BatchEvaluator(function,
+                                  requireContextProprotype(function.getName()).copy(),
+                                  compiledFunctions.get(function.getName()));
+    }
+
+    /** Returns the function identified by the given names, see {@link #evaluatorOf} */
+    private ExpressionFunction functionOf(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).collect(Collectors.toList());
             if (functionsStartingByName.size() == 0)
                 throwUndeterminedFunction("No function '" + name + "' in " + this);
             else if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             else
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -197,17 +235,12 @@ public class Model {
             String name = names[0] + "." + names[1];
             ExpressionFunction function = function(name);
             if (function == null) throwUndeterminedFunction("No function '" + name + "' in " + this);
-            return evaluatorOf(function);
+            return function;
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
     }
 
-    /** Returns a single-use evaluator of a function */
-    private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextProprotype(function.getName()).copy());
-    }
-
     private void throwUndeterminedFunction(String message) {
         throw new IllegalArgumentException(message + ". Available functions: " +
                                            functions.stream().map(f -> f.getName()).collect(Collectors.joining(", ")));
@@ -1,6 +1,7 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.handler;
 
+import ai.vespa.models.evaluation.BatchEvaluator;
 import ai.vespa.models.evaluation.FunctionEvaluator;
 import ai.vespa.models.evaluation.Model;
 import ai.vespa.models.evaluation.ModelsEvaluator;
@@ -9,7 +10,10 @@ import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+import com.yahoo.slime.Type;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.serialization.JsonFormat;
@@ -32,6 +36,7 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     public static final String API_ROOT = "model-evaluation";
     public static final String VERSION_V1 = "v1";
     public static final String EVALUATE = "eval";
+    public static final String BATCH_EVALUATE = "batch-eval";
 
     private final ModelsEvaluator modelsEvaluator;
 
@@ -57,6 +62,11 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
 
             Model model = modelsEvaluator.requireModel(modelName.get());
 
+            Optional<Integer> batchEvalSegment = path.lastIndexOf(BATCH_EVALUATE);
+            if (batchEvalSegment.isPresent()) {
+                return batchEvaluateModel(request, model, path.range(3, batchEvalSegment));
+            }
+
             Optional<Integer> evalSegment = path.lastIndexOf(EVALUATE);
             String[] function = path.range(3, evalSegment);
             if (evalSegment.isPresent()) {
@@ -90,6 +100,52 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
         return new Response(200, JsonFormat.encode(result));
     }
 
+    /**
+     * Evaluates a scalar function over a batch of rows. Arguments given as a JSON list of numbers, e.g "[1.0,2,3.5]",
+     * are bound to a column of values, one per row, while other arguments are bound to the same value for all rows.
+     * The result is a tensor with one cell per row.
+     */
+    private HttpResponse batchEvaluateModel(HttpRequest request, Model model, String[] function)  {
+        BatchEvaluator evaluator = model.batchEvaluatorOf(function);
+
+        property(request, missingValueKey).ifPresent(missingValue -> evaluator.setMissingValue(Tensor.from(missingValue)));
+
+        for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
+            Optional<String> value = property(request, argument.getKey());
+            if (value.isEmpty()) continue;
+
+            if (argument.getValue().rank() == 0 && value.get().trim().startsWith("["))
+                evaluator.bind(argument.getKey(), toColumn(argument.getKey(), value.get()));
+            else {
+                try {
+                    evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
+                } catch (IllegalArgumentException e) {
+                    evaluator.bind(argument.getKey(), value.get());  // since we don't yet support tensors with string values
+                }
+            }
+        }
+        double[] results = evaluator.evaluate();
+        Tensor.Builder result = Tensor.Builder.of(new TensorType.Builder().indexed("batch", results.length).build());
+        for (int i = 0; i < results.length; i++)
+            result.cell(results[i], i);
+        return new Response(200, JsonFormat.encode(result.build()));
+    }
+
+    /** Returns the numbers of the given JSON array */
+    private double[] toColumn(String name, String value) {
+        Inspector list = SlimeUtils.jsonToSlime(value).get();
+        if (list.type() != Type.ARRAY)
+            throw new IllegalArgumentException("Expected a list of numbers in '" + name + "', got '" + value + "'");
+        double[] column = new double[list.entries()];
+        for (int i = 0; i < column.length; i++) {
+            Inspector element = list.entry(i);
+            if (element.type() != Type.DOUBLE && element.type() != Type.LONG)
+                throw new IllegalArgumentException("Expected a list of numbers in '" + name + "', got '" + value + "'");
+            column[i] = element.asDouble();
+        }
+        return column;
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
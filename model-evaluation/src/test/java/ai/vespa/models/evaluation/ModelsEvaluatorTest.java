@@ -7,6 +7,9 @@ import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
@@ -16,8 +19,10 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -60,6 +65,134 @@ public class ModelsEvaluatorTest {
         }
     }
 
+    @Test
+    public void testCompiledEvaluationOfFunctionReferences() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        FunctionEvaluator function = models.evaluatorOf("macros", "secondphase");
+        assertTrue(function.isCompiled());
+        function.bind("match", 3);
+        function.bind("rankBoost", 5);
+        assertEquals(32.0, function.evaluate().asDouble(), delta);
+    }
+
+    @Test
+    public void testCompiledEvaluation() {
+        String expression = "if (x < 0.5, 0.1, if (y in [1, 2], 0.2, 0.3)) + if (y > 1, x * 2, -y) + sigmoid(0.5 * x - y)";
+        Model model = new Model("test-model",
+                                List.of(new ExpressionFunction("scalar", RankingExpression.from(expression)),
+                                        new ExpressionFunction("tensor", RankingExpression.from("reduce(x, sum)"))));
+        assertFalse(model.evaluatorOf("tensor").isCompiled());
+
+        for (double x : new double[] { -1, 0, 0.5, 1.5 }) {
+            for (double y : new double[] { 0, 1, 2, 3 }) {
+                FunctionEvaluator evaluator = model.evaluatorOf("scalar");
+                assertTrue(evaluator.isCompiled());
+                MapContext context = new MapContext();
+                context.put("x", x);
+                context.put("y", y);
+                assertEquals(RankingExpression.from(expression).evaluate(context).asDouble(),
+                             evaluator.bind("x", x).bind("y", y).evaluate().asDouble(),
+                             delta);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledFunctionIsNotUsedWithTensorArguments() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("x * 2 + y"));
+        function = function.withArgument("x", TensorType.fromSpec("tensor(d0[2])"));
+        Model model = new Model("test-model", List.of(function));
+
+        FunctionEvaluator evaluator = model.evaluatorOf("test");
+        assertTrue(evaluator.isCompiled());
+        evaluator.bind("x", Tensor.from("tensor(d0[2]):[1.0, 2.0]"));
+        evaluator.bind("y", 1);
+        assertEquals(Tensor.from("tensor(d0[2]):[3.0, 5.0]"), evaluator.evaluate());
+    }
+
+    @Test
+    public void testBatchEvaluation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        double[] match = { 3, 0, -1.5, 7 };
+        double[] rankBoost = { 5, 1, 2, 0.25 };
+        BatchEvaluator batch = models.batchEvaluatorOf("macros", "secondphase");
+        batch.bind("match", match).bind("rankBoost", rankBoost);
+        double[] results = batch.evaluate();
+        assertEquals(match.length, results.length);
+        for (int i = 0; i < match.length; i++) {
+            FunctionEvaluator single = models.evaluatorOf("macros", "secondphase");
+            single.bind("match", match[i]).bind("rankBoost", rankBoost[i]);
+            assertEquals(single.evaluate().asDouble(), results[i], delta);
+        }
+
+        // Reuse with a new batch, an argument bound for all rows, and a result buffer
+        double[] buffer = new double[3];
+        batch.bind("match", new double[] { 1, 2 }).bind("rankBoost", 5);
+        assertTrue(buffer == batch.evaluate(buffer));
+        assertEquals(4 * (1 + 5), buffer[0], delta);
+        assertEquals(4 * (2 + 5), buffer[1], delta);
+    }
+
+    @Test
+    public void testBatchEvaluationDoesNotUseCompiledFunctionWithTensorArguments() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(x) * 2 + y"));
+        function = function.withArgument("x", TensorType.fromSpec("tensor(d0[2])")).withArgument("y", TensorType.empty);
+        Model model = new Model("test-model", List.of(function));
+        LazyArrayContext context = new LazyArrayContext(function, Map.of(), List.of(), model);
+        CompiledExpression compiled = new CompiledExpression() {
+            @Override
+            public double evaluate(Context context) {
+                throw new IllegalStateException("The compiled function is used with a tensor argument");
+            }
+        };
+
+        BatchEvaluator batch = new BatchEvaluator(function, context, compiled);
+        batch.bind("x", Tensor.from("tensor(d0[2]):[1.0, 2.0]")).bind("y", new double[] { 1, 2, 3 });
+        double[] results = batch.evaluate();
+        assertEquals(3, results.length);
+        assertEquals(7, results[0], delta);
+        assertEquals(8, results[1], delta);
+        assertEquals(9, results[2], delta);
+    }
+
+    @Test
+    public void testBatchEvaluationValidation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        BatchEvaluator batch = models.batchEvaluatorOf("macros", "secondphase");
+        try {
+            batch.evaluate();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("No arguments are bound to columns of values in function 'secondphase'",
+                         Exceptions.toMessageString(e));
+        }
+
+        try {
+            batch.bind("match", new double[] { 1, 2 }).bind("rankBoost", new double[] { 1 }).evaluate();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("All columns must have the same size, but 'rankBoost' has 1 values, while other columns have 2",
+                         Exceptions.toMessageString(e));
+        }
+
+        try {
+            batch.bind("argNone", new double[] { 1, 2 });
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(Exceptions.toMessageString(e).startsWith("'argNone' is not a valid argument in function 'secondphase'"));
+        }
+
+        try {
+            ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("x * 2"))
+                                                  .withReturnType(TensorType.fromSpec("tensor(d0[2])"));
+            new Model("test-model", List.of(function)).batchEvaluatorOf("test");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Batch evaluation requires a function returning a scalar, but function 'test' returns tensor(d0[2])",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
     @Test
     public void testBindingValidation() {
         List<ExpressionFunction> functions = new ArrayList<>();
@@ -93,6 +93,35 @@ public class ModelsEvaluationHandlerTest {
         assertResponse(url, properties, 200, expected);
     }
 
+    @Test
+    public void testXgBoostBatchEvaluation() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("f29", "[-1.0, 0]");
+        properties.put("f56", "0.2");
+        properties.put("f60", "0.3");
+        properties.put("f109", "[0.4,0]");
+        properties.put("missing-value", "0");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        String expected = "{\"cells\":[{\"address\":{\"batch\":\"0\"},\"value\":-7.936679999999999},{\"address\":{\"batch\":\"1\"},\"value\":-8.17695}]}";
+        assertResponse(url, properties, 200, expected);
+    }
+
+    @Test
+    public void testBatchEvaluationWithoutColumns() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        String expected = "{\"error\":\"No arguments are bound to columns of values in function 'xgboost_2_2'\"}";
+        assertResponse(url, 400, expected);
+    }
+
+    @Test
+    public void testBatchEvaluationWithInvalidColumn() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("f29", "[-1.0, 0,]");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        String expected = "{\"error\":\"Expected a list of numbers in 'f29', got '[-1.0, 0,]'\"}";
+        assertResponse(url, properties, 404, expected);
+    }
+
     @Test
     public void testLightGBMEvaluationWithoutBindings() {
         String url = "http://localhost/model-evaluation/v1/lightgbm_regression/eval";
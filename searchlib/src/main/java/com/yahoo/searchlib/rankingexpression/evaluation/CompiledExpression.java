@@ -0,0 +1,21 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+/**
+ * A scalar ranking expression compiled by {@link ExpressionCompiler} to a tree of nodes which evaluates
+ * directly to a primitive double, without creating any intermediate values.
+ * <p>
+ * Compiled expressions are immutable and may be evaluated by multiple threads at the same time,
+ * each with its own context.
+ *
+ * @author agent
+ */
+public abstract class CompiledExpression {
+
+    /**
+     * Evaluates this in the given context.
+     * The context must be of the kind this was compiled for, i.e must resolve variables to the same indexes.
+     */
+    public abstract double evaluate(Context context);
+
+}
@@ -0,0 +1,488 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compiles scalar ranking expressions - arithmetic, comparisons, conditions, functions of doubles and
+ * (optimized) decision trees - to {@link CompiledExpression}s, which are evaluated on primitive doubles
+ * rather than by creating a value for each node.
+ * <p>
+ * Usage:
+ * <code>
+ * // Set up once
+ * RankingExpression expression = new RankingExpression(myExpressionString);
+ * ArrayContext context = new ArrayContext(expression);
+ * CompiledExpression compiled = new ExpressionCompiler().compile(expression, context).get();
+ *
+ * // Execute repeatedly
+ * context.put("featureName1", value1);
+ * ...
+ * compiled.evaluate(context);
+ * </code>
+ * <p>
+ * Variables are looked up as doubles by index, so the compiled expression is only correct if every variable
+ * evaluates to a double-compatible value. Expressions containing anything else, such as tensor functions
+ * or strings, are not compiled.
+ * <p>
+ * This is multithread safe.
+ *
+ * @author agent
+ */
+public class ExpressionCompiler {
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression the expression to compile
+     * @param contextIndex the context the compiled expression will be evaluated in
+     * @return the compiled expression, or empty if this expression contains nodes which cannot be compiled
+     */
+    public Optional<CompiledExpression> compile(RankingExpression expression, ContextIndex contextIndex) {
+        return compile(expression.getRoot(), contextIndex);
+    }
+
+    /**
+     * Compiles the given expression node.
+     *
+     * @param node the root node of the expression to compile
+     * @param contextIndex the context the compiled expression will be evaluated in
+     * @return the compiled expression, or empty if this expression contains nodes which cannot be compiled
+     */
+    public Optional<CompiledExpression> compile(ExpressionNode node, ContextIndex contextIndex) {
+        return Optional.ofNullable(compileNode(node, contextIndex));
+    }
+
+    /** Returns the compiled node, or null if it cannot be compiled */
+    private CompiledExpression compileNode(ExpressionNode node, ContextIndex context) {
+        if (node instanceof ConstantNode)
+            return compileConstant((ConstantNode)node);
+        if (node instanceof ReferenceNode)
+            return compileReference((ReferenceNode)node, context);
+        if (node instanceof EmbracedNode)
+            return compileNode(((EmbracedNode)node).getValue(), context);
+        if (node instanceof ArithmeticNode)
+            return compileArithmetic((ArithmeticNode)node, context);
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node, context);
+        if (node instanceof IfNode)
+            return compileIf((IfNode)node, context);
+        if (node instanceof NegativeNode)
+            return compileNegative((NegativeNode)node, context);
+        if (node instanceof NotNode)
+            return compileNot((NotNode)node, context);
+        if (node instanceof FunctionNode)
+            return compileFunction((FunctionNode)node, context);
+        if (node instanceof SetMembershipNode)
+            return compileSetMembership((SetMembershipNode)node, context);
+        if (node instanceof GBDTNode)
+            return new Tree(((GBDTNode)node).values());
+        if (node instanceof GBDTForestNode)
+            return new Forest(((GBDTForestNode)node).values());
+        return null;
+    }
+
+    private CompiledExpression compileConstant(ConstantNode node) {
+        if ( ! (node.getValue() instanceof DoubleCompatibleValue)) return null;
+        return new Constant(node.getValue().asDouble());
+    }
+
+    private CompiledExpression compileReference(ReferenceNode node, ContextIndex context) {
+        try {
+            return new Variable(context.getIndex(node.toString()));
+        }
+        catch (RuntimeException e) { // Not bound in this context
+            return null;
+        }
+    }
+
+    /** Compiles to a binary tree, applying the operators in the same order as {@link ArithmeticNode#evaluate} */
+    private CompiledExpression compileArithmetic(ArithmeticNode node, ContextIndex context) {
+        Iterator<ExpressionNode> child = node.children().iterator();
+        Deque<OperandItem> stack = new ArrayDeque<>();
+        CompiledExpression first = compileNode(child.next(), context);
+        if (first == null) return null;
+        stack.push(new OperandItem(ArithmeticOperator.OR, first));
+        for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            ArithmeticOperator op = it.next();
+            while (stack.peek().op.hasPrecedenceOver(op))
+                popStack(stack);
+            CompiledExpression operand = compileNode(child.next(), context);
+            if (operand == null) return null;
+            stack.push(new OperandItem(op, operand));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().operand;
+    }
+
+    private void popStack(Deque<OperandItem> stack) {
+        OperandItem rhs = stack.pop();
+        OperandItem lhs = stack.peek();
+        lhs.operand = operation(rhs.op, lhs.operand, rhs.operand);
+    }
+
+    private CompiledExpression operation(ArithmeticOperator operator, CompiledExpression x, CompiledExpression y) {
+        switch (operator) {
+            case OR: return new Or(x, y);
+            case AND: return new And(x, y);
+            case PLUS: return new Plus(x, y);
+            case MINUS: return new Minus(x, y);
+            case MULTIPLY: return new Multiply(x, y);
+            case DIVIDE: return new Divide(x, y);
+            case MODULO: return new Modulo(x, y);
+            case POWER: return new Power(x, y);
+            default: throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+    }
+
+    private CompiledExpression compileComparison(ComparisonNode node, ContextIndex context) {
+        CompiledExpression left = compileNode(node.getLeftCondition(), context);
+        CompiledExpression right = compileNode(node.getRightCondition(), context);
+        if (left == null || right == null) return null;
+        switch (node.getOperator()) {
+            case SMALLER: return new Smaller(left, right);
+            case LARGER: return new Larger(left, right);
+            case EQUAL: return new Equal(left, right);
+            default: return new Comparison(node.getOperator(), left, right);
+        }
+    }
+
+    private CompiledExpression compileIf(IfNode node, ContextIndex context) {
+        CompiledExpression condition = compileNode(node.getCondition(), context);
+        CompiledExpression trueExpression = compileNode(node.getTrueExpression(), context);
+        CompiledExpression falseExpression = compileNode(node.getFalseExpression(), context);
+        if (condition == null || trueExpression == null || falseExpression == null) return null;
+        return new If(condition, trueExpression, falseExpression);
+    }
+
+    private CompiledExpression compileNegative(NegativeNode node, ContextIndex context) {
+        CompiledExpression value = compileNode(node.getValue(), context);
+        if (value == null) return null;
+        return new Negative(value);
+    }
+
+    private CompiledExpression compileNot(NotNode node, ContextIndex context) {
+        CompiledExpression value = compileNode(node.getValue(), context);
+        if (value == null) return null;
+        return new Not(value);
+    }
+
+    /** Compiles a function, which is evaluated with zero for missing arguments as in {@link FunctionNode#evaluate} */
+    private CompiledExpression compileFunction(FunctionNode node, ContextIndex context) {
+        List<ExpressionNode> arguments = node.children();
+        if (arguments.size() > 2) return null;
+        CompiledExpression argument1 = arguments.size() > 0 ? compileNode(arguments.get(0), context) : new Constant(0);
+        CompiledExpression argument2 = arguments.size() > 1 ? compileNode(arguments.get(1), context) : new Constant(0);
+        if (argument1 == null || argument2 == null) return null;
+        return new FunctionCall(node.getFunction(), argument1, argument2);
+    }
+
+    /**
+     * Compiles set membership of a variable in constants.
+     * Other test values are not compiled as they may be booleans, which are tested for membership as booleans.
+     */
+    private CompiledExpression compileSetMembership(SetMembershipNode node, ContextIndex context) {
+        if ( ! (node.getTestValue() instanceof ReferenceNode)) return null;
+        CompiledExpression testValue = compileNode(node.getTestValue(), context);
+        if (testValue == null) return null;
+
+        double[] setValues = new double[node.getSetValues().size()];
+        for (int i = 0; i < setValues.length; i++) {
+            ExpressionNode setValue = node.getSetValues().get(i);
+            if ( ! (setValue instanceof ConstantNode)) return null;
+            if ( ! (((ConstantNode)setValue).getValue() instanceof DoubleValue)) return null;
+            setValues[i] = ((ConstantNode)setValue).getValue().asDouble();
+        }
+        return new SetMembership(testValue, setValues);
+    }
+
+    private static class OperandItem {
+
+        final ArithmeticOperator op;
+        CompiledExpression operand;
+
+        OperandItem(ArithmeticOperator op, CompiledExpression operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+
+    }
+
+    private static double asDouble(boolean value) { return value ? 1 : 0; }
+
+    private static final class Constant extends CompiledExpression {
+
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        public double evaluate(Context context) { return value; }
+
+    }
+
+    private static final class Variable extends CompiledExpression {
+
+        private final int index;
+
+        Variable(int index) { this.index = index; }
+
+        @Override
+        public double evaluate(Context context) { return context.getDouble(index); }
+
+    }
+
+    private static abstract class Binary extends CompiledExpression {
+
+        final CompiledExpression x, y;
+
+        Binary(CompiledExpression x, CompiledExpression y) {
+            this.x = x;
+            this.y = y;
+        }
+
+    }
+
+    private static final class Or extends Binary {
+
+        Or(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) {
+            return asDouble(x.evaluate(context) != 0 || y.evaluate(context) != 0);
+        }
+
+    }
+
+    private static final class And extends Binary {
+
+        And(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) {
+            return asDouble(x.evaluate(context) != 0 && y.evaluate(context) != 0);
+        }
+
+    }
+
+    private static final class Plus extends Binary {
+
+        Plus(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return x.evaluate(context) + y.evaluate(context); }
+
+    }
+
+    private static final class Minus extends Binary {
+
+        Minus(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return x.evaluate(context) - y.evaluate(context); }
+
+    }
+
+    private static final class Multiply extends Binary {
+
+        Multiply(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return x.evaluate(context) * y.evaluate(context); }
+
+    }
+
+    private static final class Divide extends Binary {
+
+        Divide(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return x.evaluate(context) / y.evaluate(context); }
+
+    }
+
+    private static final class Modulo extends Binary {
+
+        Modulo(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return x.evaluate(context) % y.evaluate(context); }
+
+    }
+
+    private static final class Power extends Binary {
+
+        Power(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return Math.pow(x.evaluate(context), y.evaluate(context)); }
+
+    }
+
+    private static final class Smaller extends Binary {
+
+        Smaller(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return asDouble(x.evaluate(context) < y.evaluate(context)); }
+
+    }
+
+    private static final class Larger extends Binary {
+
+        Larger(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return asDouble(x.evaluate(context) > y.evaluate(context)); }
+
+    }
+
+    private static final class Equal extends Binary {
+
+        Equal(CompiledExpression x, CompiledExpression y) { super(x, y); }
+
+        @Override
+        public double evaluate(Context context) { return asDouble(x.evaluate(context) == y.evaluate(context)); }
+
+    }
+
+    private static final class Comparison extends Binary {
+
+        private final TruthOperator operator;
+
+        Comparison(TruthOperator operator, CompiledExpression x, CompiledExpression y) {
+            super(x, y);
+            this.operator = operator;
+        }
+
+        @Override
+        public double evaluate(Context context) {
+            return asDouble(operator.evaluate(x.evaluate(context), y.evaluate(context)));
+        }
+
+    }
+
+    private static final class If extends CompiledExpression {
+
+        private final CompiledExpression condition, trueExpression, falseExpression;
+
+        If(CompiledExpression condition, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.condition = condition;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        public double evaluate(Context context) {
+            if (condition.evaluate(context) != 0)
+                return trueExpression.evaluate(context);
+            else
+                return falseExpression.evaluate(context);
+        }
+
+    }
+
+    private static final class Negative extends CompiledExpression {
+
+        private final CompiledExpression value;
+
+        Negative(CompiledExpression value) { this.value = value; }
+
+        @Override
+        public double evaluate(Context context) { return - value.evaluate(context); }
+
+    }
+
+    private static final class Not extends CompiledExpression {
+
+        private final CompiledExpression value;
+
+        Not(CompiledExpression value) { this.value = value; }
+
+        @Override
+        public double evaluate(Context context) { return asDouble(value.evaluate(context) == 0); }
+
+    }
+
+    private static final class FunctionCall extends Binary {
+
+        private final Function function;
+
+        FunctionCall(Function function, CompiledExpression x, CompiledExpression y) {
+            super(x, y);
+            this.function = function;
+        }
+
+        @Override
+        public double evaluate(Context context) {
+            return function.evaluate(x.evaluate(context), y.evaluate(context));
+        }
+
+    }
+
+    private static final class SetMembership extends CompiledExpression {
+
+        private final CompiledExpression testValue;
+        private final double[] setValues;
+
+        SetMembership(CompiledExpression testValue, double[] setValues) {
+            this.testValue = testValue;
+            this.setValues = setValues;
+        }
+
+        @Override
+        public double evaluate(Context context) {
+            double value = testValue.evaluate(context);
+            for (double setValue : setValues)
+                if (value == setValue) return 1;
+            return 0;
+        }
+
+    }
+
+    private static final class Tree extends CompiledExpression {
+
+        private final double[] values;
+
+        Tree(double[] values) { this.values = values; }
+
+        @Override
+        public double evaluate(Context context) { return GBDTNode.evaluate(values, 0, context); }
+
+    }
+
+    private static final class Forest extends CompiledExpression {
+
+        private final double[] values;
+
+        Forest(double[] values) { this.values = values; }
+
+        @Override
+        public double evaluate(Context context) { return GBDTForestNode.evaluate(values, context); }
+
+    }
+
+}
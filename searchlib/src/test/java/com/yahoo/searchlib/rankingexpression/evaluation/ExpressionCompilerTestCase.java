@@ -0,0 +1,101 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ExpressionCompilerTestCase {
+
+    private final ExpressionCompiler compiler = new ExpressionCompiler();
+
+    private final List<Map<String, Double>> bindings = List.of(Map.of(),
+                                                               Map.of("x", 1.0, "y", 2.0, "z", 3.0),
+                                                               Map.of("x", -1.5, "y", 0.0, "z", 7.0),
+                                                               Map.of("x", 0.0, "y", -2.0, "z", 0.5),
+                                                               Map.of("x", 3.0, "y", 3.0, "z", -3.0));
+
+    @Test
+    public void testCompiledEvaluationEqualsInterpretedEvaluation() throws ParseException {
+        assertCompiled("1 + 2 * 3");
+        assertCompiled("x + y * z");
+        assertCompiled("x - y - z");
+        assertCompiled("x / y / z");
+        assertCompiled("x - y + z * x / y % z ^ 2");
+        assertCompiled("(x - y) * (z + x)");
+        assertCompiled("x && y || z");
+        assertCompiled("!x");
+        assertCompiled("-x + -(y * z)");
+        assertCompiled("x < y");
+        assertCompiled("x <= y");
+        assertCompiled("x == y");
+        assertCompiled("x != y");
+        assertCompiled("x >= y");
+        assertCompiled("x > y");
+        assertCompiled("x ~= y");
+        assertCompiled("(x < y) + (y < z) * 2");
+        assertCompiled("if (x < y, z, x + y)");
+        assertCompiled("if (x, y, z)");
+        assertCompiled("if (x in [1, 2, 3], y, z)");
+        assertCompiled("exp(x) + log(z) + sqrt(y) + max(x, y) + min(x, z) + pow(z, 2) + atan2(x, y)");
+        assertCompiled("sigmoid(x * 0.5 + y * -0.25 + z * 0.125)");
+        assertCompiled("if (x < 1.5, if (y < 0.5, 0.1, 0.2), 0.3) + if (z > 2, 0.4, if (x == 3, 0.5, 0.6))");
+        assertCompiled("true + x");
+    }
+
+    @Test
+    public void testCompilingOptimizedForests() throws ParseException, IOException {
+        String forest = IOUtils.readFile(new File("src/test/files/gbdt.expression"));
+        RankingExpression expression = new RankingExpression(forest);
+        ArrayContext context = new ArrayContext(expression);
+        new ExpressionOptimizer().optimize(expression, context);
+        CompiledExpression compiled = compiler.compile(expression, context).get();
+
+        MapContext interpretedContext = new MapContext();
+        for (String name : context.names()) {
+            interpretedContext.put(name, name.length() % 3);
+            context.put(name, name.length() % 3);
+        }
+        assertEquals(new RankingExpression(forest).evaluate(interpretedContext).asDouble(),
+                     compiled.evaluate(context), 1e-9);
+    }
+
+    @Test
+    public void testNonScalarExpressionsAreNotCompiled() throws ParseException {
+        assertNotCompiled("reduce(x, sum)");
+        assertNotCompiled("tensor(d0[2])(d0 + x)");
+        assertNotCompiled("x + \"a string\"");
+        assertNotCompiled("if (x in [\"a\", \"b\"], y, z)");
+    }
+
+    private void assertCompiled(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = new ArrayContext(expression, true);
+        CompiledExpression compiled = compiler.compile(expression, context).get();
+        for (Map<String, Double> binding : bindings) {
+            ArrayContext boundContext = context.clone();
+            binding.forEach(boundContext::put);
+            assertEquals(expressionString + " with " + binding,
+                         expression.evaluate(boundContext).asDouble(), compiled.evaluate(boundContext), 0);
+        }
+    }
+
+    private void assertNotCompiled(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        assertFalse(compiler.compile(expression, new ArrayContext(expression, true)).isPresent());
+    }
+
+}
@@ -0,0 +1,42 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+/**
+ * Conversions of cell values to and from the representations of the cell value types smaller than float.
+ * These are used both when storing cells in tensors and when serializing them, such that a value
+ * converts to the same cell value however it is passed.
+ *
+ * @author agent
+ */
+public final class CellValues {
+
+    private CellValues() {}
+
+    /**
+     * Returns the given value as an int8: The fraction is discarded as by a cast, values outside
+     * [-128, 127] are clamped to the nearest of them rather than wrapped around, and NaN becomes 0.
+     */
+    public static byte toInt8(float value) {
+        if (value <= Byte.MIN_VALUE) return Byte.MIN_VALUE;
+        if (value >= Byte.MAX_VALUE) return Byte.MAX_VALUE;
+        return (byte)value;
+    }
+
+    /**
+     * Returns the given value as bfloat16 bits, i.e the upper 16 bits of the float,
+     * rounded to the nearest bfloat16 with ties to even, as done by hardware supporting bfloat16.
+     * Values beyond the largest finite bfloat16 become infinity, and NaN stays NaN.
+     */
+    public static short toBFloat16Bits(float value) {
+        if (Float.isNaN(value)) return (short)0x7fc0; // make sure a NaN is not rounded to infinity
+        int bits = Float.floatToRawIntBits(value);
+        int lsb = (bits >>> 16) & 1;
+        return (short)((bits + 0x7fff + lsb) >>> 16);
+    }
+
+    /** Returns the float value of the given bfloat16 bits */
+    public static float fromBFloat16Bits(short bits) {
+        return Float.intBitsToFloat(bits << 16);
+    }
+
+}
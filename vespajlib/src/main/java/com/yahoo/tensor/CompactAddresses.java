@@ -0,0 +1,225 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+
+/**
+ * A compact, columnar store of the addresses of a sparse tensor or the sparse part of a mixed tensor.
+ * Each distinct label is stored once in a dictionary where it is identified by an int label id,
+ * addresses are stored as one column of label ids per dimension, and addresses are looked up
+ * through an open addressing hash table over their label ids. Addresses are identified by their
+ * insertion order, starting at 0.
+ * <p>
+ * This is mutable until {@link #freeze} is called, and must not be changed after it is shared.
+ *
+ * @author agent
+ */
+final class CompactAddresses {
+
+    private static final String[] noLabels = new String[0];
+    private static final int[] noIds = new int[0];
+
+    private final int dimensions;
+
+    /** The labels of the dictionary, by label id */
+    private String[] labels;
+    private int labelCount = 0;
+
+    /** Open addressing hash table over the labels containing label id + 1, where 0 marks an empty slot */
+    private int[] labelSlots;
+
+    /** The label ids of each address, by dimension */
+    private final int[][] columns;
+    private int size = 0;
+
+    /** Open addressing hash table over the addresses containing address index + 1, where 0 marks an empty slot */
+    private int[] addressSlots;
+
+    CompactAddresses(int dimensions) {
+        this.dimensions = dimensions;
+        this.labels = new String[8];
+        this.labelSlots = new int[16];
+        this.columns = new int[dimensions][8];
+        this.addressSlots = new int[16];
+    }
+
+    /** Returns the number of dimensions of the addresses in this */
+    int dimensions() { return dimensions; }
+
+    /** Returns the number of addresses in this */
+    int size() { return size; }
+
+    /** Returns the number of distinct labels in this */
+    int labelCount() { return labelCount; }
+
+    /** Returns the label having the given id */
+    String label(int labelId) { return labels[labelId]; }
+
+    /** Returns the id of the label in the given dimension of the address at the given index */
+    int labelId(int addressIndex, int dimension) { return columns[dimension][addressIndex]; }
+
+    /** Returns the label in the given dimension of the address at the given index */
+    String label(int addressIndex, int dimension) { return labels[columns[dimension][addressIndex]]; }
+
+    /** Returns the id of the given label, or -1 if it is not present in this */
+    int labelIdOf(String label) {
+        int mask = labelSlots.length - 1;
+        for (int slot = mix(label.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = labelSlots[slot];
+            if (entry == 0) return -1;
+            if (labels[entry - 1].equals(label)) return entry - 1;
+        }
+    }
+
+    /** Returns the id of the given label, adding it to the dictionary if it is not already present */
+    int labelId(String label) {
+        int mask = labelSlots.length - 1;
+        int slot = mix(label.hashCode()) & mask;
+        for (; labelSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (labels[labelSlots[slot] - 1].equals(label)) return labelSlots[slot] - 1;
+        }
+        if (labelCount == labels.length)
+            labels = Arrays.copyOf(labels, labels.length * 2);
+        labels[labelCount++] = label;
+        labelSlots[slot] = labelCount;
+        if (labelCount * 2 > labelSlots.length)
+            rehashLabels();
+        return labelCount - 1;
+    }
+
+    /** Returns the index of the given address, or -1 if it is not present in this */
+    int indexOf(TensorAddress address) {
+        if (address.size() != dimensions) return -1;
+        int hash = 1;
+        for (int i = 0; i < dimensions; i++) {
+            int labelId = labelIdOf(address.label(i));
+            if (labelId < 0) return -1;
+            hash = 31 * hash + labelId;
+        }
+        int mask = addressSlots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = addressSlots[slot];
+            if (entry == 0) return -1;
+            if (labelsEqual(entry - 1, address)) return entry - 1;
+        }
+    }
+
+    /** Returns the index of the address having the given label ids, or -1 if it is not present in this */
+    int indexOf(int[] labelIds) {
+        int mask = addressSlots.length - 1;
+        for (int slot = hash(labelIds) & mask; ; slot = (slot + 1) & mask) {
+            int entry = addressSlots[slot];
+            if (entry == 0) return -1;
+            if (idsEqual(entry - 1, labelIds)) return entry - 1;
+        }
+    }
+
+    /**
+     * Returns the index of the address having the given label ids, adding it if it is not already present.
+     * Whether the address was added can be determined by comparing the returned index to the size before this call.
+     */
+    int put(int[] labelIds) {
+        int mask = addressSlots.length - 1;
+        int slot = hash(labelIds) & mask;
+        for (; addressSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (idsEqual(addressSlots[slot] - 1, labelIds)) return addressSlots[slot] - 1;
+        }
+        if (size == capacity())
+            growColumns();
+        for (int i = 0; i < dimensions; i++)
+            columns[i][size] = labelIds[i];
+        addressSlots[slot] = ++size;
+        if (size * 2 > addressSlots.length)
+            rehashAddresses();
+        return size - 1;
+    }
+
+    /** Returns the address at the given index */
+    TensorAddress address(int index) {
+        String[] addressLabels = new String[dimensions];
+        for (int i = 0; i < dimensions; i++)
+            addressLabels[i] = labels[columns[i][index]];
+        return TensorAddress.of(addressLabels);
+    }
+
+    /**
+     * Returns the hash code of the address at the given index.
+     * This is the same as the hash code of the address returned by address(index).
+     */
+    int addressHashCode(int index) {
+        int hash = 1;
+        for (int i = 0; i < dimensions; i++)
+            hash = 31 * hash + labels[columns[i][index]].hashCode();
+        return hash;
+    }
+
+    /** Releases unused capacity and returns this, which must not be modified after this is called */
+    CompactAddresses freeze() {
+        labels = labelCount == 0 ? noLabels : Arrays.copyOf(labels, labelCount);
+        for (int i = 0; i < dimensions; i++)
+            columns[i] = size == 0 ? noIds : Arrays.copyOf(columns[i], size);
+        return this;
+    }
+
+    private int capacity() { return dimensions == 0 ? Integer.MAX_VALUE : columns[0].length; }
+
+    private boolean labelsEqual(int index, TensorAddress address) {
+        for (int i = 0; i < dimensions; i++)
+            if ( ! labels[columns[i][index]].equals(address.label(i))) return false;
+        return true;
+    }
+
+    private boolean idsEqual(int index, int[] labelIds) {
+        for (int i = 0; i < dimensions; i++)
+            if (columns[i][index] != labelIds[i]) return false;
+        return true;
+    }
+
+    private int hash(int[] labelIds) {
+        int hash = 1;
+        for (int i = 0; i < dimensions; i++)
+            hash = 31 * hash + labelIds[i];
+        return mix(hash);
+    }
+
+    private int hash(int index) {
+        int hash = 1;
+        for (int i = 0; i < dimensions; i++)
+            hash = 31 * hash + columns[i][index];
+        return mix(hash);
+    }
+
+    private void growColumns() {
+        for (int i = 0; i < dimensions; i++)
+            columns[i] = Arrays.copyOf(columns[i], columns[i].length * 2);
+    }
+
+    private void rehashLabels() {
+        labelSlots = new int[labelSlots.length * 2];
+        int mask = labelSlots.length - 1;
+        for (int id = 0; id < labelCount; id++) {
+            int slot = mix(labels[id].hashCode()) & mask;
+            while (labelSlots[slot] != 0)
+                slot = (slot + 1) & mask;
+            labelSlots[slot] = id + 1;
+        }
+    }
+
+    private void rehashAddresses() {
+        addressSlots = new int[addressSlots.length * 2];
+        int mask = addressSlots.length - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hash(index) & mask;
+            while (addressSlots[slot] != 0)
+                slot = (slot + 1) & mask;
+            addressSlots[slot] = index + 1;
+        }
+    }
+
+    /** Spreads the bits of a hash code such that consecutive values do not cluster in the slot tables */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
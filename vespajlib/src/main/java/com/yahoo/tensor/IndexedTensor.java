@@ -227,6 +227,10 @@ public abstract class IndexedTensor implements Tensor {
                 b.append(tensor.get(index));
             else if (tensor.type().valueType() == TensorType.Value.FLOAT)
                 b.append(tensor.getFloat(index));
+            else if (tensor.type().valueType() == TensorType.Value.BFLOAT16)
+                b.append(tensor.getFloat(index));
+            else if (tensor.type().valueType() == TensorType.Value.INT8)
+                b.append(tensor.getFloat(index));
             else
                 throw new IllegalStateException("Unexpected value type " + tensor.type().valueType());
 
@@ -297,6 +301,10 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes);
+            else if (type.valueType() == TensorType.Value.INT8)
+                return new IndexedInt8Tensor.BoundInt8Builder(type, sizes);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes);
             else
@@ -317,6 +325,10 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+            else if (type.valueType() == TensorType.Value.INT8)
+                return new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes).fill(values);
             else
@@ -337,6 +349,10 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+            else if (type.valueType() == TensorType.Value.INT8)
+                return new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, values);
             else
@@ -703,6 +719,12 @@ public abstract class IndexedTensor implements Tensor {
         /** Returns the address of the cell this currently points to (which may be an invalid position) */
         public TensorAddress address() { return indexes.toAddress(); }
 
+        /**
+         * Returns the indexes of the cell this currently points to, one per dimension of the tensor,
+         * without creating an address. The returned array is owned by this and must not be modified.
+         */
+        public long[] indexesForReading() { return indexes.indexesForReading(); }
+
         /** Rewind this iterator to the first element */
         public void reset() {
             this.count = 0;
@@ -748,6 +770,12 @@ public abstract class IndexedTensor implements Tensor {
         @Override
         public Double getValue() { return value; }
 
+        @Override
+        public double getDoubleValue() { return value; }
+
+        @Override
+        public float getFloatValue() { return (float)value; }
+
         @Override
         public Cell detach() {
             return new Cell(getKey(), value);
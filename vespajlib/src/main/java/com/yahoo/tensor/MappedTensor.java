@@ -3,13 +3,18 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor.
+ * <p>
+ * The cells are stored in columns: Each distinct label is stored once and identified by a label id,
+ * the address of each cell is stored as a label id per dimension, and the values are stored in a
+ * primitive array. Cells are identified by a cell index, which is their insertion order.
  *
  * @author bratseth
  */
@@ -17,31 +22,59 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    private final CompactAddresses addresses;
+
+    /** The cell values, by cell index */
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, CompactAddresses addresses, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.addresses = addresses;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return addresses.size(); }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, Double.NaN); }
+    public double get(TensorAddress address) {
+        int cellIndex = addresses.indexOf(address);
+        return cellIndex < 0 ? Double.NaN : values[cellIndex];
+    }
+
+    /** Returns the value of the cell at the given cell index */
+    public double get(int cellIndex) { return values[cellIndex]; }
+
+    /** Returns the number of distinct labels in this tensor */
+    public int labelCount() { return addresses.labelCount(); }
+
+    /** Returns the label having the given label id in this tensor */
+    public String label(int labelId) { return addresses.label(labelId); }
+
+    /** Returns the id of the given label in this tensor, or -1 if no cell has this label */
+    public int labelIdOf(String label) { return addresses.labelIdOf(label); }
+
+    /** Returns the id of the label of the cell at the given cell index in the dimension at the given index */
+    public int labelId(int cellIndex, int dimension) { return addresses.labelId(cellIndex, dimension); }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return Arrays.stream(values).iterator(); }
 
+    /** Returns the cells of this as a map. This is a new map created on each call. */
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+        for (int i = 0; i < values.length; i++)
+            builder.put(addresses.address(i), values[i]);
+        return builder.build();
+    }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -49,7 +82,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, addresses, values);
     }
 
     @Override
@@ -59,14 +92,20 @@ public class MappedTensor implements Tensor {
             Tensor.Cell cell = i.next();
             TensorAddress address = cell.getKey();
             if ( ! addresses.contains(address)) {
-                builder.cell(address, cell.getValue());
+                builder.cell(address, cell.getDoubleValue());
             }
         }
         return builder.build();
     }
 
+    /** Returns the same hash code as the map returned by cells() */
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < values.length; i++)
+            hashCode += addresses.addressHashCode(i) ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -80,12 +119,14 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private CompactAddresses addresses;
+        private double[] values = new double[8];
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
         private Builder(TensorType type) {
             this.type = type;
+            this.addresses = new CompactAddresses(type.rank());
         }
 
         public CellBuilder cell() {
@@ -102,8 +143,12 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
-            return this;
+            if (address.size() != type.rank())
+                throw new IllegalArgumentException(type + " cannot have a cell with address " + address);
+            int[] labelIds = new int[address.size()];
+            for (int i = 0; i < labelIds.length; i++)
+                labelIds[i] = addresses.labelId(address.label(i));
+            return cellByLabelIds(labelIds, value);
         }
 
         @Override
@@ -113,34 +158,114 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
+            return cell(TensorAddress.of(labels), value);
+        }
+
+        /**
+         * Returns the label id of the given label in this builder, to be used with cellByLabelIds and cellIndex.
+         * This adds the label to the label dictionary of the tensor built by this if it is not already present.
+         */
+        public int labelId(String label) {
+            return addresses.labelId(label);
+        }
+
+        /**
+         * Adds a cell by the label ids of its address
+         *
+         * @param labelIds the id of the label of the address in each dimension, as returned by labelId
+         * @param value the value of the cell
+         * @return this for chaining
+         * @throws IllegalArgumentException if this already has a cell with this address
+         */
+        public Builder cellByLabelIds(int[] labelIds, double value) {
+            int size = addresses.size();
+            int cellIndex = cellIndex(labelIds);
+            if (cellIndex < size)
+                throw new IllegalArgumentException("Multiple values for cell " + addresses.address(cellIndex).toString(type) +
+                                                   " in " + type);
+            values[cellIndex] = value;
+            return this;
+        }
+
+        /**
+         * Returns the cell index of the cell having the given label ids in this builder,
+         * adding it with the value NaN if it is not present.
+         * This allows values to be set and changed by cellByIndex without hashing addresses again.
+         *
+         * @param labelIds the id of the label of the address in each dimension, as returned by labelId
+         */
+        public int cellIndex(int[] labelIds) {
+            int size = addresses.size();
+            int cellIndex = addresses.put(labelIds);
+            if (cellIndex == size) {
+                if (size == values.length)
+                    values = Arrays.copyOf(values, values.length * 2);
+                values[cellIndex] = Double.NaN;
+            }
+            return cellIndex;
+        }
+
+        /** Sets the value of the cell at the given cell index, as returned by cellIndex */
+        public Builder cellByIndex(int cellIndex, double value) {
+            if (cellIndex >= addresses.size())
+                throw new IndexOutOfBoundsException("No cell with index " + cellIndex + " in this builder");
+            values[cellIndex] = value;
             return this;
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            if (addresses == null)
+                throw new IllegalStateException("Can only build once");
+            MappedTensor tensor = new MappedTensor(type, addresses.freeze(), Arrays.copyOf(values, addresses.size()));
+            addresses = null; // Prevent further modification
+            return tensor;
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
-
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
-        }
+        private int cellIndex = 0;
 
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return cellIndex < values.length; }
 
         @Override
         public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+            if ( ! hasNext()) throw new NoSuchElementException("No cell at " + cellIndex);
+            return new LazyCell(cellIndex++);
+        }
+
+    }
+
+    /** A cell which creates its address only when it is requested */
+    private final class LazyCell extends Tensor.Cell {
+
+        private final int cellIndex;
+        private TensorAddress address = null;
+
+        private LazyCell(int cellIndex) {
+            super(null, null);
+            this.cellIndex = cellIndex;
         }
 
+        @Override
+        public TensorAddress getKey() {
+            if (address == null)
+                address = addresses.address(cellIndex);
+            return address;
+        }
+
+        @Override
+        public Double getValue() { return values[cellIndex]; }
+
+        @Override
+        public double getDoubleValue() { return values[cellIndex]; }
+
+        @Override
+        public float getFloatValue() { return (float)values[cellIndex]; }
+
     }
 
 }
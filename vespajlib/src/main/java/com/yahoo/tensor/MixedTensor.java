@@ -2,16 +2,19 @@
 
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * A mixed tensor type. This is class is currently suitable for serialization
@@ -29,15 +32,15 @@ public class MixedTensor implements Tensor {
     /** The dimension specification for this tensor */
     private final TensorType type;
 
-    /** The list of cells in the tensor */
-    private final ImmutableList<Cell> cells;
+    /** The cell values, where the values of each dense subspace are stored consecutively */
+    private final double[] values;
 
-    /** An index structure over the cell list */
+    /** An index structure over the cell values */
     private final Index index;
 
-    private MixedTensor(TensorType type, ImmutableList<Cell> cells, Index index) {
+    private MixedTensor(TensorType type, double[] values, Index index) {
         this.type = type;
-        this.cells = ImmutableList.copyOf(cells);
+        this.values = values;
         this.index = index;
     }
 
@@ -47,18 +50,15 @@ public class MixedTensor implements Tensor {
 
     /** Returns the size of the tensor measured in number of cells */
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     /** Returns the value at the given address */
     @Override
     public double get(TensorAddress address) {
-        long cellIndex = index.indexOf(address);
+        int cellIndex = index.indexOf(address);
         if (cellIndex < 0)
             return Double.NaN;
-        Cell cell = cells.get((int)cellIndex);
-        if ( ! address.equals(cell.getKey()))
-            return Double.NaN;
-        return cell.getValue();
+        return values[cellIndex];
     }
 
     /**
@@ -70,7 +70,18 @@ public class MixedTensor implements Tensor {
      */
     @Override
     public Iterator<Cell> cellIterator() {
-        return cells.iterator();
+        return new Iterator<>() {
+            int cellIndex = 0;
+            @Override
+            public boolean hasNext() {
+                return cellIndex < values.length;
+            }
+            @Override
+            public Cell next() {
+                if ( ! hasNext()) throw new NoSuchElementException("No cell at " + cellIndex);
+                return new LazyCell(cellIndex++);
+            }
+        };
     }
 
     /**
@@ -79,24 +90,14 @@ public class MixedTensor implements Tensor {
      */
     @Override
     public Iterator<Double> valueIterator() {
-        return new Iterator<>() {
-            Iterator<Cell> cellIterator = cellIterator();
-            @Override
-            public boolean hasNext() {
-                return cellIterator.hasNext();
-            }
-            @Override
-            public Double next() {
-                return cellIterator.next().getValue();
-            }
-        };
+        return Arrays.stream(values).iterator();
     }
 
     @Override
     public Map<TensorAddress, Double> cells() {
         ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
-        for (Cell cell : cells) {
-            builder.put(cell.getKey(), cell.getValue());
+        for (int i = 0; i < values.length; i++) {
+            builder.put(index.addressOf(i), values[i]);
         }
         return builder.build();
     }
@@ -107,7 +108,7 @@ public class MixedTensor implements Tensor {
             throw new IllegalArgumentException("MixedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MixedTensor(other, cells, index);
+        return new MixedTensor(other, values, index);
     }
 
     @Override
@@ -115,21 +116,27 @@ public class MixedTensor implements Tensor {
         Tensor.Builder builder = Tensor.Builder.of(type());
 
         // iterate through all sparse addresses referencing a dense subspace
-        for (Map.Entry<TensorAddress, Long> entry : index.sparseMap.entrySet()) {
-            TensorAddress sparsePartialAddress = entry.getKey();
+        int denseSubspaceSize = (int)index.denseSubspaceSize();
+        for (int subspace = 0; subspace < index.sparse.size(); subspace++) {
+            TensorAddress sparsePartialAddress = index.sparse.address(subspace);
             if ( ! addresses.contains(sparsePartialAddress)) {  // assumption: addresses only contain the sparse part
-                long offset = entry.getValue();
-                for (int i = 0; i < index.denseSubspaceSize; ++i) {
-                    Cell cell = cells.get((int)offset + i);
-                    builder.cell(cell.getKey(), cell.getValue());
+                int offset = subspace * denseSubspaceSize;
+                for (int i = 0; i < denseSubspaceSize; ++i) {
+                    builder.cell(index.addressOf(offset + i), values[offset + i]);
                 }
             }
         }
         return builder.build();
     }
 
+    /** Returns the same hash code as the map returned by cells() */
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < values.length; i++)
+            hashCode += index.addressOf(i).hashCode() ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() {
@@ -152,6 +159,34 @@ public class MixedTensor implements Tensor {
         return index.denseSubspaceSize();
     }
 
+    /** A cell which creates its address only when it is requested */
+    private final class LazyCell extends Tensor.Cell {
+
+        private final int cellIndex;
+        private TensorAddress address = null;
+
+        private LazyCell(int cellIndex) {
+            super(null, null);
+            this.cellIndex = cellIndex;
+        }
+
+        @Override
+        public TensorAddress getKey() {
+            if (address == null)
+                address = index.addressOf(cellIndex);
+            return address;
+        }
+
+        @Override
+        public Double getValue() { return values[cellIndex]; }
+
+        @Override
+        public double getDoubleValue() { return values[cellIndex]; }
+
+        @Override
+        public float getFloatValue() { return (float)values[cellIndex]; }
+
+    }
 
     /**
      * Base class for building mixed tensors.
@@ -207,16 +242,14 @@ public class MixedTensor implements Tensor {
      */
     public static class BoundBuilder extends Builder {
 
-        /** For each sparse partial address, hold a dense subspace */
-        private final Map<TensorAddress, double[]> denseSubspaceMap = new HashMap<>();
-        private final Index.Builder indexBuilder;
-        private final Index index;
+        /** The dense subspaces, by the index of their sparse partial address */
+        private final List<double[]> denseSubspaces = new ArrayList<>();
+        private Index index;
         private final TensorType denseSubtype;
 
         private BoundBuilder(TensorType type) {
             super(type);
-            indexBuilder = new Index.Builder(type);
-            index = indexBuilder.index();
+            index = new Index(type);
             denseSubtype = new TensorType(type.valueType(),
                                           type.dimensions().stream().filter(d -> d.isIndexed()).collect(Collectors.toList()));
         }
@@ -225,16 +258,29 @@ public class MixedTensor implements Tensor {
             return index.denseSubspaceSize();
         }
 
+        private int subspaceIndex(TensorAddress sparseAddress) {
+            if (sparseAddress.size() != index.sparse.dimensions())
+                throw new IllegalArgumentException(sparseAddress + " is not a sparse partial address in " + type);
+            int[] labelIds = new int[sparseAddress.size()];
+            for (int i = 0; i < labelIds.length; i++)
+                labelIds[i] = index.sparse.labelId(sparseAddress.label(i));
+            return subspaceIndex(labelIds);
+        }
+
+        private int subspaceIndex(int[] sparseLabelIds) {
+            int subspaceIndex = index.sparse.put(sparseLabelIds);
+            if (subspaceIndex == denseSubspaces.size())
+                denseSubspaces.add(new double[(int)denseSubspaceSize()]);
+            return subspaceIndex;
+        }
+
         private double[] denseSubspace(TensorAddress sparseAddress) {
-            if (!denseSubspaceMap.containsKey(sparseAddress)) {
-                denseSubspaceMap.put(sparseAddress, new double[(int)denseSubspaceSize()]);
-            }
-            return denseSubspaceMap.get(sparseAddress);
+            return denseSubspaces.get(subspaceIndex(sparseAddress));
         }
 
         public IndexedTensor.DirectIndexBuilder denseSubspaceBuilder(TensorAddress sparseAddress) {
             double[] values = new double[(int)denseSubspaceSize()];
-            denseSubspaceMap.put(sparseAddress, values);
+            denseSubspaces.set(subspaceIndex(sparseAddress), values);
             return new DenseSubspaceBuilder(denseSubtype, values);
         }
 
@@ -245,9 +291,9 @@ public class MixedTensor implements Tensor {
 
         @Override
         public Tensor.Builder cell(TensorAddress address, double value) {
-            TensorAddress sparsePart = index.sparsePartialAddress(address);
+            int[] sparseLabelIds = index.sparseLabelIds(address);
             long denseOffset = index.denseOffset(address);
-            double[] denseSubspace = denseSubspace(sparsePart);
+            double[] denseSubspace = denseSubspaces.get(subspaceIndex(sparseLabelIds));
             denseSubspace[(int)denseOffset] = value;
             return this;
         }
@@ -264,22 +310,16 @@ public class MixedTensor implements Tensor {
 
         @Override
         public MixedTensor build() {
-            long count = 0;
-            ImmutableList.Builder<Cell> builder = new ImmutableList.Builder<>();
-
-            for (Map.Entry<TensorAddress, double[]> entry : denseSubspaceMap.entrySet()) {
-                TensorAddress sparsePart = entry.getKey();
-                indexBuilder.put(sparsePart, count);
-
-                double[] denseSubspace = entry.getValue();
-                for (long offset = 0; offset < denseSubspace.length; ++offset) {
-                    TensorAddress cellAddress = index.addressOf(sparsePart, offset);
-                    double value = denseSubspace[(int)offset];
-                    builder.add(new Cell(cellAddress, value));
-                    count++;
-                }
-            }
-            return new MixedTensor(type, builder.build(), indexBuilder.build());
+            if (index == null)
+                throw new IllegalStateException("Can only build once");
+            int denseSubspaceSize = (int)denseSubspaceSize();
+            double[] values = new double[denseSubspaces.size() * denseSubspaceSize];
+            for (int i = 0; i < denseSubspaces.size(); i++)
+                System.arraycopy(denseSubspaces.get(i), 0, values, i * denseSubspaceSize, denseSubspaceSize);
+            index.sparse.freeze();
+            MixedTensor tensor = new MixedTensor(type, values, index);
+            index = null; // Prevent further modification
+            return tensor;
         }
 
     }
@@ -351,62 +391,57 @@ public class MixedTensor implements Tensor {
     }
 
     /**
-     * An immutable index into a list of cells.
-     * Contains additional information required
-     * for handling mixed tensor addresses.
+     * An index into the cell values of a mixed tensor, holding the sparse partial addresses
+     * of the dense subspaces in a compact form where the index of each address is the index of
+     * its dense subspace. Contains additional information required for handling mixed tensor addresses.
      * Assumes indexed dimensions are bound.
      */
     private static class Index {
 
         private final TensorType type;
-        private final TensorType sparseType;
         private final TensorType denseType;
-        private final List<TensorType.Dimension> mappedDimensions;
         private final List<TensorType.Dimension> indexedDimensions;
 
-        private ImmutableMap<TensorAddress, Long> sparseMap;
+        /** The index in the type of each mapped dimension */
+        private final int[] mappedDimensionIndexes;
+
+        /** The sparse partial addresses of the dense subspaces, by dense subspace index */
+        private final CompactAddresses sparse;
         private long denseSubspaceSize = -1;
 
         private Index(TensorType type) {
             this.type = type;
-            this.mappedDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).collect(Collectors.toList());
             this.indexedDimensions = type.dimensions().stream().filter(d -> d.isIndexed()).collect(Collectors.toList());
-            this.sparseType = createPartialType(type.valueType(), mappedDimensions);
             this.denseType = createPartialType(type.valueType(), indexedDimensions);
+            this.mappedDimensionIndexes = IntStream.range(0, type.rank())
+                                                   .filter(i -> ! type.dimensions().get(i).isIndexed())
+                                                   .toArray();
+            this.sparse = new CompactAddresses(mappedDimensionIndexes.length);
         }
 
         /** Returns the index of the given address, or -1 if it is not present */
-        public long indexOf(TensorAddress address) {
-            TensorAddress sparsePart = sparsePartialAddress(address);
-            if ( ! sparseMap.containsKey(sparsePart))
-                return -1;
-            long base = sparseMap.get(sparsePart);
-            long offset = denseOffset(address);
-            return base + offset;
-        }
-
-        public static class Builder {
-
-            private final Index index;
-            private final ImmutableMap.Builder<TensorAddress, Long> builder;
-
-            public Builder(TensorType type) {
-                index = new Index(type);
-                builder = new ImmutableMap.Builder<>();
-            }
-
-            public void put(TensorAddress address, long index) {
-                builder.put(address, index);
-            }
-
-            public Index build() {
-                index.sparseMap = builder.build();
-                return index;
+        public int indexOf(TensorAddress address) {
+            if (type.dimensions().size() != address.size()) return -1;
+            int[] sparseLabelIds = new int[mappedDimensionIndexes.length];
+            for (int i = 0; i < sparseLabelIds.length; i++) {
+                sparseLabelIds[i] = sparse.labelIdOf(address.label(mappedDimensionIndexes[i]));
+                if (sparseLabelIds[i] < 0) return -1;
             }
+            int subspaceIndex = sparse.indexOf(sparseLabelIds);
+            if (subspaceIndex < 0) return -1;
+            if ( ! hasIndexedLabelsInRange(address)) return -1;
+            return (int)(subspaceIndex * denseSubspaceSize() + denseOffset(address));
+        }
 
-            public Index index() {
-                return index;
+        /** Returns whether each indexed label of the given address is within the size of its dimension */
+        private boolean hasIndexedLabelsInRange(TensorAddress address) {
+            for (int i = 0; i < type.dimensions().size(); i++) {
+                TensorType.Dimension dimension = type.dimensions().get(i);
+                if ( ! dimension.isIndexed()) continue;
+                long label = address.numericLabel(i);
+                if (label < 0 || label >= dimension.size().get()) return false;
             }
+            return true;
         }
 
         public long denseSubspaceSize() {
@@ -423,16 +458,14 @@ public class MixedTensor implements Tensor {
             return denseSubspaceSize;
         }
 
-        private TensorAddress sparsePartialAddress(TensorAddress address) {
+        /** Returns the ids of the labels of the mapped dimensions of the given address, adding them if necessary */
+        private int[] sparseLabelIds(TensorAddress address) {
             if (type.dimensions().size() != address.size())
                 throw new IllegalArgumentException("Tensor type of " + this + " is not the same size as " + address);
-            TensorAddress.Builder builder = new TensorAddress.Builder(sparseType);
-            for (int i = 0; i < type.dimensions().size(); ++i) {
-                TensorType.Dimension dimension = type.dimensions().get(i);
-                if ( ! dimension.isIndexed())
-                    builder.add(dimension.name(), address.label(i));
-            }
-            return builder.build();
+            int[] sparseLabelIds = new int[mappedDimensionIndexes.length];
+            for (int i = 0; i < sparseLabelIds.length; i++)
+                sparseLabelIds[i] = sparse.labelId(address.label(mappedDimensionIndexes[i]));
+            return sparseLabelIds;
         }
 
         private long denseOffset(TensorAddress address) {
@@ -450,41 +483,23 @@ public class MixedTensor implements Tensor {
             return offset;
         }
 
-        private TensorAddress denseOffsetToAddress(long denseOffset) {
-            if (denseOffset < 0 || denseOffset > denseSubspaceSize) {
-                throw new IllegalArgumentException("Offset out of bounds");
-            }
-
-            long restSize = denseOffset;
-            long innerSize = denseSubspaceSize;
-            long[] labels = new long[indexedDimensions.size()];
-
-            for (int i = 0; i < labels.length; ++i) {
-                TensorType.Dimension dimension = indexedDimensions.get(i);
-                long dimensionSize = dimension.size().orElseThrow(() ->
-                        new IllegalArgumentException("Unknown size of indexed dimension."));
-
-                innerSize /= dimensionSize;
-                labels[i] = restSize / innerSize;
-                restSize %= innerSize;
-            }
-            return TensorAddress.of(labels);
-        }
-
-        private TensorAddress addressOf(TensorAddress sparsePart, long denseOffset) {
-            TensorAddress densePart = denseOffsetToAddress(denseOffset);
+        /** Returns the address of the cell at the given index in the cell values */
+        private TensorAddress addressOf(int cellIndex) {
+            int subspaceIndex = (int)(cellIndex / denseSubspaceSize());
+            long denseOffset = cellIndex % denseSubspaceSize();
             String[] labels = new String[type.dimensions().size()];
             int mappedIndex = 0;
-            int indexedIndex = 0;
-            for (TensorType.Dimension d : type.dimensions()) {
-                if (d.isIndexed()) {
-                    labels[mappedIndex + indexedIndex] = densePart.label(indexedIndex);
-                    indexedIndex++;
-                } else {
-                    labels[mappedIndex + indexedIndex] = sparsePart.label(mappedIndex);
-                    mappedIndex++;
+            for (int i = labels.length; --i >= 0; ) {
+                TensorType.Dimension dimension = type.dimensions().get(i);
+                if (dimension.isIndexed()) {
+                    long dimensionSize = dimension.size().orElseThrow(() ->
+                            new IllegalArgumentException("Unknown size of indexed dimension."));
+                    labels[i] = String.valueOf(denseOffset % dimensionSize);
+                    denseOffset /= dimensionSize;
                 }
             }
+            for (int dimensionIndex : mappedDimensionIndexes)
+                labels[dimensionIndex] = sparse.label(subspaceIndex, mappedIndex++);
             return TensorAddress.of(labels);
         }
 
@@ -494,8 +509,8 @@ public class MixedTensor implements Tensor {
         }
 
         private String contentToString(MixedTensor tensor) {
-            if (mappedDimensions.size() > 1) throw new IllegalStateException("Should be ensured by caller");
-            if (mappedDimensions.size() == 0) {
+            if (mappedDimensionIndexes.length > 1) throw new IllegalStateException("Should be ensured by caller");
+            if (mappedDimensionIndexes.length == 0) {
                 StringBuilder b = new StringBuilder();
                 denseSubspaceToString(tensor, 0, b);
                 return b.toString();
@@ -503,10 +518,10 @@ public class MixedTensor implements Tensor {
 
             // Exactly 1 mapped dimension
             StringBuilder b = new StringBuilder("{");
-            sparseMap.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
-                b.append(TensorAddress.labelToString(entry.getKey().label(0 )));
+            IntStream.range(0, sparse.size()).boxed().sorted(Comparator.comparing(i -> sparse.label(i, 0))).forEach(i -> {
+                b.append(TensorAddress.labelToString(sparse.label(i, 0)));
                 b.append(":");
-                denseSubspaceToString(tensor, entry.getValue(), b);
+                denseSubspaceToString(tensor, i * denseSubspaceSize(), b);
                 b.append(",");
             });
             if (b.length() > 1)
@@ -532,7 +547,7 @@ public class MixedTensor implements Tensor {
                 // value
                 if (type.valueType() == TensorType.Value.DOUBLE)
                     b.append(getDouble(subspaceIndex, index, tensor));
-                else if (tensor.type().valueType() == TensorType.Value.FLOAT)
+                else if (tensor.type().valueType().computationType() == TensorType.Value.FLOAT)
                     b.append(getDouble(subspaceIndex, index, tensor)); // TODO: Really use floats
                 else
                     throw new IllegalStateException("Unexpected value type " + type.valueType());
@@ -546,7 +561,7 @@ public class MixedTensor implements Tensor {
         }
 
         private double getDouble(long indexedSubspaceIndex, long indexInIndexedSubspace, MixedTensor tensor) {
-            return tensor.cells.get((int)(indexedSubspaceIndex + indexInIndexedSubspace)).getDoubleValue();
+            return tensor.values[(int)(indexedSubspaceIndex + indexInIndexedSubspace)];
         }
 
     }
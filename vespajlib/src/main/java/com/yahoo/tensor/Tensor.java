@@ -118,7 +118,7 @@ public interface Tensor {
         for (Iterator<Cell> i = cellIterator(); i.hasNext(); ) {
             Cell cell = i.next();
             TensorAddress address = cell.getKey();
-            double value = cell.getValue();
+            double value = cell.getDoubleValue();
             builder.cell(address, cells.containsKey(address) ? op.applyAsDouble(value, cells.get(address)) : value);
         }
         return builder.build();
@@ -260,12 +260,12 @@ public interface Tensor {
         double maxValue = Double.MIN_VALUE;
         for (Iterator<Cell> i = cellIterator(); i.hasNext(); ) {
             Cell cell = i.next();
-            if (cell.getValue() > maxValue) {
+            if (cell.getDoubleValue() > maxValue) {
                 cells.clear();
                 cells.add(cell.detach());
                 maxValue = cell.getDoubleValue();
             }
-            else if (cell.getValue() == maxValue) {
+            else if (cell.getDoubleValue() == maxValue) {
                 cells.add(cell.detach());
             }
         }
@@ -278,12 +278,12 @@ public interface Tensor {
         double minValue = Double.MAX_VALUE;
         for (Iterator<Cell> i = cellIterator(); i.hasNext(); ) {
             Cell cell = i.next();
-            if (cell.getValue() < minValue) {
+            if (cell.getDoubleValue() < minValue) {
                 cells.clear();
                 cells.add(cell.detach());
                 minValue = cell.getDoubleValue();
             }
-            else if (cell.getValue() == minValue) {
+            else if (cell.getDoubleValue() == minValue) {
                 cells.add(cell.detach());
             }
         }
@@ -349,7 +349,7 @@ public interface Tensor {
         if ( a.size() != b.size()) return false;
         for (Iterator<Cell> aIterator = a.cellIterator(); aIterator.hasNext(); ) {
             Cell aCell = aIterator.next();
-            double aValue = aCell.getValue();
+            double aValue = aCell.getDoubleValue();
             double bValue = b.get(aCell.getKey());
             if (!approxEquals(aValue, bValue, 1e-5)) return false;
         }
@@ -432,11 +432,11 @@ public interface Tensor {
         @Override
         public Double getValue() { return value.doubleValue(); }
 
-        /** Returns the value as a float */
-        public float getFloatValue() { return getValue().floatValue(); }
+        /** Returns the value as a float, without boxing it */
+        public float getFloatValue() { return value.floatValue(); }
 
-        /** Returns the value as a double */
-        public double getDoubleValue() { return getValue(); }
+        /** Returns the value as a double, without boxing it */
+        public double getDoubleValue() { return value.doubleValue(); }
 
         @Override
         public Double setValue(Double value) {
@@ -458,7 +458,7 @@ public interface Tensor {
             return getKey().hashCode() ^ getValue().hashCode(); // by Map.Entry spec
         }
 
-        public String toString(TensorType type) { return address.toString(type) + ":" + value; }
+        public String toString(TensorType type) { return getKey().toString(type) + ":" + getValue(); }
 
         /**
          * Return a copy of this tensor cell which is valid beyond the lifetime of any iterator state which supplied it.
@@ -199,7 +199,7 @@ class TensorParser {
                 try {
                     if (cellValueType == TensorType.Value.DOUBLE)
                         return Double.parseDouble(cellValueString);
-                    else if (cellValueType == TensorType.Value.FLOAT)
+                    else if (cellValueType.computationType() == TensorType.Value.FLOAT)
                         return Float.parseFloat(cellValueString);
                     else
                         throw new IllegalArgumentException(cellValueType + " is not supported");
@@ -289,7 +289,7 @@ class TensorParser {
             Number number = consumeNumber(builder.type().valueType());
             if (builder.type().valueType() == TensorType.Value.DOUBLE)
                 builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Double)number);
-            else if (builder.type().valueType() == TensorType.Value.FLOAT)
+            else if (builder.type().valueType().computationType() == TensorType.Value.FLOAT)
                 builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Float)number);
         }
 
@@ -353,7 +353,7 @@ class TensorParser {
             Number number = consumeNumber(builder.type().valueType());
             if (builder.type().valueType() == TensorType.Value.DOUBLE)
                 builder.cell(address, (Double)number);
-            else if (builder.type().valueType() == TensorType.Value.FLOAT)
+            else if (builder.type().valueType().computationType() == TensorType.Value.FLOAT)
                 builder.cell(address, (Float)number);
         }
 
@@ -390,7 +390,7 @@ class TensorParser {
                 try {
                     if (cellValueType == TensorType.Value.DOUBLE)
                         builder.cell(address, Double.parseDouble(cellValueString));
-                    else if (cellValueType == TensorType.Value.FLOAT)
+                    else if (cellValueType.computationType() == TensorType.Value.FLOAT)
                         builder.cell(address, Float.parseFloat(cellValueString));
                     else
                         throw new IllegalArgumentException(cellValueType + " is not supported");
@@ -33,7 +33,7 @@ public class TensorType {
     public enum Value {
 
         // Types added must also be added to TensorTypeParser.parseValueTypeSpec, serialization, and largestOf below
-        DOUBLE("double"), FLOAT("float");
+        DOUBLE("double"), FLOAT("float"), BFLOAT16("bfloat16"), INT8("int8");
 
         private final String id;
 
@@ -45,6 +45,14 @@ public class TensorType {
             return this == other || largestOf(this, other) == this;
         }
 
+        /**
+         * Returns the value type of the result of computing on values of this type.
+         * The value types smaller than float are for compact storage only, and are computed on as floats.
+         */
+        public Value computationType() {
+            return isEqualOrLargerThan(FLOAT) ? this : FLOAT;
+        }
+
         public static Value largestOf(List<Value> values) {
             if (values.isEmpty()) return Value.DOUBLE; // Default
             Value largest = null;
@@ -57,9 +65,12 @@ public class TensorType {
             return largest;
         }
 
+        /** Returns the smallest of the given value types which can represent all values of both */
         public static Value largestOf(Value value1, Value value2) {
             if (value1 == DOUBLE || value2 == DOUBLE) return DOUBLE;
-            return FLOAT;
+            if (value1 == FLOAT || value2 == FLOAT) return FLOAT;
+            if (value1 == BFLOAT16 || value2 == BFLOAT16) return BFLOAT16;
+            return INT8;
         }
 
         @Override
@@ -69,8 +80,10 @@ public class TensorType {
             switch (valueTypeString) {
                 case "double" : return Value.DOUBLE;
                 case "float" : return Value.FLOAT;
-                default : throw new IllegalArgumentException("Value type must be either 'double' or 'float'" +
-                                                             " but was '" + valueTypeString + "'");
+                case "bfloat16" : return Value.BFLOAT16;
+                case "int8" : return Value.INT8;
+                default : throw new IllegalArgumentException("Value type must be either 'double', 'float', " +
+                                                             "'bfloat16' or 'int8' but was '" + valueTypeString + "'");
             }
         }
 
@@ -100,6 +113,7 @@ public class TensorType {
             mappedSubtype = new TensorType(valueType, dimensions.stream().filter(d -> ! d.isIndexed()).collect(Collectors.toList()));
     }
 
+    /** Returns the value type of the result of computations combining values of the given types */
     static public Value combinedValueType(TensorType ... types) {
         List<Value> valueTypes = new ArrayList<>();
         for (TensorType type : types) {
@@ -107,7 +121,7 @@ public class TensorType {
                 valueTypes.add(type.valueType());
             }
         }
-        return Value.largestOf(valueTypes);
+        return Value.largestOf(valueTypes).computationType();
     }
 
     /**
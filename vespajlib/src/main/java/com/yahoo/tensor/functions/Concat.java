@@ -123,7 +123,7 @@ public class Concat<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
                                                                      concatType, offset, dimension);
                     if (combinedAddress == null) continue; // incompatible
 
-                    builder.cell(combinedAddress, bCell.getValue());
+                    builder.cell(combinedAddress, bCell.getDoubleValue());
                 }
                 iaSubspace.reset();
             }
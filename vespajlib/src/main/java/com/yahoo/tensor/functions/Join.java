@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.MappedTensor;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -14,6 +15,7 @@ import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -112,26 +114,36 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
     private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type, DoubleBinaryOperator combinator) {
         long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
-        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
         for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
+            builder.cellByDirectIndex(i, combinator.applyAsDouble(a.get(i), b.get(i)));
         return builder.build();
     }
 
     /** When both tensors have the same dimensions, at most one cell matches a cell in the other tensor */
     private static Tensor singleSpaceJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        if (a instanceof IndexedTensor && b instanceof IndexedTensor &&
+            ((IndexedTensor)a).dimensionSizes().equals(((IndexedTensor)b).dimensionSizes()))
+            return indexedSingleSpaceJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator);
+
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> i = a.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = i.next();
+            Tensor.Cell aCell = i.next();
             double bCellValue = b.get(aCell.getKey());
             if (Double.isNaN(bCellValue)) continue; // no match
-            builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getValue(), bCellValue));
+            builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getDoubleValue(), bCellValue));
         }
         return builder.build();
     }
 
+    /** Joins two indexed tensors of the same size, where cells with the same index are joined */
+    private static Tensor indexedSingleSpaceJoin(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(joinedType, a.dimensionSizes());
+        for (long i = 0; i < a.size(); i++)
+            builder.cellByDirectIndex(i, combinator.applyAsDouble(a.get(i), b.get(i)));
+        return builder.build();
+    }
+
     /** Join a tensor into a superspace */
     private static Tensor subspaceJoin(Tensor subspace, Tensor superspace, TensorType joinedType, boolean reversedArgumentOrder, DoubleBinaryOperator combinator) {
         if (subspace instanceof IndexedTensor && superspace instanceof IndexedTensor)
@@ -154,15 +166,15 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
         for (Iterator<IndexedTensor.SubspaceIterator> i = superspace.subspaceIterator(superDimensionNames, joinedSizes); i.hasNext(); ) {
             IndexedTensor.SubspaceIterator subspaceInSuper = i.next();
-            joinSubspaces(subspace.valueIterator(), subspace.size(),
-                    subspaceInSuper, subspaceInSuper.size(),
-                    reversedArgumentOrder, builder, combinator);
+            joinSubspaces(subspace, subspace.size(),
+                          subspaceInSuper, subspaceInSuper.size(),
+                          reversedArgumentOrder, builder, combinator);
         }
 
         return builder.build();
     }
 
-    private static void joinSubspaces(Iterator<Double> subspace, long subspaceSize,
+    private static void joinSubspaces(IndexedTensor subspace, long subspaceSize,
                                       Iterator<Tensor.Cell> superspace, long superspaceSize,
                                       boolean reversedArgumentOrder, IndexedTensor.Builder builder,
                                       DoubleBinaryOperator combinator) {
@@ -170,12 +182,12 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         if (reversedArgumentOrder) {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(supercell.getValue(), subspace.next()));
+                builder.cell(supercell, combinator.applyAsDouble(supercell.getDoubleValue(), subspace.get(i)));
             }
         } else {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(subspace.next(), supercell.getValue()));
+                builder.cell(supercell, combinator.applyAsDouble(subspace.get(i), supercell.getDoubleValue()));
             }
         }
     }
@@ -200,13 +212,13 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         int[] subspaceIndexes = subspaceIndexes(superspace.type(), subspace.type());
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> i = superspace.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> supercell = i.next();
+            Tensor.Cell supercell = i.next();
             TensorAddress subaddress = mapAddressToSubspace(supercell.getKey(), subspaceIndexes);
             double subspaceValue = subspace.get(subaddress);
             if ( ! Double.isNaN(subspaceValue))
                 builder.cell(supercell.getKey(),
-                        reversedArgumentOrder ? combinator.applyAsDouble(supercell.getValue(), subspaceValue)
-                                : combinator.applyAsDouble(subspaceValue, supercell.getValue()));
+                        reversedArgumentOrder ? combinator.applyAsDouble(supercell.getDoubleValue(), subspaceValue)
+                                : combinator.applyAsDouble(subspaceValue, supercell.getDoubleValue()));
         }
         return builder.build();
     }
@@ -252,32 +264,42 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         DimensionSizes aIterateSize = joinedSizeOf(a.type(), joinedType, joinedSize);
         DimensionSizes bIterateSize = joinedSizeOf(b.type(), joinedType, joinedSize);
 
+        // The joined indexes are written directly from the indexes of the joined cells, without creating addresses
+        long[] joinedIndexes = new long[joinedType.dimensions().size()];
+
         // for each combination of dimensions only in a
         for (Iterator<IndexedTensor.SubspaceIterator> ia = a.subspaceIterator(dimensionsOnlyInA, aIterateSize); ia.hasNext(); ) {
             IndexedTensor.SubspaceIterator aSubspace = ia.next();
             // for each combination of dimensions in a which is also in b
             while (aSubspace.hasNext()) {
-                Tensor.Cell aCell = aSubspace.next();
-                PartialAddress matchingBCells = partialAddress(a.type(), aSubspace.address(), sharedDimensions);
+                double aValue = aSubspace.next().getDoubleValue();
+                long[] aIndexes = aSubspace.indexesForReading();
+                PartialAddress matchingBCells = partialAddress(a.type(), aIndexes, sharedDimensions);
                 // for each matching combination of dimensions ony in b
                 for (IndexedTensor.SubspaceIterator bSubspace = b.cellIterator(matchingBCells, bIterateSize); bSubspace.hasNext(); ) {
-                    Tensor.Cell bCell = bSubspace.next();
-                    TensorAddress joinedAddress = joinAddresses(aCell.getKey(), aToIndexes, bCell.getKey(), bToIndexes, joinedType);
-                    double joinedValue = combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
-                    builder.cell(joinedAddress, joinedValue);
+                    double bValue = bSubspace.next().getDoubleValue();
+                    mapIndexes(aIndexes, joinedIndexes, aToIndexes);
+                    mapIndexes(bSubspace.indexesForReading(), joinedIndexes, bToIndexes);
+                    builder.cell(combinator.applyAsDouble(aValue, bValue), joinedIndexes);
                 }
             }
         }
     }
 
-    private static PartialAddress partialAddress(TensorType addressType, TensorAddress address, Set<String> retainDimensions) {
+    private static PartialAddress partialAddress(TensorType addressType, long[] indexes, Set<String> retainDimensions) {
         PartialAddress.Builder builder = new PartialAddress.Builder(retainDimensions.size());
         for (int i = 0; i < addressType.dimensions().size(); i++)
             if (retainDimensions.contains(addressType.dimensions().get(i).name()))
-                builder.add(addressType.dimensions().get(i).name(), address.numericLabel(i));
+                builder.add(addressType.dimensions().get(i).name(), indexes[i]);
         return builder.build();
     }
 
+    /** Writes the given indexes to the given array, using the given index map */
+    private static void mapIndexes(long[] from, long[] to, int[] indexMap) {
+        for (int i = 0; i < from.length; i++)
+            to[indexMap[i]] = from[i];
+    }
+
     /** Returns the sizes from the joined sizes which are present in the type argument */
     private static DimensionSizes joinedSizeOf(TensorType type, TensorType joinedType, DimensionSizes joinedSizes) {
         DimensionSizes.Builder builder = new DimensionSizes.Builder(type.dimensions().size());
@@ -294,13 +316,13 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         int[] bToIndexes = mapIndexes(b.type(), joinedType);
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> aIterator = a.cellIterator(); aIterator.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = aIterator.next();
+            Tensor.Cell aCell = aIterator.next();
             for (Iterator<Tensor.Cell> bIterator = b.cellIterator(); bIterator.hasNext(); ) {
-                Map.Entry<TensorAddress, Double> bCell = bIterator.next();
+                Tensor.Cell bCell = bIterator.next();
                 TensorAddress combinedAddress = joinAddresses(aCell.getKey(), aToIndexes,
                         bCell.getKey(), bToIndexes, joinedType);
                 if (combinedAddress == null) continue; // not combinable
-                builder.cell(combinedAddress, combinator.applyAsDouble(aCell.getValue(), bCell.getValue()));
+                builder.cell(combinedAddress, combinator.applyAsDouble(aCell.getDoubleValue(), bCell.getDoubleValue()));
             }
         }
         return builder.build();
@@ -311,6 +333,8 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         if (commonDimensionType.dimensions().isEmpty()) {
             return mappedGeneralJoin(a, b, joinedType, combinator); // fallback
         }
+        if (a instanceof MappedTensor && b instanceof MappedTensor && joinedType.dimensions().stream().noneMatch(d -> d.isIndexed()))
+            return labelIdHashJoin((MappedTensor)a, (MappedTensor)b, commonDimensionType, joinedType, combinator);
 
         boolean swapTensors = a.size() > b.size();
         if (swapTensors) {
@@ -331,7 +355,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
             Tensor.Cell aCell = cellIterator.next();
             TensorAddress partialCommonAddress = partialCommonAddress(aCell, aIndexesInCommon);
             aCellsByCommonAddress.putIfAbsent(partialCommonAddress, new ArrayList<>());
-            aCellsByCommonAddress.get(partialCommonAddress).add(aCell);
+            aCellsByCommonAddress.get(partialCommonAddress).add(aCell.detach());
         }
 
         // Iterate once through the larger tensor and use the hash map to find joinable cells
@@ -344,8 +368,8 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
                         bCell.getKey(), bIndexesInJoined, joinedType);
                 if (combinedAddress == null) continue; // not combinable
                 double combinedValue = swapTensors ?
-                        combinator.applyAsDouble(bCell.getValue(), aCell.getValue()) :
-                        combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
+                        combinator.applyAsDouble(bCell.getDoubleValue(), aCell.getDoubleValue()) :
+                        combinator.applyAsDouble(aCell.getDoubleValue(), bCell.getDoubleValue());
                 builder.cell(combinedAddress, combinedValue);
             }
         }
@@ -368,6 +392,98 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         return toIndexes;
     }
 
+    /**
+     * Hash join of two mapped tensors which is done on the label ids of the cells
+     * such that no addresses are created or hashed.
+     */
+    private static Tensor labelIdHashJoin(MappedTensor a, MappedTensor b, TensorType commonDimensionType,
+                                          TensorType joinedType, DoubleBinaryOperator combinator) {
+        boolean swapTensors = a.size() > b.size();
+        if (swapTensors) {
+            MappedTensor temp = a;
+            a = b;
+            b = temp;
+        }
+
+        // Map dimension indexes to common and joined type
+        int[] aIndexesInCommon = mapIndexes(commonDimensionType, a.type());
+        int[] bIndexesInCommon = mapIndexes(commonDimensionType, b.type());
+        int[] aIndexesInJoined = mapIndexes(a.type(), joinedType);
+        int[] bIndexesInJoined = mapIndexes(b.type(), joinedType);
+
+        // Iterate once through the smaller tensor and construct a hash table of chains of cells by common label ids
+        int aSize = (int)a.size();
+        int tableSize = 2;
+        while (tableSize < aSize * 2)
+            tableSize *= 2;
+        int mask = tableSize - 1;
+        int[] chainStarts = new int[tableSize];
+        Arrays.fill(chainStarts, -1);
+        int[] nextInChain = new int[aSize];
+        int[] commonLabelIds = new int[aIndexesInCommon.length];
+        for (int aCell = 0; aCell < aSize; aCell++) {
+            for (int i = 0; i < commonLabelIds.length; i++)
+                commonLabelIds[i] = a.labelId(aCell, aIndexesInCommon[i]);
+            int slot = hash(commonLabelIds) & mask;
+            nextInChain[aCell] = chainStarts[slot];
+            chainStarts[slot] = aCell;
+        }
+
+        // The id in the smaller tensor of each label in the larger, or -1 if it is not present
+        int[] bToALabelIds = new int[b.labelCount()];
+        for (int labelId = 0; labelId < bToALabelIds.length; labelId++)
+            bToALabelIds[labelId] = a.labelIdOf(b.label(labelId));
+
+        // The id in the joined tensor of each label in each of the arguments, looked up when first used
+        MappedTensor.Builder builder = (MappedTensor.Builder)Tensor.Builder.of(joinedType);
+        int[] aToJoinedLabelIds = new int[a.labelCount()];
+        Arrays.fill(aToJoinedLabelIds, -1);
+        int[] bToJoinedLabelIds = new int[b.labelCount()];
+        Arrays.fill(bToJoinedLabelIds, -1);
+
+        // Iterate once through the larger tensor and use the hash table to find joinable cells
+        int[] joinedLabelIds = new int[joinedType.rank()];
+        bCells:
+        for (int bCell = 0; bCell < b.size(); bCell++) {
+            for (int i = 0; i < commonLabelIds.length; i++) {
+                commonLabelIds[i] = bToALabelIds[b.labelId(bCell, bIndexesInCommon[i])];
+                if (commonLabelIds[i] < 0) continue bCells; // no cell in the smaller tensor has this label
+            }
+            for (int aCell = chainStarts[hash(commonLabelIds) & mask]; aCell >= 0; aCell = nextInChain[aCell]) {
+                if ( ! hasLabelIds(a, aCell, aIndexesInCommon, commonLabelIds)) continue;
+                for (int i = 0; i < aIndexesInJoined.length; i++)
+                    joinedLabelIds[aIndexesInJoined[i]] = joinedLabelId(a, a.labelId(aCell, i), aToJoinedLabelIds, builder);
+                for (int i = 0; i < bIndexesInJoined.length; i++)
+                    joinedLabelIds[bIndexesInJoined[i]] = joinedLabelId(b, b.labelId(bCell, i), bToJoinedLabelIds, builder);
+                double combinedValue = swapTensors ?
+                        combinator.applyAsDouble(b.get(bCell), a.get(aCell)) :
+                        combinator.applyAsDouble(a.get(aCell), b.get(bCell));
+                builder.cellByLabelIds(joinedLabelIds, combinedValue);
+            }
+        }
+        return builder.build();
+    }
+
+    private static int hash(int[] labelIds) {
+        int hash = 1;
+        for (int labelId : labelIds)
+            hash = 31 * hash + labelId;
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean hasLabelIds(MappedTensor tensor, int cell, int[] dimensionIndexes, int[] labelIds) {
+        for (int i = 0; i < labelIds.length; i++)
+            if (tensor.labelId(cell, dimensionIndexes[i]) != labelIds[i]) return false;
+        return true;
+    }
+
+    private static int joinedLabelId(MappedTensor tensor, int labelId, int[] toJoinedLabelIds, MappedTensor.Builder builder) {
+        if (toJoinedLabelIds[labelId] < 0)
+            toJoinedLabelIds[labelId] = builder.labelId(tensor.label(labelId));
+        return toJoinedLabelIds[labelId];
+    }
+
     private static TensorAddress joinAddresses(TensorAddress a, int[] aToIndexes, TensorAddress b, int[] bToIndexes,
                                                TensorType joinedType) {
         String[] joinedLabels = new String[joinedType.dimensions().size()];
@@ -1,8 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
-import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
@@ -31,7 +31,12 @@ public class Map<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYPE
         this.mapper = mapper;
     }
 
-    public static TensorType outputType(TensorType inputType) { return inputType; }
+    /** Returns the type of the result of mapping a tensor of the given type, where compact value types become float */
+    public static TensorType outputType(TensorType inputType) {
+        TensorType.Value valueType = inputType.valueType().computationType();
+        if (valueType == inputType.valueType()) return inputType;
+        return new TensorType(valueType, inputType.dimensions());
+    }
 
     public TensorFunction<NAMETYPE> argument() { return argument; }
     public DoubleUnaryOperator mapper() { return mapper; }
@@ -53,20 +58,31 @@ public class Map<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYPE
 
     @Override
     public TensorType type(TypeContext<NAMETYPE> context) {
-        return argument.type(context);
+        return outputType(argument.type(context));
     }
 
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
         Tensor argument = argument().evaluate(context);
-        Tensor.Builder builder = Tensor.Builder.of(argument.type());
+        if (argument instanceof IndexedTensor)
+            return mapIndexed((IndexedTensor)argument);
+
+        Tensor.Builder builder = Tensor.Builder.of(outputType(argument.type()));
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
-            java.util.Map.Entry<TensorAddress, Double> cell = i.next();
-            builder.cell(cell.getKey(), mapper.applyAsDouble(cell.getValue()));
+            Tensor.Cell cell = i.next();
+            builder.cell(cell.getKey(), mapper.applyAsDouble(cell.getDoubleValue()));
         }
         return builder.build();
     }
 
+    private Tensor mapIndexed(IndexedTensor argument) {
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(outputType(argument.type()),
+                                                                                                  argument.dimensionSizes());
+        for (long i = 0; i < argument.size(); i++)
+            builder.cellByDirectIndex(i, mapper.applyAsDouble(argument.get(i)));
+        return builder.build();
+    }
+
     @Override
     public String toString(ToStringContext context) {
         return "map(" + argument.toString(context) + ", " + mapper + ")";
@@ -7,7 +7,6 @@ import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
-import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
@@ -18,7 +17,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -105,14 +103,12 @@ public class Merge<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETY
         long bSize = b.dimensionSizes().size(0);
         long mergedSize = Math.max(aSize, bSize);
         long sharedSize = Math.min(aSize, bSize);
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
         IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
         for (long i = 0; i < sharedSize; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
-        Iterator<Double> largestIterator = aSize > bSize ? aIterator : bIterator;
+            builder.cell(combinator.applyAsDouble(a.get(i), b.get(i)), i);
+        IndexedTensor largest = aSize > bSize ? a : b;
         for (long i = sharedSize; i < mergedSize; i++)
-            builder.cell(largestIterator.next(), i);
+            builder.cell(largest.get(i), i);
         return builder.build();
     }
 
@@ -125,12 +121,12 @@ public class Merge<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETY
 
     private static void addCellsOf(Tensor a, Tensor b, Tensor.Builder builder, DoubleBinaryOperator combinator) {
         for (Iterator<Tensor.Cell> i = a.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = i.next();
+            Tensor.Cell aCell = i.next();
             double bCellValue = b.get(aCell.getKey());
             if (Double.isNaN(bCellValue))
-                builder.cell(aCell.getKey(), aCell.getValue());
+                builder.cell(aCell.getKey(), aCell.getDoubleValue());
             else if (combinator != null)
-                builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getValue(), bCellValue));
+                builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getDoubleValue(), bCellValue));
         }
     }
 
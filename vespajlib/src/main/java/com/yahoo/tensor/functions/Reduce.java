@@ -2,7 +2,9 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.MappedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
@@ -10,6 +12,8 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -62,7 +66,7 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     public static TensorType outputType(TensorType inputType, List<String> reduceDimensions) {
-        TensorType.Builder b = new TensorType.Builder(inputType.valueType());
+        TensorType.Builder b = new TensorType.Builder(inputType.valueType().computationType());
         if (reduceDimensions.isEmpty()) return b.build(); // means reduce all
         for (TensorType.Dimension dimension : inputType.dimensions()) {
             if ( ! reduceDimensions.contains(dimension.name()))
@@ -110,7 +114,7 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private static TensorType type(TensorType argumentType, List<String> dimensions) {
-        TensorType.Builder builder = new TensorType.Builder(argumentType.valueType());
+        TensorType.Builder builder = new TensorType.Builder(argumentType.valueType().computationType());
         if (dimensions.isEmpty()) return builder.build(); // means reduce all
         for (TensorType.Dimension dimension : argumentType.dimensions())
             if ( ! dimensions.contains(dimension.name())) // keep
@@ -130,20 +134,28 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
         // Special case: Reduce all
         if (dimensions.isEmpty() || dimensions.size() == argument.type().dimensions().size())
-            if (argument.type().dimensions().size() == 1 && argument instanceof IndexedTensor)
-                return reduceIndexedVector((IndexedTensor)argument, aggregator);
+            if (argument instanceof IndexedTensor)
+                return reduceAllIndexed((IndexedTensor)argument, aggregator);
             else
                 return reduceAllGeneral(argument, aggregator);
 
         TensorType reducedType = type(argument.type(), dimensions);
 
+        if (argument instanceof IndexedTensor && argument.size() > 0)
+            return reduceIndexed((IndexedTensor)argument, reducedType, dimensions, aggregator);
+        if (argument instanceof MappedTensor && reducedType.dimensions().stream().noneMatch(d -> d.isIndexed()))
+            return reduceMapped((MappedTensor)argument, reducedType, aggregator);
+
         // Reduce cells
+        Set<Integer> indexesToRemove = new HashSet<>();
+        for (String dimensionToRemove : dimensions)
+            indexesToRemove.add(argument.type().indexOfDimension(dimensionToRemove).get());
         Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> cell = i.next();
-            TensorAddress reducedAddress = reduceDimensions(cell.getKey(), argument.type(), reducedType, dimensions);
-            aggregatingCells.putIfAbsent(reducedAddress, ValueAggregator.ofType(aggregator));
-            aggregatingCells.get(reducedAddress).aggregate(cell.getValue());
+            Tensor.Cell cell = i.next();
+            TensorAddress reducedAddress = reduceDimensions(cell.getKey(), reducedType, indexesToRemove);
+            aggregatingCells.computeIfAbsent(reducedAddress, address -> ValueAggregator.ofType(aggregator))
+                            .aggregate(cell.getDoubleValue());
         }
         Tensor.Builder reducedBuilder = Tensor.Builder.of(reducedType);
         for (Map.Entry<TensorAddress, ValueAggregator> aggregatingCell : aggregatingCells.entrySet())
@@ -153,11 +165,7 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
     }
 
-    private static TensorAddress reduceDimensions(TensorAddress address, TensorType argumentType, TensorType reducedType, List<String> dimensions) {
-        Set<Integer> indexesToRemove = new HashSet<>();
-        for (String dimensionToRemove : dimensions)
-            indexesToRemove.add(argumentType.indexOfDimension(dimensionToRemove).get());
-
+    private static TensorAddress reduceDimensions(TensorAddress address, TensorType reducedType, Set<Integer> indexesToRemove) {
         String[] reducedLabels = new String[reducedType.dimensions().size()];
         int reducedLabelIndex = 0;
         for (int i = 0; i < address.size(); i++)
@@ -166,16 +174,88 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
         return TensorAddress.of(reducedLabels);
     }
 
+    /**
+     * Reduces an indexed tensor by aggregating each value directly into the value index of the reduced tensor,
+     * without creating cells or addresses.
+     */
+    private static Tensor reduceIndexed(IndexedTensor argument, TensorType reducedType, List<String> dimensions,
+                                        Aggregator aggregator) {
+        // Find the sizes of the reduced tensor, and the step in its value index for each dimension of the argument
+        DimensionSizes.Builder reducedSizesBuilder = new DimensionSizes.Builder(reducedType.dimensions().size());
+        for (int i = 0; i < reducedType.dimensions().size(); i++) {
+            int argumentIndex = argument.type().indexOfDimension(reducedType.dimensions().get(i).name()).get();
+            reducedSizesBuilder.set(i, argument.dimensionSizes().size(argumentIndex));
+        }
+        DimensionSizes reducedSizes = reducedSizesBuilder.build();
+        long[] reducedSteps = new long[argument.type().dimensions().size()];
+        long step = 1;
+        for (int i = reducedSteps.length - 1; i >= 0; i--) {
+            if (dimensions.contains(argument.type().dimensions().get(i).name())) continue; // step is 0
+            reducedSteps[i] = step;
+            step *= argument.dimensionSizes().size(i);
+        }
+
+        ValueAggregator[] aggregators = new ValueAggregator[(int)reducedSizes.totalSize()];
+        for (int i = 0; i < aggregators.length; i++)
+            aggregators[i] = ValueAggregator.ofType(aggregator);
+        IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(argument.dimensionSizes());
+        for (long i = 0; i < argument.size(); i++) {
+            indexes.next();
+            long[] argumentIndexes = indexes.indexesForReading();
+            long reducedIndex = 0;
+            for (int d = 0; d < argumentIndexes.length; d++)
+                reducedIndex += argumentIndexes[d] * reducedSteps[d];
+            aggregators[(int)reducedIndex].aggregate(argument.get(i));
+        }
+
+        IndexedTensor.BoundBuilder reducedBuilder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, reducedSizes);
+        for (int i = 0; i < aggregators.length; i++)
+            reducedBuilder.cellByDirectIndex(i, aggregators[i].aggregatedValue());
+        return reducedBuilder.build();
+    }
+
+    /**
+     * Reduces a mapped tensor by aggregating on the label ids of its cells,
+     * without creating cells or addresses.
+     */
+    private static Tensor reduceMapped(MappedTensor argument, TensorType reducedType, Aggregator aggregator) {
+        int[] reducedIndexesInArgument = Join.mapIndexes(reducedType, argument.type());
+        MappedTensor.Builder reducedBuilder = (MappedTensor.Builder)Tensor.Builder.of(reducedType);
+
+        // The id in the reduced tensor of each label in the argument, looked up when first used
+        int[] toReducedLabelIds = new int[argument.labelCount()];
+        Arrays.fill(toReducedLabelIds, -1);
+
+        List<ValueAggregator> aggregators = new ArrayList<>(); // by cell index in the reduced builder
+        int[] reducedLabelIds = new int[reducedType.rank()];
+        for (int cell = 0; cell < argument.size(); cell++) {
+            for (int i = 0; i < reducedLabelIds.length; i++) {
+                int labelId = argument.labelId(cell, reducedIndexesInArgument[i]);
+                if (toReducedLabelIds[labelId] < 0)
+                    toReducedLabelIds[labelId] = reducedBuilder.labelId(argument.label(labelId));
+                reducedLabelIds[i] = toReducedLabelIds[labelId];
+            }
+            int reducedCell = reducedBuilder.cellIndex(reducedLabelIds);
+            if (reducedCell == aggregators.size())
+                aggregators.add(ValueAggregator.ofType(aggregator));
+            aggregators.get(reducedCell).aggregate(argument.get(cell));
+        }
+
+        for (int i = 0; i < aggregators.size(); i++)
+            reducedBuilder.cellByIndex(i, aggregators.get(i).aggregatedValue());
+        return reducedBuilder.build();
+    }
+
     private static Tensor reduceAllGeneral(Tensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (Iterator<Double> i = argument.valueIterator(); i.hasNext(); )
-            valueAggregator.aggregate(i.next());
+        for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); )
+            valueAggregator.aggregate(i.next().getDoubleValue());
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
-    private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+    private static Tensor reduceAllIndexed(IndexedTensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (int i = 0; i < argument.dimensionSizes().size(0); i++)
+        for (long i = 0; i < argument.size(); i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
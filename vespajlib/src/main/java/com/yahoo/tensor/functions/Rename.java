@@ -103,9 +103,9 @@ public class Rename<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
         Tensor.Builder builder = Tensor.Builder.of(renamedType);
         for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> cell = i.next();
+            Tensor.Cell cell = i.next();
             TensorAddress renamedAddress = rename(cell.getKey(), toIndexes);
-            builder.cell(renamedAddress, cell.getValue());
+            builder.cell(renamedAddress, cell.getDoubleValue());
         }
         return builder.build();
     }
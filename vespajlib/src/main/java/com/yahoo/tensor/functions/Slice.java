@@ -69,7 +69,7 @@ public class Slice<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETY
         for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
             Tensor.Cell cell = i.next();
             if (matches(subspaceAddress, cell.getKey(), tensor.type()))
-                b.cell(remaining(resultType, cell.getKey(), tensor.type()), cell.getValue());
+                b.cell(remaining(resultType, cell.getKey(), tensor.type()), cell.getDoubleValue());
         }
         return b.build();
     }
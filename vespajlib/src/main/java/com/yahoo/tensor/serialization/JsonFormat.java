@@ -9,6 +9,7 @@ import com.yahoo.slime.JsonDecoder;
 import com.yahoo.slime.ObjectTraverser;
 import com.yahoo.slime.Slime;
 import com.yahoo.slime.Type;
+import com.yahoo.tensor.CellValues;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
@@ -50,7 +51,10 @@ public class JsonFormat {
             Tensor.Cell cell = i.next();
             Cursor cellObject = cellsArray.addObject();
             encodeAddress(tensor.type(), cell.getKey(), cellObject.setObject("address"));
-            cellObject.setDouble("value", cell.getValue());
+            if (tensor.type().valueType() == TensorType.Value.INT8)
+                cellObject.setLong("value", CellValues.toInt8(cell.getFloatValue()));
+            else
+                cellObject.setDouble("value", cell.getDoubleValue());
         }
     }
 
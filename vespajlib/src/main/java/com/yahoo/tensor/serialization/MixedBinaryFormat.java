@@ -3,6 +3,7 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.CellValues;
 import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -64,6 +65,9 @@ class MixedBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: encodeCells(buffer, tensor, buffer::putDouble); break;
             case FLOAT: encodeCells(buffer, tensor, (val) -> buffer.putFloat(val.floatValue())); break;
+            case BFLOAT16: encodeCells(buffer, tensor, (val) ->
+                    buffer.putShort(CellValues.toBFloat16Bits(val.floatValue()))); break;
+            case INT8: encodeCells(buffer, tensor, (val) -> buffer.put(CellValues.toInt8(val.floatValue()))); break;
         }
     }
 
@@ -127,6 +131,9 @@ class MixedBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: decodeCells(buffer, builder, type, buffer::getDouble); break;
             case FLOAT: decodeCells(buffer, builder, type, () -> (double)buffer.getFloat()); break;
+            case BFLOAT16: decodeCells(buffer, builder, type, () ->
+                    (double)CellValues.fromBFloat16Bits(buffer.getShort())); break;
+            case INT8: decodeCells(buffer, builder, type, () -> (double)buffer.get()); break;
         }
     }
 
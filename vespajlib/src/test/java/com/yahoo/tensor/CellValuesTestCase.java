@@ -0,0 +1,53 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class CellValuesTestCase {
+
+    @Test
+    public void testInt8() {
+        assertEquals(0, CellValues.toInt8(0));
+        assertEquals(-3, CellValues.toInt8(-3.9f)); // the fraction is discarded
+        assertEquals(127, CellValues.toInt8(127));
+        assertEquals(127, CellValues.toInt8(127.5f));
+        assertEquals(127, CellValues.toInt8(128)); // not wrapped to -128
+        assertEquals(127, CellValues.toInt8(1000));
+        assertEquals(127, CellValues.toInt8(Float.POSITIVE_INFINITY));
+        assertEquals(-128, CellValues.toInt8(-128));
+        assertEquals(-128, CellValues.toInt8(-128.5f));
+        assertEquals(-128, CellValues.toInt8(-129)); // not wrapped to 127
+        assertEquals(-128, CellValues.toInt8(-1000));
+        assertEquals(-128, CellValues.toInt8(Float.NEGATIVE_INFINITY));
+        assertEquals(0, CellValues.toInt8(Float.NaN));
+    }
+
+    @Test
+    public void testBFloat16() {
+        assertBFloat16(1.5f, 1.5f); // exactly representable
+        assertBFloat16(-5.5f, -5.5f);
+        assertBFloat16(0.0f, 0.0f);
+        assertBFloat16(3.140625f, 3.1415927f); // rounded down
+        assertBFloat16(1.0078125f, Float.intBitsToFloat(0x3f808001)); // rounded up where truncating would give 1.0
+        assertBFloat16(-1.0078125f, Float.intBitsToFloat(0xbf808001)); // rounded away from zero by magnitude
+        assertBFloat16(1.0f, Float.intBitsToFloat(0x3f808000)); // a tie is rounded to the even 1.0 ...
+        assertBFloat16(1.015625f, Float.intBitsToFloat(0x3f818000)); // ... also when that means rounding up
+        assertBFloat16(Float.intBitsToFloat(0x7f7f0000), Float.intBitsToFloat(0x7f7f7fff)); // largest finite bfloat16
+        assertBFloat16(Float.POSITIVE_INFINITY, Float.MAX_VALUE); // beyond it
+        assertBFloat16(Float.NEGATIVE_INFINITY, -Float.MAX_VALUE);
+        assertBFloat16(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        assertTrue(Float.isNaN(CellValues.fromBFloat16Bits(CellValues.toBFloat16Bits(Float.NaN))));
+        assertTrue(Float.isNaN(CellValues.fromBFloat16Bits(CellValues.toBFloat16Bits(Float.intBitsToFloat(0x7fffffff)))));
+    }
+
+    private void assertBFloat16(float expected, float value) {
+        assertEquals(expected, CellValues.fromBFloat16Bits(CellValues.toBFloat16Bits(value)), 0);
+    }
+
+}
@@ -66,6 +66,10 @@ public class IndexedTensorTestCase {
         verifyDouble("tensor<float>(x[3])");
         verifyFloat("tensor<double>(x[3])");
         verifyDouble("tensor<double>(x[3])");
+        verifyFloat("tensor<bfloat16>(x[3])");
+        verifyDouble("tensor<bfloat16>(x[3])");
+        verifyFloat("tensor<int8>(x[3])");
+        verifyDouble("tensor<int8>(x[3])");
         try {
             verifyDouble("tensor<double>(x[4])");
             fail("Expect IllegalArgumentException");
@@ -74,6 +78,29 @@ public class IndexedTensorTestCase {
         }
     }
     
+    @Test
+    public void testCompactValueTypes() {
+        Tensor bfloat16 = Tensor.from("tensor<bfloat16>(x[3]):[1.5, 3.1415927, -1000001.0]");
+        assertEquals(1.5, bfloat16.get(TensorAddress.of(0)), 0); // exactly representable
+        assertEquals(3.140625, bfloat16.get(TensorAddress.of(1)), 0); // rounded to 8 bits of precision
+        assertEquals(-999424.0, bfloat16.get(TensorAddress.of(2)), 0);
+        assertEquals("tensor<bfloat16>(x[3]):[1.5, 3.140625, -999424.0]", bfloat16.toString());
+
+        Tensor int8 = Tensor.from("tensor<int8>(x[3]):[1, -128, 127.9]");
+        assertEquals(1, int8.get(TensorAddress.of(0)), 0);
+        assertEquals(-128, int8.get(TensorAddress.of(1)), 0);
+        assertEquals(127, int8.get(TensorAddress.of(2)), 0); // truncated
+        assertEquals("tensor<int8>(x[3]):[1.0, -128.0, 127.0]", int8.toString());
+        assertEquals(Tensor.from("tensor<int8>(x[3]):[127, -128, 127]"),
+                     Tensor.from("tensor<int8>(x[3]):[128, -129, 1000]")); // clamped, not wrapped around
+
+        // Computations on compact values produce floats
+        assertEquals(Tensor.from("tensor<float>(x[3]):[2.0, -256.0, 254.0]"), int8.multiply(Tensor.from("tensor<int8>(x[3]):[2, 2, 2]")));
+        assertEquals(300.0, Tensor.from("tensor<int8>(x[3]):[100, 100, 100]").sum().asDouble(), 0);
+        assertEquals(TensorType.Value.FLOAT, int8.map(v -> v * 1000).type().valueType());
+        assertEquals(127000.0, int8.map(v -> v * 1000).get(TensorAddress.of(2)), 0);
+    }
+
     @Test
     public void testBoundBuilding() {
         TensorType type = new TensorType.Builder().indexed("v", vSize)
@@ -6,6 +6,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -48,4 +49,64 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testLabelsAreStoredOnce() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        MappedTensor tensor = (MappedTensor)Tensor.from(type, "{{x:a,y:b}:1.0,{x:b,y:a}:2.0,{x:a,y:a}:3.0}");
+        assertEquals(3, tensor.size());
+        assertEquals(2, tensor.labelCount());
+        assertEquals(-1, tensor.labelIdOf("c"));
+        assertEquals("a", tensor.label(tensor.labelIdOf("a")));
+        assertEquals(tensor.labelId(0, 0), tensor.labelId(1, 1));
+        assertEquals(2.0, tensor.get(address("b", "a")), 0);
+        assertEquals(3.0, tensor.get(address("a", "a")), 0);
+        assertTrue(Double.isNaN(tensor.get(address("b", "b"))));
+        assertTrue(Double.isNaN(tensor.get(address("a", "c"))));
+    }
+
+    @Test
+    public void testManyCells() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int x = 0; x < 100; x++)
+            for (int y = 0; y < 30; y++)
+                builder.cell(address("x" + x, "y" + y), x * 30 + y);
+        Tensor tensor = builder.build();
+        assertEquals(3000, tensor.size());
+        for (int x = 0; x < 100; x++)
+            for (int y = 0; y < 30; y++)
+                assertEquals(x * 30 + y, tensor.get(address("x" + x, "y" + y)), 0);
+        assertEquals(3000, tensor.cells().size());
+        assertEquals(tensor.cells().hashCode(), tensor.hashCode());
+    }
+
+    @Test
+    public void testMultipleValuesForCell() {
+        try {
+            Tensor.Builder.of(TensorType.fromSpec("tensor(x{})")).cell(address("a"), 1.0).cell(address("a"), 2.0);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Multiple values for cell {x:a} in tensor(x{})", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJoinAndReduceOnLabels() {
+        Tensor a = Tensor.from("tensor(x{},y{}):{{x:a,y:1}:1.0,{x:a,y:2}:2.0,{x:b,y:1}:3.0,{x:c,y:3}:4.0}");
+        Tensor b = Tensor.from("tensor(y{},z{}):{{y:1,z:p}:10.0,{y:2,z:p}:20.0,{y:2,z:q}:30.0,{y:4,z:q}:40.0}");
+        assertEquals(Tensor.from("tensor(x{},y{},z{}):{{x:a,y:1,z:p}:10.0,{x:a,y:2,z:p}:40.0,{x:a,y:2,z:q}:60.0,{x:b,y:1,z:p}:30.0}"),
+                     a.multiply(b));
+        assertEquals(Tensor.from("tensor(x{},y{},z{}):{{x:a,y:1,z:p}:10.0,{x:a,y:2,z:p}:40.0,{x:a,y:2,z:q}:60.0,{x:b,y:1,z:p}:30.0}"),
+                     b.multiply(a));
+        assertEquals(Tensor.from("tensor(x{}):{a:3.0,b:3.0,c:4.0}"), a.sum("y"));
+        assertEquals(Tensor.from("tensor(y{}):{1:2.0,2:2.0,3:4.0}"), a.avg("x"));
+        assertEquals(Tensor.from("tensor(x{},z{}):{{x:a,z:p}:50.0,{x:a,z:q}:60.0,{x:b,z:p}:30.0}"),
+                     a.multiply(b).sum("y"));
+    }
+
+    private static TensorAddress address(String ... labels) {
+        return TensorAddress.of(labels);
+    }
+
 }
@@ -152,4 +152,47 @@ public class MixedTensorTestCase {
                 tensor.toString());
     }
 
+    @Test
+    public void testCellAccess() {
+        TensorType type = new TensorType.Builder().mapped("x").indexed("y", 2).mapped("z").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int x = 0; x < 50; x++)
+            for (int y = 0; y < 2; y++)
+                for (int z = 0; z < 20; z++)
+                    builder.cell(address("x" + x, String.valueOf(y), "z" + z), x * 100 + y * 20 + z);
+        Tensor tensor = builder.build();
+        assertTrue(tensor instanceof MixedTensor);
+        assertEquals(2000, tensor.size());
+        for (int x = 0; x < 50; x++)
+            for (int y = 0; y < 2; y++)
+                for (int z = 0; z < 20; z++)
+                    assertEquals(x * 100 + y * 20 + z, tensor.get(address("x" + x, String.valueOf(y), "z" + z)), 0);
+        assertTrue(Double.isNaN(tensor.get(address("x50", "0", "z0"))));
+        assertTrue(Double.isNaN(tensor.get(address("x0", "2", "z0"))));
+        assertEquals(tensor.cells().hashCode(), tensor.hashCode());
+    }
+
+    @Test
+    public void testCellAccessOutsideIndexedDimensions() {
+        Tensor tensor = Tensor.from("tensor(key{},x[2],y[3]):{{key:a,x:0,y:0}:1.0,{key:a,x:0,y:1}:2.0,{key:a,x:0,y:2}:3.0," +
+                                    "{key:a,x:1,y:0}:4.0,{key:a,x:1,y:1}:5.0,{key:a,x:1,y:2}:6.0}");
+        assertTrue(tensor instanceof MixedTensor);
+        assertEquals(6.0, tensor.get(address("a", "1", "2")), 0);
+        assertTrue(Double.isNaN(tensor.get(address("a", "0", "3"))));
+        assertTrue(Double.isNaN(tensor.get(address("a", "0", "4")))); // would be the offset of {x:1,y:1}
+        assertTrue(Double.isNaN(tensor.get(address("a", "2", "0"))));
+    }
+
+    @Test
+    public void testHashCodeIsIndependentOfCellOrder() {
+        Tensor a = Tensor.from("tensor(x{},y[2]):{{x:a,y:0}:1.0,{x:a,y:1}:2.0,{x:b,y:0}:3.0,{x:b,y:1}:4.0}");
+        Tensor b = Tensor.from("tensor(x{},y[2]):{{x:b,y:1}:4.0,{x:b,y:0}:3.0,{x:a,y:1}:2.0,{x:a,y:0}:1.0}");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    private static TensorAddress address(String ... labels) {
+        return TensorAddress.of(labels);
+    }
+
 }
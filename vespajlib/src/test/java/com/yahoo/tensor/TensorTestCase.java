@@ -13,6 +13,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.function.DoubleBinaryOperator;
@@ -152,6 +153,52 @@ public class TensorTestCase {
         assertEquals("Generic computation implementation", 42, (int)dotProduct(vectorInJSpace, Collections.singletonList(matrixInKSpace)));
     }
 
+    /** Test that computations over indexed tensors, which are done on primitive values, equals the general ones */
+    @Test
+    public void testIndexedComputationEqualsGeneralComputation() {
+        Tensor indexed = Tensor.range(TensorType.fromSpec("tensor(x[3],y[2],z[4])")).map(v -> v * 3 - 5);
+        Tensor mapped = asMapped(indexed);
+        Tensor otherIndexed = Tensor.range(TensorType.fromSpec("tensor(x[3],y[2],z[4])")).map(v -> 7 - v);
+        Tensor otherMapped = asMapped(otherIndexed);
+        Tensor vectorIndexed = Tensor.from("tensor(y[2]):[2, -3]");
+        Tensor vectorMapped = asMapped(vectorIndexed);
+        Tensor matrixIndexed = Tensor.from("tensor(w[2],z[4]):[[1, 2, 3, 4], [-1, -2, -3, -4]]");
+        Tensor matrixMapped = asMapped(matrixIndexed);
+
+        assertTrue(indexed instanceof IndexedTensor);
+        assertTrue(mapped instanceof MappedTensor);
+        assertEquals(mapped, indexed);
+
+        for (Reduce.Aggregator aggregator : Reduce.Aggregator.values()) {
+            assertEquals(mapped.reduce(aggregator), indexed.reduce(aggregator));
+            assertEquals(mapped.reduce(aggregator, "x"), indexed.reduce(aggregator, "x"));
+            assertEquals(mapped.reduce(aggregator, "y"), indexed.reduce(aggregator, "y"));
+            assertEquals(mapped.reduce(aggregator, "z"), indexed.reduce(aggregator, "z"));
+            assertEquals(mapped.reduce(aggregator, "x", "z"), indexed.reduce(aggregator, "x", "z"));
+            assertEquals(mapped.reduce(aggregator, "x", "y", "z"), indexed.reduce(aggregator, "x", "y", "z"));
+        }
+        assertEquals(mapped.map(v -> v * v), indexed.map(v -> v * v));
+        assertEquals(mapped.multiply(otherMapped), indexed.multiply(otherIndexed));
+        assertEquals(mapped.subtract(vectorMapped), indexed.subtract(vectorIndexed));
+        assertEquals(vectorMapped.subtract(mapped), vectorIndexed.subtract(indexed));
+        assertEquals(mapped.multiply(matrixMapped), indexed.multiply(matrixIndexed));
+        assertEquals(matrixMapped.multiply(mapped), matrixIndexed.multiply(indexed));
+        assertEquals(vectorMapped.merge(vectorMapped.add(vectorMapped), (a, b) -> a - b),
+                     vectorIndexed.merge(vectorIndexed.add(vectorIndexed), (a, b) -> a - b));
+    }
+
+    private Tensor asMapped(Tensor tensor) {
+        TensorType.Builder mappedType = new TensorType.Builder();
+        for (TensorType.Dimension dimension : tensor.type().dimensions())
+            mappedType.mapped(dimension.name());
+        Tensor.Builder builder = Tensor.Builder.of(mappedType.build());
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            builder.cell(cell.getKey(), cell.getDoubleValue());
+        }
+        return builder.build();
+    }
+
     @Test
     public void testTensorModify() {
         assertTensorModify((left, right) -> right,
@@ -98,6 +98,41 @@ public class TensorTypeTestCase {
         assertValueType(TensorType.Value.FLOAT, "tensor<float>(x[])");
         assertEquals("tensor(x[])", TensorType.fromSpec("tensor<double>(x[])").toString());
         assertEquals("tensor<float>(x[])", TensorType.fromSpec("tensor<float>(x[])").toString());
+        assertValueType(TensorType.Value.BFLOAT16, "tensor<bfloat16>(x[])");
+        assertValueType(TensorType.Value.INT8, "tensor<int8>(x[])");
+        assertEquals("tensor<bfloat16>(x[])", TensorType.fromSpec("tensor<bfloat16>(x[])").toString());
+        assertEquals("tensor<int8>(x[])", TensorType.fromSpec("tensor<int8>(x[])").toString());
+        assertIllegalTensorType("tensor<int16>(x[])",
+                                "Value type must be either 'double', 'float', 'bfloat16' or 'int8' but was 'int16'");
+    }
+
+    @Test
+    public void testValueTypePromotion() {
+        assertLargestOf(TensorType.Value.DOUBLE, TensorType.Value.DOUBLE, TensorType.Value.INT8);
+        assertLargestOf(TensorType.Value.FLOAT, TensorType.Value.FLOAT, TensorType.Value.BFLOAT16);
+        assertLargestOf(TensorType.Value.FLOAT, TensorType.Value.FLOAT, TensorType.Value.INT8);
+        assertLargestOf(TensorType.Value.BFLOAT16, TensorType.Value.BFLOAT16, TensorType.Value.INT8);
+        assertLargestOf(TensorType.Value.INT8, TensorType.Value.INT8, TensorType.Value.INT8);
+        assertTrue(TensorType.Value.FLOAT.isEqualOrLargerThan(TensorType.Value.BFLOAT16));
+        assertFalse(TensorType.Value.INT8.isEqualOrLargerThan(TensorType.Value.BFLOAT16));
+        assertIsAssignableTo("tensor<int8>(x[10])", "tensor<float>(x[10])");
+        assertUnassignableTo("tensor<float>(x[10])", "tensor<bfloat16>(x[10])");
+
+        // Compact value types are computed on as floats
+        assertEquals(TensorType.Value.FLOAT, TensorType.Value.INT8.computationType());
+        assertEquals(TensorType.Value.FLOAT, TensorType.Value.BFLOAT16.computationType());
+        assertEquals(TensorType.Value.DOUBLE, TensorType.Value.DOUBLE.computationType());
+        assertEquals(TensorType.Value.FLOAT,
+                     TensorType.combinedValueType(TensorType.fromSpec("tensor<int8>(x[10])"),
+                                                  TensorType.fromSpec("tensor<bfloat16>(y[10])")));
+        assertEquals(TensorType.Value.DOUBLE,
+                     TensorType.combinedValueType(TensorType.fromSpec("tensor<int8>(x[10])"),
+                                                  TensorType.fromSpec("tensor(y[10])")));
+    }
+
+    private static void assertLargestOf(TensorType.Value expected, TensorType.Value value1, TensorType.Value value2) {
+        assertEquals(expected, TensorType.Value.largestOf(value1, value2));
+        assertEquals(expected, TensorType.Value.largestOf(value2, value1));
     }
 
     private static void assertTensorType(String typeSpec) {
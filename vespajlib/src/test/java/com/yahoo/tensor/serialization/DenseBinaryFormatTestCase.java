@@ -67,10 +67,40 @@ public class DenseBinaryFormatTestCase {
         assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(tensor)));
     }
 
+    @Test
+    public void requireThatBFloat16SerializationFormatDoNotChange() {
+        byte[] encodedTensor = new byte[]{6, // binary format type
+                2, // bfloat16 type
+                2, // dimension count
+                2, (byte) 'x', (byte) 'y', 2, // dimension xy with size
+                1, (byte) 'z', 1, // dimension z with size
+                64, 0, // value 1
+                64, 64, // value 2
+        };
+        Tensor tensor = Tensor.from("tensor<bfloat16>(xy[],z[]):{{xy:0,z:0}:2.0,{xy:1,z:0}:3.0}");
+        assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(tensor)));
+    }
+
+    @Test
+    public void requireThatInt8SerializationFormatDoNotChange() {
+        byte[] encodedTensor = new byte[]{6, // binary format type
+                3, // int8 type
+                2, // dimension count
+                2, (byte) 'x', (byte) 'y', 2, // dimension xy with size
+                1, (byte) 'z', 1, // dimension z with size
+                2, // value 1
+                -3, // value 2
+        };
+        Tensor tensor = Tensor.from("tensor<int8>(xy[],z[]):{{xy:0,z:0}:2.0,{xy:1,z:0}:-3.0}");
+        assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(tensor)));
+    }
+
     @Test
     public void testSerializationOfDifferentValueTypes() {
         assertSerialization("tensor<double>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
         assertSerialization("tensor<float>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertSerialization("tensor<bfloat16>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:-5.5}");
+        assertSerialization("tensor<int8>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:-128.0, {x:1,y:1}:127.0}");
     }
 
     private void assertSerialization(String tensorString) {
@@ -31,6 +31,28 @@ public class JsonFormatTestCase {
         assertEquals(tensor, decoded);
     }
 
+    @Test
+    public void testCompactValueTypes() {
+        Tensor int8 = Tensor.from("tensor<int8>(x[2]):[-3, 100]");
+        byte[] json = JsonFormat.encode(int8);
+        assertEquals("{\"cells\":[" +
+                     "{\"address\":{\"x\":\"0\"},\"value\":-3}," +
+                     "{\"address\":{\"x\":\"1\"},\"value\":100}" +
+                     "]}",
+                     new String(json, StandardCharsets.UTF_8));
+        assertEquals(int8, JsonFormat.decode(int8.type(), json));
+
+        Tensor bfloat16 = Tensor.from("tensor<bfloat16>(x[2]):[-3.5, 1.25]");
+        assertEquals(bfloat16, JsonFormat.decode(bfloat16.type(), JsonFormat.encode(bfloat16)));
+
+        Tensor mappedInt8 = Tensor.from("tensor<int8>(x{}):{{x:a}:128.0, {x:b}:-129.0}");
+        assertEquals("{\"cells\":[" +
+                     "{\"address\":{\"x\":\"a\"},\"value\":127}," +
+                     "{\"address\":{\"x\":\"b\"},\"value\":-128}" +
+                     "]}",
+                     new String(JsonFormat.encode(mappedInt8), StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testSingleSparseDimensionShortForm() {
         Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor(x{})"));
@@ -81,6 +81,16 @@ public class MixedBinaryFormatTestCase {
     public void testSerializationOfDifferentValueTypes() {
         assertSerialization("tensor<double>(x{},y[2]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
         assertSerialization("tensor<float>(x{},y[2]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertSerialization("tensor<bfloat16>(x{},y[2]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:-5.5}");
+        assertSerialization("tensor<int8>(x{},y[2]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:-128.0, {x:1,y:1}:127.0}");
+    }
+
+    @Test
+    public void testSerializationOfInt8ValuesOutOfRange() {
+        Tensor tensor = Tensor.from("tensor<int8>(x{},y[2]):{{x:0,y:0}:128.0, {x:0,y:1}:-129.0, {x:1,y:0}:1000.0, {x:1,y:1}:-5.5}");
+        Tensor decoded = TypedBinaryFormat.decode(Optional.of(tensor.type()), GrowableByteBuffer.wrap(TypedBinaryFormat.encode(tensor)));
+        assertEquals(Tensor.from("tensor<int8>(x{},y[2]):{{x:0,y:0}:127.0, {x:0,y:1}:-128.0, {x:1,y:0}:127.0, {x:1,y:1}:-5.0}"),
+                     decoded);
     }
 
     private void assertSerialization(String tensorString) {
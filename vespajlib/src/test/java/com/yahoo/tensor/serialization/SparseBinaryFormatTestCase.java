@@ -70,6 +70,19 @@ public class SparseBinaryFormatTestCase {
     public void testSerializationOfDifferentValueTypes() {
         assertSerialization("tensor<double>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
         assertSerialization("tensor<float>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertSerialization("tensor<bfloat16>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:-5.5}");
+        assertSerialization("tensor<int8>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:-128.0, {x:1,y:1}:127.0}");
+    }
+
+    @Test
+    public void testSerializationOfCompactValuesNotRepresentable() {
+        Tensor int8 = Tensor.from("tensor<int8>(x{}):{{x:0}:128.0, {x:1}:-129.0, {x:2}:1000.0}");
+        assertEquals(Tensor.from("tensor<int8>(x{}):{{x:0}:127.0, {x:1}:-128.0, {x:2}:127.0}"),
+                     TypedBinaryFormat.decode(Optional.of(int8.type()), GrowableByteBuffer.wrap(TypedBinaryFormat.encode(int8))));
+
+        Tensor bfloat16 = Tensor.from("tensor<bfloat16>(x{}):{{x:0}:1.0078}");
+        assertEquals(Tensor.from("tensor<bfloat16>(x{}):{{x:0}:1.0078125}"), // rounded, not truncated to 1.0
+                     TypedBinaryFormat.decode(Optional.of(bfloat16.type()), GrowableByteBuffer.wrap(TypedBinaryFormat.encode(bfloat16))));
     }
 
     private void assertSerialization(String tensorString) {